@@ -0,0 +1,71 @@
+package com.lucas.spring.benchmark;
+
+import com.lucas.spring.init.v2.ZDispatcherServlet;
+import org.openjdk.jmh.annotations.*;
+
+import javax.servlet.ServletConfig;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author zhangfan
+ * @description 完整的请求处理耗时，通过 HttpServlet.service() 进入 doDispatch：路由、参数绑定、方法调用和输出
+ * config 参数切换配置文件，对比开启和关闭监控指标的差别
+ * @date 2026/10/18 16:50
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DispatchBenchmark {
+
+    @Param({"dispatch.properties", "dispatch-no-metrics.properties"})
+    private String config;
+
+    private ZDispatcherServlet servlet;
+
+    private MockHttpServletRequest add;
+
+    private MockHttpServletRequest query;
+
+    private MockHttpServletRequest notFound;
+
+    private MockHttpServletResponse resp;
+
+    @Setup
+    public void setup() throws Exception {
+        servlet = new ZDispatcherServlet();
+        servlet.init((ServletConfig) MockServletConfig.create(getClass().getClassLoader(), config));
+        add = new MockHttpServletRequest("GET", "/web/add").addParameter("a", "1").addParameter("b", "2");
+        query = new MockHttpServletRequest("GET", "/web/query").addParameter("name", "lucas");
+        notFound = new MockHttpServletRequest("GET", "/web/missing");
+        resp = new MockHttpServletResponse();
+    }
+
+    @TearDown
+    public void tearDown() {
+        servlet.destroy();
+    }
+
+    @Benchmark
+    public long add() throws Exception {
+        resp.reset();
+        servlet.service(add, resp);
+        return resp.getWrittenBytes();
+    }
+
+    @Benchmark
+    public long query() throws Exception {
+        resp.reset();
+        servlet.service(query, resp);
+        return resp.getWrittenBytes();
+    }
+
+    @Benchmark
+    public long notFound() throws Exception {
+        resp.reset();
+        servlet.service(notFound, resp);
+        return resp.getWrittenBytes();
+    }
+}
@@ -0,0 +1,202 @@
+package com.lucas.spring.benchmark;
+
+import com.lucas.spring.init.v2.ZDispatcherServlet;
+import org.openjdk.jmh.annotations.*;
+
+import javax.servlet.http.HttpServlet;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author zhangfan
+ * @description 容器冷启动耗时，也就是 ZDispatcherServlet.init() 从读取配置到完成路由注册的时间
+ * setup 时生成指定数量的 Controller、Service 和普通类的源码，用 JavaCompiler 编译到临时目录；
+ * 每次测量都新建一个类加载器重新加载框架和生成的类，类加载、扫描、实例化、注入和路由注册都计算在内。
+ * componentIndex=true 时编译阶段运行 ComponentIndexProcessor 生成组件索引，false 时扫描目录
+ * @date 2026/10/18 17:00
+ **/
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InitBenchmark {
+
+    private static final String CONFIG = "bench-init.properties";
+
+    // 每种类各生成多少个：Controller、Service 和不带注解的普通类
+    @Param({"10", "100", "1000"})
+    private int classes;
+
+    @Param({"true", "false"})
+    private boolean componentIndex;
+
+    private File directory;
+
+    private URL[] classPath;
+
+    private Object servlet;
+
+    private URLClassLoader classLoader;
+
+    @Setup(Level.Trial)
+    public void generate() throws Exception {
+        directory = Files.createTempDirectory("zspring-init").toFile();
+        String scanPackage = "bench.gen" + classes;
+        File source = new File(directory, "src");
+        File output = new File(directory, "classes");
+        File packageDirectory = new File(source, scanPackage.replace('.', '/'));
+        if (!packageDirectory.mkdirs() || !output.mkdirs()) {
+            throw new IOException("Create " + directory + " failed");
+        }
+        List<String> files = new ArrayList<String>();
+        for (int i = 0; i < classes; i++) {
+            files.add(write(packageDirectory, "Controller" + i, controller(scanPackage, i)));
+            files.add(write(packageDirectory, "Service" + i, service(scanPackage, i)));
+            files.add(write(packageDirectory, "Model" + i, model(scanPackage, i)));
+        }
+        write(output, CONFIG, "scanPackage=" + scanPackage + "\ncomponentIndex=" + componentIndex
+                + "\nmetricsJmx=false\n");
+
+        // 框架和 servlet-api 所在的位置，生成的类编译时需要它们，测量时也用它们创建新的类加载器
+        Set<URL> locations = new LinkedHashSet<URL>();
+        locations.add(output.toURI().toURL());
+        locations.add(ZDispatcherServlet.class.getProtectionDomain().getCodeSource().getLocation());
+        locations.add(HttpServlet.class.getProtectionDomain().getCodeSource().getLocation());
+        classPath = locations.toArray(new URL[0]);
+
+        StringBuilder compileClassPath = new StringBuilder();
+        for (URL url : classPath) {
+            compileClassPath.append(new File(url.toURI()).getPath()).append(File.pathSeparator);
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("InitBenchmark requires a JDK");
+        }
+        List<String> arguments = new ArrayList<String>();
+        arguments.add("-nowarn");
+        arguments.add("-encoding");
+        arguments.add("UTF-8");
+        arguments.add("-d");
+        arguments.add(output.getPath());
+        arguments.add("-classpath");
+        arguments.add(compileClassPath.toString());
+        if (componentIndex) {
+            arguments.add("-processorpath");
+            arguments.add(compileClassPath.toString());
+            arguments.add("-processor");
+            arguments.add("com.lucas.spring.processor.ComponentIndexProcessor");
+        } else {
+            arguments.add("-proc:none");
+        }
+        arguments.addAll(files);
+        if (compiler.run(null, null, null, arguments.toArray(new String[0])) != 0) {
+            throw new IllegalStateException("Compile generated classes failed");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() {
+        delete(directory);
+    }
+
+    @Setup(Level.Invocation)
+    public void newClassLoader() {
+        // 父加载器不包含框架的类，框架、servlet-api 和生成的类都由新的类加载器重新加载
+        classLoader = new URLClassLoader(classPath, ClassLoader.getSystemClassLoader().getParent());
+    }
+
+    @TearDown(Level.Invocation)
+    public void destroy() throws Exception {
+        servlet.getClass().getMethod("destroy").invoke(servlet);
+        classLoader.close();
+    }
+
+    @Benchmark
+    public Object init() throws Exception {
+        Thread.currentThread().setContextClassLoader(classLoader);
+        Class<?> servletClass = classLoader.loadClass(ZDispatcherServlet.class.getName());
+        Class<?> configClass = classLoader.loadClass("javax.servlet.ServletConfig");
+        servlet = servletClass.newInstance();
+        Method init = servletClass.getMethod("init", configClass);
+        init.invoke(servlet, MockServletConfig.create(classLoader, CONFIG));
+        return servlet;
+    }
+
+    private static String controller(String scanPackage, int i) {
+        return "package " + scanPackage + ";\n"
+                + "import com.lucas.spring.annotation.*;\n"
+                + "@ZController\n"
+                + "@ZRequestMapping(\"/c" + i + "\")\n"
+                + "public class Controller" + i + " {\n"
+                + "    @ZAutowired\n"
+                + "    private Service" + i + " service;\n"
+                + "    @ZRequestMapping(\"/get/{id}\")\n"
+                + "    public String get(@ZPathVariable(\"id\") long id) { return service.name(id); }\n"
+                + "    @ZRequestMapping(\"/list\")\n"
+                + "    public String list(@ZRequestParam(\"page\") int page, @ZRequestParam(\"size\") int size) {\n"
+                + "        return page + \":\" + size;\n"
+                + "    }\n"
+                + "    @ZRequestMapping(\"/model\")\n"
+                + "    @ZResponseBody\n"
+                + "    public Model" + i + " model(@ZRequestParam(\"name\") String name) { return new Model" + i + "(name); }\n"
+                + "}\n";
+    }
+
+    private static String service(String scanPackage, int i) {
+        return "package " + scanPackage + ";\n"
+                + "import com.lucas.spring.annotation.*;\n"
+                + "@ZService\n"
+                + "public class Service" + i + " {\n"
+                + "    public String name(long id) { return \"service" + i + "-\" + id; }\n"
+                + "}\n";
+    }
+
+    private static String model(String scanPackage, int i) {
+        return "package " + scanPackage + ";\n"
+                + "public class Model" + i + " {\n"
+                + "    private final String name;\n"
+                + "    public Model" + i + "(String name) { this.name = name; }\n"
+                + "    public String getName() { return name; }\n"
+                + "}\n";
+    }
+
+    private static String write(File directory, String name, String content) throws IOException {
+        File file = new File(directory, name.endsWith(".properties") ? name : name + ".java");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        return file.getPath();
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.lucas.spring.benchmark;
+
+import com.lucas.spring.controller.Controller;
+import com.lucas.spring.init.support.HandlerInvoker;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author zhangfan
+ * @description 对比 Controller.add 的几种调用方式：直接调用、生成的字节码调用器、MethodHandle 调用器、反射调用器、原始 Method.invoke。
+ * Controller.add 写响应的耗时远大于调用本身，几种方式看不出差别；trivial* 调用只做加法的方法，结果交给 Blackhole，
+ * 只测量调用的开销，其中 trivialConstantHandle 使用 static final 的 MethodHandle，作为 JIT 能完全内联时的参照
+ * @date 2026/10/17 14:10
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InvokerBenchmark {
+
+    private static final MethodHandle CONSTANT_HANDLE = spreadHandle(trivialMethod());
+
+    private Controller controller;
+
+    private Method method;
+
+    private HandlerInvoker bytecodeInvoker;
+
+    private HandlerInvoker methodHandleInvoker;
+
+    private HandlerInvoker reflectionInvoker;
+
+    private MockHttpServletResponse resp;
+
+    private Object[] args;
+
+    private Trivial trivial;
+
+    private Method trivialMethod;
+
+    private HandlerInvoker trivialBytecodeInvoker;
+
+    private HandlerInvoker trivialHandleInvoker;
+
+    private HandlerInvoker trivialReflectionInvoker;
+
+    private Object[] trivialArgs;
+
+    @Setup
+    public void setup() throws Exception {
+        controller = new Controller();
+        method = Controller.class.getMethod("add", HttpServletRequest.class, HttpServletResponse.class,
+                Integer.class, Integer.class);
+        bytecodeInvoker = HandlerInvoker.create(method, HandlerInvoker.BYTECODE);
+        methodHandleInvoker = HandlerInvoker.create(method, HandlerInvoker.METHOD_HANDLE);
+        reflectionInvoker = HandlerInvoker.create(method, HandlerInvoker.REFLECTION);
+        resp = new MockHttpServletResponse();
+        args = new Object[]{null, resp, 1, 2};
+        trivial = new Trivial();
+        trivialMethod = trivialMethod();
+        trivialBytecodeInvoker = HandlerInvoker.create(trivialMethod, HandlerInvoker.BYTECODE);
+        trivialHandleInvoker = HandlerInvoker.create(trivialMethod, HandlerInvoker.METHOD_HANDLE);
+        trivialReflectionInvoker = HandlerInvoker.create(trivialMethod, HandlerInvoker.REFLECTION);
+        trivialArgs = new Object[]{1, 2};
+    }
+
+    private static Method trivialMethod() {
+        try {
+            return Trivial.class.getMethod("add", Integer.class, Integer.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 和 HandlerInvoker 相同的适配方式
+     */
+    private static MethodHandle spreadHandle(Method method) {
+        try {
+            return MethodHandles.lookup().unreflect(method)
+                    .asSpreader(Object[].class, method.getParameterTypes().length)
+                    .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public void direct() {
+        controller.add(null, resp, (Integer) args[2], (Integer) args[3]);
+    }
+
+    @Benchmark
+    public Object bytecodeInvoker() throws Exception {
+        return bytecodeInvoker.invoke(controller, args);
+    }
+
+    @Benchmark
+    public Object methodHandle() throws Exception {
+        return methodHandleInvoker.invoke(controller, args);
+    }
+
+    @Benchmark
+    public Object reflectionInvoker() throws Exception {
+        return reflectionInvoker.invoke(controller, args);
+    }
+
+    @Benchmark
+    public Object methodInvoke() throws Exception {
+        return method.invoke(controller, args);
+    }
+
+    @Benchmark
+    public void trivialDirect(Blackhole blackhole) {
+        blackhole.consume(trivial.add((Integer) trivialArgs[0], (Integer) trivialArgs[1]));
+    }
+
+    @Benchmark
+    public void trivialBytecodeInvoker(Blackhole blackhole) throws Exception {
+        blackhole.consume(trivialBytecodeInvoker.invoke(trivial, trivialArgs));
+    }
+
+    @Benchmark
+    public void trivialMethodHandle(Blackhole blackhole) throws Exception {
+        blackhole.consume(trivialHandleInvoker.invoke(trivial, trivialArgs));
+    }
+
+    @Benchmark
+    public void trivialConstantHandle(Blackhole blackhole) throws Throwable {
+        blackhole.consume((Object) CONSTANT_HANDLE.invokeExact((Object) trivial, trivialArgs));
+    }
+
+    @Benchmark
+    public void trivialReflectionInvoker(Blackhole blackhole) throws Exception {
+        blackhole.consume(trivialReflectionInvoker.invoke(trivial, trivialArgs));
+    }
+
+    @Benchmark
+    public void trivialMethodInvoke(Blackhole blackhole) throws Exception {
+        blackhole.consume(trivialMethod.invoke(trivial, trivialArgs));
+    }
+
+    public static class Trivial {
+
+        public Integer add(Integer a, Integer b) {
+            return a + b;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.lucas.spring.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+
+/**
+ * @author zhangfan
+ * @description 基准测试用的 ServletConfig 和 ServletContext，只在 init() 时使用，直接用动态代理实现
+ * 按类加载器创建，冷启动测试中框架和 servlet-api 由独立的类加载器加载，接口也要从那个类加载器中取
+ * @date 2026/10/18 16:20
+ **/
+public final class MockServletConfig {
+
+    private MockServletConfig() {
+    }
+
+    /**
+     * @param classLoader           加载 javax.servlet 接口的类加载器
+     * @param contextConfigLocation 配置文件在 classpath 中的位置
+     * @return javax.servlet.ServletConfig 的实例
+     */
+    public static Object create(ClassLoader classLoader, final String contextConfigLocation) throws ClassNotFoundException {
+        final Object context = Proxy.newProxyInstance(classLoader,
+                new Class[]{classLoader.loadClass("javax.servlet.ServletContext")}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getContextPath".equals(method.getName())) {
+                            return "";
+                        }
+                        return defaultValue(proxy, method, args);
+                    }
+                });
+        return Proxy.newProxyInstance(classLoader,
+                new Class[]{classLoader.loadClass("javax.servlet.ServletConfig")}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if ("getInitParameter".equals(name)) {
+                            return "contextConfigLocation".equals(args[0]) ? contextConfigLocation : null;
+                        }
+                        if ("getInitParameterNames".equals(name)) {
+                            return Collections.enumeration(Collections.singletonList("contextConfigLocation"));
+                        }
+                        if ("getServletName".equals(name)) {
+                            return "benchmark";
+                        }
+                        if ("getServletContext".equals(name)) {
+                            return context;
+                        }
+                        return defaultValue(proxy, method, args);
+                    }
+                });
+    }
+
+    private static Object defaultValue(Object proxy, Method method, Object[] args) {
+        if ("equals".equals(method.getName())) {
+            return proxy == args[0];
+        }
+        if ("hashCode".equals(method.getName())) {
+            return System.identityHashCode(proxy);
+        }
+        if ("toString".equals(method.getName())) {
+            return "MockServletConfig";
+        }
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
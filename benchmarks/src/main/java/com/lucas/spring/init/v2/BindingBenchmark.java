@@ -0,0 +1,82 @@
+package com.lucas.spring.init.v2;
+
+import com.lucas.spring.annotation.ZRequestParam;
+import com.lucas.spring.benchmark.MockHttpServletRequest;
+import com.lucas.spring.benchmark.MockHttpServletResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author zhangfan
+ * @description 参数绑定的耗时，按方法声明的参数个数分别测试，参数类型混合了 int、long、boolean、double 和 String，
+ * 包含从请求中取值和类型转换两部分
+ * @date 2026/10/18 16:40
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BindingBenchmark {
+
+    @Param({"0", "1", "4", "8"})
+    private int params;
+
+    private ArgumentBinder[] binders;
+
+    private MockHttpServletRequest req;
+
+    private MockHttpServletResponse resp;
+
+    private int[] captures = new int[0];
+
+    @Setup
+    public void setup() throws Exception {
+        Method method = null;
+        for (Method candidate : Fixture.class.getMethods()) {
+            if (candidate.getName().equals("p" + params)) {
+                method = candidate;
+            }
+        }
+        ConverterRegistry converters = new ConverterRegistry(Collections.emptyList());
+        binders = ArgumentBinder.compile(method, Collections.<String>emptyList(), converters,
+                new RequestBodyReader(converters, 1024 * 1024));
+        req = new MockHttpServletRequest("GET", "/bind")
+                .addParameter("a", "42").addParameter("b", "hello").addParameter("c", "1234567890123")
+                .addParameter("d", "true").addParameter("e", "7").addParameter("f", "world")
+                .addParameter("g", "3.14").addParameter("h", "-9");
+        resp = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Object[] bind() throws Exception {
+        Object[] values = new Object[binders.length];
+        for (int i = 0; i < binders.length; i++) {
+            values[i] = binders[i].bind(req, resp, captures);
+        }
+        return values;
+    }
+
+    public static class Fixture {
+
+        public void p0() {
+        }
+
+        public void p1(@ZRequestParam("a") int a) {
+        }
+
+        public void p4(@ZRequestParam("a") int a, @ZRequestParam("b") String b,
+                       @ZRequestParam("c") long c, @ZRequestParam("d") boolean d) {
+        }
+
+        public void p8(@ZRequestParam("a") int a, @ZRequestParam("b") String b,
+                       @ZRequestParam("c") long c, @ZRequestParam("d") boolean d,
+                       @ZRequestParam("e") Integer e, @ZRequestParam("f") String f,
+                       @ZRequestParam("g") double g, @ZRequestParam("h") int h) {
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.lucas.spring.init.v2;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author zhangfan
+ * @description 前缀树路由的匹配耗时，Router 是包内可见的，所以放在 com.lucas.spring.init.v2 包中
+ * 一半路由是字面量路径，一半带路径变量，分别测试命中字面量、命中路径变量和未命中三种情况
+ * @date 2026/10/18 16:30
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RouterBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int routes;
+
+    private Router<Integer> router;
+
+    private int[] captures;
+
+    private String[] literalUris;
+
+    private String[] variableUris;
+
+    private String[] missUris;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        router = new Router<Integer>();
+        int half = routes / 2;
+        literalUris = new String[half];
+        variableUris = new String[half];
+        missUris = new String[half];
+        for (int i = 0; i < half; i++) {
+            router.add("/api/v1/resource" + i + "/items", i);
+            router.add("/api/v1/entity" + i + "/{id:\\d+}/detail/{tab}", half + i);
+            literalUris[i] = "/api/v1/resource" + i + "/items";
+            variableUris[i] = "/api/v1/entity" + i + "/" + (1000 + i) + "/detail/summary";
+            missUris[i] = "/api/v1/resource" + i + "/missing";
+        }
+        captures = new int[router.captureLength()];
+    }
+
+    /**
+     * 轮流使用不同的路径，避免每次都命中同一个分支
+     */
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == literalUris.length ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public Integer literal() {
+        return router.match(literalUris[nextIndex()], 0, captures);
+    }
+
+    @Benchmark
+    public Integer pathVariable() {
+        return router.match(variableUris[nextIndex()], 0, captures);
+    }
+
+    @Benchmark
+    public Integer miss() {
+        return router.match(missUris[nextIndex()], 0, captures);
+    }
+}
@@ -0,0 +1,17 @@
+package com.lucas.spring.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * @author zhangfan
+ * @description 异步执行请求，加在 Controller 类或方法上
+ * 请求线程调用 startAsync() 后立即返回容器，方法在虚拟线程（或配置的线程池）中执行，执行完成后再 complete()，
+ * 适合会阻塞在 IO 上的方法；也可以在 application.properties 中配置 asyncDispatch=true 对所有方法生效
+ * @date 2026/10/17 21:02
+ **/
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ZAsync {
+    boolean value() default true;
+}
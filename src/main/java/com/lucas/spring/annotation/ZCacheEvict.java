@@ -0,0 +1,28 @@
+package com.lucas.spring.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * @author zhangfan
+ * @description 清除缓存，默认在方法执行成功后以方法参数作为 key 清除对应的缓存项
+ * @date 2026/10/18 10:06
+ **/
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ZCacheEvict {
+    /**
+     * 缓存名称，需要由 @ZCacheable 声明，没有声明时清除不做任何事
+     */
+    String name();
+
+    /**
+     * 是否清空整个缓存
+     */
+    boolean allEntries() default false;
+
+    /**
+     * 是否在方法执行前清除，默认执行成功后才清除
+     */
+    boolean beforeInvocation() default false;
+}
@@ -0,0 +1,29 @@
+package com.lucas.spring.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * @author zhangfan
+ * @description 缓存方法返回值，以方法参数作为 key，同名的缓存在所有方法之间共享
+ * 加了这个注解的 bean 在创建后会被包装为代理：实现了接口的使用 JDK 动态代理，否则使用生成的子类
+ * @date 2026/10/18 10:05
+ **/
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ZCacheable {
+    /**
+     * 缓存名称
+     */
+    String name();
+
+    /**
+     * 过期时间，单位秒，0 表示不过期；同名缓存的所有声明必须一致
+     */
+    long ttl() default 0;
+
+    /**
+     * 最多缓存的条数，同名缓存的所有声明必须一致，否则启动失败
+     */
+    int maxSize() default 10000;
+}
@@ -0,0 +1,25 @@
+package com.lucas.spring.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * @author zhangfan
+ * @description 合并同时到达的相同 GET 请求，加在 Controller 方法上
+ * 路由和绑定后的参数值都相同的请求同时只执行一次，其余请求等待并共用这次执行的返回值或异常，适合热点数据的查询；
+ * 返回值会被多个请求共用，方法必须有返回值，并且不能有 HttpServletRequest、HttpServletResponse 参数
+ * @date 2026/10/18 19:00
+ **/
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ZCoalesce {
+    /**
+     * 等待正在执行的相同请求的最长时间，单位毫秒，超时后返回 503；小于等于 0 时一直等待
+     */
+    long maxWait() default 1000;
+
+    /**
+     * 等待超时后是否自己执行方法。默认不执行，后端变慢时所有等待者同时超时再各自调用一次，只会让它更慢
+     */
+    boolean invokeOnTimeout() default false;
+}
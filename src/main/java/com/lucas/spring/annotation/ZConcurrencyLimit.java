@@ -0,0 +1,35 @@
+package com.lucas.spring.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * @author zhangfan
+ * @description 限制同时执行一个方法的请求数（隔离舱），加在 Controller 方法上
+ * 超出上限的请求在等待队列中最多等待 maxWait 毫秒，队列满或等待超时时返回 503 并带上 Retry-After，
+ * 慢方法不会占满所有线程影响其他路由；application.properties 中 concurrencyLimit.类名.方法名 的配置优先
+ * @date 2026/10/19 10:00
+ **/
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ZConcurrencyLimit {
+    /**
+     * 同时执行的请求数上限，自适应时为上限的最大值
+     */
+    int value();
+
+    /**
+     * 等待队列长度，0 表示超出上限时直接拒绝
+     */
+    int queue() default 0;
+
+    /**
+     * 在等待队列中的最长时间，单位毫秒
+     */
+    long maxWait() default 100;
+
+    /**
+     * 是否按执行耗时自适应调整上限（AIMD），耗时明显变长时减小上限，恢复后逐个增加
+     */
+    boolean adaptive() default false;
+}
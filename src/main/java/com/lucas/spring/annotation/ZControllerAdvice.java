@@ -0,0 +1,17 @@
+package com.lucas.spring.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * @author zhangfan
+ * @description 全局异常处理类，类中 @ZExceptionHandler 方法处理所有 Controller 抛出的异常，
+ * Controller 自己声明的 @ZExceptionHandler 方法优先
+ * @date 2026/10/18 15:10
+ **/
+
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ZControllerAdvice {
+    String value() default "";
+}
@@ -0,0 +1,25 @@
+package com.lucas.spring.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * @author zhangfan
+ * @description 异常处理方法，可以声明在 Controller 或 @ZControllerAdvice 类中
+ * 方法参数可以是异常、HttpServletRequest、HttpServletResponse，返回值和普通方法一样输出
+ * @date 2026/10/18 15:10
+ **/
+
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ZExceptionHandler {
+    /**
+     * 处理的异常类型，为空时使用方法参数中的异常类型
+     */
+    Class<? extends Throwable>[] value() default {};
+
+    /**
+     * 响应状态码
+     */
+    int status() default 500;
+}
@@ -0,0 +1,16 @@
+package com.lucas.spring.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * @author zhangfan
+ * @description 延迟初始化，加在 @ZController、@ZService 类上，覆盖 application.properties 中的 lazyInit 全局配置
+ * 延迟初始化的 bean 在第一次从容器中获取、或者第一次请求到对应的 Controller 时才创建并注入依赖
+ * @date 2026/10/17 19:02
+ **/
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ZLazy {
+    boolean value() default true;
+}
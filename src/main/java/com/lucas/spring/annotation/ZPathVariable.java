@@ -0,0 +1,15 @@
+package com.lucas.spring.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * @author zhangfan
+ * @description 绑定路径变量，例如 @ZRequestMapping("/user/{id}") 中的 id
+ * @date 2026/10/17 11:05
+ **/
+@Target({ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ZPathVariable {
+    String value() default "";
+}
@@ -0,0 +1,14 @@
+package com.lucas.spring.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * @author zhangfan
+ * @description 同一类型有多个 bean 时，按类型注入优先使用加了该注解的 bean
+ * @date 2026/10/17 20:01
+ **/
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ZPrimary {
+}
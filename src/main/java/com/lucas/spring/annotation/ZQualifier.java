@@ -0,0 +1,15 @@
+package com.lucas.spring.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * @author zhangfan
+ * @description 同一类型有多个 bean 时，按 beanName 指定要注入的 bean
+ * @date 2026/10/17 20:02
+ **/
+@Target({ElementType.FIELD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ZQualifier {
+    String value();
+}
@@ -0,0 +1,20 @@
+package com.lucas.spring.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * @author zhangfan
+ * @description 把请求体绑定到方法参数
+ * JSON 请求体反序列化为对象、集合或 Iterator（逐个读取数组元素），表单请求体按字段绑定；
+ * 参数类型为 String 或 byte[] 时直接读取原始内容。请求体大小受 maxRequestBodySize 限制
+ * @date 2026/10/17 22:50
+ **/
+@Target({ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ZRequestBody {
+    /**
+     * 请求体为空时是否报错
+     */
+    boolean required() default true;
+}
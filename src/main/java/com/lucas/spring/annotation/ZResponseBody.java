@@ -0,0 +1,15 @@
+package com.lucas.spring.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * @author zhangfan
+ * @description 把方法返回值序列化为 JSON 输出，加在 Controller 类上时对所有方法生效
+ * 返回 String、byte[]、ByteBuffer、ZStreamingBody 时仍然原样输出
+ * @date 2026/10/17 22:10
+ **/
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ZResponseBody {
+}
@@ -0,0 +1,26 @@
+package com.lucas.spring.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * @author zhangfan
+ * @description 缓存完整的响应，加在 Controller 方法上
+ * GET、HEAD 请求以请求路径、指定的参数和客户端接受的压缩方式作为 key，缓存状态码为 200 的响应头和响应体，
+ * 命中时不再绑定参数和调用方法；响应带有 ETag，请求的 If-None-Match 匹配时直接返回 304。
+ * 设置了 Cookie 或 Cache-Control 为 no-store、private 的响应不缓存
+ * @date 2026/10/18 20:00
+ **/
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ZResponseCache {
+    /**
+     * 过期时间，单位秒，0 表示不过期，只按容量淘汰
+     */
+    long ttl() default 60;
+
+    /**
+     * 参与 key 的请求参数，为空时使用完整的查询字符串
+     */
+    String[] params() default {};
+}
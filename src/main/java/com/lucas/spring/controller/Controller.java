@@ -1,6 +1,7 @@
 package com.lucas.spring.controller;
 
 import com.lucas.spring.annotation.ZAutowired;
+import com.lucas.spring.annotation.ZCoalesce;
 import com.lucas.spring.annotation.ZController;
 import com.lucas.spring.annotation.ZRequestMapping;
 import com.lucas.spring.annotation.ZRequestParam;
@@ -21,15 +22,11 @@ public class Controller {
 
     @ZAutowired
     private Service service;
+    // 热点 name 同时到达的查询合并为一次 service 调用
+    @ZCoalesce
     @ZRequestMapping("/query")
-    public void query(HttpServletRequest req, HttpServletResponse resp,
-                      @ZRequestParam("name") String name){
-        String result = service.get(name);
-        try {
-            resp.getWriter().write(result);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    public String query(@ZRequestParam("name") String name){
+        return service.get(name);
     }
 
 
@@ -0,0 +1,255 @@
+package com.lucas.spring.init.support;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author zhangfan
+ * @description 生成 class 文件的公共部分：常量池、方法表和字节码缓冲，SubclassProxyGenerator 和 InvokerGenerator 共用。
+ * 生成的方法体中都没有分支和异常表，按 Java 8 的 52 版本生成时不需要 StackMapTable
+ * @date 2026/10/17 02:30
+ **/
+abstract class ClassFileWriter {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+    static final int ACC_SYNTHETIC = 0x1000;
+
+    private static final Map<Class<?>, String> PRIMITIVE_DESCRIPTORS = new HashMap<Class<?>, String>();
+
+    static {
+        PRIMITIVE_DESCRIPTORS.put(int.class, "I");
+        PRIMITIVE_DESCRIPTORS.put(long.class, "J");
+        PRIMITIVE_DESCRIPTORS.put(boolean.class, "Z");
+        PRIMITIVE_DESCRIPTORS.put(byte.class, "B");
+        PRIMITIVE_DESCRIPTORS.put(char.class, "C");
+        PRIMITIVE_DESCRIPTORS.put(short.class, "S");
+        PRIMITIVE_DESCRIPTORS.put(float.class, "F");
+        PRIMITIVE_DESCRIPTORS.put(double.class, "D");
+        PRIMITIVE_DESCRIPTORS.put(void.class, "V");
+    }
+
+    // 常量池，key 为 tag + 内容，相同的常量只写一次
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private final Map<String, Integer> constants = new HashMap<String, Integer>();
+    private int constantCount = 1;
+
+    /**
+     * 拼出完整的 class 文件
+     *
+     * @param access     类的访问标志
+     * @param thisClass  当前类的常量池下标
+     * @param superClass 父类的常量池下标
+     * @param body       从 interfaces_count 开始的其余内容，写入时用到的常量都已经在常量池中
+     */
+    byte[] toClassFile(int access, int thisClass, int superClass, ByteArrayOutputStream body) throws IOException {
+        ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+        DataOutputStream file = new DataOutputStream(classFile);
+        file.writeInt(0xCAFEBABE);
+        file.writeShort(0);
+        file.writeShort(52);
+        file.writeShort(constantCount);
+        poolOut.flush();
+        pool.writeTo(file);
+        file.writeShort(access);
+        file.writeShort(thisClass);
+        file.writeShort(superClass);
+        body.writeTo(file);
+        file.flush();
+        return classFile.toByteArray();
+    }
+
+    void writeMethodInfo(DataOutputStream out, int access, String name, String descriptor, Code code,
+                         int maxStack, int maxLocals) throws IOException {
+        out.writeShort(access);
+        out.writeShort(utf8(name));
+        out.writeShort(utf8(descriptor));
+        // 只有 Code 一个属性
+        out.writeShort(1);
+        out.writeShort(utf8("Code"));
+        byte[] bytes = code.toByteArray();
+        out.writeInt(12 + bytes.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        // exception_table_length
+        out.writeShort(0);
+        // attributes_count
+        out.writeShort(0);
+    }
+
+    static int loadOpcode(Class<?> type) {
+        if (type == long.class) {
+            return 0x16;    // lload
+        }
+        if (type == float.class) {
+            return 0x17;    // fload
+        }
+        if (type == double.class) {
+            return 0x18;    // dload
+        }
+        if (type.isPrimitive()) {
+            return 0x15;    // iload，包括 boolean、byte、char、short
+        }
+        return 0x19;        // aload
+    }
+
+    static int returnOpcode(Class<?> type) {
+        if (type == long.class) {
+            return 0xAD;    // lreturn
+        }
+        if (type == float.class) {
+            return 0xAE;    // freturn
+        }
+        if (type == double.class) {
+            return 0xAF;    // dreturn
+        }
+        return 0xAC;        // ireturn
+    }
+
+    /**
+     * long 和 double 占两个栈和局部变量槽
+     */
+    static int slots(Class<?> type) {
+        return type == long.class || type == double.class ? 2 : 1;
+    }
+
+    static String wrapper(Class<?> primitive) {
+        if (primitive == int.class) {
+            return "java/lang/Integer";
+        }
+        if (primitive == char.class) {
+            return "java/lang/Character";
+        }
+        String name = primitive.getName();
+        return "java/lang/" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    static String methodDescriptor(Method method) {
+        StringBuilder builder = new StringBuilder("(");
+        for (Class<?> type : method.getParameterTypes()) {
+            builder.append(descriptor(type));
+        }
+        return builder.append(')').append(descriptor(method.getReturnType())).toString();
+    }
+
+    static String descriptor(Class<?> type) {
+        if (type.isPrimitive()) {
+            return PRIMITIVE_DESCRIPTORS.get(type);
+        }
+        if (type.isArray()) {
+            return type.getName().replace('.', '/');
+        }
+        return "L" + type.getName().replace('.', '/') + ";";
+    }
+
+    /**
+     * CONSTANT_Class 中数组使用描述符，普通类使用内部名称
+     */
+    static String internalName(Class<?> type) {
+        return type.isArray() ? descriptor(type) : type.getName().replace('.', '/');
+    }
+
+    int utf8(String value) throws IOException {
+        Integer index = constants.get("1:" + value);
+        if (index != null) {
+            return index;
+        }
+        poolOut.writeByte(1);
+        poolOut.writeUTF(value);
+        return register("1:" + value);
+    }
+
+    int classRef(String internalName) throws IOException {
+        Integer index = constants.get("7:" + internalName);
+        if (index != null) {
+            return index;
+        }
+        int name = utf8(internalName);
+        poolOut.writeByte(7);
+        poolOut.writeShort(name);
+        return register("7:" + internalName);
+    }
+
+    private int nameAndType(String name, String descriptor) throws IOException {
+        String key = "12:" + name + ":" + descriptor;
+        Integer index = constants.get(key);
+        if (index != null) {
+            return index;
+        }
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        poolOut.writeByte(12);
+        poolOut.writeShort(nameIndex);
+        poolOut.writeShort(descriptorIndex);
+        return register(key);
+    }
+
+    int fieldRef(String owner, String name, String descriptor) throws IOException {
+        return memberRef(9, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) throws IOException {
+        return memberRef(10, owner, name, descriptor);
+    }
+
+    int interfaceMethodRef(String owner, String name, String descriptor) throws IOException {
+        return memberRef(11, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) throws IOException {
+        String key = tag + ":" + owner + "." + name + ":" + descriptor;
+        Integer index = constants.get(key);
+        if (index != null) {
+            return index;
+        }
+        int ownerIndex = classRef(owner);
+        int nameAndTypeIndex = nameAndType(name, descriptor);
+        poolOut.writeByte(tag);
+        poolOut.writeShort(ownerIndex);
+        poolOut.writeShort(nameAndTypeIndex);
+        return register(key);
+    }
+
+    private int register(String key) {
+        int index = constantCount++;
+        constants.put(key, index);
+        return index;
+    }
+
+    /**
+     * 方法体的字节码
+     */
+    static class Code {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        Code op(int opcode) {
+            bytes.write(opcode);
+            return this;
+        }
+
+        Code u1(int value) {
+            bytes.write(value);
+            return this;
+        }
+
+        Code u2(int value) {
+            bytes.write(value >>> 8);
+            bytes.write(value);
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.lucas.spring.init.support;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+
+/**
+ * @author zhangfan
+ * @description 类路径扫描器，同时支持解压后的目录和 jar 包
+ * 先列出包下所有的 .class 文件，再在 ForkJoinPool 上并行读取字节码，直接解析常量池和类上的注解，
+ * 只有确认带有目标注解的类才返回类名，扫描过程中不会调用 Class.forName，也就不会加载和初始化无关的类
+ * @date 2026/10/17 18:05
+ **/
+public class ClassPathScanner {
+
+    private static final byte[] RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations".getBytes(StandardCharsets.UTF_8);
+
+    private final ClassLoader classLoader;
+
+    // 目标注解的描述符，例如 Lcom/lucas/spring/annotation/ZController;
+    private final byte[][] descriptors;
+
+    /**
+     * @param classLoader 用来查找包路径的类加载器
+     * @param annotations 需要扫描的注解
+     */
+    public ClassPathScanner(ClassLoader classLoader, Collection<Class<?>> annotations) {
+        this.classLoader = classLoader;
+        this.descriptors = new byte[annotations.size()][];
+        int i = 0;
+        for (Class<?> annotation : annotations) {
+            descriptors[i++] = ("L" + annotation.getName().replace('.', '/') + ";").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 扫描包下所有带有目标注解的类
+     *
+     * @param scanPackage 包名，例如 com.lucas.spring
+     * @return 排序后的全类名
+     */
+    public List<String> scan(String scanPackage) {
+        String path = scanPackage.replace('.', '/');
+        List<ClassSource> sources = new ArrayList<ClassSource>();
+        List<JarFile> jars = new ArrayList<JarFile>();
+        try {
+            Enumeration<URL> urls = classLoader.getResources(path);
+            if (!urls.hasMoreElements()) {
+                throw new RuntimeException("包路径不对");
+            }
+            // 1、先列出所有的 .class 文件，这一步只是遍历目录或 jar 的目录项
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                if ("file".equals(url.getProtocol())) {
+                    listDirectory(new File(decode(url.getPath())), scanPackage, sources);
+                } else if ("jar".equals(url.getProtocol())) {
+                    JarFile jar = openJar(url);
+                    jars.add(jar);
+                    // jar:file:/xx.jar!/com/lucas/spring 中 !/ 之后的部分才是 jar 中的目录
+                    String entryPrefix = url.getPath().substring(url.getPath().indexOf("!/") + 2);
+                    listJar(jar, entryPrefix.endsWith("/") ? entryPrefix : entryPrefix + "/", sources);
+                } else {
+                    System.out.println("Skip unsupported class path: " + url);
+                }
+            }
+            // 2、并行读取字节码并过滤注解
+            return filter(sources);
+        } catch (IOException e) {
+            throw new RuntimeException("Scan package " + scanPackage + " failed", e);
+        } finally {
+            for (JarFile jar : jars) {
+                try {
+                    jar.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private List<String> filter(final List<ClassSource> sources) {
+        if (sources.isEmpty()) {
+            return new ArrayList<String>();
+        }
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            // 在自定义的 ForkJoinPool 中提交并行流，流的任务都会在这个池中执行
+            return pool.submit(() -> sources.parallelStream()
+                    .filter(this::matches)
+                    .map(source -> source.className)
+                    .distinct()
+                    .sorted()
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Scan interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Scan failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private boolean matches(ClassSource source) {
+        try {
+            InputStream in = source.open();
+            try {
+                return hasAnnotation(readFully(in));
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Read " + source.className + " failed", e);
+        }
+    }
+
+    private void listDirectory(File directory, String scanPackage, List<ClassSource> sources) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (final File file : files) {
+            if (file.isDirectory()) {
+                // 是文件夹就继续向下扫描
+                listDirectory(file, scanPackage + "." + file.getName(), sources);
+            } else if (isClassFile(file.getName())) {
+                String className = scanPackage + "." + file.getName().substring(0, file.getName().length() - 6);
+                sources.add(new ClassSource(className) {
+                    @Override
+                    InputStream open() throws IOException {
+                        return new FileInputStream(file);
+                    }
+                });
+            }
+        }
+    }
+
+    private void listJar(final JarFile jar, String prefix, List<ClassSource> sources) {
+        Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            final JarEntry entry = entries.nextElement();
+            String name = entry.getName();
+            if (entry.isDirectory() || !name.startsWith(prefix) || !isClassFile(name)) {
+                continue;
+            }
+            String className = name.substring(0, name.length() - 6).replace('/', '.');
+            sources.add(new ClassSource(className) {
+                @Override
+                InputStream open() throws IOException {
+                    return jar.getInputStream(entry);
+                }
+            });
+        }
+    }
+
+    private JarFile openJar(URL url) throws IOException {
+        URLConnection connection = url.openConnection();
+        if (connection instanceof JarURLConnection) {
+            // 不使用连接缓存的 JarFile，扫描结束后自己关闭
+            URL jarUrl = ((JarURLConnection) connection).getJarFileURL();
+            return new JarFile(decode(jarUrl.getPath()));
+        }
+        // jar:file:/xx.jar!/com/lucas 形式的地址
+        String path = url.getPath();
+        int separator = path.indexOf("!/");
+        String file = separator < 0 ? path : path.substring(0, separator);
+        if (file.startsWith("file:")) {
+            file = file.substring(5);
+        }
+        return new JarFile(decode(file));
+    }
+
+    private static boolean isClassFile(String name) {
+        // 跳过 package-info、module-info
+        return name.endsWith(".class") && !name.endsWith("-info.class");
+    }
+
+    private static String decode(String path) throws UnsupportedEncodingException {
+        return URLDecoder.decode(path.replace("+", "%2B"), "UTF-8");
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 解析 class 文件，判断类上是否有目标注解
+     * 先检查常量池中有没有注解的描述符，没有的话直接返回，绝大多数非组件类在这一步就被排除了；
+     * 有的话再解析类的 RuntimeVisibleAnnotations 属性，排除只出现在字段、方法上的情况
+     */
+    boolean hasAnnotation(byte[] b) {
+        if (b.length < 10 || u4(b, 0) != 0xCAFEBABE) {
+            return false;
+        }
+        int count = u2(b, 8);
+        // 常量池中每个 Utf8 常量的起始位置，其他类型为 0
+        int[] utf8 = new int[count];
+        boolean candidate = false;
+        int p = 10;
+        for (int i = 1; i < count; i++) {
+            int tag = b[p] & 0xFF;
+            switch (tag) {
+                case 1:
+                    utf8[i] = p + 1;
+                    if (!candidate && isDescriptor(b, p + 1)) {
+                        candidate = true;
+                    }
+                    p += 3 + u2(b, p + 1);
+                    break;
+                case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18:
+                    p += 5;
+                    break;
+                case 5: case 6:
+                    // long 和 double 占两个位置
+                    p += 9;
+                    i++;
+                    break;
+                case 7: case 8: case 16: case 19: case 20:
+                    p += 3;
+                    break;
+                case 15:
+                    p += 4;
+                    break;
+                default:
+                    return false;
+            }
+        }
+        if (!candidate) {
+            return false;
+        }
+        // access_flags, this_class, super_class
+        p += 6;
+        // interfaces
+        p += 2 + u2(b, p) * 2;
+        // fields 和 methods 结构相同，直接跳过
+        for (int member = 0; member < 2; member++) {
+            int members = u2(b, p);
+            p += 2;
+            for (int i = 0; i < members; i++) {
+                p += 6;
+                p = skipAttributes(b, p);
+            }
+        }
+        // 类上的属性
+        int attributes = u2(b, p);
+        p += 2;
+        for (int i = 0; i < attributes; i++) {
+            int name = u2(b, p);
+            int length = u4(b, p + 2);
+            if (utf8Equals(b, utf8[name], RUNTIME_VISIBLE_ANNOTATIONS)) {
+                int q = p + 6;
+                int annotations = u2(b, q);
+                q += 2;
+                for (int j = 0; j < annotations; j++) {
+                    if (isDescriptor(b, utf8[u2(b, q)])) {
+                        return true;
+                    }
+                    q = skipAnnotation(b, q);
+                }
+            }
+            p += 6 + length;
+        }
+        return false;
+    }
+
+    private boolean isDescriptor(byte[] b, int utf8) {
+        for (byte[] descriptor : descriptors) {
+            if (utf8Equals(b, utf8, descriptor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean utf8Equals(byte[] b, int utf8, byte[] expected) {
+        if (utf8 == 0 || u2(b, utf8) != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (b[utf8 + 2 + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipAttributes(byte[] b, int p) {
+        int attributes = u2(b, p);
+        p += 2;
+        for (int i = 0; i < attributes; i++) {
+            p += 6 + u4(b, p + 2);
+        }
+        return p;
+    }
+
+    private static int skipAnnotation(byte[] b, int p) {
+        // type_index
+        p += 2;
+        int pairs = u2(b, p);
+        p += 2;
+        for (int i = 0; i < pairs; i++) {
+            // element_name_index
+            p = skipElementValue(b, p + 2);
+        }
+        return p;
+    }
+
+    private static int skipElementValue(byte[] b, int p) {
+        char tag = (char) b[p++];
+        switch (tag) {
+            case 'e':
+                return p + 4;
+            case '@':
+                return skipAnnotation(b, p);
+            case '[':
+                int values = u2(b, p);
+                p += 2;
+                for (int i = 0; i < values; i++) {
+                    p = skipElementValue(b, p);
+                }
+                return p;
+            default:
+                // B C D F I J S Z s c
+                return p + 2;
+        }
+    }
+
+    private static int u2(byte[] b, int p) {
+        return ((b[p] & 0xFF) << 8) | (b[p + 1] & 0xFF);
+    }
+
+    private static int u4(byte[] b, int p) {
+        return ((b[p] & 0xFF) << 24) | ((b[p + 1] & 0xFF) << 16) | ((b[p + 2] & 0xFF) << 8) | (b[p + 3] & 0xFF);
+    }
+
+    private abstract static class ClassSource {
+
+        private final String className;
+
+        ClassSource(String className) {
+            this.className = className;
+        }
+
+        abstract InputStream open() throws IOException;
+    }
+}
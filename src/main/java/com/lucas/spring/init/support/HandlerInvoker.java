@@ -0,0 +1,165 @@
+package com.lucas.spring.init.support;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author zhangfan
+ * @description 预先绑定好的方法调用器，在 initHandlerMapping 时创建一次，请求时直接调用
+ * 默认使用 InvokerGenerator 为每个方法生成的调用器类，invoke 中直接转换参数类型后 invokevirtual 目标方法，
+ * 目标方法可以内联；非 public 的方法或类型生成的类无法访问，退回反射调用。
+ * MethodHandle 保存在实例字段中，JIT 不把它当作常量，调用经过 handle 的 LambdaForm，不会内联到目标方法，
+ * 比反射还慢，只在配置 handlerInvoker=methodHandle 时使用；调用本身的开销见 InvokerBenchmark 的 trivial* 用例。
+ * 可以在 application.properties 中配置 handlerInvoker=reflection 切换为反射调用
+ * @date 2026/10/17 13:20
+ **/
+public abstract class HandlerInvoker {
+
+    public static final String BYTECODE = "bytecode";
+
+    public static final String METHOD_HANDLE = "methodHandle";
+
+    public static final String REFLECTION = "reflection";
+
+    // 生成的调用器类名的序号，同一个类的重载方法各自生成一个类
+    private static final AtomicInteger GENERATED = new AtomicInteger();
+
+    /**
+     * 调用方法，方法本身抛出的异常原样抛出，不再包装成 InvocationTargetException
+     *
+     * @param target 方法所在的实例
+     * @param args   方法参数
+     * @return 方法返回值，void 方法返回 null
+     * @throws Exception
+     */
+    public abstract Object invoke(Object target, Object[] args) throws Exception;
+
+    /**
+     * 根据配置创建调用器
+     *
+     * @param method 需要调用的方法
+     * @param mode   bytecode、methodHandle 或 reflection，为空时默认 bytecode
+     * @return
+     */
+    public static HandlerInvoker create(Method method, String mode) {
+        // 如果是 public 以外的修饰符，只要加了注解，都要强制调用
+        method.setAccessible(true);
+        String name = mode == null ? "" : mode.trim();
+        if (REFLECTION.equalsIgnoreCase(name)) {
+            return new ReflectionInvoker(method);
+        }
+        if (METHOD_HANDLE.equalsIgnoreCase(name)) {
+            try {
+                return new MethodHandleInvoker(method);
+            } catch (IllegalAccessException e) {
+                // MethodHandle 创建失败时退回反射
+                return new ReflectionInvoker(method);
+            }
+        }
+        if (InvokerGenerator.canGenerate(method)) {
+            HandlerInvoker invoker = generate(method);
+            if (invoker != null) {
+                return invoker;
+            }
+        }
+        return new ReflectionInvoker(method);
+    }
+
+    /**
+     * 生成并加载调用器类
+     *
+     * @return 目标类的加载器看不到 HandlerInvoker 或者生成的类校验失败时返回 null
+     */
+    private static HandlerInvoker generate(Method method) {
+        Class<?> owner = method.getDeclaringClass();
+        String className = owner.getName() + "$$ZInvoker" + GENERATED.incrementAndGet();
+        byte[] bytes = InvokerGenerator.generate(className, method);
+        try {
+            Class<?> invokerClass = new InvokerClassLoader(owner.getClassLoader()).define(className, bytes);
+            // 创建实例时完成链接和校验，有问题在启动时就能发现
+            return (HandlerInvoker) invokerClass.getConstructor().newInstance();
+        } catch (LinkageError e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static class MethodHandleInvoker extends HandlerInvoker {
+
+        private final MethodHandle handle;
+
+        MethodHandleInvoker(Method method) throws IllegalAccessException {
+            // 统一适配成 (Object, Object[])Object，调用时可以使用 invokeExact，不需要再做类型检查和装箱拆箱推断
+            this.handle = MethodHandles.lookup().unreflect(method)
+                    .asSpreader(Object[].class, method.getParameterTypes().length)
+                    .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+        }
+
+        @Override
+        public Object invoke(Object target, Object[] args) throws Exception {
+            try {
+                return (Object) handle.invokeExact(target, args);
+            } catch (Exception e) {
+                throw e;
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+
+    /**
+     * 加载生成的调用器，父加载器是目标类的加载器；HandlerInvoker 总是使用当前的类，
+     * 目标类的加载器中有另一份框架类时生成的类也能转换成这里的 HandlerInvoker
+     */
+    private static class InvokerClassLoader extends ClassLoader {
+
+        InvokerClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.equals(HandlerInvoker.class.getName())) {
+                return HandlerInvoker.class;
+            }
+            return super.loadClass(name, resolve);
+        }
+
+        Class<?> define(String className, byte[] bytes) {
+            return defineClass(className, bytes, 0, bytes.length);
+        }
+    }
+
+    private static class ReflectionInvoker extends HandlerInvoker {
+
+        private final Method method;
+
+        ReflectionInvoker(Method method) {
+            this.method = method;
+        }
+
+        @Override
+        public Object invoke(Object target, Object[] args) throws Exception {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                // 和生成的调用器保持一致，抛出方法本身的异常
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.lucas.spring.init.support;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * @author zhangfan
+ * @description 为单个方法生成 HandlerInvoker 的子类，invoke(Object, Object[]) 中直接按参数类型转换、拆箱后调用目标方法：
+ * public Object invoke(Object target, Object[] args) { return ((Foo) target).bar((String) args[0], ((Integer) args[1]).intValue()); }
+ * 调用是普通的 invokevirtual，目标方法可以被 JIT 内联，不经过反射或者 MethodHandle 的适配
+ * @date 2026/10/17 02:40
+ **/
+class InvokerGenerator extends ClassFileWriter {
+
+    private static final String SUPER_NAME = HandlerInvoker.class.getName().replace('.', '/');
+
+    private static final String INVOKE_DESCRIPTOR = "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;";
+
+    private final String className;
+
+    private InvokerGenerator(String className) {
+        this.className = className;
+    }
+
+    /**
+     * 生成的类在单独的类加载器中，只能直接调用 public 类的 public 方法，参数类型也必须是 public 的
+     */
+    static boolean canGenerate(Method method) {
+        if (!Modifier.isPublic(method.getModifiers()) || !isPublic(method.getDeclaringClass())) {
+            return false;
+        }
+        for (Class<?> type : method.getParameterTypes()) {
+            if (!isPublic(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPublic(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param className 调用器的全类名
+     * @param method    需要调用的方法，需要满足 {@link #canGenerate(Method)}
+     * @return class 文件内容
+     */
+    static byte[] generate(String className, Method method) {
+        InvokerGenerator generator = new InvokerGenerator(className.replace('.', '/'));
+        try {
+            return generator.generate(method);
+        } catch (IOException e) {
+            throw new IllegalStateException("Generate invoker for " + method + " failed", e);
+        }
+    }
+
+    private byte[] generate(Method method) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+        int thisClass = classRef(className);
+        int superClass = classRef(SUPER_NAME);
+
+        // interfaces
+        out.writeShort(0);
+        // fields
+        out.writeShort(0);
+        // methods
+        out.writeShort(2);
+        writeConstructor(out);
+        writeInvoke(out, method);
+        // attributes
+        out.writeShort(0);
+        out.flush();
+        return toClassFile(ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, thisClass, superClass, body);
+    }
+
+    /**
+     * public Invoker() { super(); }
+     */
+    private void writeConstructor(DataOutputStream out) throws IOException {
+        Code code = new Code();
+        code.op(0x2A);                                                   // aload_0
+        code.op(0xB7).u2(methodRef(SUPER_NAME, "<init>", "()V"));        // invokespecial
+        code.op(0xB1);                                                   // return
+        writeMethodInfo(out, ACC_PUBLIC, "<init>", "()V", code, 1, 1);
+    }
+
+    /**
+     * public Object invoke(Object target, Object[] args) { return ((Foo) target).bar((A) args[0], ((B) args[1]).bValue()); }
+     */
+    private void writeInvoke(DataOutputStream out, Method method) throws IOException {
+        Class<?> owner = method.getDeclaringClass();
+        String ownerName = internalName(owner);
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        Code code = new Code();
+        int stack = 0;
+        if (!isStatic) {
+            code.op(0x2B);                                               // aload_1
+            code.op(0xC0).u2(classRef(ownerName));                       // checkcast
+            stack = 1;
+        }
+        Class<?>[] parameters = method.getParameterTypes();
+        for (int i = 0; i < parameters.length; i++) {
+            Class<?> type = parameters[i];
+            code.op(0x2C);                                               // aload_2
+            code.op(0x11).u2(i);                                         // sipush i
+            code.op(0x32);                                               // aaload
+            if (type.isPrimitive()) {
+                String wrapper = wrapper(type);
+                code.op(0xC0).u2(classRef(wrapper));                     // checkcast
+                code.op(0xB6).u2(methodRef(wrapper, type.getName() + "Value",
+                        "()" + descriptor(type)));                       // invokevirtual xValue
+            } else if (type != Object.class) {
+                code.op(0xC0).u2(classRef(internalName(type)));          // checkcast
+            }
+            stack += slots(type);
+        }
+        String descriptor = methodDescriptor(method);
+        if (isStatic) {
+            int ref = owner.isInterface() ? interfaceMethodRef(ownerName, method.getName(), descriptor)
+                    : methodRef(ownerName, method.getName(), descriptor);
+            code.op(0xB8).u2(ref);                                       // invokestatic
+        } else if (owner.isInterface()) {
+            code.op(0xB9).u2(interfaceMethodRef(ownerName, method.getName(), descriptor))
+                    .u1(stack).u1(0);                                                     // invokeinterface
+        } else {
+            code.op(0xB6).u2(methodRef(ownerName, method.getName(), descriptor));          // invokevirtual
+        }
+        Class<?> returnType = method.getReturnType();
+        if (returnType == void.class) {
+            code.op(0x01);                                               // aconst_null
+        } else if (returnType.isPrimitive()) {
+            String wrapper = wrapper(returnType);
+            code.op(0xB8).u2(methodRef(wrapper, "valueOf",
+                    "(" + descriptor(returnType) + ")L" + wrapper + ";"));  // invokestatic valueOf
+        }
+        code.op(0xB0);                                                   // areturn
+        // 栈最深时：已经压入的参数，再加上 args 和下标；返回 long、double 时也不超过 2
+        writeMethodInfo(out, ACC_PUBLIC, "invoke", INVOKE_DESCRIPTOR, code, Math.max(stack + 2, 2), 3);
+    }
+}
@@ -0,0 +1,117 @@
+package com.lucas.spring.init.support;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author zhangfan
+ * @description 无锁的延迟直方图，桶的划分和 HdrHistogram 类似：每个 2 的幂区间再等分成 16 个子桶，
+ * 相对误差不超过 1/16，覆盖 0 到 Long.MAX_VALUE 纳秒一共只有 960 个桶。
+ * 记录时只计算桶下标并对 AtomicLongArray 做一次自增，不加锁也不分配对象；
+ * 读取分位数时遍历所有桶，读到的不是严格的快照，用于监控足够了
+ * @date 2026/10/18 14:00
+ **/
+public class LatencyHistogram {
+
+    // 每个 2 的幂区间内子桶个数的位数，小于 2^SUB_BUCKET_BITS 的值每个值一个桶
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_HALF = 1 << (SUB_BUCKET_BITS - 1);
+
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时，纳秒，负数按 0 记录
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return 所有耗时之和，纳秒
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * @return 记录过的最大耗时，纳秒
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * 计算分位数
+     *
+     * @param quantile 0 到 1 之间，例如 0.99
+     * @return 分位数所在桶的上界，纳秒，没有记录时返回 0
+     */
+    public long getValueAtQuantile(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(Math.max(quantile, 0), 1) * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                // 桶的上界可能超过实际记录的最大值
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * 值所在的桶：小于 32 的值直接作为下标，其他值取最高的 5 位作为子桶，最高位的位置作为区间
+     */
+    static int indexOf(long value) {
+        if (value < (1 << SUB_BUCKET_BITS)) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BUCKET_BITS + 1;
+        int mantissa = (int) (value >>> shift);
+        return (shift + 1) * SUB_BUCKET_HALF + (mantissa - SUB_BUCKET_HALF);
+    }
+
+    /**
+     * 桶中能放下的最大值
+     */
+    static long highestValueOf(int index) {
+        if (index < (1 << SUB_BUCKET_BITS)) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF - 1;
+        long mantissa = SUB_BUCKET_HALF + index % SUB_BUCKET_HALF;
+        long highest = ((mantissa + 1) << shift) - 1;
+        // 最后一个桶的上界会溢出
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+}
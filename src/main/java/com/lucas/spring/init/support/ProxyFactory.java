@@ -0,0 +1,160 @@
+package com.lucas.spring.init.support;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author zhangfan
+ * @description 创建 bean 的代理，实现了接口的 bean 使用 JDK 动态代理，其他的使用 SubclassProxyGenerator 生成的子类
+ * 两种代理调用的都是同一个 InvocationHandler，子类代理会重写所有 public 方法，全部转发给 handler，
+ * 因此代理对象本身的字段不会被使用，handler 中应该调用被代理的目标实例
+ * @date 2026/10/18 10:40
+ **/
+public final class ProxyFactory {
+
+    // 每个类只生成一次代理子类
+    private static final ConcurrentHashMap<Class<?>, SubclassProxy> SUBCLASS_PROXIES = new ConcurrentHashMap<Class<?>, SubclassProxy>();
+
+    private ProxyFactory() {
+    }
+
+    /**
+     * 创建代理
+     *
+     * @param beanClass        被代理的类
+     * @param handler          方法调用处理器
+     * @param proxyTargetClass 即使实现了接口也使用子类代理，代理对象需要按类注入或者作为 Controller 调用时使用
+     * @return 代理对象
+     */
+    public static Object createProxy(Class<?> beanClass, InvocationHandler handler, boolean proxyTargetClass) {
+        Class<?>[] interfaces = beanClass.getInterfaces();
+        if (interfaces.length > 0 && !(proxyTargetClass && canSubclass(beanClass))) {
+            return Proxy.newProxyInstance(beanClass.getClassLoader(), interfaces, handler);
+        }
+        if (!canSubclass(beanClass)) {
+            throw new IllegalStateException("Cannot proxy " + beanClass.getName()
+                    + ": it must be a public non-final class with a public or protected no-arg constructor");
+        }
+        SubclassProxy proxy = SUBCLASS_PROXIES.get(beanClass);
+        if (proxy == null) {
+            proxy = SubclassProxy.generate(beanClass);
+            SubclassProxy existing = SUBCLASS_PROXIES.putIfAbsent(beanClass, proxy);
+            if (existing != null) {
+                proxy = existing;
+            }
+        }
+        return proxy.newInstance(handler);
+    }
+
+    /**
+     * 生成的子类在单独的类加载器中，只能继承 public 的类，也只能重写 public 方法
+     */
+    public static boolean canSubclass(Class<?> beanClass) {
+        int modifiers = beanClass.getModifiers();
+        if (!Modifier.isPublic(modifiers) || Modifier.isFinal(modifiers) || beanClass.isInterface()
+                || (beanClass.getEnclosingClass() != null && !Modifier.isStatic(modifiers))) {
+            return false;
+        }
+        try {
+            int constructor = beanClass.getDeclaredConstructor().getModifiers();
+            if (!Modifier.isPublic(constructor) && !Modifier.isProtected(constructor)) {
+                return false;
+            }
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+        for (Method method : proxiedMethods(beanClass)) {
+            if (!isPublic(method.getReturnType())) {
+                return false;
+            }
+            for (Class<?> type : method.getParameterTypes()) {
+                if (!isPublic(type)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPublic(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        return type.isPrimitive() || Modifier.isPublic(type.getModifiers());
+    }
+
+    /**
+     * 需要代理的方法：所有 public、非 final、非 static 的方法，不包括 Object 中的方法，相同签名只保留一个
+     */
+    private static List<Method> proxiedMethods(Class<?> beanClass) {
+        Map<String, Method> methods = new LinkedHashMap<String, Method>();
+        for (Method method : beanClass.getMethods()) {
+            int modifiers = method.getModifiers();
+            // 接口中的抽象方法在类中一定有实现，桥接方法会调用到重写后的方法，都不需要单独代理
+            if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || Modifier.isAbstract(modifiers)
+                    || method.isBridge() || method.getDeclaringClass() == Object.class) {
+                continue;
+            }
+            String signature = method.getName() + SubclassProxyGenerator.methodDescriptor(method);
+            if (!methods.containsKey(signature)) {
+                methods.put(signature, method);
+            }
+        }
+        return new ArrayList<Method>(methods.values());
+    }
+
+    private static class SubclassProxy {
+
+        private final Constructor<?> constructor;
+
+        private final Method[] methods;
+
+        private SubclassProxy(Constructor<?> constructor, Method[] methods) {
+            this.constructor = constructor;
+            this.methods = methods;
+        }
+
+        static SubclassProxy generate(Class<?> beanClass) {
+            List<Method> methods = proxiedMethods(beanClass);
+            String className = beanClass.getName() + "$$ZProxy";
+            byte[] bytes = SubclassProxyGenerator.generate(className, beanClass, methods);
+            Class<?> proxyClass = new ProxyClassLoader(beanClass.getClassLoader()).define(className, bytes);
+            try {
+                Constructor<?> constructor = proxyClass.getConstructor(InvocationHandler.class, Method[].class);
+                return new SubclassProxy(constructor, methods.toArray(new Method[methods.size()]));
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException("Generated proxy for " + beanClass.getName() + " is invalid", e);
+            }
+        }
+
+        Object newInstance(InvocationHandler handler) {
+            try {
+                return constructor.newInstance(handler, methods);
+            } catch (Exception e) {
+                throw new IllegalStateException("Create proxy of " + constructor.getDeclaringClass().getName() + " failed", e);
+            }
+        }
+    }
+
+    /**
+     * 加载生成的代理类，父加载器是被代理类的加载器
+     */
+    private static class ProxyClassLoader extends ClassLoader {
+
+        ProxyClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String className, byte[] bytes) {
+            return defineClass(className, bytes, 0, bytes.length);
+        }
+    }
+}
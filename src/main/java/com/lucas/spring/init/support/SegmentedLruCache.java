@@ -0,0 +1,261 @@
+package com.lucas.spring.init.support;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author zhangfan
+ * @description 有界的并发缓存，按 key 的 hash 分成多个段，每段各自加锁，淘汰策略为分段 LRU（SLRU）
+ * 每段分为试用区和保护区：新写入的放在试用区，再次命中才晋升到保护区，保护区满了把最久未使用的降级回试用区，
+ * 淘汰时优先淘汰试用区中最久未使用的，只访问过一次的 key 不会把热点数据挤出去；
+ * 条目可以设置过期时间，读取时发现过期直接删除；命中、未命中、淘汰、过期次数用 LongAdder 统计
+ * @date 2026/10/18 11:00
+ **/
+public class SegmentedLruCache<K, V> implements SegmentedLruCacheMBean {
+
+    // 保护区占每段容量的比例
+    private static final double PROTECTED_RATIO = 0.8;
+
+    private final String name;
+
+    private final Segment<K, V>[] segments;
+
+    private final int segmentMask;
+
+    // 过期时间，纳秒，0 表示不过期
+    private final long ttlNanos;
+
+    private final int maxSize;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * @param name    缓存名称
+     * @param maxSize 最多缓存的条数
+     * @param ttl     过期时间，0 表示不过期
+     * @param unit    过期时间的单位
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SegmentedLruCache(String name, int maxSize, long ttl, TimeUnit unit) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize of cache “" + name + "” must be positive");
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        // 每段至少 32 条，段数取 2 的幂，最多 16 段
+        int count = 1;
+        while (count < 16 && maxSize / (count * 2) >= 32) {
+            count *= 2;
+        }
+        this.segments = new Segment[count];
+        this.segmentMask = count - 1;
+        int capacity = (maxSize + count - 1) / count;
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<K, V>(capacity, evictions, expirations);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 缓存的值，不存在或已过期时返回 null
+     */
+    public V get(K key) {
+        V value = segmentFor(key).get(key, System.nanoTime());
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        long expiresAt = ttlNanos == 0 ? 0 : System.nanoTime() + ttlNanos;
+        segmentFor(key).put(key, value, expiresAt);
+    }
+
+    public void remove(K key) {
+        segmentFor(key).remove(key);
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @Override
+    public int getSize() {
+        return size();
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    /**
+     * @return 命中率，没有请求时为 0
+     */
+    @Override
+    public double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    @Override
+    public String toString() {
+        return "Cache " + name + " {size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount() + ", expirations=" + getExpirationCount() + "}";
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        int h = key.hashCode();
+        // 打散 hash 的高位
+        h ^= (h >>> 16);
+        return segments[h & segmentMask];
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+
+        private final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != 0 && now - expiresAt >= 0;
+        }
+    }
+
+    private static class Segment<K, V> {
+
+        // 按访问顺序排列，最久未使用的在最前面
+        private final LinkedHashMap<K, Entry<V>> probation = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+
+        private final LinkedHashMap<K, Entry<V>> protectedArea = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+
+        private final int capacity;
+
+        private final int protectedCapacity;
+
+        private final LongAdder evictions;
+
+        private final LongAdder expirations;
+
+        Segment(int capacity, LongAdder evictions, LongAdder expirations) {
+            this.capacity = capacity;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.protectedCapacity = Math.max(1, (int) (capacity * PROTECTED_RATIO));
+        }
+
+        synchronized V get(K key, long now) {
+            Entry<V> entry = protectedArea.get(key);
+            if (entry != null) {
+                if (entry.isExpired(now)) {
+                    protectedArea.remove(key);
+                    expirations.increment();
+                    return null;
+                }
+                return entry.value;
+            }
+            entry = probation.get(key);
+            if (entry == null) {
+                return null;
+            }
+            probation.remove(key);
+            if (entry.isExpired(now)) {
+                expirations.increment();
+                return null;
+            }
+            // 第二次命中，晋升到保护区
+            protectedArea.put(key, entry);
+            if (protectedArea.size() > protectedCapacity) {
+                Iterator<Map.Entry<K, Entry<V>>> eldest = protectedArea.entrySet().iterator();
+                Map.Entry<K, Entry<V>> demoted = eldest.next();
+                eldest.remove();
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+            return entry.value;
+        }
+
+        synchronized void put(K key, V value, long expiresAt) {
+            Entry<V> entry = new Entry<V>(value, expiresAt);
+            if (protectedArea.containsKey(key)) {
+                protectedArea.put(key, entry);
+                return;
+            }
+            probation.put(key, entry);
+            while (probation.size() + protectedArea.size() > capacity) {
+                LinkedHashMap<K, Entry<V>> victims = probation.isEmpty() ? protectedArea : probation;
+                Iterator<K> eldest = victims.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+
+        synchronized void remove(K key) {
+            if (protectedArea.remove(key) == null) {
+                probation.remove(key);
+            }
+        }
+
+        synchronized void clear() {
+            probation.clear();
+            protectedArea.clear();
+        }
+
+        synchronized int size() {
+            return probation.size() + protectedArea.size();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.lucas.spring.init.support;
+
+/**
+ * @author zhangfan
+ * @description 通过 JMX 暴露的缓存统计，每个 @ZCacheable 缓存注册一个 MBean
+ * @date 2026/10/17 22:40
+ **/
+public interface SegmentedLruCacheMBean {
+
+    String getName();
+
+    int getSize();
+
+    int getMaxSize();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    long getEvictionCount();
+
+    long getExpirationCount();
+
+    double getHitRate();
+}
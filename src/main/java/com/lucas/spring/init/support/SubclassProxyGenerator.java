@@ -0,0 +1,146 @@
+package com.lucas.spring.init.support;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * @author zhangfan
+ * @description 生成代理子类的字节码，不依赖 ASM、CGLIB
+ * 生成的类继承目标类，构造方法接收 InvocationHandler 和 Method[]，每个被代理的方法都只做一件事：
+ * 把参数装箱放进 Object[]，调用 handler.invoke(this, methods[i], args)，再把返回值拆箱返回
+ * @date 2026/10/18 10:20
+ **/
+class SubclassProxyGenerator extends ClassFileWriter {
+
+    private static final String HANDLER = "java/lang/reflect/InvocationHandler";
+    private static final String HANDLER_DESCRIPTOR = "Ljava/lang/reflect/InvocationHandler;";
+    private static final String METHODS_DESCRIPTOR = "[Ljava/lang/reflect/Method;";
+    private static final String INVOKE_DESCRIPTOR = "(Ljava/lang/Object;Ljava/lang/reflect/Method;[Ljava/lang/Object;)Ljava/lang/Object;";
+
+    private final String className;
+
+    private final String superName;
+
+    private SubclassProxyGenerator(String className, String superName) {
+        this.className = className;
+        this.superName = superName;
+    }
+
+    /**
+     * 生成代理子类
+     *
+     * @param className  代理类的全类名
+     * @param superclass 被代理的类，需要有 public 或 protected 的无参构造方法
+     * @param methods    需要代理的方法，下标和构造方法中传入的 Method[] 一致
+     * @return class 文件内容
+     */
+    static byte[] generate(String className, Class<?> superclass, List<Method> methods) {
+        SubclassProxyGenerator generator = new SubclassProxyGenerator(className.replace('.', '/'),
+                superclass.getName().replace('.', '/'));
+        try {
+            return generator.generate(methods);
+        } catch (IOException e) {
+            throw new IllegalStateException("Generate proxy for " + superclass.getName() + " failed", e);
+        }
+    }
+
+    private byte[] generate(List<Method> methods) throws IOException {
+        // 先写方法，过程中把用到的常量放进常量池
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+        int thisClass = classRef(className);
+        int superClass = classRef(superName);
+
+        // interfaces
+        out.writeShort(0);
+        // fields：handler 和 methods
+        out.writeShort(2);
+        writeField(out, "h", HANDLER_DESCRIPTOR);
+        writeField(out, "m", METHODS_DESCRIPTOR);
+        // methods
+        out.writeShort(methods.size() + 1);
+        writeConstructor(out);
+        for (int i = 0; i < methods.size(); i++) {
+            writeMethod(out, methods.get(i), i);
+        }
+        // attributes
+        out.writeShort(0);
+        out.flush();
+        return toClassFile(ACC_PUBLIC | ACC_SUPER | ACC_SYNTHETIC, thisClass, superClass, body);
+    }
+
+    private void writeField(DataOutputStream out, String name, String descriptor) throws IOException {
+        out.writeShort(ACC_PRIVATE | ACC_FINAL | ACC_SYNTHETIC);
+        out.writeShort(utf8(name));
+        out.writeShort(utf8(descriptor));
+        out.writeShort(0);
+    }
+
+    /**
+     * public Proxy(InvocationHandler h, Method[] m) { super(); this.h = h; this.m = m; }
+     */
+    private void writeConstructor(DataOutputStream out) throws IOException {
+        Code code = new Code();
+        code.op(0x2A);                                                   // aload_0
+        code.op(0xB7).u2(methodRef(superName, "<init>", "()V"));         // invokespecial
+        code.op(0x2A);                                                   // aload_0
+        code.op(0x2B);                                                   // aload_1
+        code.op(0xB5).u2(fieldRef(className, "h", HANDLER_DESCRIPTOR));  // putfield
+        code.op(0x2A);                                                   // aload_0
+        code.op(0x2C);                                                   // aload_2
+        code.op(0xB5).u2(fieldRef(className, "m", METHODS_DESCRIPTOR));  // putfield
+        code.op(0xB1);                                                   // return
+        writeMethodInfo(out, ACC_PUBLIC, "<init>", "(" + HANDLER_DESCRIPTOR + METHODS_DESCRIPTOR + ")V", code, 3, 3);
+    }
+
+    /**
+     * public R name(A a, B b) { return (R) h.invoke(this, m[index], new Object[]{a, b}); }
+     */
+    private void writeMethod(DataOutputStream out, Method method, int index) throws IOException {
+        Class<?>[] parameters = method.getParameterTypes();
+        Code code = new Code();
+        code.op(0x2A);                                                   // aload_0
+        code.op(0xB4).u2(fieldRef(className, "h", HANDLER_DESCRIPTOR));  // getfield h
+        code.op(0x2A);                                                   // aload_0
+        code.op(0x2A);                                                   // aload_0
+        code.op(0xB4).u2(fieldRef(className, "m", METHODS_DESCRIPTOR));  // getfield m
+        code.op(0x11).u2(index);                                         // sipush index
+        code.op(0x32);                                                   // aaload
+        code.op(0x11).u2(parameters.length);                             // sipush length
+        code.op(0xBD).u2(classRef("java/lang/Object"));                  // anewarray
+        int slot = 1;
+        for (int i = 0; i < parameters.length; i++) {
+            Class<?> type = parameters[i];
+            code.op(0x59);                                               // dup
+            code.op(0x11).u2(i);                                         // sipush i
+            code.op(loadOpcode(type)).u1(slot);                          // xload slot
+            if (type.isPrimitive()) {
+                String wrapper = wrapper(type);
+                code.op(0xB8).u2(methodRef(wrapper, "valueOf",
+                        "(" + descriptor(type) + ")L" + wrapper + ";"));    // invokestatic valueOf
+            }
+            code.op(0x53);                                               // aastore
+            slot += slots(type);
+        }
+        code.op(0xB9).u2(interfaceMethodRef(HANDLER, "invoke", INVOKE_DESCRIPTOR)).u1(4).u1(0); // invokeinterface
+        Class<?> returnType = method.getReturnType();
+        if (returnType == void.class) {
+            code.op(0x57);                                               // pop
+            code.op(0xB1);                                               // return
+        } else if (returnType.isPrimitive()) {
+            String wrapper = wrapper(returnType);
+            code.op(0xC0).u2(classRef(wrapper));                         // checkcast
+            code.op(0xB6).u2(methodRef(wrapper, returnType.getName() + "Value",
+                    "()" + descriptor(returnType)));                     // invokevirtual xValue
+            code.op(returnOpcode(returnType));
+        } else {
+            code.op(0xC0).u2(classRef(internalName(returnType)));       // checkcast
+            code.op(0xB0);                                               // areturn
+        }
+        // 栈最深时：handler、this、method、args、args、index、long 参数
+        writeMethodInfo(out, ACC_PUBLIC, method.getName(), methodDescriptor(method), code, 8, slot);
+    }
+}
@@ -1,6 +1,7 @@
 package com.lucas.spring.init.v1;
 
 import com.lucas.spring.annotation.*;
+import com.lucas.spring.init.support.HandlerInvoker;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -38,6 +39,9 @@ public class ZDispatcherServlet extends HttpServlet {
     //保存 url 和 Method 的对应关系
     private Map<String, Method> handlerMapping = new HashMap<String, Method>();
 
+    //保存 url 和预先绑定好的方法调用器的对应关系
+    private Map<String, HandlerInvoker> invokerMapping = new HashMap<String, HandlerInvoker>();
+
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         this.doPost(req, resp);
@@ -101,8 +105,8 @@ public class ZDispatcherServlet extends HttpServlet {
 
         // 这里获取方法所在的类的名字，用于从IOC中拿到对应的类的实例
         String beanName = toLowerFirstCase(method.getDeclaringClass().getSimpleName());
-        // 执行方法，传入方法对参数，这里是写死的，后续优化
-        method.invoke(ioc.get(beanName), paramValues);
+        // 执行方法，传入方法对参数，通过启动时创建的调用器执行，不再走 Method.invoke
+        invokerMapping.get(url).invoke(ioc.get(beanName), paramValues);
 
     }
 //
@@ -180,6 +184,7 @@ public class ZDispatcherServlet extends HttpServlet {
 
                 // 保存路径和方法
                 handlerMapping.put(url, method);
+                invokerMapping.put(url, HandlerInvoker.create(method, contextConfig.getProperty("handlerInvoker")));
 
                 System.out.println("Mapped :" + url + "," + method);
             }
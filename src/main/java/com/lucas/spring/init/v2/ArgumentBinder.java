@@ -0,0 +1,259 @@
+package com.lucas.spring.init.v2;
+
+import com.lucas.spring.annotation.ZPathVariable;
+import com.lucas.spring.annotation.ZRequestBody;
+import com.lucas.spring.annotation.ZRequestParam;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * @author zhangfan
+ * @description 方法参数绑定器，每个方法参数在启动时编译成一个绑定器，请求时按下标依次调用
+ * 只读取方法声明需要的参数，不再遍历 getParameterMap()，也没有正则替换和 Map 查找
+ * @date 2026/10/17 15:02
+ **/
+abstract class ArgumentBinder {
+
+    /**
+     * 从请求中取出当前参数的值
+     *
+     * @param req      请求
+     * @param resp     响应
+     * @param captures 路径变量在 URI 中的起止位置
+     * @return 参数值
+     * @throws Exception
+     */
+    abstract Object bind(HttpServletRequest req, HttpServletResponse resp, int[] captures) throws Exception;
+
+    /**
+     * 为方法的每个参数编译绑定器
+     *
+     * @param method        Controller 中的方法
+     * @param pathVariables 路由中声明的路径变量名
+     * @param converters    参数类型转换器
+     * @param bodyReader    请求体读取器
+     * @return 和方法参数一一对应的绑定器
+     */
+    static ArgumentBinder[] compile(Method method, List<String> pathVariables, ConverterRegistry converters,
+                                    RequestBodyReader bodyReader) {
+        Parameter[] parameters = method.getParameters();
+        ArgumentBinder[] binders = new ArgumentBinder[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            binders[i] = compile(method, parameters[i], pathVariables, converters, bodyReader);
+        }
+        return binders;
+    }
+
+    private static ArgumentBinder compile(Method method, Parameter parameter, List<String> pathVariables,
+                                          ConverterRegistry converters, RequestBodyReader bodyReader) {
+        Class<?> type = parameter.getType();
+
+        // 1、判断是否有 @ZPathVariable
+        ZPathVariable pathVariable = parameter.getAnnotation(ZPathVariable.class);
+        if (pathVariable != null) {
+            String name = nameOf(pathVariable.value(), parameter);
+            int variable = pathVariables.indexOf(name);
+            if (variable < 0) {
+                throw new IllegalStateException("The path variable “" + name + "” is not declared on " + method);
+            }
+            return new PathVariableBinder(type, variable,
+                    converters.resolve(parameter.getParameterizedType(), "path variable “" + name + "” of " + method));
+        }
+
+        // 2、判断是否有 @ZRequestParam
+        ZRequestParam requestParam = parameter.getAnnotation(ZRequestParam.class);
+        if (requestParam != null && !"".equals(nameOf(requestParam.value(), parameter))) {
+            String name = nameOf(requestParam.value(), parameter);
+            return new RequestParamBinder(name,
+                    converters.resolve(parameter.getParameterizedType(), "parameter “" + name + "” of " + method));
+        }
+
+        // 3、判断是否有 @ZRequestBody
+        ZRequestBody requestBody = parameter.getAnnotation(ZRequestBody.class);
+        if (requestBody != null) {
+            return bodyReader.compile(parameter.getParameterizedType(), requestBody.required(),
+                    "request body " + parameter.getName() + " of " + method);
+        }
+
+        // 4、HttpServletRequest 和 HttpServletResponse 直接传入
+        if (type == HttpServletRequest.class || type == ServletRequest.class) {
+            return REQUEST;
+        }
+        if (type == HttpServletResponse.class || type == ServletResponse.class) {
+            return RESPONSE;
+        }
+
+        // 5、请求体，以流的形式传入
+        if (InputStream.class.isAssignableFrom(type)) {
+            return BODY_STREAM;
+        }
+        if (Reader.class.isAssignableFrom(type)) {
+            return BODY_READER;
+        }
+
+        // 其他没有注解的参数，保持原来的逻辑，传入 null
+        return NULL;
+    }
+
+    /**
+     * 注解中没有指定名称时，使用编译时保留的参数名（需要 -parameters）
+     */
+    private static String nameOf(String value, Parameter parameter) {
+        String name = value.trim();
+        if ("".equals(name) && parameter.isNamePresent()) {
+            name = parameter.getName();
+        }
+        return name;
+    }
+
+    private static final ArgumentBinder REQUEST = new ArgumentBinder() {
+        @Override
+        Object bind(HttpServletRequest req, HttpServletResponse resp, int[] captures) {
+            return req;
+        }
+    };
+
+    private static final ArgumentBinder RESPONSE = new ArgumentBinder() {
+        @Override
+        Object bind(HttpServletRequest req, HttpServletResponse resp, int[] captures) {
+            return resp;
+        }
+    };
+
+    private static final ArgumentBinder BODY_STREAM = new ArgumentBinder() {
+        @Override
+        Object bind(HttpServletRequest req, HttpServletResponse resp, int[] captures) throws Exception {
+            return req.getInputStream();
+        }
+    };
+
+    private static final ArgumentBinder BODY_READER = new ArgumentBinder() {
+        @Override
+        Object bind(HttpServletRequest req, HttpServletResponse resp, int[] captures) throws Exception {
+            return req.getReader();
+        }
+    };
+
+    private static final ArgumentBinder NULL = new ArgumentBinder() {
+        @Override
+        Object bind(HttpServletRequest req, HttpServletResponse resp, int[] captures) {
+            return null;
+        }
+    };
+
+    /**
+     * 绑定 @ZRequestParam 参数，只按名称读取这一个参数
+     */
+    private static class RequestParamBinder extends ArgumentBinder {
+
+        private final String name;
+
+        private final ConverterRegistry.ValuesConverter converter;
+
+        RequestParamBinder(String name, ConverterRegistry.ValuesConverter converter) {
+            this.name = name;
+            this.converter = converter;
+        }
+
+        @Override
+        Object bind(HttpServletRequest req, HttpServletResponse resp, int[] captures) {
+            return converter.convert(req.getParameterValues(name));
+        }
+    }
+
+    /**
+     * 绑定 @ZPathVariable 参数，数字类型直接在 URI 上按位置解析，避免先截取成 String
+     */
+    private static class PathVariableBinder extends ArgumentBinder {
+
+        private final Class<?> type;
+
+        private final int variable;
+
+        private final ConverterRegistry.ValuesConverter converter;
+
+        PathVariableBinder(Class<?> type, int variable, ConverterRegistry.ValuesConverter converter) {
+            this.type = type;
+            this.variable = variable;
+            this.converter = converter;
+        }
+
+        @Override
+        Object bind(HttpServletRequest req, HttpServletResponse resp, int[] captures) {
+            String uri = req.getRequestURI();
+            int start = captures[variable * 2];
+            int end = captures[variable * 2 + 1];
+            if (Integer.class == type || int.class == type) {
+                return (int) parseLong(uri, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            }
+            if (Long.class == type || long.class == type) {
+                return parseLong(uri, start, end, Long.MIN_VALUE, Long.MAX_VALUE);
+            }
+            // 路径中的变量没有经过容器解码，只有包含 % 时才需要解码
+            int percent = uri.indexOf('%', start);
+            String value = percent >= 0 && percent < end ? decodePath(uri, start, end) : uri.substring(start, end);
+            return converter.convert(value);
+        }
+    }
+
+    /**
+     * 解码路径中的 %XX，连续的转义按 UTF-8 解码；和 URLDecoder 不同，+ 保持原样，+ 只在表单编码中表示空格
+     */
+    static String decodePath(String s, int start, int end) {
+        StringBuilder builder = new StringBuilder(end - start);
+        byte[] bytes = null;
+        int i = start;
+        while (i < end) {
+            char c = s.charAt(i);
+            if (c != '%') {
+                builder.append(c);
+                i++;
+                continue;
+            }
+            if (bytes == null) {
+                bytes = new byte[(end - i) / 3];
+            }
+            int count = 0;
+            while (i < end && s.charAt(i) == '%') {
+                int high = i + 2 < end ? Character.digit(s.charAt(i + 1), 16) : -1;
+                int low = i + 2 < end ? Character.digit(s.charAt(i + 2), 16) : -1;
+                if (high < 0 || low < 0) {
+                    throw new IllegalArgumentException("Illegal escape in path: " + s.substring(start, end));
+                }
+                bytes[count++] = (byte) ((high << 4) | low);
+                i += 3;
+            }
+            builder.append(new String(bytes, 0, count, StandardCharsets.UTF_8));
+        }
+        return builder.toString();
+    }
+
+    private static long parseLong(String s, int start, int end, long min, long max) {
+        boolean negative = start < end && s.charAt(start) == '-';
+        int i = negative ? start + 1 : start;
+        // 按负数累加，避免 Long.MIN_VALUE 溢出
+        long limit = negative ? min : -max;
+        long multmin = limit / 10;
+        long result = 0;
+        if (i == end) {
+            throw new NumberFormatException("For input string: \"" + s.substring(start, end) + "\"");
+        }
+        for (; i < end; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < multmin || result * 10 < limit + digit) {
+                throw new NumberFormatException("For input string: \"" + s.substring(start, end) + "\"");
+            }
+            result = result * 10 - digit;
+        }
+        return negative ? result : -result;
+    }
+}
@@ -0,0 +1,83 @@
+package com.lucas.spring.init.v2;
+
+import java.lang.reflect.Method;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author zhangfan
+ * @description 创建异步请求使用的线程池
+ * asyncExecutor=virtual（默认）时在 JDK 21+ 上使用虚拟线程，每个请求一个虚拟线程，阻塞时不占用平台线程；
+ * 低版本 JDK 或 asyncExecutor=pool 时使用有界线程池，大小由 asyncPoolSize、asyncQueueCapacity 配置；
+ * 内置 HTTP 服务处理连接的线程也通过这里创建
+ * @date 2026/10/17 21:10
+ **/
+public class AsyncExecutors {
+
+    private AsyncExecutors() {
+    }
+
+    static ExecutorService create(Properties config) {
+        return create(config.getProperty("asyncExecutor", "virtual").trim(),
+                Integer.parseInt(config.getProperty("asyncPoolSize", "200").trim()),
+                Integer.parseInt(config.getProperty("asyncQueueCapacity", "1000").trim()), "z-async-");
+    }
+
+    /**
+     * @param type          virtual 或 pool，JDK 21 以下 virtual 也会退回线程池
+     * @param poolSize      线程池大小
+     * @param queueCapacity 线程池队列长度
+     * @param threadPrefix  线程池中线程名称的前缀
+     */
+    public static ExecutorService create(String type, int poolSize, int queueCapacity, String threadPrefix) {
+        if ("virtual".equalsIgnoreCase(type)) {
+            ExecutorService executor = newVirtualThreadExecutor();
+            if (executor != null) {
+                return executor;
+            }
+        }
+        // 队列满了直接拒绝，由调用方返回 503，而不是在请求线程中执行
+        return new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new NamedThreadFactory(threadPrefix),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 通过反射调用 Executors.newVirtualThreadPerTaskExecutor()，项目按 Java 8 编译，低版本 JDK 上返回 null
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (Exception e) {
+            // 例如 JDK 19/20 上虚拟线程还是预览特性
+            return null;
+        }
+    }
+
+    static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
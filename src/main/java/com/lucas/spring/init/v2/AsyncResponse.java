@@ -0,0 +1,550 @@
+package com.lucas.spring.init.v2;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author zhangfan
+ * @description 异步执行的方法看到的响应，超时后由容器线程关闭，之后方法线程的写入、设置响应头和状态码都直接丢弃，
+ * 读取响应头等返回空值。
+ * 超时后容器会结束异步上下文并回收响应，方法线程还在执行时不能再访问原来的响应；
+ * 所有修改响应的操作和关闭都在同一个锁内，关闭返回后不会再有写入到达原来的响应。
+ * 写出可能阻塞在慢客户端的 socket 上，使用 ReentrantLock 而不是 synchronized，虚拟线程在锁内阻塞时可以让出载体线程
+ * @date 2026/10/17 20:30
+ **/
+class AsyncResponse extends HttpServletResponseWrapper {
+
+    private final ReentrantLock responseLock = new ReentrantLock();
+
+    private boolean closed;
+
+    private ServletOutputStream outputStream;
+
+    private PrintWriter writer;
+
+    AsyncResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * 超时时调用，等待正在进行的写入完成后返回
+     */
+    void close() {
+        responseLock.lock();
+        try {
+            closed = true;
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isCommitted() {
+        responseLock.lock();
+        try {
+            // 关闭后当作已经提交，异常处理不会再重置响应
+            return closed || super.isCommitted();
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public int getStatus() {
+        responseLock.lock();
+        try {
+            return closed ? SC_SERVICE_UNAVAILABLE : super.getStatus();
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        responseLock.lock();
+        try {
+            return !closed && super.containsHeader(name);
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public String getHeader(String name) {
+        responseLock.lock();
+        try {
+            return closed ? null : super.getHeader(name);
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        responseLock.lock();
+        try {
+            return closed ? Collections.<String>emptyList() : super.getHeaders(name);
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        responseLock.lock();
+        try {
+            return closed ? Collections.<String>emptyList() : super.getHeaderNames();
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        responseLock.lock();
+        try {
+            return closed ? null : super.getContentType();
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        responseLock.lock();
+        try {
+            return closed ? "ISO-8859-1" : super.getCharacterEncoding();
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public Locale getLocale() {
+        responseLock.lock();
+        try {
+            return closed ? Locale.getDefault() : super.getLocale();
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public int getBufferSize() {
+        responseLock.lock();
+        try {
+            return closed ? 0 : super.getBufferSize();
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        responseLock.lock();
+        try {
+            if (outputStream == null) {
+                outputStream = new GuardedOutputStream(closed ? null : super.getOutputStream());
+            }
+            return outputStream;
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        responseLock.lock();
+        try {
+            if (writer == null) {
+                writer = new PrintWriter(new GuardedWriter(closed ? null : super.getWriter()), false);
+            }
+            return writer;
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.setStatus(sc);
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.sendError(sc, msg);
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.sendError(sc);
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.sendRedirect(location);
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.setHeader(name, value);
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.addHeader(name, value);
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.setIntHeader(name, value);
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.addIntHeader(name, value);
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.setDateHeader(name, date);
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.addDateHeader(name, date);
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.addCookie(cookie);
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void setContentType(String type) {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.setContentType(type);
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.setContentLength(len);
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.setContentLengthLong(len);
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.setCharacterEncoding(charset);
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void setLocale(Locale loc) {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.setLocale(loc);
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.setBufferSize(size);
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                if (writer != null) {
+                    writer.flush();
+                }
+                super.flushBuffer();
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void reset() {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.reset();
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        responseLock.lock();
+        try {
+            if (!closed) {
+                super.resetBuffer();
+            }
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    /**
+     * 写入原来响应的输出流，关闭后丢弃；获取时已经关闭的 target 为 null
+     */
+    private class GuardedOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream target;
+
+        GuardedOutputStream(ServletOutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            responseLock.lock();
+            try {
+                if (!closed) {
+                    target.write(b);
+                }
+            } finally {
+                responseLock.unlock();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            responseLock.lock();
+            try {
+                if (!closed) {
+                    target.write(b, off, len);
+                }
+            } finally {
+                responseLock.unlock();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            responseLock.lock();
+            try {
+                if (!closed) {
+                    target.flush();
+                }
+            } finally {
+                responseLock.unlock();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            responseLock.lock();
+            try {
+                if (!closed) {
+                    target.close();
+                }
+            } finally {
+                responseLock.unlock();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new IllegalStateException("Non-blocking IO is not supported in async handlers");
+        }
+    }
+
+    /**
+     * 写入原来响应的 Writer，关闭后丢弃
+     */
+    private class GuardedWriter extends Writer {
+
+        private final PrintWriter target;
+
+        GuardedWriter(PrintWriter target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            responseLock.lock();
+            try {
+                if (!closed) {
+                    target.write(cbuf, off, len);
+                }
+            } finally {
+                responseLock.unlock();
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            responseLock.lock();
+            try {
+                if (!closed) {
+                    target.write(str, off, len);
+                }
+            } finally {
+                responseLock.unlock();
+            }
+        }
+
+        @Override
+        public void flush() {
+            responseLock.lock();
+            try {
+                if (!closed) {
+                    target.flush();
+                }
+            } finally {
+                responseLock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            responseLock.lock();
+            try {
+                if (!closed) {
+                    target.close();
+                }
+            } finally {
+                responseLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,1032 @@
+package com.lucas.spring.init.v2;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import javax.servlet.http.HttpSession;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.security.Principal;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author zhangfan
+ * @description 批量请求，一次 POST 携带多个子请求，按顺序返回每个子请求的结果
+ * 请求体：[{"path": "/web/query", "params": {"name": "a"}}, {"path": "/web/add?a=1&b=2", "method": "GET"}]
+ * 响应体：[{"path": "/web/query", "status": 200, "contentType": "...", "body": ...}, ...]，application/json 和 +json 的响应体原样嵌入，其他按字符串输出。
+ * 子请求不经过容器，直接使用同样的路由、参数绑定、拦截器和异常处理，彼此没有依赖，在 batchExecutor 中并行执行；
+ * 请求线程按顺序等待结果并写出，等待前先把已经写好的部分刷新给客户端，遇到还没开始执行的子请求时自己执行
+ * @date 2026/10/19 14:00
+ **/
+class BatchDispatcher {
+
+    private static final String JSON = "application/json;charset=UTF-8";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private final ZDispatcherServlet dispatcher;
+
+    private final String path;
+
+    private final int maxRequests;
+
+    private final long maxBodySize;
+
+    private final ExecutorService executor;
+
+    private BatchDispatcher(ZDispatcherServlet dispatcher, String path, Properties config) {
+        this.dispatcher = dispatcher;
+        this.path = path;
+        this.maxRequests = Integer.parseInt(config.getProperty("batchMaxRequests", "50").trim());
+        this.maxBodySize = Long.parseLong(config.getProperty("maxRequestBodySize", "10485760").trim());
+        this.executor = AsyncExecutors.create(config.getProperty("batchExecutor", "virtual").trim(),
+                Integer.parseInt(config.getProperty("batchPoolSize", "64").trim()),
+                Integer.parseInt(config.getProperty("batchQueueCapacity", "1000").trim()), "z-batch-");
+    }
+
+    /**
+     * @return 没有配置 batchPath 时返回 null
+     */
+    static BatchDispatcher create(ZDispatcherServlet dispatcher, Properties config) {
+        String path = config.getProperty("batchPath", "").trim();
+        return path.isEmpty() ? null : new BatchDispatcher(dispatcher, path, config);
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 请求路径是 batchPath 时执行批量请求
+     *
+     * @param from 请求路径在 URI 中的起始位置
+     * @return 是否已经处理
+     */
+    boolean handle(HttpServletRequest req, HttpServletResponse resp, int from) throws Exception {
+        String uri = req.getRequestURI();
+        if (uri.length() - from != path.length() || !uri.startsWith(path, from)) {
+            return false;
+        }
+        if (!"POST".equals(req.getMethod())) {
+            resp.setHeader("Allow", "POST");
+            resp.setStatus(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return true;
+        }
+        List<SubRequest> requests = parse(req);
+        // 第一个子请求由请求线程执行，其余的交给线程池，线程池满时在请求线程中依次执行
+        List<SubTask> tasks = new ArrayList<SubTask>(requests.size());
+        boolean written = false;
+        try {
+            for (int i = 0; i < requests.size(); i++) {
+                SubTask task = new SubTask(requests.get(i), resp);
+                tasks.add(task);
+                if (i > 0) {
+                    try {
+                        executor.execute(task);
+                    } catch (RejectedExecutionException e) {
+                        // 轮到它时由请求线程执行
+                    }
+                }
+            }
+            resp.setContentType(JSON);
+            ServletOutputStream out = resp.getOutputStream();
+            out.write('[');
+            for (int i = 0; i < tasks.size(); i++) {
+                SubTask task = tasks.get(i);
+                if (!task.isDone()) {
+                    // 等待之前先把已经完成的结果发给客户端
+                    if (i > 0) {
+                        out.flush();
+                    }
+                    // 还没有开始执行时在当前线程执行，已经在执行时直接返回
+                    task.run();
+                }
+                writeResult(i, requests.get(i), task.get(), out);
+            }
+            out.write(']');
+            written = true;
+        } finally {
+            // 客户端断开等原因中途退出时，容器随后会回收请求和响应：没开始的子请求不再执行，正在执行的等它结束
+            if (!written) {
+                for (SubTask task : tasks) {
+                    task.abandon();
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 一个子请求的执行，放弃时只跳过还没开始的，已经开始的等待结束
+     */
+    private final class SubTask extends FutureTask<SubResponse> {
+
+        private static final int NEW = 0;
+
+        private static final int RUNNING = 1;
+
+        private static final int SKIPPED = 2;
+
+        private final AtomicInteger state;
+
+        private final CountDownLatch finished;
+
+        SubTask(SubRequest req, HttpServletResponse resp) {
+            this(req, resp, new AtomicInteger(NEW), new CountDownLatch(1));
+        }
+
+        private SubTask(final SubRequest req, final HttpServletResponse resp, final AtomicInteger state,
+                        final CountDownLatch finished) {
+            super(new Callable<SubResponse>() {
+                @Override
+                public SubResponse call() {
+                    if (!state.compareAndSet(NEW, RUNNING)) {
+                        return null;
+                    }
+                    try {
+                        SubResponse sub = new SubResponse(resp);
+                        try {
+                            dispatcher.dispatchSubRequest(req, sub);
+                        } catch (Exception e) {
+                            // 异常处理本身失败
+                            sub.reset();
+                            sub.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                        }
+                        sub.flushWriter();
+                        return sub;
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            });
+            this.state = state;
+            this.finished = finished;
+        }
+
+        void abandon() {
+            if (state.compareAndSet(NEW, SKIPPED)) {
+                return;
+            }
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 读取请求体中的子请求列表
+     */
+    private List<SubRequest> parse(HttpServletRequest req) throws IOException {
+        JsonReader in = new JsonReader(req.getInputStream(), maxBodySize);
+        Object value = in.peek() == -1 ? null : JsonDeserializer.NATURAL.read(in);
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("Batch body must be a JSON array of sub-requests");
+        }
+        in.end();
+        List<?> items = (List<?>) value;
+        if (items.size() > maxRequests) {
+            throw new IllegalArgumentException("Batch contains " + items.size() + " sub-requests, the limit is " + maxRequests);
+        }
+        List<SubRequest> requests = new ArrayList<SubRequest>(items.size());
+        Snapshot snapshot = new Snapshot(req);
+        for (Object item : items) {
+            Object subPath = item instanceof Map ? ((Map<?, ?>) item).get("path") : null;
+            if (!(subPath instanceof String) || !((String) subPath).startsWith("/")) {
+                throw new IllegalArgumentException("Each sub-request must have a path starting with '/'");
+            }
+            Map<?, ?> fields = (Map<?, ?>) item;
+            Object method = fields.get("method");
+            Object params = fields.get("params");
+            if (params != null && !(params instanceof Map)) {
+                throw new IllegalArgumentException("params of a sub-request must be a JSON object");
+            }
+            requests.add(new SubRequest(req, snapshot, (String) subPath,
+                    method == null ? "GET" : method.toString().toUpperCase(Locale.ROOT), (Map<?, ?>) params));
+        }
+        return requests;
+    }
+
+    /**
+     * 写出一个子请求的结果，只在写出时占用线程复用的 ResponseBuffer，子请求在当前线程执行时也会用到它
+     */
+    private static void writeResult(int index, SubRequest req, SubResponse resp, ServletOutputStream out) throws IOException {
+        ResponseBuffer buffer = ResponseBuffer.get();
+        try {
+            JsonOutput json = new JsonOutput(buffer, null);
+            json.writeAscii(index == 0 ? "{\"path\":" : ",{\"path\":");
+            json.writeString(req.path);
+            json.writeAscii(",\"status\":");
+            json.writeLong(resp.status);
+            if (!resp.headers.isEmpty()) {
+                json.writeAscii(",\"headers\":{");
+                boolean first = true;
+                for (Map.Entry<String, List<String>> header : resp.headers.entrySet()) {
+                    if (!first) {
+                        json.writeByte(',');
+                    }
+                    first = false;
+                    json.writeString(header.getKey());
+                    json.writeByte(':');
+                    json.writeString(String.join(", ", header.getValue()));
+                }
+                json.writeByte('}');
+            }
+            String contentType = resp.getContentType();
+            if (contentType != null) {
+                json.writeAscii(",\"contentType\":");
+                json.writeString(contentType);
+            }
+            json.writeAscii(",\"body\":");
+            if (resp.size == 0) {
+                json.writeAscii("null");
+            } else if (isJson(contentType) && (resp.characterEncoding == null
+                    || UTF_8.name().equalsIgnoreCase(resp.characterEncoding))) {
+                // JSON 没有声明编码时按 UTF-8 处理，和批量响应的编码一致，可以原样嵌入
+                json.writeBytes(resp.body, 0, resp.size);
+            } else {
+                json.writeString(new String(resp.body, 0, resp.size, Charset.forName(resp.getCharacterEncoding())));
+            }
+            json.writeByte('}');
+            out.write(buffer.array(), 0, buffer.size());
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * 只有 application/json 和 xxx+json 是单个 JSON 值；application/x-ndjson、application/json-seq 等按字符串输出
+     */
+    private static boolean isJson(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int semicolon = contentType.indexOf(';');
+        String mediaType = (semicolon < 0 ? contentType : contentType.substring(0, semicolon)).trim().toLowerCase(Locale.ROOT);
+        return mediaType.equals("application/json") || mediaType.endsWith("+json");
+    }
+
+    private static String decode(String s) {
+        try {
+            return URLDecoder.decode(s, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(String s) {
+        try {
+            return URLEncoder.encode(s, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 批量请求的请求头、Cookie、会话和连接信息，在请求线程中一次读好，所有子请求共用。
+     * 容器的 HttpServletRequest 不是线程安全的，Cookie 和会话还是第一次读取时才解析，子请求在其他线程执行时不能再访问它
+     */
+    static class Snapshot {
+
+        private static final Set<String> HIDDEN_HEADERS = new LinkedHashSet<String>(Arrays.asList(
+                "accept-encoding", "if-none-match", "if-modified-since", "range", "content-length", "content-type",
+                "transfer-encoding", "expect"));
+
+        private final Map<String, List<String>> headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+
+        private final Map<String, Object> attributes = new HashMap<String, Object>();
+
+        private final Cookie[] cookies;
+
+        private final HttpSession session;
+
+        private final String requestedSessionId;
+
+        private final String contextPath;
+
+        private final String scheme;
+
+        private final String serverName;
+
+        private final int serverPort;
+
+        private final String protocol;
+
+        private final boolean secure;
+
+        private final String remoteAddr;
+
+        private final String remoteHost;
+
+        private final int remotePort;
+
+        private final String localAddr;
+
+        private final String localName;
+
+        private final int localPort;
+
+        private final Locale locale;
+
+        private final List<Locale> locales;
+
+        private final String authType;
+
+        private final String remoteUser;
+
+        private final Principal userPrincipal;
+
+        Snapshot(HttpServletRequest req) {
+            for (Enumeration<String> names = req.getHeaderNames(); names.hasMoreElements(); ) {
+                String name = names.nextElement();
+                if (!HIDDEN_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                    List<String> values = headers.get(name);
+                    if (values == null) {
+                        values = new ArrayList<String>(1);
+                        headers.put(name, values);
+                    }
+                    values.addAll(Collections.list(req.getHeaders(name)));
+                }
+            }
+            for (Enumeration<String> names = req.getAttributeNames(); names.hasMoreElements(); ) {
+                String name = names.nextElement();
+                attributes.put(name, req.getAttribute(name));
+            }
+            this.cookies = req.getCookies();
+            // 不在这里创建会话，子请求需要新会话时报错
+            this.session = req.getSession(false);
+            this.requestedSessionId = req.getRequestedSessionId();
+            this.contextPath = req.getContextPath();
+            this.scheme = req.getScheme();
+            this.serverName = req.getServerName();
+            this.serverPort = req.getServerPort();
+            this.protocol = req.getProtocol();
+            this.secure = req.isSecure();
+            this.remoteAddr = req.getRemoteAddr();
+            this.remoteHost = req.getRemoteHost();
+            this.remotePort = req.getRemotePort();
+            this.localAddr = req.getLocalAddr();
+            this.localName = req.getLocalName();
+            this.localPort = req.getLocalPort();
+            this.locale = req.getLocale();
+            this.locales = Collections.list(req.getLocales());
+            this.authType = req.getAuthType();
+            this.remoteUser = req.getRemoteUser();
+            this.userPrincipal = req.getUserPrincipal();
+        }
+    }
+
+    /**
+     * 子请求，路径、方法和参数来自请求体，请求头、Cookie 和会话沿用批量请求在 Snapshot 中保存的（认证信息等），
+     * 和响应内容协商有关的请求头不传给子请求；没有请求体，请求属性各自独立
+     */
+    static class SubRequest extends HttpServletRequestWrapper {
+
+        private final Snapshot snapshot;
+
+        private final String path;
+
+        private final String method;
+
+        private final String requestUri;
+
+        private final String queryString;
+
+        private final Map<String, String[]> parameters = new LinkedHashMap<String, String[]>();
+
+        private final Map<String, Object> attributes;
+
+        SubRequest(HttpServletRequest request, Snapshot snapshot, String path, String method, Map<?, ?> params) {
+            super(request);
+            this.snapshot = snapshot;
+            this.attributes = new HashMap<String, Object>(snapshot.attributes);
+            this.path = path;
+            this.method = method;
+            int question = path.indexOf('?');
+            this.requestUri = snapshot.contextPath + (question < 0 ? path : path.substring(0, question));
+            StringBuilder query = new StringBuilder();
+            if (question >= 0) {
+                query.append(path, question + 1, path.length());
+                for (String pair : path.substring(question + 1).split("&")) {
+                    if (!pair.isEmpty()) {
+                        int eq = pair.indexOf('=');
+                        addParameter(decode(eq < 0 ? pair : pair.substring(0, eq)), eq < 0 ? "" : decode(pair.substring(eq + 1)));
+                    }
+                }
+            }
+            if (params != null) {
+                for (Map.Entry<?, ?> param : params.entrySet()) {
+                    String name = String.valueOf(param.getKey());
+                    Collection<?> values = param.getValue() instanceof Collection
+                            ? (Collection<?>) param.getValue() : Collections.singletonList(param.getValue());
+                    for (Object value : values) {
+                        String text = value == null ? "" : value.toString();
+                        addParameter(name, text);
+                        query.append(query.length() == 0 ? "" : "&").append(encode(name)).append('=').append(encode(text));
+                    }
+                }
+            }
+            this.queryString = query.length() == 0 ? null : query.toString();
+        }
+
+        private void addParameter(String name, String value) {
+            String[] values = parameters.get(name);
+            if (values == null) {
+                parameters.put(name, new String[]{value});
+            } else {
+                String[] added = Arrays.copyOf(values, values.length + 1);
+                added[values.length] = value;
+                parameters.put(name, added);
+            }
+        }
+
+        @Override
+        public String getMethod() {
+            return method;
+        }
+
+        @Override
+        public String getRequestURI() {
+            return requestUri;
+        }
+
+        @Override
+        public StringBuffer getRequestURL() {
+            StringBuffer url = new StringBuffer();
+            url.append(getScheme()).append("://").append(getServerName()).append(':').append(getServerPort());
+            return url.append(requestUri);
+        }
+
+        @Override
+        public String getContextPath() {
+            return snapshot.contextPath;
+        }
+
+        @Override
+        public String getServletPath() {
+            return requestUri.substring(snapshot.contextPath.length());
+        }
+
+        @Override
+        public String getPathInfo() {
+            return null;
+        }
+
+        @Override
+        public String getQueryString() {
+            return queryString;
+        }
+
+        @Override
+        public String getParameter(String name) {
+            String[] values = parameters.get(name);
+            return values == null ? null : values[0];
+        }
+
+        @Override
+        public String[] getParameterValues(String name) {
+            String[] values = parameters.get(name);
+            return values == null ? null : values.clone();
+        }
+
+        @Override
+        public Map<String, String[]> getParameterMap() {
+            return Collections.unmodifiableMap(parameters);
+        }
+
+        @Override
+        public Enumeration<String> getParameterNames() {
+            return Collections.enumeration(parameters.keySet());
+        }
+
+        @Override
+        public String getHeader(String name) {
+            List<String> values = snapshot.headers.get(name);
+            return values == null || values.isEmpty() ? null : values.get(0);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            List<String> values = snapshot.headers.get(name);
+            return values == null ? Collections.<String>emptyEnumeration() : Collections.enumeration(values);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(snapshot.headers.keySet());
+        }
+
+        @Override
+        public int getIntHeader(String name) {
+            String value = getHeader(name);
+            return value == null ? -1 : Integer.parseInt(value.trim());
+        }
+
+        @Override
+        public long getDateHeader(String name) {
+            String value = getHeader(name);
+            if (value == null) {
+                return -1;
+            }
+            try {
+                return Instant.from(DATE_FORMAT.parse(value.trim())).toEpochMilli();
+            } catch (DateTimeException e) {
+                throw new IllegalArgumentException("Invalid date header " + name + ": " + value);
+            }
+        }
+
+        @Override
+        public Cookie[] getCookies() {
+            return snapshot.cookies == null ? null : snapshot.cookies.clone();
+        }
+
+        @Override
+        public HttpSession getSession(boolean create) {
+            if (snapshot.session == null && create) {
+                throw new IllegalStateException("A batch sub-request cannot create a session");
+            }
+            return snapshot.session;
+        }
+
+        @Override
+        public HttpSession getSession() {
+            return getSession(true);
+        }
+
+        @Override
+        public String getRequestedSessionId() {
+            return snapshot.requestedSessionId;
+        }
+
+        @Override
+        public String getScheme() {
+            return snapshot.scheme;
+        }
+
+        @Override
+        public String getServerName() {
+            return snapshot.serverName;
+        }
+
+        @Override
+        public int getServerPort() {
+            return snapshot.serverPort;
+        }
+
+        @Override
+        public String getProtocol() {
+            return snapshot.protocol;
+        }
+
+        @Override
+        public boolean isSecure() {
+            return snapshot.secure;
+        }
+
+        @Override
+        public String getRemoteAddr() {
+            return snapshot.remoteAddr;
+        }
+
+        @Override
+        public String getRemoteHost() {
+            return snapshot.remoteHost;
+        }
+
+        @Override
+        public int getRemotePort() {
+            return snapshot.remotePort;
+        }
+
+        @Override
+        public String getLocalAddr() {
+            return snapshot.localAddr;
+        }
+
+        @Override
+        public String getLocalName() {
+            return snapshot.localName;
+        }
+
+        @Override
+        public int getLocalPort() {
+            return snapshot.localPort;
+        }
+
+        @Override
+        public Locale getLocale() {
+            return snapshot.locale;
+        }
+
+        @Override
+        public Enumeration<Locale> getLocales() {
+            return Collections.enumeration(snapshot.locales);
+        }
+
+        @Override
+        public String getAuthType() {
+            return snapshot.authType;
+        }
+
+        @Override
+        public String getRemoteUser() {
+            return snapshot.remoteUser;
+        }
+
+        @Override
+        public Principal getUserPrincipal() {
+            return snapshot.userPrincipal;
+        }
+
+        @Override
+        public String getCharacterEncoding() {
+            return "UTF-8";
+        }
+
+        @Override
+        public void setCharacterEncoding(String env) {
+            // 没有请求体，参数已经按 UTF-8 解码
+        }
+
+        @Override
+        public String getContentType() {
+            return null;
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return -1;
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return true;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new IllegalStateException("Sub-requests of a batch have no body");
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new StringReader(""));
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return attributes.get(name);
+        }
+
+        @Override
+        public Enumeration<String> getAttributeNames() {
+            return Collections.enumeration(attributes.keySet());
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            if (value == null) {
+                attributes.remove(name);
+            } else {
+                attributes.put(name, value);
+            }
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            attributes.remove(name);
+        }
+
+        @Override
+        public boolean isAsyncSupported() {
+            return false;
+        }
+
+        @Override
+        public boolean isAsyncStarted() {
+            return false;
+        }
+    }
+
+    /**
+     * 子请求的响应，状态码、响应头和响应体都保存在这里，不修改批量请求的响应
+     */
+    static class SubResponse extends HttpServletResponseWrapper {
+
+        private final Map<String, List<String>> headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+
+        private final ServletOutputStream outputStream = new BodyOutputStream();
+
+        private int status = HttpServletResponse.SC_OK;
+
+        private String contentType;
+
+        private String characterEncoding;
+
+        private byte[] body = new byte[256];
+
+        private int size;
+
+        private PrintWriter writer;
+
+        SubResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        void flushWriter() {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        private void write(byte[] b, int off, int len) {
+            if (size + len > body.length) {
+                body = Arrays.copyOf(body, Math.max(body.length * 2, size + len));
+            }
+            System.arraycopy(b, off, body, size, len);
+            size += len;
+        }
+
+        private void putHeader(String name, String value, boolean add) {
+            if ("Content-Type".equalsIgnoreCase(name)) {
+                setContentType(value);
+                return;
+            }
+            if ("Content-Length".equalsIgnoreCase(name)) {
+                return;
+            }
+            List<String> values = add ? headers.get(name) : null;
+            if (values == null) {
+                values = new ArrayList<String>(1);
+                headers.put(name, values);
+            }
+            values.add(value);
+        }
+
+        @Override
+        public void setStatus(int sc) {
+            this.status = sc;
+        }
+
+        @Override
+        public int getStatus() {
+            return status;
+        }
+
+        @Override
+        public void sendError(int sc) {
+            sendError(sc, null);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) {
+            resetBuffer();
+            this.status = sc;
+            if (msg != null) {
+                setContentType("text/plain;charset=UTF-8");
+                byte[] bytes = msg.getBytes(UTF_8);
+                write(bytes, 0, bytes.length);
+            }
+        }
+
+        @Override
+        public void sendRedirect(String location) {
+            resetBuffer();
+            this.status = HttpServletResponse.SC_FOUND;
+            setHeader("Location", location);
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (value == null) {
+                headers.remove(name);
+            } else {
+                putHeader(name, value, false);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (value != null) {
+                putHeader(name, value, true);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            setHeader(name, String.valueOf(value));
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            addHeader(name, String.valueOf(value));
+        }
+
+        @Override
+        public void setDateHeader(String name, long date) {
+            setHeader(name, DATE_FORMAT.format(Instant.ofEpochMilli(date)));
+        }
+
+        @Override
+        public void addDateHeader(String name, long date) {
+            addHeader(name, DATE_FORMAT.format(Instant.ofEpochMilli(date)));
+        }
+
+        @Override
+        public void addCookie(Cookie cookie) {
+            addHeader("Set-Cookie", cookie.getName() + "=" + cookie.getValue());
+        }
+
+        @Override
+        public boolean containsHeader(String name) {
+            return headers.containsKey(name);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            List<String> values = headers.get(name);
+            return values == null ? null : values.get(0);
+        }
+
+        @Override
+        public Collection<String> getHeaders(String name) {
+            List<String> values = headers.get(name);
+            return values == null ? Collections.<String>emptyList() : new ArrayList<String>(values);
+        }
+
+        @Override
+        public Collection<String> getHeaderNames() {
+            return new ArrayList<String>(headers.keySet());
+        }
+
+        @Override
+        public void setContentType(String type) {
+            this.contentType = type;
+            if (type != null) {
+                int charset = type.toLowerCase(Locale.ROOT).indexOf("charset=");
+                if (charset >= 0) {
+                    characterEncoding = type.substring(charset + 8).trim();
+                }
+            }
+        }
+
+        @Override
+        public String getContentType() {
+            if (contentType != null && characterEncoding != null
+                    && !contentType.toLowerCase(Locale.ROOT).contains("charset=")) {
+                return contentType + ";charset=" + characterEncoding;
+            }
+            return contentType;
+        }
+
+        @Override
+        public void setCharacterEncoding(String charset) {
+            this.characterEncoding = charset;
+        }
+
+        @Override
+        public String getCharacterEncoding() {
+            return characterEncoding != null ? characterEncoding : "ISO-8859-1";
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            // 长度以实际内容为准
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            // 长度以实际内容为准
+        }
+
+        @Override
+        public void setLocale(Locale loc) {
+            // 不修改批量请求的响应
+        }
+
+        @Override
+        public void setBufferSize(int size) {
+            // 响应体全部保存在内存中
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()), false);
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() {
+            flushWriter();
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return false;
+        }
+
+        @Override
+        public void resetBuffer() {
+            flushWriter();
+            size = 0;
+        }
+
+        @Override
+        public void reset() {
+            resetBuffer();
+            headers.clear();
+            status = HttpServletResponse.SC_OK;
+            contentType = null;
+            characterEncoding = null;
+        }
+
+        private class BodyOutputStream extends ServletOutputStream {
+
+            @Override
+            public void write(int b) {
+                SubResponse.this.write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                SubResponse.this.write(b, off, len);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                throw new IllegalStateException("Non-blocking IO is not supported in a batch sub-request");
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.lucas.spring.init.v2;
+
+/**
+ * @author zhangfan
+ * @description 容器中的一个 bean，保存 beanName、类型以及单例实例
+ * 非延迟初始化的 bean 在启动时创建；延迟初始化的 bean 在第一次 getBean() 时创建，
+ * 实例注入完成后才写入 volatile 字段，请求线程读取时不需要加锁
+ * @date 2026/10/17 20:10
+ **/
+public class BeanDefinition {
+
+    private final BeanFactory beanFactory;
+
+    private final String beanName;
+
+    private final Class<?> beanClass;
+
+    private final boolean lazyInit;
+
+    private final boolean primary;
+
+    // 注入完成后才赋值
+    private volatile Object instance;
+
+    // 正在创建中的实例，只在持有创建锁的线程中使用，用来处理循环依赖
+    private Object creating;
+
+    BeanDefinition(BeanFactory beanFactory, String beanName, Class<?> beanClass, boolean lazyInit, boolean primary) {
+        this.beanFactory = beanFactory;
+        this.beanName = beanName;
+        this.beanClass = beanClass;
+        this.lazyInit = lazyInit;
+        this.primary = primary;
+    }
+
+    BeanDefinition(BeanFactory beanFactory, String beanName, Object instance, boolean primary) {
+        this(beanFactory, beanName, instance.getClass(), false, primary);
+        this.instance = instance;
+    }
+
+    public String getBeanName() {
+        return beanName;
+    }
+
+    public Class<?> getBeanClass() {
+        return beanClass;
+    }
+
+    public boolean isLazyInit() {
+        return lazyInit;
+    }
+
+    public boolean isPrimary() {
+        return primary;
+    }
+
+    /**
+     * @return 是否已经创建完成
+     */
+    public boolean isCreated() {
+        return instance != null;
+    }
+
+    /**
+     * 获取单例实例，没有创建时创建并注入依赖
+     * 创建时使用容器全局的锁，避免两个延迟初始化的 bean 互相依赖时在两个线程中死锁
+     */
+    public Object getBean() {
+        Object bean = instance;
+        if (bean != null) {
+            return bean;
+        }
+        synchronized (beanFactory.creationLock()) {
+            if (instance != null) {
+                return instance;
+            }
+            // 同一个线程在注入过程中又依赖了自己，返回还没注入完成的实例
+            if (creating != null) {
+                return creating;
+            }
+            try {
+                creating = beanFactory.createBean(this);
+                beanFactory.populateBean(creating);
+                // 后置处理器可能返回代理，放入容器的是代理对象
+                instance = beanFactory.postProcessBean(this, creating);
+                return instance;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Create bean “" + beanName + "” failed", e);
+            } finally {
+                creating = null;
+            }
+        }
+    }
+}
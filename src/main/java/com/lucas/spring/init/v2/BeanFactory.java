@@ -0,0 +1,296 @@
+package com.lucas.spring.init.v2;
+
+import com.lucas.spring.annotation.ZAutowired;
+import com.lucas.spring.annotation.ZQualifier;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @author zhangfan
+ * @description IOC 容器，从 ZDispatcherServlet 中抽取出来
+ * 保存两份索引：beanName -> bean，以及类型 -> bean，类型索引中包含 bean 的所有父类和接口，
+ * 因此 getBean(Class) 只需要一次 Map 查找；同一类型有多个 bean 时使用 @ZPrimary 或 @ZQualifier 区分。
+ * 索引都是 ConcurrentHashMap，启动完成后请求线程可以直接读取，不需要加锁
+ * @date 2026/10/17 20:20
+ **/
+public class BeanFactory {
+
+    // beanName -> bean
+    private final Map<String, BeanDefinition> beansByName = new ConcurrentHashMap<String, BeanDefinition>();
+
+    // 类型 -> 该类型的所有 bean，以及按类型注入时应该使用的 bean
+    private final Map<Class<?>, TypeIndex> beansByType = new ConcurrentHashMap<Class<?>, TypeIndex>();
+
+    // 按注册顺序保存，遍历时顺序稳定
+    private final Map<String, BeanDefinition> definitions = Collections.synchronizedMap(new LinkedHashMap<String, BeanDefinition>());
+
+    // 创建 bean 时使用的全局锁，只有创建时才会用到
+    private final Object creationLock = new Object();
+
+    // bean 创建并注入完成后依次调用
+    private final List<BeanPostProcessor> postProcessors = new CopyOnWriteArrayList<BeanPostProcessor>();
+
+    /**
+     * 注册 bean，实例在 preInstantiateSingletons() 或第一次 getBean() 时才创建
+     *
+     * @param beanName  bean 名称
+     * @param beanClass bean 类型
+     * @param lazyInit  是否延迟初始化
+     * @param primary   同类型有多个 bean 时是否优先
+     * @return
+     */
+    public BeanDefinition registerBean(String beanName, Class<?> beanClass, boolean lazyInit, boolean primary) {
+        return register(new BeanDefinition(this, beanName, beanClass, lazyInit, primary));
+    }
+
+    /**
+     * 注册已经创建好的 bean
+     */
+    public BeanDefinition registerSingleton(String beanName, Object instance) {
+        return register(new BeanDefinition(this, beanName, instance, false));
+    }
+
+    private BeanDefinition register(BeanDefinition definition) {
+        String beanName = definition.getBeanName();
+        if (beansByName.putIfAbsent(beanName, definition) != null) {
+            throw new IllegalStateException("The bean “" + beanName + "” is exists!!");
+        }
+        definitions.put(beanName, definition);
+        for (Class<?> type : typesOf(definition.getBeanClass())) {
+            TypeIndex index = beansByType.get(type);
+            beansByType.put(type, index == null ? new TypeIndex(definition) : index.add(definition));
+        }
+        return definition;
+    }
+
+    /**
+     * 添加 bean 的后置处理器，需要在创建 bean 之前添加
+     */
+    void addBeanPostProcessor(BeanPostProcessor postProcessor) {
+        postProcessors.add(postProcessor);
+    }
+
+    /**
+     * 创建所有非延迟初始化的 bean，并完成依赖注入
+     */
+    public void preInstantiateSingletons() {
+        for (BeanDefinition definition : getBeanDefinitions()) {
+            if (!definition.isLazyInit()) {
+                definition.getBean();
+            }
+        }
+    }
+
+    /**
+     * 按名称获取 bean
+     *
+     * @param beanName
+     * @return 不存在时返回 null
+     */
+    public Object getBean(String beanName) {
+        BeanDefinition definition = beansByName.get(beanName);
+        return definition == null ? null : definition.getBean();
+    }
+
+    /**
+     * 按类型获取 bean
+     *
+     * @param type
+     * @return 不存在时返回 null，有多个且没有 @ZPrimary 时抛出异常
+     */
+    public <T> T getBean(Class<T> type) {
+        TypeIndex index = beansByType.get(type);
+        if (index == null) {
+            return null;
+        }
+        if (index.resolved == null) {
+            throw new IllegalStateException("Expected single bean of " + type.getName() + " but found "
+                    + index.candidates.length + ", mark one with @ZPrimary or use @ZQualifier");
+        }
+        Object bean = index.resolved.getBean();
+        if (!type.isInstance(bean)) {
+            // 实现了接口的 bean 被 JDK 动态代理包装后，只能按接口注入
+            throw new IllegalStateException("The bean “" + index.resolved.getBeanName() + "” is a proxy of "
+                    + bean.getClass().getName() + ", inject it by interface or set proxyTargetClass=true");
+        }
+        return type.cast(bean);
+    }
+
+    /**
+     * 按名称和类型获取 bean
+     */
+    public <T> T getBean(String beanName, Class<T> type) {
+        Object bean = getBean(beanName);
+        if (bean != null && !type.isInstance(bean)) {
+            throw new IllegalStateException("The bean “" + beanName + "” is not a " + type.getName());
+        }
+        return type.cast(bean);
+    }
+
+    /**
+     * 获取指定类型的所有 bean
+     */
+    public <T> List<T> getBeansOfType(Class<T> type) {
+        TypeIndex index = beansByType.get(type);
+        List<T> beans = new ArrayList<T>();
+        if (index != null) {
+            for (BeanDefinition definition : index.candidates) {
+                Object bean = definition.getBean();
+                // JDK 动态代理不是原来类型的实例
+                if (type.isInstance(bean)) {
+                    beans.add(type.cast(bean));
+                }
+            }
+        }
+        return beans;
+    }
+
+    /**
+     * 获取指定类型的所有 bean 定义，不会创建实例
+     */
+    public List<BeanDefinition> getBeanDefinitions(Class<?> type) {
+        TypeIndex index = beansByType.get(type);
+        List<BeanDefinition> result = new ArrayList<BeanDefinition>();
+        if (index != null) {
+            Collections.addAll(result, index.candidates);
+        }
+        return result;
+    }
+
+    /**
+     * @return 按注册顺序排列的所有 bean 定义
+     */
+    public List<BeanDefinition> getBeanDefinitions() {
+        synchronized (definitions) {
+            return new ArrayList<BeanDefinition>(definitions.values());
+        }
+    }
+
+    public boolean isEmpty() {
+        return beansByName.isEmpty();
+    }
+
+    Object creationLock() {
+        return creationLock;
+    }
+
+    /**
+     * 创建 bean 实例
+     */
+    Object createBean(BeanDefinition definition) throws Exception {
+        return definition.getBeanClass().newInstance();
+    }
+
+    /**
+     * 依次调用后置处理器，返回最终放入容器的对象
+     */
+    Object postProcessBean(BeanDefinition definition, Object bean) {
+        for (BeanPostProcessor postProcessor : postProcessors) {
+            bean = postProcessor.postProcess(definition, bean);
+        }
+        return bean;
+    }
+
+    /**
+     * 给 bean 中加了 @ZAutowired 的字段赋值
+     * 指定了名称（@ZAutowired("xx") 或 @ZQualifier("xx")）时按名称注入，否则按字段类型注入
+     */
+    void populateBean(Object bean) {
+        for (Class<?> clazz = bean.getClass(); clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            // 获取所有的字段 public/private/protected/default 的属性字段
+            for (Field field : clazz.getDeclaredFields()) {
+                // 只对有注解的属性进行注入
+                if (!field.isAnnotationPresent(ZAutowired.class)) {
+                    continue;
+                }
+                String beanName = field.getAnnotation(ZAutowired.class).value().trim();
+                if (field.isAnnotationPresent(ZQualifier.class)) {
+                    beanName = field.getAnnotation(ZQualifier.class).value().trim();
+                }
+                Object value = "".equals(beanName) ? getBean(field.getType()) : getBean(beanName, field.getType());
+
+                // 如果是 public 以外的修饰符，只要加了注解，都要强制赋值
+                field.setAccessible(true);
+                try {
+                    field.set(bean, value);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Autowire " + field + " failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 类型本身、所有父类以及所有实现的接口
+     */
+    private static Set<Class<?>> typesOf(Class<?> beanClass) {
+        Set<Class<?>> types = new HashSet<Class<?>>();
+        for (Class<?> clazz = beanClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            types.add(clazz);
+            addInterfaces(clazz, types);
+        }
+        return types;
+    }
+
+    private static void addInterfaces(Class<?> clazz, Set<Class<?>> types) {
+        for (Class<?> i : clazz.getInterfaces()) {
+            if (types.add(i)) {
+                addInterfaces(i, types);
+            }
+        }
+    }
+
+    /**
+     * 某个类型对应的所有 bean，不可变，注册新 bean 时整体替换
+     * resolved 在注册时就计算好：只有一个 bean 时就是它，有多个时是 @ZPrimary 的那个，无法确定时为 null
+     */
+    private static class TypeIndex {
+
+        private final BeanDefinition[] candidates;
+
+        private final BeanDefinition resolved;
+
+        TypeIndex(BeanDefinition definition) {
+            this(new BeanDefinition[]{definition});
+        }
+
+        private TypeIndex(BeanDefinition[] candidates) {
+            this.candidates = candidates;
+            this.resolved = resolve(candidates);
+        }
+
+        TypeIndex add(BeanDefinition definition) {
+            BeanDefinition[] newCandidates = new BeanDefinition[candidates.length + 1];
+            System.arraycopy(candidates, 0, newCandidates, 0, candidates.length);
+            newCandidates[candidates.length] = definition;
+            return new TypeIndex(newCandidates);
+        }
+
+        private static BeanDefinition resolve(BeanDefinition[] candidates) {
+            if (candidates.length == 1) {
+                return candidates[0];
+            }
+            BeanDefinition primary = null;
+            for (BeanDefinition candidate : candidates) {
+                if (!candidate.isPrimary()) {
+                    continue;
+                }
+                if (primary != null) {
+                    // 有多个 @ZPrimary，同样无法确定
+                    return null;
+                }
+                primary = candidate;
+            }
+            return primary;
+        }
+    }
+}
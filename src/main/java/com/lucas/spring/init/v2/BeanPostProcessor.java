@@ -0,0 +1,16 @@
+package com.lucas.spring.init.v2;
+
+/**
+ * @author zhangfan
+ * @description bean 创建并完成依赖注入之后的扩展点，可以返回包装后的对象（例如代理）替换原来的 bean
+ * @date 2026/10/18 11:20
+ **/
+interface BeanPostProcessor {
+
+    /**
+     * @param definition bean 定义
+     * @param bean       已经完成依赖注入的实例
+     * @return 放入容器的对象，不需要包装时直接返回 bean
+     */
+    Object postProcess(BeanDefinition definition, Object bean);
+}
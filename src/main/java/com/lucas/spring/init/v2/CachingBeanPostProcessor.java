@@ -0,0 +1,307 @@
+package com.lucas.spring.init.v2;
+
+import com.lucas.spring.annotation.ZCacheEvict;
+import com.lucas.spring.annotation.ZCacheable;
+import com.lucas.spring.annotation.ZController;
+import com.lucas.spring.init.support.HandlerInvoker;
+import com.lucas.spring.init.support.ProxyFactory;
+import com.lucas.spring.init.support.SegmentedLruCache;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author zhangfan
+ * @description 处理 @ZCacheable 和 @ZCacheEvict，有这两个注解的 bean 在创建后包装为代理
+ * 每个方法的缓存操作在创建代理时就解析好，调用时按 Method 查表；没有缓存注解的方法通过生成的调用器直接转发给目标实例。
+ * 缓存在创建任何 bean 之前按所有 @ZCacheable 的声明创建（declareCaches），大小和过期时间不取决于 bean 的创建顺序，
+ * 同名缓存的声明不一致时启动失败
+ * @date 2026/10/18 11:30
+ **/
+class CachingBeanPostProcessor implements BeanPostProcessor {
+
+    // 缓存 null 返回值时使用的占位对象
+    private static final Object NULL_VALUE = new Object();
+
+    // 缓存名称 -> 缓存，同名缓存在所有 bean 之间共享
+    private final Map<String, SegmentedLruCache<Object, Object>> caches = new ConcurrentHashMap<String, SegmentedLruCache<Object, Object>>();
+
+    // 缓存名称 -> 第一个声明它的方法，声明不一致时用于报错
+    private final Map<String, Method> declarations = new HashMap<String, Method>();
+
+    // 只有 @ZCacheEvict、没有 @ZCacheable 声明的缓存名称，之后不能再声明
+    private final Set<String> evictOnly = new HashSet<String>();
+
+    // 即使实现了接口也使用子类代理
+    private final boolean proxyTargetClass;
+
+    // 新建的缓存注册到这里，命中率等统计随方法指标一起输出
+    private final MetricsRegistry metrics;
+
+    CachingBeanPostProcessor(boolean proxyTargetClass, MetricsRegistry metrics) {
+        this.proxyTargetClass = proxyTargetClass;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 创建所有 bean 之前调用，按 @ZCacheable 的声明创建缓存
+     *
+     * @throws IllegalStateException 同名缓存的 maxSize 或 ttl 不一致
+     */
+    void declareCaches(Collection<BeanDefinition> definitions) {
+        for (BeanDefinition definition : definitions) {
+            for (Method method : definition.getBeanClass().getMethods()) {
+                ZCacheable cacheable = method.getAnnotation(ZCacheable.class);
+                if (cacheable != null) {
+                    declare(method, cacheable);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Object postProcess(BeanDefinition definition, Object bean) {
+        Class<?> beanClass = bean.getClass();
+        if (!hasCacheAnnotation(beanClass)) {
+            return bean;
+        }
+        Map<Method, Invocation> invocations = new HashMap<Method, Invocation>();
+        for (Method method : beanClass.getMethods()) {
+            if (method.getDeclaringClass() != Object.class) {
+                invocations.put(method, new Invocation(HandlerInvoker.create(method, HandlerInvoker.BYTECODE),
+                        cacheable(method), evict(method)));
+            }
+        }
+        // Controller 的方法是按类调用的，只能使用子类代理
+        boolean subclass = proxyTargetClass || beanClass.isAnnotationPresent(ZController.class);
+        Object proxy = ProxyFactory.createProxy(beanClass, new CacheInterceptor(bean, invocations), subclass);
+        System.out.println("Cache proxy : " + definition.getBeanName() + " -> " + proxy.getClass().getName());
+        return proxy;
+    }
+
+    private static boolean hasCacheAnnotation(Class<?> beanClass) {
+        for (Method method : beanClass.getMethods()) {
+            if (method.isAnnotationPresent(ZCacheable.class) || method.isAnnotationPresent(ZCacheEvict.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private SegmentedLruCache<Object, Object> cacheable(Method method) {
+        ZCacheable cacheable = method.getAnnotation(ZCacheable.class);
+        if (cacheable == null) {
+            return null;
+        }
+        if (method.getReturnType() == void.class) {
+            throw new IllegalStateException("@ZCacheable method " + method + " must return a value");
+        }
+        // 一般已经在 declareCaches 中创建，这里再检查一次，之后注册的 bean 也会校验声明
+        return declare(method, cacheable);
+    }
+
+    /**
+     * bean 在容器的创建锁中创建，declareCaches 在创建 bean 之前调用，这里不需要额外同步
+     */
+    private SegmentedLruCache<Object, Object> declare(Method method, ZCacheable cacheable) {
+        String name = cacheable.name();
+        if (evictOnly.contains(name)) {
+            throw new IllegalStateException("@ZCacheable method " + method + " declares cache \"" + name
+                    + "\" after a @ZCacheEvict bean using it was created");
+        }
+        Method declared = declarations.get(name);
+        if (declared == null) {
+            SegmentedLruCache<Object, Object> cache = new SegmentedLruCache<Object, Object>(name, cacheable.maxSize(),
+                    cacheable.ttl(), TimeUnit.SECONDS);
+            declarations.put(name, method);
+            caches.put(name, cache);
+            metrics.registerCache(cache);
+            return cache;
+        }
+        ZCacheable first = declared.getAnnotation(ZCacheable.class);
+        if (first.maxSize() != cacheable.maxSize() || first.ttl() != cacheable.ttl()) {
+            throw new IllegalStateException("Cache \"" + name + "\" is declared with different settings: "
+                    + declared + " (maxSize=" + first.maxSize() + ", ttl=" + first.ttl() + ") and "
+                    + method + " (maxSize=" + cacheable.maxSize() + ", ttl=" + cacheable.ttl() + ")");
+        }
+        return caches.get(name);
+    }
+
+    private Evict evict(Method method) {
+        ZCacheEvict evict = method.getAnnotation(ZCacheEvict.class);
+        if (evict == null) {
+            return null;
+        }
+        SegmentedLruCache<Object, Object> cache = caches.get(evict.name());
+        if (cache == null) {
+            // 没有方法往这个缓存中放入内容，清除什么都不用做；不创建占位的缓存，避免之后的声明被忽略
+            evictOnly.add(evict.name());
+            System.out.println("Cache \"" + evict.name() + "\" evicted by " + method + " is not declared by any @ZCacheable");
+            return null;
+        }
+        return new Evict(cache, evict.allEntries(), evict.beforeInvocation());
+    }
+
+    /**
+     * 以方法参数作为缓存的 key：没有参数时为 EMPTY_KEY，一个参数时就是参数本身，多个参数时按内容比较
+     */
+    static Object keyOf(Object[] args) {
+        if (args == null || args.length == 0) {
+            return ArgumentsKey.EMPTY;
+        }
+        if (args.length == 1 && args[0] != null && !args[0].getClass().isArray()) {
+            return args[0];
+        }
+        return new ArgumentsKey(args);
+    }
+
+    private static class ArgumentsKey {
+
+        private static final ArgumentsKey EMPTY = new ArgumentsKey(new Object[0]);
+
+        private final Object[] args;
+
+        private final int hash;
+
+        ArgumentsKey(Object[] args) {
+            // 复制一份，调用方之后修改参数数组不会影响 key
+            this.args = args.clone();
+            this.hash = Arrays.deepHashCode(this.args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof ArgumentsKey && Arrays.deepEquals(args, ((ArgumentsKey) o).args));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.deepToString(args);
+        }
+    }
+
+    private static class Evict {
+
+        private final SegmentedLruCache<Object, Object> cache;
+
+        private final boolean allEntries;
+
+        private final boolean beforeInvocation;
+
+        Evict(SegmentedLruCache<Object, Object> cache, boolean allEntries, boolean beforeInvocation) {
+            this.cache = cache;
+            this.allEntries = allEntries;
+            this.beforeInvocation = beforeInvocation;
+        }
+
+        void apply(Object[] args) {
+            if (allEntries) {
+                cache.clear();
+            } else {
+                cache.remove(keyOf(args));
+            }
+        }
+    }
+
+    /**
+     * 一个方法在代理中的调用方式
+     */
+    private static class Invocation {
+
+        private final HandlerInvoker invoker;
+
+        // 没有 @ZCacheable 时为 null
+        private final SegmentedLruCache<Object, Object> cacheable;
+
+        // 没有 @ZCacheEvict 时为 null
+        private final Evict evict;
+
+        Invocation(HandlerInvoker invoker, SegmentedLruCache<Object, Object> cacheable, Evict evict) {
+            this.invoker = invoker;
+            this.cacheable = cacheable;
+            this.evict = evict;
+        }
+    }
+
+    private static class CacheInterceptor implements InvocationHandler {
+
+        private final Object target;
+
+        private final Map<Method, Invocation> invocations;
+
+        // JDK 代理传入的是接口中的 Method，第一次遇到时再按签名找到实现类中的方法
+        private final Map<Method, Invocation> interfaceInvocations = new ConcurrentHashMap<Method, Invocation>();
+
+        CacheInterceptor(Object target, Map<Method, Invocation> invocations) {
+            this.target = target;
+            this.invocations = invocations;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Invocation invocation = invocationOf(method);
+            if (invocation == null) {
+                // JDK 代理中 equals、hashCode、toString 等 Object 中的方法
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+            if (invocation.evict != null && invocation.evict.beforeInvocation) {
+                invocation.evict.apply(args);
+            }
+            Object result;
+            if (invocation.cacheable != null) {
+                Object key = keyOf(args);
+                Object value = invocation.cacheable.get(key);
+                if (value != null) {
+                    return value == NULL_VALUE ? null : value;
+                }
+                result = invocation.invoker.invoke(target, args == null ? new Object[0] : args);
+                invocation.cacheable.put(key, result == null ? NULL_VALUE : result);
+            } else {
+                result = invocation.invoker.invoke(target, args == null ? new Object[0] : args);
+            }
+            if (invocation.evict != null && !invocation.evict.beforeInvocation) {
+                invocation.evict.apply(args);
+            }
+            return result;
+        }
+
+        private Invocation invocationOf(Method method) {
+            Invocation invocation = invocations.get(method);
+            if (invocation != null) {
+                return invocation;
+            }
+            invocation = interfaceInvocations.get(method);
+            if (invocation != null) {
+                return invocation;
+            }
+            try {
+                Method implementation = target.getClass().getMethod(method.getName(), method.getParameterTypes());
+                invocation = invocations.get(implementation);
+            } catch (NoSuchMethodException e) {
+                invocation = null;
+            }
+            if (invocation != null) {
+                interfaceInvocations.put(method, invocation);
+            }
+            return invocation;
+        }
+    }
+}
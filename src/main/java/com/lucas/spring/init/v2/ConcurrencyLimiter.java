@@ -0,0 +1,209 @@
+package com.lucas.spring.init.v2;
+
+import com.lucas.spring.annotation.ZConcurrencyLimit;
+
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author zhangfan
+ * @description 单个方法的并发上限（隔离舱），@ZConcurrencyLimit 或 concurrencyLimit.类名.方法名 配置
+ * 进入时对正在执行的请求数做 CAS，没有锁；超出上限时占用等待队列的名额后挂起，执行完成的请求唤醒队首的等待者。
+ * 自适应模式按 AIMD 调整上限：耗时超过最近最小耗时的 TOLERANCE 倍时乘以 0.9，否则在接近上限时加 1，不超过配置的上限；
+ * 最小耗时按 WINDOW 分段统计，方法整体变慢后基线也会跟着更新，上限不会一直停在最小值
+ * @date 2026/10/19 10:00
+ **/
+class ConcurrencyLimiter {
+
+    private static final long TOLERANCE = 2;
+
+    // 耗时在基线之上再允许的固定波动，避免微秒级的方法因为抖动被误判为过载
+    private static final long SLACK = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(10);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger limit;
+
+    private final int maxLimit;
+
+    private final int queue;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final ConcurrentLinkedQueue<Thread> waiters = new ConcurrentLinkedQueue<Thread>();
+
+    private final long maxWaitNanos;
+
+    private final boolean adaptive;
+
+    private final String retryAfter;
+
+    // 上一个统计窗口的最小耗时
+    private final AtomicLong baseline = new AtomicLong(Long.MAX_VALUE);
+
+    private final AtomicLong windowMin = new AtomicLong(Long.MAX_VALUE);
+
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+
+    private final AtomicLong lastDecrease = new AtomicLong(System.nanoTime());
+
+    private ConcurrencyLimiter(int maxLimit, int queue, long maxWait, boolean adaptive, String retryAfter) {
+        this.maxLimit = maxLimit;
+        this.limit = new AtomicInteger(maxLimit);
+        this.queue = queue;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWait);
+        this.adaptive = adaptive;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * 按注解和配置创建，配置优先
+     *
+     * @return 没有限制时返回 null
+     */
+    static ConcurrencyLimiter create(Class<?> controller, Method method, Properties config) {
+        ZConcurrencyLimit annotation = method.getAnnotation(ZConcurrencyLimit.class);
+        String prefix = "concurrencyLimit." + controller.getSimpleName() + "." + method.getName();
+        String value = config.getProperty(prefix);
+        if (annotation == null && value == null) {
+            return null;
+        }
+        int max = value != null ? Integer.parseInt(value.trim()) : annotation.value();
+        int queue = Integer.parseInt(property(config, prefix + ".queue", annotation == null ? 0 : annotation.queue()));
+        long maxWait = Long.parseLong(property(config, prefix + ".maxWait", annotation == null ? 100 : annotation.maxWait()));
+        boolean adaptive = Boolean.parseBoolean(property(config, prefix + ".adaptive", annotation != null && annotation.adaptive()));
+        if (max <= 0) {
+            throw new IllegalStateException("Concurrency limit must be positive: " + method);
+        }
+        return new ConcurrencyLimiter(max, queue, maxWait, adaptive,
+                config.getProperty("concurrencyRetryAfter", "1").trim());
+    }
+
+    private static String property(Properties config, String key, Object defaultValue) {
+        return config.getProperty(key, String.valueOf(defaultValue)).trim();
+    }
+
+    /**
+     * 进入方法，超出上限时在等待队列中等待
+     *
+     * @return false 表示应当拒绝
+     */
+    boolean acquire() {
+        if (tryAcquire()) {
+            return true;
+        }
+        return queue > 0 && await();
+    }
+
+    private boolean tryAcquire() {
+        for (;;) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean await() {
+        // 先占用队列名额，队列满时直接拒绝
+        for (;;) {
+            int current = waiting.get();
+            if (current >= queue) {
+                return false;
+            }
+            if (waiting.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+        Thread thread = Thread.currentThread();
+        // 先进入队列再尝试，避免在两次检查之间错过唤醒
+        waiters.add(thread);
+        boolean acquired = false;
+        try {
+            long deadline = System.nanoTime() + maxWaitNanos;
+            for (;;) {
+                if (tryAcquire()) {
+                    acquired = true;
+                    return true;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || thread.isInterrupted()) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+        } finally {
+            waiters.remove(thread);
+            waiting.decrementAndGet();
+            // 同时释放了多个名额时，由拿到名额的等待者继续唤醒下一个
+            if (acquired && inFlight.get() < limit.get()) {
+                signal();
+            }
+        }
+    }
+
+    private void signal() {
+        Thread next = waiters.peek();
+        if (next != null) {
+            LockSupport.unpark(next);
+        }
+    }
+
+    /**
+     * 方法执行完成
+     *
+     * @param start 进入方法时的 System.nanoTime()
+     */
+    void release(long start) {
+        inFlight.decrementAndGet();
+        if (adaptive) {
+            adjust(System.nanoTime() - start);
+        }
+        if (waiting.get() > 0) {
+            signal();
+        }
+    }
+
+    private void adjust(long rtt) {
+        long now = System.nanoTime();
+        long min;
+        while (rtt < (min = windowMin.get()) && !windowMin.compareAndSet(min, rtt)) {
+            // 其他线程同时更新了最小值，重新比较
+        }
+        long started = windowStart.get();
+        if (now - started > WINDOW && windowStart.compareAndSet(started, now)) {
+            baseline.set(windowMin.getAndSet(Long.MAX_VALUE));
+        }
+        long base = Math.min(baseline.get(), windowMin.get());
+        int current = limit.get();
+        if (rtt > base * TOLERANCE + SLACK) {
+            // 乘性减小，一个基线耗时内只减一次，同一批慢请求不会把上限连续压到最小
+            long last = lastDecrease.get();
+            if (now - last > base && lastDecrease.compareAndSet(last, now)) {
+                limit.compareAndSet(current, Math.max(1, current * 9 / 10));
+            }
+        } else if (current < maxLimit && inFlight.get() * 2 >= current) {
+            // 加性增加，只在使用了一半以上名额时增加，空闲时上限不会虚高
+            limit.compareAndSet(current, current + 1);
+        }
+    }
+
+    /**
+     * 拒绝请求，返回 503 和 Retry-After
+     */
+    void reject(HttpServletResponse resp) {
+        resp.setHeader("Retry-After", retryAfter);
+        resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+}
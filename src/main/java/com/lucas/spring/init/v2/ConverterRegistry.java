@@ -0,0 +1,556 @@
+package com.lucas.spring.init.v2;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+/**
+ * @author zhangfan
+ * @description 参数类型转换器注册表，在启动时为每个方法参数解析出转换器，请求时直接调用
+ * 支持基本类型及其包装类、枚举、java.time、数组以及 List/Set，也可以注册自定义的 {@link ZConverter}；
+ * 不支持的类型在启动时直接报错，而不是等到调用方法时才抛出 IllegalArgumentException
+ * @date 2026/10/17 16:10
+ **/
+class ConverterRegistry {
+
+    // 内置的标量转换器
+    private static final Map<Class<?>, ZConverter<?>> BUILT_IN = new HashMap<Class<?>, ZConverter<?>>();
+
+    // 基本类型缺省参数时不能传 null，标记一下方便给出明确的错误
+    private static final Set<Class<?>> PRIMITIVES = new HashSet<Class<?>>();
+
+    // 包装类对应的基本类型，自定义包装类的转换器时同时用于基本类型
+    private static final Map<Class<?>, Class<?>> PRIMITIVE_OF = new HashMap<Class<?>, Class<?>>();
+
+    // 用户注册的标量转换器，优先于内置转换器
+    private final Map<Class<?>, ZConverter<?>> custom = new HashMap<Class<?>, ZConverter<?>>();
+
+    /**
+     * @param beans IOC 容器中的所有 bean，实现了 ZConverter 的会被注册
+     */
+    ConverterRegistry(Collection<?> beans) {
+        for (Object bean : beans) {
+            if (bean instanceof ZConverter) {
+                ZConverter<?> converter = (ZConverter<?>) bean;
+                custom.put(converter.getTargetType(), converter);
+                if (PRIMITIVE_OF.containsKey(converter.getTargetType())) {
+                    custom.put(PRIMITIVE_OF.get(converter.getTargetType()), converter);
+                }
+            }
+        }
+    }
+
+    /**
+     * 解析方法参数的转换器
+     *
+     * @param type        参数的泛型类型
+     * @param description 参数描述，用于错误信息
+     * @return 把请求中的多个值转换为参数值的转换器
+     */
+    ValuesConverter resolve(Type type, String description) {
+        Class<?> raw = rawType(type);
+
+        // 1、标量，多个值时 String 仍然用逗号拼接，其他类型取第一个值
+        ZConverter<?> scalar = scalar(raw);
+        if (scalar != null) {
+            return new ScalarConverter(scalar, raw == String.class, PRIMITIVES.contains(raw), description);
+        }
+
+        // 2、数组，基本类型数组单独处理，避免装箱
+        if (raw.isArray()) {
+            Class<?> component = raw.getComponentType();
+            ZConverter<?> element = require(component, description);
+            if (component == int.class) {
+                return new IntArrayConverter(element);
+            }
+            if (component == long.class) {
+                return new LongArrayConverter(element);
+            }
+            if (component == double.class) {
+                return new DoubleArrayConverter(element);
+            }
+            return new ArrayConverter(component, element);
+        }
+
+        // 3、集合，元素类型从泛型中取，没有泛型时按 String 处理
+        if (raw == List.class || raw == Collection.class || raw == Iterable.class || raw == Set.class) {
+            Class<?> elementType = String.class;
+            if (type instanceof ParameterizedType) {
+                elementType = rawType(((ParameterizedType) type).getActualTypeArguments()[0]);
+            }
+            return new CollectionConverter(require(elementType, description), raw == Set.class);
+        }
+
+        throw new IllegalStateException("No converter for " + type.getTypeName() + " of " + description);
+    }
+
+    /**
+     * 查找标量转换器，自定义的优先，其次是内置的，最后是枚举
+     */
+    ZConverter<?> scalar(Class<?> type) {
+        ZConverter<?> converter = custom.get(type);
+        if (converter != null) {
+            return converter;
+        }
+        converter = BUILT_IN.get(type);
+        if (converter != null) {
+            return converter;
+        }
+        if (type.isEnum()) {
+            return new EnumConverter(type);
+        }
+        return null;
+    }
+
+    private ZConverter<?> require(Class<?> type, String description) {
+        ZConverter<?> converter = scalar(type);
+        if (converter == null) {
+            throw new IllegalStateException("No converter for " + type.getName() + " of " + description);
+        }
+        return converter;
+    }
+
+    static Class<?> rawType(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        if (type instanceof WildcardType) {
+            return rawType(((WildcardType) type).getUpperBounds()[0]);
+        }
+        return Object.class;
+    }
+
+    /**
+     * 单值参数如果用逗号分隔，作为数组和集合的多个值
+     */
+    private static String[] split(String[] values) {
+        if (values.length == 1 && values[0].indexOf(',') >= 0) {
+            return values[0].split(",");
+        }
+        return values;
+    }
+
+    /**
+     * 把请求中的多个值转换为参数值
+     */
+    abstract static class ValuesConverter {
+
+        /**
+         * @param values 请求中的参数值，参数不存在时为 null
+         * @return 参数值
+         */
+        abstract Object convert(String[] values);
+
+        /**
+         * 转换单个值，路径变量使用
+         */
+        Object convert(String value) {
+            return convert(new String[]{value});
+        }
+    }
+
+    private static class ScalarConverter extends ValuesConverter {
+
+        private final ZConverter<?> converter;
+
+        private final boolean join;
+
+        private final boolean primitive;
+
+        private final String description;
+
+        ScalarConverter(ZConverter<?> converter, boolean join, boolean primitive, String description) {
+            this.converter = converter;
+            this.join = join;
+            this.primitive = primitive;
+            this.description = description;
+        }
+
+        @Override
+        Object convert(String[] values) {
+            if (values == null || values.length == 0) {
+                return missing();
+            }
+            String value = values[0];
+            if (join && values.length > 1) {
+                StringBuilder joined = new StringBuilder(value);
+                for (int i = 1; i < values.length; i++) {
+                    joined.append(',').append(values[i]);
+                }
+                value = joined.toString();
+            }
+            return convert(value);
+        }
+
+        @Override
+        Object convert(String value) {
+            // 非 String 类型的空字符串按没有传值处理
+            if (value.isEmpty() && !join) {
+                return missing();
+            }
+            return converter.convert(value);
+        }
+
+        private Object missing() {
+            if (primitive) {
+                throw new IllegalArgumentException("Required " + description + " is not present");
+            }
+            return null;
+        }
+    }
+
+    private static class ArrayConverter extends ValuesConverter {
+
+        private final Class<?> component;
+
+        private final ZConverter<?> element;
+
+        ArrayConverter(Class<?> component, ZConverter<?> element) {
+            this.component = component;
+            this.element = element;
+        }
+
+        @Override
+        Object convert(String[] values) {
+            if (values == null) {
+                return null;
+            }
+            values = split(values);
+            if (component == String.class) {
+                return values;
+            }
+            Object array = Array.newInstance(component, values.length);
+            for (int i = 0; i < values.length; i++) {
+                Array.set(array, i, element.convert(values[i].trim()));
+            }
+            return array;
+        }
+    }
+
+    private static class IntArrayConverter extends ValuesConverter {
+
+        private final ZConverter<?> element;
+
+        IntArrayConverter(ZConverter<?> element) {
+            this.element = element;
+        }
+
+        @Override
+        Object convert(String[] values) {
+            if (values == null) {
+                return null;
+            }
+            values = split(values);
+            int[] array = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                // 内置转换器直接解析，不经过装箱
+                array[i] = element == INT ? Integer.parseInt(values[i].trim()) : (Integer) element.convert(values[i].trim());
+            }
+            return array;
+        }
+    }
+
+    private static class LongArrayConverter extends ValuesConverter {
+
+        private final ZConverter<?> element;
+
+        LongArrayConverter(ZConverter<?> element) {
+            this.element = element;
+        }
+
+        @Override
+        Object convert(String[] values) {
+            if (values == null) {
+                return null;
+            }
+            values = split(values);
+            long[] array = new long[values.length];
+            for (int i = 0; i < values.length; i++) {
+                array[i] = element == LONG ? Long.parseLong(values[i].trim()) : (Long) element.convert(values[i].trim());
+            }
+            return array;
+        }
+    }
+
+    private static class DoubleArrayConverter extends ValuesConverter {
+
+        private final ZConverter<?> element;
+
+        DoubleArrayConverter(ZConverter<?> element) {
+            this.element = element;
+        }
+
+        @Override
+        Object convert(String[] values) {
+            if (values == null) {
+                return null;
+            }
+            values = split(values);
+            double[] array = new double[values.length];
+            for (int i = 0; i < values.length; i++) {
+                array[i] = element == DOUBLE ? Double.parseDouble(values[i].trim()) : (Double) element.convert(values[i].trim());
+            }
+            return array;
+        }
+    }
+
+    private static class CollectionConverter extends ValuesConverter {
+
+        private final ZConverter<?> element;
+
+        private final boolean set;
+
+        CollectionConverter(ZConverter<?> element, boolean set) {
+            this.element = element;
+            this.set = set;
+        }
+
+        @Override
+        Object convert(String[] values) {
+            if (values == null) {
+                return null;
+            }
+            values = split(values);
+            Collection<Object> collection = set
+                    ? new LinkedHashSet<Object>(values.length * 2)
+                    : new ArrayList<Object>(values.length);
+            for (String value : values) {
+                collection.add(element.convert(value.trim()));
+            }
+            return collection;
+        }
+    }
+
+    /**
+     * 枚举转换器，启动时把常量名放入查找表，请求时不再调用 Enum.valueOf 遍历
+     */
+    private static class EnumConverter implements ZConverter<Object> {
+
+        private final Class<?> type;
+
+        private final Map<String, Object> constants = new HashMap<String, Object>();
+
+        EnumConverter(Class<?> type) {
+            this.type = type;
+            for (Object constant : type.getEnumConstants()) {
+                String name = ((Enum<?>) constant).name();
+                constants.put(name, constant);
+                // 同时支持小写的写法
+                if (!constants.containsKey(name.toLowerCase())) {
+                    constants.put(name.toLowerCase(), constant);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Class<Object> getTargetType() {
+            return (Class<Object>) type;
+        }
+
+        @Override
+        public Object convert(String value) {
+            Object constant = constants.get(value);
+            if (constant == null) {
+                throw new IllegalArgumentException("No enum constant " + type.getName() + "." + value);
+            }
+            return constant;
+        }
+    }
+
+    private static final ZConverter<String> STRING = new BuiltIn<String>(String.class) {
+        @Override
+        public String convert(String value) {
+            return value;
+        }
+    };
+
+    private static final ZConverter<Integer> INT = new BuiltIn<Integer>(Integer.class) {
+        @Override
+        public Integer convert(String value) {
+            // Integer.valueOf 对 -128~127 使用缓存，不会创建新对象
+            return Integer.valueOf(value);
+        }
+    };
+
+    private static final ZConverter<Long> LONG = new BuiltIn<Long>(Long.class) {
+        @Override
+        public Long convert(String value) {
+            return Long.valueOf(value);
+        }
+    };
+
+    private static final ZConverter<Double> DOUBLE = new BuiltIn<Double>(Double.class) {
+        @Override
+        public Double convert(String value) {
+            return Double.valueOf(value);
+        }
+    };
+
+    private static final ZConverter<Boolean> BOOLEAN = new BuiltIn<Boolean>(Boolean.class) {
+        @Override
+        public Boolean convert(String value) {
+            // 返回 Boolean 常量，不会创建新对象
+            if ("true".equalsIgnoreCase(value) || "on".equalsIgnoreCase(value)
+                    || "yes".equalsIgnoreCase(value) || "1".equals(value)) {
+                return Boolean.TRUE;
+            }
+            if ("false".equalsIgnoreCase(value) || "off".equalsIgnoreCase(value)
+                    || "no".equalsIgnoreCase(value) || "0".equals(value)) {
+                return Boolean.FALSE;
+            }
+            throw new IllegalArgumentException("Invalid boolean value: " + value);
+        }
+    };
+
+    static {
+        register(String.class, STRING);
+        register(CharSequence.class, STRING);
+        register(Object.class, STRING);
+        register(Integer.class, INT);
+        register(int.class, INT);
+        register(Long.class, LONG);
+        register(long.class, LONG);
+        register(Double.class, DOUBLE);
+        register(double.class, DOUBLE);
+        register(Boolean.class, BOOLEAN);
+        register(boolean.class, BOOLEAN);
+        ZConverter<Float> floatConverter = new BuiltIn<Float>(Float.class) {
+            @Override
+            public Float convert(String value) {
+                return Float.valueOf(value);
+            }
+        };
+        register(Float.class, floatConverter);
+        register(float.class, floatConverter);
+        ZConverter<Short> shortConverter = new BuiltIn<Short>(Short.class) {
+            @Override
+            public Short convert(String value) {
+                return Short.valueOf(value);
+            }
+        };
+        register(Short.class, shortConverter);
+        register(short.class, shortConverter);
+        ZConverter<Byte> byteConverter = new BuiltIn<Byte>(Byte.class) {
+            @Override
+            public Byte convert(String value) {
+                return Byte.valueOf(value);
+            }
+        };
+        register(Byte.class, byteConverter);
+        register(byte.class, byteConverter);
+        ZConverter<Character> charConverter = new BuiltIn<Character>(Character.class) {
+            @Override
+            public Character convert(String value) {
+                if (value.length() != 1) {
+                    throw new IllegalArgumentException("Invalid char value: " + value);
+                }
+                return value.charAt(0);
+            }
+        };
+        register(Character.class, charConverter);
+        register(char.class, charConverter);
+        register(BigDecimal.class, new BuiltIn<BigDecimal>(BigDecimal.class) {
+            @Override
+            public BigDecimal convert(String value) {
+                return new BigDecimal(value);
+            }
+        });
+        register(BigInteger.class, new BuiltIn<BigInteger>(BigInteger.class) {
+            @Override
+            public BigInteger convert(String value) {
+                return new BigInteger(value);
+            }
+        });
+        register(UUID.class, new BuiltIn<UUID>(UUID.class) {
+            @Override
+            public UUID convert(String value) {
+                return UUID.fromString(value);
+            }
+        });
+        // java.time 统一使用 ISO-8601 格式
+        register(LocalDate.class, new BuiltIn<LocalDate>(LocalDate.class) {
+            @Override
+            public LocalDate convert(String value) {
+                return LocalDate.parse(value);
+            }
+        });
+        register(LocalDateTime.class, new BuiltIn<LocalDateTime>(LocalDateTime.class) {
+            @Override
+            public LocalDateTime convert(String value) {
+                return LocalDateTime.parse(value);
+            }
+        });
+        register(LocalTime.class, new BuiltIn<LocalTime>(LocalTime.class) {
+            @Override
+            public LocalTime convert(String value) {
+                return LocalTime.parse(value);
+            }
+        });
+        register(OffsetDateTime.class, new BuiltIn<OffsetDateTime>(OffsetDateTime.class) {
+            @Override
+            public OffsetDateTime convert(String value) {
+                return OffsetDateTime.parse(value);
+            }
+        });
+        register(ZonedDateTime.class, new BuiltIn<ZonedDateTime>(ZonedDateTime.class) {
+            @Override
+            public ZonedDateTime convert(String value) {
+                return ZonedDateTime.parse(value);
+            }
+        });
+        register(Instant.class, new BuiltIn<Instant>(Instant.class) {
+            @Override
+            public Instant convert(String value) {
+                return Instant.parse(value);
+            }
+        });
+        register(Duration.class, new BuiltIn<Duration>(Duration.class) {
+            @Override
+            public Duration convert(String value) {
+                return Duration.parse(value);
+            }
+        });
+        PRIMITIVE_OF.put(Integer.class, int.class);
+        PRIMITIVE_OF.put(Long.class, long.class);
+        PRIMITIVE_OF.put(Double.class, double.class);
+        PRIMITIVE_OF.put(Float.class, float.class);
+        PRIMITIVE_OF.put(Short.class, short.class);
+        PRIMITIVE_OF.put(Byte.class, byte.class);
+        PRIMITIVE_OF.put(Character.class, char.class);
+        PRIMITIVE_OF.put(Boolean.class, boolean.class);
+        PRIMITIVES.addAll(PRIMITIVE_OF.values());
+    }
+
+    private static void register(Class<?> type, ZConverter<?> converter) {
+        BUILT_IN.put(type, converter);
+    }
+
+    private abstract static class BuiltIn<T> implements ZConverter<T> {
+
+        private final Class<T> type;
+
+        BuiltIn(Class<T> type) {
+            this.type = type;
+        }
+
+        @Override
+        public Class<T> getTargetType() {
+            return type;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.lucas.spring.init.v2;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author zhangfan
+ * @description 异常日志，限流并在后台线程中输出
+ * 请求线程只做一次计数和一次非阻塞入队，打印堆栈由单独的守护线程完成，不会在 System.err 的锁上排队；
+ * 每秒最多输出 permitsPerSecond 条，超出的和队列满时丢弃的只计数，由后台线程定期输出一条汇总
+ * @date 2026/10/18 15:20
+ **/
+class ErrorLogger {
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int permitsPerSecond;
+
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<Entry>(1024);
+
+    // 当前时间窗口的开始时间和已经输出的条数
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+
+    private final AtomicInteger windowCount = new AtomicInteger();
+
+    private final LongAdder suppressed = new LongAdder();
+
+    private final Thread worker;
+
+    /**
+     * @param permitsPerSecond 每秒最多输出的异常条数，0 表示只输出汇总
+     */
+    ErrorLogger(int permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, "z-error-logger");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 记录请求处理失败的异常，超过限流或者队列已满时直接丢弃
+     *
+     * @param request 请求方法和路径，在请求线程中取出，请求对象可能会被容器回收复用
+     */
+    void log(String request, Throwable e) {
+        if (!tryAcquire() || !queue.offer(new Entry(request, e))) {
+            suppressed.increment();
+        }
+    }
+
+    void shutdown() {
+        worker.interrupt();
+    }
+
+    private boolean tryAcquire() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        // 进入新的时间窗口，只有一个线程能重置计数
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            windowCount.set(0);
+        }
+        return windowCount.incrementAndGet() <= permitsPerSecond;
+    }
+
+    private void drain() {
+        long lastReport = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Entry entry = queue.poll(1, TimeUnit.SECONDS);
+                if (entry != null) {
+                    System.err.println("Request failed: " + entry.request);
+                    entry.error.printStackTrace();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // 汇总每秒最多输出一次
+            long now = System.nanoTime();
+            if (now - lastReport < WINDOW_NANOS) {
+                continue;
+            }
+            lastReport = now;
+            long count = suppressed.sumThenReset();
+            if (count > 0) {
+                System.err.println(count + " request errors suppressed by errorLogRate=" + permitsPerSecond);
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final String request;
+
+        private final Throwable error;
+
+        Entry(String request, Throwable error) {
+            this.request = request;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.lucas.spring.init.v2;
+
+import com.lucas.spring.annotation.ZController;
+import com.lucas.spring.annotation.ZControllerAdvice;
+import com.lucas.spring.annotation.ZExceptionHandler;
+import com.lucas.spring.init.support.HandlerInvoker;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author zhangfan
+ * @description 处理请求过程中抛出的异常
+ * 启动时收集 Controller 和 @ZControllerAdvice 中的 @ZExceptionHandler 方法，请求时先找 Controller 自己的，再找全局的；
+ * 异常类型到处理方法的匹配结果按异常的具体类缓存，同一种异常只计算一次。
+ * 没有处理方法时只返回状态码和简短的说明，不再把堆栈写给客户端，堆栈交给限流的 ErrorLogger 在后台输出
+ * @date 2026/10/18 15:30
+ **/
+class ExceptionResolver {
+
+    private final ExceptionHandlerMethods global;
+
+    private final ErrorLogger logger;
+
+    private final String invokerMode;
+
+    ExceptionResolver(BeanFactory beanFactory, Properties config) {
+        this.invokerMode = config.getProperty("handlerInvoker");
+        this.logger = new ErrorLogger(Integer.parseInt(config.getProperty("errorLogRate", "10").trim()));
+        List<ExceptionHandlerMethod> methods = new ArrayList<ExceptionHandlerMethod>();
+        for (BeanDefinition definition : beanFactory.getBeanDefinitions()) {
+            if (definition.getBeanClass().isAnnotationPresent(ZControllerAdvice.class)) {
+                collect(definition, methods);
+            }
+        }
+        this.global = methods.isEmpty() ? null : new ExceptionHandlerMethods(methods);
+    }
+
+    /**
+     * Controller 自己声明的异常处理方法
+     *
+     * @return 没有声明时返回 null
+     */
+    ExceptionHandlerMethods forController(BeanDefinition controller) {
+        if (!controller.getBeanClass().isAnnotationPresent(ZController.class)) {
+            return null;
+        }
+        List<ExceptionHandlerMethod> methods = new ArrayList<ExceptionHandlerMethod>();
+        collect(controller, methods);
+        return methods.isEmpty() ? null : new ExceptionHandlerMethods(methods);
+    }
+
+    private void collect(BeanDefinition definition, List<ExceptionHandlerMethod> methods) {
+        for (Method method : definition.getBeanClass().getMethods()) {
+            ZExceptionHandler annotation = method.getAnnotation(ZExceptionHandler.class);
+            if (annotation != null) {
+                methods.add(new ExceptionHandlerMethod(definition, method, annotation, invokerMode));
+                System.out.println("Exception handler :" + method);
+            }
+        }
+    }
+
+    /**
+     * 处理异常并输出响应
+     *
+     * @param handler 请求对应的 Handler，路由之前抛出异常时为 null
+     */
+    void resolve(HttpServletRequest req, HttpServletResponse resp, Handler handler, Exception e) {
+        ExceptionHandlerMethod method = null;
+        if (handler != null && handler.exceptionHandlers != null) {
+            method = handler.exceptionHandlers.find(e.getClass());
+        }
+        if (method == null && global != null) {
+            method = global.find(e.getClass());
+        }
+        if (method != null && !resp.isCommitted()) {
+            try {
+                resp.resetBuffer();
+                resp.setStatus(method.status);
+                method.handle(req, resp, e);
+                return;
+            } catch (Exception handlerError) {
+                // 异常处理方法本身出错，按默认方式处理原来的异常
+                logger.log(describe(req), handlerError);
+            }
+        }
+        resolveDefault(req, resp, e);
+    }
+
+    /**
+     * 请求参数不合法返回 400，其他异常返回 500，只有 500 才记录日志
+     */
+    private void resolveDefault(HttpServletRequest req, HttpServletResponse resp, Exception e) {
+        int status = e instanceof IllegalArgumentException
+                ? HttpServletResponse.SC_BAD_REQUEST : HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        if (status >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR) {
+            logger.log(describe(req), e);
+        }
+        // 已经开始输出响应时无法再修改状态码
+        if (resp.isCommitted()) {
+            return;
+        }
+        try {
+            resp.resetBuffer();
+            resp.setStatus(status);
+            resp.setContentType(ReturnValueHandler.TEXT_PLAIN);
+            ReturnValueHandler.writeChars(status == HttpServletResponse.SC_BAD_REQUEST
+                    ? "400 Bad Request" : "500 Internal Server Error", resp);
+        } catch (Exception ignored) {
+            // 客户端已经断开
+        }
+    }
+
+    void shutdown() {
+        logger.shutdown();
+    }
+
+    private static String describe(HttpServletRequest req) {
+        return req.getMethod() + " " + req.getRequestURI();
+    }
+
+    /**
+     * 一组异常处理方法，按异常的具体类缓存匹配结果
+     */
+    static class ExceptionHandlerMethods {
+
+        // 没有匹配的处理方法
+        private static final Object NONE = new Object();
+
+        private final ExceptionHandlerMethod[] methods;
+
+        private final ConcurrentHashMap<Class<?>, Object> cache = new ConcurrentHashMap<Class<?>, Object>();
+
+        ExceptionHandlerMethods(List<ExceptionHandlerMethod> methods) {
+            this.methods = methods.toArray(new ExceptionHandlerMethod[0]);
+        }
+
+        ExceptionHandlerMethod find(Class<?> exceptionClass) {
+            Object cached = cache.get(exceptionClass);
+            if (cached == null) {
+                ExceptionHandlerMethod matched = match(exceptionClass);
+                cached = matched == null ? NONE : matched;
+                cache.putIfAbsent(exceptionClass, cached);
+            }
+            return cached == NONE ? null : (ExceptionHandlerMethod) cached;
+        }
+
+        /**
+         * 声明的异常类型离实际异常类最近的方法优先，距离相同时按声明顺序
+         */
+        private ExceptionHandlerMethod match(Class<?> exceptionClass) {
+            ExceptionHandlerMethod best = null;
+            int bestDistance = Integer.MAX_VALUE;
+            for (ExceptionHandlerMethod method : methods) {
+                for (Class<?> type : method.exceptionTypes) {
+                    int distance = distance(exceptionClass, type);
+                    if (distance < bestDistance) {
+                        best = method;
+                        bestDistance = distance;
+                    }
+                }
+            }
+            return best;
+        }
+
+        private static int distance(Class<?> exceptionClass, Class<?> type) {
+            int distance = 0;
+            for (Class<?> clazz = exceptionClass; clazz != null; clazz = clazz.getSuperclass()) {
+                if (clazz == type) {
+                    return distance;
+                }
+                distance++;
+            }
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * 单个异常处理方法，参数和返回值的处理方式在启动时确定
+     */
+    static class ExceptionHandlerMethod {
+
+        private static final int NONE = 0;
+
+        private static final int EXCEPTION = 1;
+
+        private static final int REQUEST = 2;
+
+        private static final int RESPONSE = 3;
+
+        private final BeanDefinition bean;
+
+        private final Class<?>[] exceptionTypes;
+
+        private final int status;
+
+        private final int[] arguments;
+
+        private final Class<?>[] parameterTypes;
+
+        private final HandlerInvoker invoker;
+
+        private final ReturnValueHandler returnValueHandler;
+
+        ExceptionHandlerMethod(BeanDefinition bean, Method method, ZExceptionHandler annotation, String invokerMode) {
+            this.bean = bean;
+            this.status = annotation.status();
+            this.parameterTypes = method.getParameterTypes();
+            this.arguments = new int[parameterTypes.length];
+            List<Class<?>> declared = new ArrayList<Class<?>>();
+            for (int i = 0; i < parameterTypes.length; i++) {
+                Class<?> type = parameterTypes[i];
+                if (Throwable.class.isAssignableFrom(type)) {
+                    arguments[i] = EXCEPTION;
+                    declared.add(type);
+                } else if (type == HttpServletRequest.class || type == ServletRequest.class) {
+                    arguments[i] = REQUEST;
+                } else if (type == HttpServletResponse.class || type == ServletResponse.class) {
+                    arguments[i] = RESPONSE;
+                } else {
+                    arguments[i] = NONE;
+                }
+            }
+            // 注解中没有指定异常类型时使用参数中的异常类型
+            if (annotation.value().length > 0) {
+                declared.clear();
+                for (Class<? extends Throwable> type : annotation.value()) {
+                    declared.add(type);
+                }
+            }
+            if (declared.isEmpty()) {
+                throw new IllegalStateException("No exception type declared on " + method);
+            }
+            this.exceptionTypes = declared.toArray(new Class<?>[0]);
+            this.invoker = HandlerInvoker.create(method, invokerMode);
+            this.returnValueHandler = ReturnValueHandler.compile(method);
+        }
+
+        void handle(HttpServletRequest req, HttpServletResponse resp, Exception e) throws Exception {
+            Object[] args = new Object[arguments.length];
+            for (int i = 0; i < args.length; i++) {
+                switch (arguments[i]) {
+                    case EXCEPTION:
+                        // 注解中声明的类型比参数类型宽时，不匹配的参数传入 null
+                        args[i] = parameterTypes[i].isInstance(e) ? e : null;
+                        break;
+                    case REQUEST:
+                        args[i] = req;
+                        break;
+                    case RESPONSE:
+                        args[i] = resp;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            Object returnValue = invoker.invoke(bean.getBean(), args);
+            if (returnValue != null) {
+                returnValueHandler.handle(returnValue, req, resp);
+            }
+        }
+    }
+}
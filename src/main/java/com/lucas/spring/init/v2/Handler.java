@@ -0,0 +1,78 @@
+package com.lucas.spring.init.v2;
+
+import com.lucas.spring.init.support.HandlerInvoker;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * @author zhangfan
+ * @description 保存请求路径对应的 Controller 实例、方法、调用器以及启动时编译好的参数绑定器和返回值处理器
+ * @date 2020/10/30 15:10
+ **/
+class Handler {
+    // 保存方法对应的Controller，延迟初始化时第一次请求才创建实例
+    protected BeanDefinition controller;
+    // 保存映射的方法
+    protected Method method;
+    // 预先绑定好的方法调用器
+    protected HandlerInvoker invoker;
+    // 和方法参数一一对应的参数绑定器
+    protected ArgumentBinder[] binders;
+    // 按返回类型选好的返回值处理器
+    protected ReturnValueHandler returnValueHandler;
+    // 是否异步执行
+    protected boolean async;
+    // 启动时按路径模式匹配好的拦截器，已按顺序排好
+    protected ZHandlerInterceptor[] interceptors = new ZHandlerInterceptor[0];
+    // 拦截器要按实际的请求路径匹配时不为 null，此时不使用 interceptors
+    protected InterceptorMatcher interceptorMatcher;
+    // 监控指标，关闭监控时为 null
+    protected HandlerMetrics metrics;
+    // Controller 自己声明的异常处理方法，没有时为 null
+    protected ExceptionResolver.ExceptionHandlerMethods exceptionHandlers;
+    // 加了 @ZCoalesce 时合并相同请求，没有时为 null
+    protected RequestCoalescer coalescer;
+    // 等待相同请求执行结果的最长时间，毫秒
+    protected long coalesceMaxWait;
+    // 等待超时后是否自己执行
+    protected boolean coalesceInvokeOnTimeout;
+    // 加了 @ZResponseCache 时缓存完整响应，没有时为 null
+    protected ResponseCache.Policy responseCache;
+    // 并发上限，没有配置时为 null
+    protected ConcurrencyLimiter limiter;
+
+    public Handler(BeanDefinition controller, Method method, List<String> pathVariables, ConverterRegistry converters,
+                   RequestBodyReader bodyReader) {
+        this.controller = controller;
+        this.method = method;
+        this.binders = ArgumentBinder.compile(method, pathVariables, converters, bodyReader);
+        this.returnValueHandler = ReturnValueHandler.compile(method);
+    }
+
+    /**
+     * 获取方法对应的Controller实例，延迟初始化的Controller在第一次调用时创建
+     */
+    public Object getController() {
+        return controller.getBean();
+    }
+
+    /**
+     * 按参数下标依次绑定参数值
+     *
+     * @param req      请求
+     * @param resp     响应
+     * @param captures 路径变量在 URI 中的起止位置
+     * @return 传入调用器的参数数组
+     * @throws Exception
+     */
+    public Object[] bindArguments(HttpServletRequest req, HttpServletResponse resp, int[] captures) throws Exception {
+        Object[] paramValues = new Object[binders.length];
+        for (int i = 0; i < binders.length; i++) {
+            paramValues[i] = binders[i].bind(req, resp, captures);
+        }
+        return paramValues;
+    }
+}
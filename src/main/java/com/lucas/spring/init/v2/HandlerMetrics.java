@@ -0,0 +1,132 @@
+package com.lucas.spring.init.v2;
+
+import com.lucas.spring.init.support.LatencyHistogram;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author zhangfan
+ * @description 单个方法的监控指标：请求数、异常数、超出并发上限被拒绝的请求数、正在执行的请求数和耗时直方图
+ * 计数都使用 LongAdder，多个请求线程同时更新时不会竞争同一个变量；每次请求只有两次 System.nanoTime()
+ * @date 2026/10/18 14:30
+ **/
+class HandlerMetrics implements HandlerMetricsMBean {
+
+    private final String route;
+
+    private final String method;
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder inFlight = new LongAdder();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    HandlerMetrics(String route, Method method) {
+        this.route = route;
+        this.method = method.getDeclaringClass().getName() + "." + method.getName();
+    }
+
+    /**
+     * 请求开始
+     *
+     * @return 开始时间，传给 {@link #end(long, boolean)}
+     */
+    long begin() {
+        inFlight.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * 请求结束
+     *
+     * @param start  {@link #begin()} 返回的开始时间
+     * @param failed 是否抛出了异常
+     */
+    void end(long start, boolean failed) {
+        latency.record(System.nanoTime() - start);
+        inFlight.decrement();
+        requests.increment();
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * 超出并发上限被拒绝
+     */
+    void reject() {
+        rejected.increment();
+    }
+
+    LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String getRoute() {
+        return route;
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    @Override
+    public double getMeanLatencyMicros() {
+        long count = latency.getCount();
+        return count == 0 ? 0 : latency.getSum() / 1000.0 / count;
+    }
+
+    @Override
+    public long getMaxLatencyMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(latency.getMax());
+    }
+
+    @Override
+    public long getP50LatencyMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(latency.getValueAtQuantile(0.5));
+    }
+
+    @Override
+    public long getP90LatencyMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(latency.getValueAtQuantile(0.9));
+    }
+
+    @Override
+    public long getP99LatencyMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(latency.getValueAtQuantile(0.99));
+    }
+
+    @Override
+    public long getP999LatencyMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(latency.getValueAtQuantile(0.999));
+    }
+}
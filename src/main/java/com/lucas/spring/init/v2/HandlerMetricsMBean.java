@@ -0,0 +1,33 @@
+package com.lucas.spring.init.v2;
+
+/**
+ * @author zhangfan
+ * @description 通过 JMX 暴露的方法级监控指标，每个映射的方法注册一个 MBean，耗时单位都是微秒
+ * @date 2026/10/18 14:20
+ **/
+public interface HandlerMetricsMBean {
+
+    String getRoute();
+
+    String getMethod();
+
+    long getRequestCount();
+
+    long getErrorCount();
+
+    long getRejectedCount();
+
+    long getInFlight();
+
+    double getMeanLatencyMicros();
+
+    long getMaxLatencyMicros();
+
+    long getP50LatencyMicros();
+
+    long getP90LatencyMicros();
+
+    long getP99LatencyMicros();
+
+    long getP999LatencyMicros();
+}
@@ -0,0 +1,207 @@
+package com.lucas.spring.init.v2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author zhangfan
+ * @description 一个路由要经过的拦截器。启动时按路由模板匹配拦截器的路径模式，能确定的直接算好数组；
+ * 路由有路径变量或正则时，例如 /admin/** 和 /{section}/list、排除 /user/login 和 /user/{action}，
+ * 是否匹配取决于实际的请求路径。这些模式在启动时编译成对路由捕获的变量段的检查（PathPatterns.RouteCheck），
+ * 请求时只比较变量段，不截取请求路径；各种匹配结果对应的拦截器数组也在启动时算好
+ * @date 2026/10/17 21:40
+ **/
+final class InterceptorMatcher {
+
+    private static final ZHandlerInterceptor[] NONE = new ZHandlerInterceptor[0];
+
+    // 要看请求路径的拦截器不超过这个数时，启动时算好所有匹配结果对应的数组
+    private static final int MAX_PRECOMPUTED = 8;
+
+    // 可能匹配的拦截器，已按顺序排好
+    private final ZHandlerInterceptor[] candidates;
+
+    // 和 candidates 一一对应，启动时已经确定匹配的为 null
+    private final Condition[] conditions;
+
+    // 下标是要看请求路径的拦截器的匹配结果（第 n 个条件对应第 n 位），超过 MAX_PRECOMPUTED 时为 null
+    private final ZHandlerInterceptor[][] byMask;
+
+    private InterceptorMatcher(ZHandlerInterceptor[] candidates, Condition[] conditions) {
+        this.candidates = candidates;
+        this.conditions = conditions;
+        int depends = 0;
+        for (Condition condition : conditions) {
+            if (condition != null) {
+                depends++;
+            }
+        }
+        if (depends > MAX_PRECOMPUTED) {
+            this.byMask = null;
+            return;
+        }
+        this.byMask = new ZHandlerInterceptor[1 << depends][];
+        for (int mask = 0; mask < byMask.length; mask++) {
+            byMask[mask] = select(mask);
+        }
+    }
+
+    /**
+     * 启动时能确定的拦截器数组
+     *
+     * @param route 路由模板
+     * @return 有拦截器要看实际的请求路径时返回 null，此时使用 {@link #create(String, List)}
+     */
+    static ZHandlerInterceptor[] resolve(String route, List<ZHandlerInterceptor> interceptors) {
+        List<ZHandlerInterceptor> matched = new ArrayList<ZHandlerInterceptor>();
+        for (ZHandlerInterceptor interceptor : interceptors) {
+            int result = matchRoute(interceptor, route);
+            if (result == PathPatterns.DEPENDS) {
+                return null;
+            }
+            if (result == PathPatterns.ALWAYS) {
+                matched.add(interceptor);
+            }
+        }
+        return matched.isEmpty() ? NONE : matched.toArray(new ZHandlerInterceptor[0]);
+    }
+
+    /**
+     * 请求时按路径匹配，只在 resolve 返回 null 时使用
+     */
+    static InterceptorMatcher create(String route, List<ZHandlerInterceptor> interceptors) {
+        List<ZHandlerInterceptor> candidates = new ArrayList<ZHandlerInterceptor>();
+        List<Condition> conditions = new ArrayList<Condition>();
+        for (ZHandlerInterceptor interceptor : interceptors) {
+            int result = matchRoute(interceptor, route);
+            if (result != PathPatterns.NEVER) {
+                candidates.add(interceptor);
+                conditions.add(result == PathPatterns.ALWAYS ? null : new Condition(interceptor, route));
+            }
+        }
+        return new InterceptorMatcher(candidates.toArray(new ZHandlerInterceptor[0]),
+                conditions.toArray(new Condition[0]));
+    }
+
+    /**
+     * 拦截路径匹配、排除路径不匹配时拦截器生效
+     */
+    private static int matchRoute(ZHandlerInterceptor interceptor, String route) {
+        int included = matchAny(interceptor.getPathPatterns(), route);
+        int excluded = matchAny(interceptor.getExcludePathPatterns(), route);
+        if (included == PathPatterns.NEVER || excluded == PathPatterns.ALWAYS) {
+            return PathPatterns.NEVER;
+        }
+        if (included == PathPatterns.ALWAYS && excluded == PathPatterns.NEVER) {
+            return PathPatterns.ALWAYS;
+        }
+        return PathPatterns.DEPENDS;
+    }
+
+    private static int matchAny(String[] patterns, String route) {
+        int result = PathPatterns.NEVER;
+        if (patterns != null) {
+            for (String pattern : patterns) {
+                int match = PathPatterns.matchRoute(pattern, route);
+                if (match == PathPatterns.ALWAYS) {
+                    return match;
+                }
+                if (match == PathPatterns.DEPENDS) {
+                    result = match;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param uri      请求 URI
+     * @param from     请求路径在 URI 中的起始位置
+     * @param captures 路由匹配时记录的路径变量起止位置
+     */
+    ZHandlerInterceptor[] match(String uri, int from, int[] captures) {
+        if (byMask == null) {
+            return select(uri, from, captures);
+        }
+        int mask = 0;
+        int bit = 0;
+        for (Condition condition : conditions) {
+            if (condition != null) {
+                if (condition.matches(uri, from, captures)) {
+                    mask |= 1 << bit;
+                }
+                bit++;
+            }
+        }
+        return byMask[mask];
+    }
+
+    private ZHandlerInterceptor[] select(int mask) {
+        List<ZHandlerInterceptor> matched = new ArrayList<ZHandlerInterceptor>(candidates.length);
+        int bit = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            if (conditions[i] == null || (mask & (1 << bit++)) != 0) {
+                matched.add(candidates[i]);
+            }
+        }
+        return matched.isEmpty() ? NONE : matched.toArray(new ZHandlerInterceptor[0]);
+    }
+
+    private ZHandlerInterceptor[] select(String uri, int from, int[] captures) {
+        List<ZHandlerInterceptor> matched = new ArrayList<ZHandlerInterceptor>(candidates.length);
+        for (int i = 0; i < candidates.length; i++) {
+            if (conditions[i] == null || conditions[i].matches(uri, from, captures)) {
+                matched.add(candidates[i]);
+            }
+        }
+        return matched.isEmpty() ? NONE : matched.toArray(new ZHandlerInterceptor[0]);
+    }
+
+    /**
+     * 要看请求路径的拦截器：启动时确定的拦截或排除结果直接记下，其余模式编译成 RouteCheck
+     */
+    private static final class Condition {
+
+        // 拦截路径中有一定匹配的
+        private final boolean alwaysIncluded;
+
+        private final PathPatterns.RouteCheck[] includes;
+
+        private final PathPatterns.RouteCheck[] excludes;
+
+        Condition(ZHandlerInterceptor interceptor, String route) {
+            this.alwaysIncluded = matchAny(interceptor.getPathPatterns(), route) == PathPatterns.ALWAYS;
+            this.includes = alwaysIncluded ? new PathPatterns.RouteCheck[0] : compile(interceptor.getPathPatterns(), route);
+            this.excludes = compile(interceptor.getExcludePathPatterns(), route);
+        }
+
+        /**
+         * 只编译结果是 DEPENDS 的模式，NEVER 的不用检查；排除路径中不会有 ALWAYS，否则整个拦截器已经是 NEVER
+         */
+        private static PathPatterns.RouteCheck[] compile(String[] patterns, String route) {
+            List<PathPatterns.RouteCheck> checks = new ArrayList<PathPatterns.RouteCheck>();
+            if (patterns != null) {
+                for (String pattern : patterns) {
+                    if (PathPatterns.matchRoute(pattern, route) == PathPatterns.DEPENDS) {
+                        checks.add(PathPatterns.compile(pattern, route));
+                    }
+                }
+            }
+            return checks.toArray(new PathPatterns.RouteCheck[0]);
+        }
+
+        boolean matches(String uri, int from, int[] captures) {
+            return (alwaysIncluded || matchesAny(includes, uri, from, captures))
+                    && !matchesAny(excludes, uri, from, captures);
+        }
+
+        private static boolean matchesAny(PathPatterns.RouteCheck[] checks, String uri, int from, int[] captures) {
+            for (PathPatterns.RouteCheck check : checks) {
+                if (check.matches(uri, from, captures)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
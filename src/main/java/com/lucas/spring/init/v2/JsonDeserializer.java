@@ -0,0 +1,482 @@
+package com.lucas.spring.init.v2;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author zhangfan
+ * @description JSON 反序列化，和 JsonSerializer 对应，不依赖第三方库
+ * 每个目标类型在启动时（或第一次遇到时）编译成一个 ValueReader：普通对象的属性通过 setter 或字段找出来，
+ * 转换成 MethodHandle 放进按属性名查找的 Map；标量类型复用 ConverterRegistry，自定义的 ZConverter 同样生效
+ * @date 2026/10/17 23:20
+ **/
+final class JsonDeserializer {
+
+    private final ConverterRegistry converters;
+
+    private final Map<Type, ValueReader> readers = new ConcurrentHashMap<Type, ValueReader>();
+
+    JsonDeserializer(ConverterRegistry converters) {
+        this.converters = converters;
+    }
+
+    /**
+     * 从 JSON 中读取一个值
+     */
+    abstract static class ValueReader {
+        abstract Object read(JsonReader in) throws IOException;
+    }
+
+    /**
+     * 获取目标类型的读取器
+     *
+     * @param type 目标类型，可以带泛型，例如 List&lt;User&gt;
+     */
+    ValueReader readerFor(Type type) {
+        ValueReader reader = readers.get(type);
+        if (reader != null) {
+            return reader;
+        }
+        reader = compile(type);
+        ValueReader existing = readers.putIfAbsent(type, reader);
+        if (existing != null) {
+            return existing;
+        }
+        if (reader instanceof BeanReader) {
+            // 先登记再解析属性，属性引用自身类型时直接拿到这个读取器，不会无限递归；
+            // 有不支持的属性类型时在启动阶段就失败，并且不留下解析了一半的读取器
+            try {
+                ((BeanReader) reader).resolve();
+            } catch (RuntimeException e) {
+                readers.remove(type, reader);
+                throw e;
+            }
+        }
+        return reader;
+    }
+
+    private ValueReader compile(Type type) {
+        Class<?> raw = ConverterRegistry.rawType(type);
+        if (raw == Object.class) {
+            return NATURAL;
+        }
+        if (raw == int.class || raw == Integer.class) {
+            return new IntReader(raw.isPrimitive());
+        }
+        if (raw == long.class || raw == Long.class) {
+            return new LongReader(raw.isPrimitive());
+        }
+        if (raw == boolean.class || raw == Boolean.class) {
+            return new BooleanReader(raw.isPrimitive());
+        }
+        // 其他标量交给转换器，包括 String、枚举、BigDecimal、java.time 以及自定义的 ZConverter
+        ZConverter<?> scalar = converters.scalar(raw);
+        if (scalar != null) {
+            return new ScalarReader(scalar, raw.isPrimitive());
+        }
+        if (raw.isArray()) {
+            Type component = type instanceof GenericArrayType
+                    ? ((GenericArrayType) type).getGenericComponentType() : raw.getComponentType();
+            return new ArrayReader(ConverterRegistry.rawType(component), readerFor(component));
+        }
+        if (Collection.class.isAssignableFrom(raw) || raw == Iterable.class) {
+            return new CollectionReader(raw, readerFor(typeArgument(type, 0)));
+        }
+        if (Map.class.isAssignableFrom(raw)) {
+            Class<?> keyType = ConverterRegistry.rawType(typeArgument(type, 0));
+            ZConverter<?> keyConverter = keyType == Object.class ? null : converters.scalar(keyType);
+            if (keyType != Object.class && keyConverter == null) {
+                throw new IllegalStateException("Unsupported JSON map key type " + keyType.getName());
+            }
+            return new MapReader(raw, keyConverter, readerFor(typeArgument(type, 1)));
+        }
+        if (raw.isInterface() || Modifier.isAbstract(raw.getModifiers())) {
+            throw new IllegalStateException("Cannot deserialize JSON into abstract type " + type.getTypeName());
+        }
+        return new BeanReader(raw);
+    }
+
+    /**
+     * 取泛型参数，没有泛型时按 Object 处理
+     */
+    static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType) {
+            return ((ParameterizedType) type).getActualTypeArguments()[index];
+        }
+        return Object.class;
+    }
+
+    /**
+     * 没有目标类型时按 JSON 本身的结构读取：对象为 LinkedHashMap，数组为 ArrayList，整数为 Long，小数为 Double
+     */
+    static final ValueReader NATURAL = new ValueReader() {
+        @Override
+        Object read(JsonReader in) throws IOException {
+            int next = in.peek();
+            switch (next) {
+                case '{':
+                    in.expect('{');
+                    Map<String, Object> map = new LinkedHashMap<String, Object>();
+                    for (boolean first = true; in.hasNext('}', first); first = false) {
+                        String name = in.nextName();
+                        map.put(name, read(in));
+                    }
+                    return map;
+                case '[':
+                    in.expect('[');
+                    List<Object> list = new ArrayList<Object>();
+                    for (boolean first = true; in.hasNext(']', first); first = false) {
+                        list.add(read(in));
+                    }
+                    return list;
+                case '"':
+                    return in.readString();
+                case 'n':
+                    in.nextNull();
+                    return null;
+                case 't':
+                case 'f':
+                    return in.readBoolean();
+                default:
+                    String number = in.readNumber();
+                    if (number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0) {
+                        return Double.valueOf(number);
+                    }
+                    try {
+                        return Long.valueOf(number);
+                    } catch (NumberFormatException e) {
+                        return new BigInteger(number);
+                    }
+            }
+        }
+    };
+
+    private static Object missingPrimitive(boolean primitive) {
+        if (primitive) {
+            throw new IllegalArgumentException("JSON null cannot be assigned to a primitive");
+        }
+        return null;
+    }
+
+    private static class IntReader extends ValueReader {
+
+        private final boolean primitive;
+
+        IntReader(boolean primitive) {
+            this.primitive = primitive;
+        }
+
+        @Override
+        Object read(JsonReader in) throws IOException {
+            if (in.nextNull()) {
+                return missingPrimitive(primitive);
+            }
+            long value = in.readLong();
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw new NumberFormatException("Value " + value + " is out of int range");
+            }
+            return (int) value;
+        }
+    }
+
+    private static class LongReader extends ValueReader {
+
+        private final boolean primitive;
+
+        LongReader(boolean primitive) {
+            this.primitive = primitive;
+        }
+
+        @Override
+        Object read(JsonReader in) throws IOException {
+            return in.nextNull() ? missingPrimitive(primitive) : in.readLong();
+        }
+    }
+
+    private static class BooleanReader extends ValueReader {
+
+        private final boolean primitive;
+
+        BooleanReader(boolean primitive) {
+            this.primitive = primitive;
+        }
+
+        @Override
+        Object read(JsonReader in) throws IOException {
+            return in.nextNull() ? missingPrimitive(primitive) : in.readBoolean();
+        }
+    }
+
+    private static class ScalarReader extends ValueReader {
+
+        private final ZConverter<?> converter;
+
+        private final boolean primitive;
+
+        ScalarReader(ZConverter<?> converter, boolean primitive) {
+            this.converter = converter;
+            this.primitive = primitive;
+        }
+
+        @Override
+        Object read(JsonReader in) throws IOException {
+            if (in.nextNull()) {
+                return missingPrimitive(primitive);
+            }
+            return converter.convert(in.readScalar());
+        }
+    }
+
+    private static class ArrayReader extends ValueReader {
+
+        private final Class<?> componentType;
+
+        private final ValueReader element;
+
+        ArrayReader(Class<?> componentType, ValueReader element) {
+            this.componentType = componentType;
+            this.element = element;
+        }
+
+        @Override
+        Object read(JsonReader in) throws IOException {
+            if (in.nextNull()) {
+                return null;
+            }
+            in.expect('[');
+            List<Object> values = new ArrayList<Object>();
+            for (boolean first = true; in.hasNext(']', first); first = false) {
+                values.add(element.read(in));
+            }
+            Object array = Array.newInstance(componentType, values.size());
+            for (int i = 0; i < values.size(); i++) {
+                Array.set(array, i, values.get(i));
+            }
+            return array;
+        }
+    }
+
+    private static class CollectionReader extends ValueReader {
+
+        private final Class<?> type;
+
+        private final ValueReader element;
+
+        CollectionReader(Class<?> type, ValueReader element) {
+            this.type = type;
+            this.element = element;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object read(JsonReader in) throws IOException {
+            if (in.nextNull()) {
+                return null;
+            }
+            Collection<Object> collection = (Collection<Object>) newCollection();
+            in.expect('[');
+            for (boolean first = true; in.hasNext(']', first); first = false) {
+                collection.add(element.read(in));
+            }
+            return collection;
+        }
+
+        private Collection<?> newCollection() {
+            if (type.isAssignableFrom(ArrayList.class)) {
+                return new ArrayList<Object>();
+            }
+            if (type.isAssignableFrom(LinkedHashSet.class)) {
+                return new LinkedHashSet<Object>();
+            }
+            if (type.isAssignableFrom(TreeSet.class)) {
+                return new TreeSet<Object>();
+            }
+            if (type.isAssignableFrom(ArrayDeque.class)) {
+                return new ArrayDeque<Object>();
+            }
+            return (Collection<?>) newInstance(type);
+        }
+    }
+
+    private static class MapReader extends ValueReader {
+
+        private final Class<?> type;
+
+        // key 为 String 或 Object 时为 null
+        private final ZConverter<?> keyConverter;
+
+        private final ValueReader value;
+
+        MapReader(Class<?> type, ZConverter<?> keyConverter, ValueReader value) {
+            this.type = type;
+            this.keyConverter = keyConverter;
+            this.value = value;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object read(JsonReader in) throws IOException {
+            if (in.nextNull()) {
+                return null;
+            }
+            Map<Object, Object> map;
+            if (type.isAssignableFrom(LinkedHashMap.class)) {
+                map = new LinkedHashMap<Object, Object>();
+            } else if (type.isAssignableFrom(TreeMap.class)) {
+                map = new TreeMap<Object, Object>();
+            } else {
+                map = (Map<Object, Object>) newInstance(type);
+            }
+            in.expect('{');
+            for (boolean first = true; in.hasNext('}', first); first = false) {
+                String name = in.nextName();
+                map.put(keyConverter == null ? name : keyConverter.convert(name), value.read(in));
+            }
+            return map;
+        }
+    }
+
+    /**
+     * 普通对象，优先使用 public 的 setter，没有 setter 时直接给非 static、非 final、非 transient 的字段赋值
+     * 属性的读取器在 readerFor 中登记之后立即解析，见 {@link #readerFor(Type)}
+     */
+    private class BeanReader extends ValueReader {
+
+        private final Class<?> type;
+
+        private final MethodHandle constructor;
+
+        // 属性名 -> 属性，resolve 之后不再修改
+        private volatile Map<String, Property> properties;
+
+        BeanReader(Class<?> type) {
+            this.type = type;
+            try {
+                Constructor<?> c = type.getDeclaredConstructor();
+                c.setAccessible(true);
+                this.constructor = MethodHandles.lookup().unreflectConstructor(c)
+                        .asType(MethodType.methodType(Object.class));
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(type.getName() + " needs a no-arg constructor for JSON binding", e);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot access the constructor of " + type.getName(), e);
+            }
+        }
+
+        @Override
+        Object read(JsonReader in) throws IOException {
+            if (in.nextNull()) {
+                return null;
+            }
+            Map<String, Property> properties = this.properties;
+            if (properties == null) {
+                throw new IllegalStateException("JSON properties of " + type.getName() + " are not resolved");
+            }
+            Object bean;
+            try {
+                bean = (Object) constructor.invokeExact();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("Create " + type.getName() + " failed", t);
+            }
+            in.expect('{');
+            for (boolean first = true; in.hasNext('}', first); first = false) {
+                Property property = properties.get(in.nextName());
+                if (property == null) {
+                    // 未知属性直接跳过
+                    in.skipValue();
+                    continue;
+                }
+                Object value = property.reader.read(in);
+                try {
+                    property.setter.invokeExact(bean, value);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new IllegalStateException("Set JSON property of " + type.getName() + " failed", t);
+                }
+            }
+            return bean;
+        }
+
+        void resolve() {
+            properties = Collections.unmodifiableMap(resolveProperties());
+        }
+
+        private Map<String, Property> resolveProperties() {
+            Map<String, Property> result = new HashMap<String, Property>();
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodType setterType = MethodType.methodType(void.class, Object.class, Object.class);
+            try {
+                for (Class<?> clazz = type; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+                    for (Field field : clazz.getDeclaredFields()) {
+                        int modifiers = field.getModifiers();
+                        if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || Modifier.isTransient(modifiers)
+                                || field.isSynthetic() || result.containsKey(field.getName())) {
+                            continue;
+                        }
+                        field.setAccessible(true);
+                        result.put(field.getName(), new Property(readerFor(field.getGenericType()),
+                                lookup.unreflectSetter(field).asType(setterType)));
+                    }
+                }
+                for (Method method : type.getMethods()) {
+                    String name = method.getName();
+                    if (Modifier.isStatic(method.getModifiers()) || method.isBridge() || method.getParameterTypes().length != 1
+                            || !name.startsWith("set") || name.length() == 3) {
+                        continue;
+                    }
+                    String property = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+                    method.setAccessible(true);
+                    MethodHandle setter = lookup.unreflect(method)
+                            .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                    result.put(property, new Property(readerFor(method.getGenericParameterTypes()[0]), setter));
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot bind JSON to " + type.getName(), e);
+            }
+            return result;
+        }
+    }
+
+    private static class Property {
+
+        private final ValueReader reader;
+
+        // 统一适配成 (Object, Object)void
+        private final MethodHandle setter;
+
+        Property(ValueReader reader, MethodHandle setter) {
+            this.reader = reader;
+            this.setter = setter;
+        }
+    }
+
+    static Object newInstance(Class<?> type) {
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot create " + type.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.lucas.spring.init.v2;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * @author zhangfan
+ * @description JSON 输出，直接把 UTF-8 字节写入线程复用的 ResponseBuffer，不构造中间的 String
+ * 缓冲区超过 FLUSH_THRESHOLD 时写出到响应的输出流；整个响应都在缓冲区中时设置 Content-Length 后一次写出
+ * @date 2026/10/17 22:20
+ **/
+final class JsonOutput {
+
+    private static final int FLUSH_THRESHOLD = 32 * 1024;
+
+    // writeString 每次预留空间处理的字符数
+    private static final int STRING_CHUNK = 1024;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    // 需要转义的 ASCII 字符，0 表示不需要转义，'u' 表示使用 \\u00XX
+    private static final byte[] ESCAPES = new byte[128];
+
+    static {
+        for (int i = 0; i < 0x20; i++) {
+            ESCAPES[i] = 'u';
+        }
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\f'] = 'f';
+    }
+
+    private final ResponseBuffer buffer;
+
+    private final HttpServletResponse resp;
+
+    // 第一次写出时才获取输出流
+    private OutputStream out;
+
+    JsonOutput(ResponseBuffer buffer, HttpServletResponse resp) {
+        this.buffer = buffer;
+        this.resp = resp;
+    }
+
+    void writeByte(int b) {
+        buffer.write(b);
+    }
+
+    /**
+     * 写入事先编码好的字节，例如属性名
+     */
+    void writeBytes(byte[] b) {
+        buffer.write(b, 0, b.length);
+    }
+
+    /**
+     * 写入已经是 JSON 的字节，例如批量请求中子请求的 JSON 响应体
+     */
+    void writeBytes(byte[] b, int off, int len) {
+        buffer.write(b, off, len);
+    }
+
+    void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii("-9223372036854775808");
+            return;
+        }
+        byte[] b = buffer.reserve(20);
+        int p = buffer.size();
+        if (value < 0) {
+            b[p++] = '-';
+            value = -value;
+        }
+        // 先计算位数，再从低位往高位写
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = p + digits;
+        for (int i = end - 1; i >= p; i--) {
+            b[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        buffer.size(end);
+    }
+
+    void writeDouble(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            // JSON 中没有 NaN 和 Infinity
+            writeAscii("null");
+        } else if (value == (long) value && Math.abs(value) < 1e15) {
+            writeLong((long) value);
+            writeAscii(".0");
+        } else {
+            writeAscii(Double.toString(value));
+        }
+    }
+
+    /**
+     * 写入只包含 ASCII 字符、不需要转义的内容
+     */
+    void writeAscii(String s) {
+        int length = s.length();
+        byte[] b = buffer.reserve(length);
+        int p = buffer.size();
+        for (int i = 0; i < length; i++) {
+            b[p++] = (byte) s.charAt(i);
+        }
+        buffer.size(p);
+    }
+
+    /**
+     * 写入带引号的 JSON 字符串，转义的同时按 UTF-8 编码
+     */
+    void writeString(CharSequence s) {
+        int length = s.length();
+        writeByte('"');
+        // 按块预留空间，每块按最坏情况每个字符转义为 \\u00XX 占 6 个字节，长字符串不会一次预留 6 倍的空间
+        for (int start = 0; start < length; ) {
+            int end = Math.min(length, start + STRING_CHUNK);
+            start = writeChunk(s, start, end, length);
+        }
+        writeByte('"');
+    }
+
+    /**
+     * 写入 [start, end) 的字符，代理对跨过 end 时一起写入
+     *
+     * @return 下一个要写入的字符位置
+     */
+    private int writeChunk(CharSequence s, int start, int end, int length) {
+        byte[] b = buffer.reserve((end - start) * 6);
+        int p = buffer.size();
+        int i = start;
+        for (; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                byte escape = ESCAPES[c];
+                if (escape == 0) {
+                    b[p++] = (byte) c;
+                } else if (escape == 'u') {
+                    p = writeUnicodeEscape(b, p, c);
+                } else {
+                    b[p++] = '\\';
+                    b[p++] = escape;
+                }
+            } else if (c < 0x800) {
+                b[p++] = (byte) (0xC0 | (c >> 6));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            } else if (c == 0x2028 || c == 0x2029) {
+                // U+2028、U+2029 在 JSON 中合法，但在 JavaScript 字符串中是换行符
+                p = writeUnicodeEscape(b, p, c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                b[p++] = (byte) (0xF0 | (codePoint >> 18));
+                b[p++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                b[p++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                p = writeUnicodeEscape(b, p, c);
+            } else {
+                b[p++] = (byte) (0xE0 | (c >> 12));
+                b[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        buffer.size(p);
+        return i;
+    }
+
+    private static int writeUnicodeEscape(byte[] b, int p, char c) {
+        b[p++] = '\\';
+        b[p++] = 'u';
+        b[p++] = HEX[(c >> 12) & 0xF];
+        b[p++] = HEX[(c >> 8) & 0xF];
+        b[p++] = HEX[(c >> 4) & 0xF];
+        b[p++] = HEX[c & 0xF];
+        return p;
+    }
+
+    /**
+     * 每写完一个值检查一次，缓冲区过大时先写出到输出流
+     */
+    void flushIfNeeded() throws IOException {
+        if (buffer.size() >= FLUSH_THRESHOLD) {
+            if (out == null) {
+                out = resp.getOutputStream();
+            }
+            out.write(buffer.array(), 0, buffer.size());
+            buffer.size(0);
+        }
+    }
+
+    /**
+     * 写出剩余内容，没有中途写出过时带上 Content-Length
+     */
+    void finish() throws IOException {
+        if (out == null) {
+            resp.setContentLength(buffer.size());
+            out = resp.getOutputStream();
+        }
+        out.write(buffer.array(), 0, buffer.size());
+        buffer.size(0);
+    }
+}
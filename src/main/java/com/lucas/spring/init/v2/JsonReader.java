@@ -0,0 +1,352 @@
+package com.lucas.spring.init.v2;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * @author zhangfan
+ * @description 流式 JSON 读取器，按 8K 分块从输入流中读取并逐个解析 token，不会把整个请求体读入内存
+ * 读取的总字节数超过 maxSize 时抛出异常；对象和数组的嵌套层数超过 MAX_DEPTH 时同样抛出异常，
+ * 各个读取器按层递归，不限制时 [[[[... 这样的请求体会导致 StackOverflowError，绕过异常处理
+ * @date 2026/10/17 23:00
+ **/
+final class JsonReader {
+
+    private static final int MAX_DEPTH = 512;
+
+    private final InputStream in;
+
+    private final byte[] buffer = new byte[8192];
+
+    private int position;
+
+    private int limit;
+
+    // 已经从输入流中读取的字节数
+    private long total;
+
+    private final long maxSize;
+
+    // 当前所在的对象和数组层数
+    private int depth;
+
+    // 解析字符串时复用
+    private char[] chars = new char[64];
+
+    JsonReader(InputStream in, long maxSize) {
+        this.in = in;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 跳过空白，返回下一个字符但不消费，已经结束时返回 -1
+     */
+    int peek() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            byte b = buffer[position];
+            if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                position++;
+            } else {
+                return b & 0xFF;
+            }
+        }
+    }
+
+    /**
+     * 消费期望的字符
+     */
+    void expect(char c) throws IOException {
+        int next = peek();
+        if (next != c) {
+            throw syntaxError("Expected '" + c + "'", next);
+        }
+        position++;
+        if ((c == '{' || c == '[') && ++depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Malformed JSON body: nesting is deeper than " + MAX_DEPTH);
+        }
+    }
+
+    /**
+     * 读取数组或对象的下一个元素前调用
+     *
+     * @param end   结束字符，] 或 }
+     * @param first 是否第一个元素
+     * @return 还有元素时返回 true，已经到达结束字符时消费它并返回 false
+     */
+    boolean hasNext(char end, boolean first) throws IOException {
+        int next = peek();
+        if (next == end) {
+            position++;
+            depth--;
+            return false;
+        }
+        if (!first) {
+            if (next != ',') {
+                throw syntaxError("Expected ',' or '" + end + "'", next);
+            }
+            position++;
+        }
+        return true;
+    }
+
+    /**
+     * 读取对象的属性名以及之后的冒号
+     */
+    String nextName() throws IOException {
+        String name = readString();
+        expect(':');
+        return name;
+    }
+
+    /**
+     * 当前值是 null 时消费它并返回 true
+     */
+    boolean nextNull() throws IOException {
+        if (peek() != 'n') {
+            return false;
+        }
+        literal("null");
+        return true;
+    }
+
+    boolean readBoolean() throws IOException {
+        int next = peek();
+        if (next == 't') {
+            literal("true");
+            return true;
+        }
+        if (next == 'f') {
+            literal("false");
+            return false;
+        }
+        if (next == '"') {
+            return Boolean.parseBoolean(readString());
+        }
+        throw syntaxError("Expected boolean", next);
+    }
+
+    long readLong() throws IOException {
+        int next = peek();
+        if (next == '"') {
+            return Long.parseLong(readString().trim());
+        }
+        boolean negative = false;
+        if (next == '-') {
+            negative = true;
+            position++;
+        }
+        long result = 0;
+        int digits = 0;
+        while (true) {
+            if (position == limit && !fill()) {
+                break;
+            }
+            int c = buffer[position];
+            if (c < '0' || c > '9') {
+                if (c == '.' || c == 'e' || c == 'E') {
+                    throw syntaxError("Expected integer", c);
+                }
+                break;
+            }
+            // 按负数累加，和 Long.parseLong 一样检查溢出
+            if (result < Long.MIN_VALUE / 10 || result * 10 < Long.MIN_VALUE + (c - '0')) {
+                throw new NumberFormatException("Integer overflow in JSON body");
+            }
+            result = result * 10 - (c - '0');
+            position++;
+            digits++;
+        }
+        if (digits == 0) {
+            throw syntaxError("Expected number", peek());
+        }
+        if (!negative) {
+            if (result == Long.MIN_VALUE) {
+                throw new NumberFormatException("Integer overflow in JSON body");
+            }
+            return -result;
+        }
+        return result;
+    }
+
+    /**
+     * 读取数字的原始文本，交给 Double.parseDouble、BigDecimal 等解析
+     */
+    String readNumber() throws IOException {
+        int next = peek();
+        if (next == '"') {
+            return readString().trim();
+        }
+        int length = 0;
+        while (true) {
+            if (position == limit && !fill()) {
+                break;
+            }
+            int c = buffer[position];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                append(length++, (char) c);
+                position++;
+            } else {
+                break;
+            }
+        }
+        if (length == 0) {
+            throw syntaxError("Expected number", next);
+        }
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * 读取标量的文本：字符串去掉引号，数字和 true/false 原样返回
+     */
+    String readScalar() throws IOException {
+        int next = peek();
+        if (next == '"') {
+            return readString();
+        }
+        if (next == 't' || next == 'f') {
+            return String.valueOf(readBoolean());
+        }
+        if (next == '-' || (next >= '0' && next <= '9')) {
+            return readNumber();
+        }
+        throw syntaxError("Expected string, number or boolean", next);
+    }
+
+    /**
+     * 读取字符串，处理转义并按 UTF-8 解码
+     */
+    String readString() throws IOException {
+        expect('"');
+        int length = 0;
+        while (true) {
+            if (position == limit && !fill()) {
+                throw syntaxError("Unterminated string", -1);
+            }
+            int b = buffer[position++] & 0xFF;
+            if (b == '"') {
+                return new String(chars, 0, length);
+            }
+            if (b == '\\') {
+                int escape = readByte();
+                switch (escape) {
+                    case 'n': append(length++, '\n'); break;
+                    case 'r': append(length++, '\r'); break;
+                    case 't': append(length++, '\t'); break;
+                    case 'b': append(length++, '\b'); break;
+                    case 'f': append(length++, '\f'); break;
+                    case 'u':
+                        int c = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(readByte(), 16);
+                            if (digit < 0) {
+                                throw syntaxError("Invalid unicode escape", -1);
+                            }
+                            c = (c << 4) | digit;
+                        }
+                        append(length++, (char) c);
+                        break;
+                    default:
+                        // \" \\ \/
+                        append(length++, (char) escape);
+                }
+            } else if (b < 0x80) {
+                append(length++, (char) b);
+            } else if (b < 0xE0) {
+                append(length++, (char) (((b & 0x1F) << 6) | (readByte() & 0x3F)));
+            } else if (b < 0xF0) {
+                int c = ((b & 0x0F) << 12) | ((readByte() & 0x3F) << 6) | (readByte() & 0x3F);
+                append(length++, (char) c);
+            } else {
+                int codePoint = ((b & 0x07) << 18) | ((readByte() & 0x3F) << 12)
+                        | ((readByte() & 0x3F) << 6) | (readByte() & 0x3F);
+                append(length++, Character.highSurrogate(codePoint));
+                append(length++, Character.lowSurrogate(codePoint));
+            }
+        }
+    }
+
+    /**
+     * 跳过一个完整的值，用于忽略未知属性
+     */
+    void skipValue() throws IOException {
+        int next = peek();
+        switch (next) {
+            case '{':
+                expect('{');
+                for (boolean first = true; hasNext('}', first); first = false) {
+                    nextName();
+                    skipValue();
+                }
+                break;
+            case '[':
+                expect('[');
+                for (boolean first = true; hasNext(']', first); first = false) {
+                    skipValue();
+                }
+                break;
+            case 'n':
+                literal("null");
+                break;
+            default:
+                readScalar();
+        }
+    }
+
+    /**
+     * 确认后面只剩空白
+     */
+    void end() throws IOException {
+        int next = peek();
+        if (next != -1) {
+            throw syntaxError("Unexpected content after JSON value", next);
+        }
+    }
+
+    private void literal(String literal) throws IOException {
+        for (int i = 0; i < literal.length(); i++) {
+            int b = readByte();
+            if (b != literal.charAt(i)) {
+                throw syntaxError("Expected " + literal, b);
+            }
+        }
+    }
+
+    private int readByte() throws IOException {
+        if (position == limit && !fill()) {
+            throw syntaxError("Unexpected end of JSON body", -1);
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    private void append(int index, char c) {
+        if (index == chars.length) {
+            char[] newChars = new char[chars.length * 2];
+            System.arraycopy(chars, 0, newChars, 0, index);
+            chars = newChars;
+        }
+        chars[index] = c;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        total += n;
+        if (total > maxSize) {
+            throw new IllegalArgumentException("Request body exceeds the limit of " + maxSize + " bytes");
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+
+    private IllegalArgumentException syntaxError(String message, int found) {
+        String actual = found < 0 ? "end of input" : "'" + (char) found + "'";
+        return new IllegalArgumentException("Malformed JSON body: " + message + " but found " + actual
+                + " near byte " + (total - limit + position));
+    }
+}
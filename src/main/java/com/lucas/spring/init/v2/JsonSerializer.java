@@ -0,0 +1,385 @@
+package com.lucas.spring.init.v2;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author zhangfan
+ * @description JSON 序列化，不依赖第三方库
+ * 每个类第一次序列化时编译成一个 ValueWriter 并缓存在 ClassValue 中：普通对象的属性在这时通过 getter
+ * 或字段找出来，转换成 MethodHandle，属性名连同引号和冒号事先编码成字节，之后序列化时不再有反射和字符串拼接
+ * @date 2026/10/17 22:30
+ **/
+final class JsonSerializer {
+
+    // 防止循环引用导致栈溢出
+    private static final int MAX_DEPTH = 256;
+
+    private static final ClassValue<ValueWriter> WRITERS = new ClassValue<ValueWriter>() {
+        @Override
+        protected ValueWriter computeValue(Class<?> type) {
+            return compile(type);
+        }
+    };
+
+    private JsonSerializer() {
+    }
+
+    /**
+     * 把对象序列化为 JSON 写入输出
+     */
+    static void write(Object value, JsonOutput out) throws IOException {
+        writeValue(value, out, 0);
+    }
+
+    private static void writeValue(Object value, JsonOutput out, int depth) throws IOException {
+        if (value == null) {
+            out.writeAscii("null");
+            return;
+        }
+        if (depth > MAX_DEPTH) {
+            throw new IllegalStateException("JSON nesting is too deep, is there a circular reference in "
+                    + value.getClass().getName() + "?");
+        }
+        WRITERS.get(value.getClass()).write(value, out, depth);
+    }
+
+    /**
+     * 某个类型的 JSON 写入器
+     */
+    abstract static class ValueWriter {
+        abstract void write(Object value, JsonOutput out, int depth) throws IOException;
+    }
+
+    private static ValueWriter compile(Class<?> type) {
+        // 带方法体的枚举常量是枚举的子类
+        if (Enum.class.isAssignableFrom(type)) {
+            return ENUM;
+        }
+        if (CharSequence.class.isAssignableFrom(type) || type == Character.class) {
+            return STRING;
+        }
+        if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class) {
+            return INTEGRAL;
+        }
+        if (type == Double.class || type == Float.class) {
+            return FLOATING;
+        }
+        if (type == BigDecimal.class || type == BigInteger.class || Number.class.isAssignableFrom(type)) {
+            return NUMBER;
+        }
+        if (type == Boolean.class || type == AtomicBoolean.class) {
+            return LITERAL;
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            return MAP;
+        }
+        if (Iterable.class.isAssignableFrom(type)) {
+            return ITERABLE;
+        }
+        if (type == byte[].class) {
+            return BYTES;
+        }
+        if (type.isArray()) {
+            return ARRAY;
+        }
+        if (type == Optional.class) {
+            return OPTIONAL;
+        }
+        if (Date.class.isAssignableFrom(type)) {
+            return DATE;
+        }
+        if (Calendar.class.isAssignableFrom(type)) {
+            return CALENDAR;
+        }
+        // java.time、UUID 等值类型，以及其他 JDK 中的类型按 toString() 输出
+        if (type.getName().startsWith("java.") || type.getName().startsWith("javax.")) {
+            return STRING;
+        }
+        return new BeanWriter(type);
+    }
+
+    private static final ValueWriter STRING = new ValueWriter() {
+        @Override
+        void write(Object value, JsonOutput out, int depth) {
+            out.writeString(value instanceof CharSequence ? (CharSequence) value : value.toString());
+        }
+    };
+
+    private static final ValueWriter ENUM = new ValueWriter() {
+        @Override
+        void write(Object value, JsonOutput out, int depth) {
+            out.writeString(((Enum<?>) value).name());
+        }
+    };
+
+    private static final ValueWriter INTEGRAL = new ValueWriter() {
+        @Override
+        void write(Object value, JsonOutput out, int depth) {
+            out.writeLong(((Number) value).longValue());
+        }
+    };
+
+    private static final ValueWriter FLOATING = new ValueWriter() {
+        @Override
+        void write(Object value, JsonOutput out, int depth) {
+            out.writeDouble(((Number) value).doubleValue());
+        }
+    };
+
+    private static final ValueWriter NUMBER = new ValueWriter() {
+        @Override
+        void write(Object value, JsonOutput out, int depth) {
+            out.writeAscii(value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString());
+        }
+    };
+
+    private static final ValueWriter LITERAL = new ValueWriter() {
+        @Override
+        void write(Object value, JsonOutput out, int depth) {
+            out.writeAscii(value.toString());
+        }
+    };
+
+    private static final ValueWriter DATE = new ValueWriter() {
+        @Override
+        void write(Object value, JsonOutput out, int depth) {
+            out.writeLong(((Date) value).getTime());
+        }
+    };
+
+    private static final ValueWriter CALENDAR = new ValueWriter() {
+        @Override
+        void write(Object value, JsonOutput out, int depth) {
+            out.writeLong(((Calendar) value).getTimeInMillis());
+        }
+    };
+
+    private static final ValueWriter BYTES = new ValueWriter() {
+        @Override
+        void write(Object value, JsonOutput out, int depth) {
+            out.writeString(Base64.getEncoder().encodeToString((byte[]) value));
+        }
+    };
+
+    private static final ValueWriter OPTIONAL = new ValueWriter() {
+        @Override
+        void write(Object value, JsonOutput out, int depth) throws IOException {
+            writeValue(((Optional<?>) value).orElse(null), out, depth);
+        }
+    };
+
+    private static final ValueWriter MAP = new ValueWriter() {
+        @Override
+        void write(Object value, JsonOutput out, int depth) throws IOException {
+            out.writeByte('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    out.writeByte(',');
+                }
+                first = false;
+                out.writeString(String.valueOf(entry.getKey()));
+                out.writeByte(':');
+                writeValue(entry.getValue(), out, depth + 1);
+                out.flushIfNeeded();
+            }
+            out.writeByte('}');
+        }
+    };
+
+    private static final ValueWriter ITERABLE = new ValueWriter() {
+        @Override
+        void write(Object value, JsonOutput out, int depth) throws IOException {
+            out.writeByte('[');
+            boolean first = true;
+            for (Object element : (Iterable<?>) value) {
+                if (!first) {
+                    out.writeByte(',');
+                }
+                first = false;
+                writeValue(element, out, depth + 1);
+                out.flushIfNeeded();
+            }
+            out.writeByte(']');
+        }
+    };
+
+    private static final ValueWriter ARRAY = new ValueWriter() {
+        @Override
+        void write(Object value, JsonOutput out, int depth) throws IOException {
+            out.writeByte('[');
+            if (value instanceof int[]) {
+                int[] array = (int[]) value;
+                for (int i = 0; i < array.length; i++) {
+                    if (i > 0) {
+                        out.writeByte(',');
+                    }
+                    out.writeLong(array[i]);
+                }
+            } else if (value instanceof long[]) {
+                long[] array = (long[]) value;
+                for (int i = 0; i < array.length; i++) {
+                    if (i > 0) {
+                        out.writeByte(',');
+                    }
+                    out.writeLong(array[i]);
+                }
+            } else if (value instanceof double[]) {
+                double[] array = (double[]) value;
+                for (int i = 0; i < array.length; i++) {
+                    if (i > 0) {
+                        out.writeByte(',');
+                    }
+                    out.writeDouble(array[i]);
+                }
+            } else if (value instanceof Object[]) {
+                Object[] array = (Object[]) value;
+                for (int i = 0; i < array.length; i++) {
+                    if (i > 0) {
+                        out.writeByte(',');
+                    }
+                    writeValue(array[i], out, depth + 1);
+                    out.flushIfNeeded();
+                }
+            } else {
+                // 其他基本类型数组
+                int length = Array.getLength(value);
+                for (int i = 0; i < length; i++) {
+                    if (i > 0) {
+                        out.writeByte(',');
+                    }
+                    writeValue(Array.get(value, i), out, depth + 1);
+                }
+            }
+            out.writeByte(']');
+        }
+    };
+
+    /**
+     * 普通对象，属性来自 public 的 getter，没有 getter 的非 static、非 transient 字段直接读取
+     */
+    private static class BeanWriter extends ValueWriter {
+
+        private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+        // 属性名编码后的字节，例如 "name":
+        private final byte[][] names;
+
+        // 属性的读取器，统一适配成 (Object)Object
+        private final MethodHandle[] getters;
+
+        BeanWriter(Class<?> type) {
+            Map<String, MethodHandle> properties = new LinkedHashMap<String, MethodHandle>();
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            try {
+                // 1、字段按声明顺序，父类的在前
+                List<Class<?>> hierarchy = new ArrayList<Class<?>>();
+                for (Class<?> clazz = type; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+                    hierarchy.add(0, clazz);
+                }
+                for (Class<?> clazz : hierarchy) {
+                    for (Field field : clazz.getDeclaredFields()) {
+                        int modifiers = field.getModifiers();
+                        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                            continue;
+                        }
+                        try {
+                            field.setAccessible(true);
+                        } catch (RuntimeException e) {
+                            // 模块未开放的字段，跳过
+                            continue;
+                        }
+                        properties.put(field.getName(), lookup.unreflectGetter(field).asType(GETTER_TYPE));
+                    }
+                }
+                // 2、有 getter 时使用 getter，覆盖同名字段
+                for (Method method : type.getMethods()) {
+                    String property = propertyOf(method);
+                    if (property == null) {
+                        continue;
+                    }
+                    try {
+                        method.setAccessible(true);
+                    } catch (RuntimeException e) {
+                        continue;
+                    }
+                    properties.put(property, lookup.unreflect(method).asType(GETTER_TYPE));
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot serialize " + type.getName() + " to JSON", e);
+            }
+            this.names = new byte[properties.size()][];
+            this.getters = new MethodHandle[properties.size()];
+            int i = 0;
+            for (Map.Entry<String, MethodHandle> property : properties.entrySet()) {
+                // 属性名都是合法的 Java 标识符，不需要转义
+                names[i] = ((i == 0 ? "\"" : ",\"") + property.getKey() + "\":").getBytes(StandardCharsets.UTF_8);
+                getters[i++] = property.getValue();
+            }
+        }
+
+        private static String propertyOf(Method method) {
+            if (Modifier.isStatic(method.getModifiers()) || method.isBridge() || method.getParameterTypes().length != 0
+                    || method.getDeclaringClass() == Object.class || method.getReturnType() == void.class) {
+                return null;
+            }
+            String name = method.getName();
+            if (name.startsWith("get") && name.length() > 3) {
+                return decapitalize(name.substring(3));
+            }
+            if (name.startsWith("is") && name.length() > 2
+                    && (method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class)) {
+                return decapitalize(name.substring(2));
+            }
+            return null;
+        }
+
+        private static String decapitalize(String name) {
+            // 和 Introspector 一致，URL 这样连续大写的名称保持不变
+            if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+                return name;
+            }
+            return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+        }
+
+        @Override
+        void write(Object value, JsonOutput out, int depth) throws IOException {
+            out.writeByte('{');
+            for (int i = 0; i < getters.length; i++) {
+                out.writeBytes(names[i]);
+                Object property;
+                try {
+                    property = (Object) getters[i].invokeExact(value);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new IllegalStateException("Read JSON property of " + value.getClass().getName() + " failed", t);
+                }
+                writeValue(property, out, depth + 1);
+            }
+            out.writeByte('}');
+            out.flushIfNeeded();
+        }
+    }
+}
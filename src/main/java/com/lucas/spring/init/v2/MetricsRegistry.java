@@ -0,0 +1,262 @@
+package com.lucas.spring.init.v2;
+
+import com.lucas.spring.init.support.LatencyHistogram;
+import com.lucas.spring.init.support.SegmentedLruCache;
+import com.lucas.spring.init.support.SegmentedLruCacheMBean;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @author zhangfan
+ * @description 方法级监控指标的注册表，启动时为每个映射的方法创建 HandlerMetrics，@ZCacheable 的缓存创建时也注册到这里
+ * 指标通过两种方式暴露：metricsPath 对应的地址输出 Prometheus 文本格式（默认不开放，指标中有路由和缓存名，需要时再配置），
+ * 以及注册到平台 MBeanServer 的 MBean；
+ * metricsEnabled=false 时不创建任何指标，请求时只多一次 null 判断
+ * @date 2026/10/18 14:40
+ **/
+class MetricsRegistry {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final boolean enabled;
+
+    // 输出 Prometheus 指标的请求路径，为空时不开放
+    private final String path;
+
+    private final boolean jmx;
+
+    private final List<HandlerMetrics> metrics = new ArrayList<HandlerMetrics>();
+
+    // 延迟初始化的 bean 在请求时才创建缓存，和输出指标并发
+    private final List<SegmentedLruCache<?, ?>> caches = new CopyOnWriteArrayList<SegmentedLruCache<?, ?>>();
+
+    private final List<ObjectName> registeredNames = new ArrayList<ObjectName>();
+
+    // 已经注册 MBean 时为应用名，之后创建的缓存直接注册
+    private String application;
+
+    MetricsRegistry(Properties config) {
+        this.enabled = !"false".equalsIgnoreCase(config.getProperty("metricsEnabled", "true").trim());
+        this.path = config.getProperty("metricsPath", "").trim();
+        this.jmx = !"false".equalsIgnoreCase(config.getProperty("metricsJmx", "true").trim());
+    }
+
+    /**
+     * 为映射的方法创建指标
+     *
+     * @return 关闭监控时返回 null
+     */
+    HandlerMetrics register(String route, Method method) {
+        if (!enabled) {
+            return null;
+        }
+        HandlerMetrics handlerMetrics = new HandlerMetrics(route, method);
+        metrics.add(handlerMetrics);
+        return handlerMetrics;
+    }
+
+    /**
+     * 注册缓存的统计，同一个缓存只注册一次
+     */
+    synchronized void registerCache(SegmentedLruCache<?, ?> cache) {
+        if (!enabled || caches.contains(cache)) {
+            return;
+        }
+        caches.add(cache);
+        if (application != null) {
+            registerCacheMBean(ManagementFactory.getPlatformMBeanServer(), cache);
+        }
+    }
+
+    /**
+     * 把所有指标注册为 MBean，ObjectName 为 com.lucas.spring:type=HandlerMetrics,route="/xx"，
+     * 缓存为 com.lucas.spring:type=Cache,name="xx"
+     */
+    synchronized void registerMBeans(String application) {
+        if (!enabled || !jmx) {
+            return;
+        }
+        this.application = application;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (HandlerMetrics handlerMetrics : metrics) {
+            register(server, handlerMetrics.getRoute(), new StandardMBean(handlerMetrics, HandlerMetricsMBean.class, false),
+                    "com.lucas.spring:type=HandlerMetrics,application=" + ObjectName.quote(application)
+                            + ",route=" + ObjectName.quote(handlerMetrics.getRoute()));
+        }
+        for (SegmentedLruCache<?, ?> cache : caches) {
+            registerCacheMBean(server, cache);
+        }
+    }
+
+    private void registerCacheMBean(MBeanServer server, SegmentedLruCache<?, ?> cache) {
+        register(server, cache.getName(), new StandardMBean(cache, SegmentedLruCacheMBean.class, false),
+                "com.lucas.spring:type=Cache,application=" + ObjectName.quote(application)
+                        + ",name=" + ObjectName.quote(cache.getName()));
+    }
+
+    private void register(MBeanServer server, String target, StandardMBean mbean, String objectName) {
+        try {
+            ObjectName name = new ObjectName(objectName);
+            // 同一个 JVM 中重新部署时先注销旧的
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(mbean, name);
+            registeredNames.add(name);
+        } catch (Exception e) {
+            System.out.println("Register MBean of " + target + " failed: " + e);
+        }
+    }
+
+    synchronized void unregisterMBeans() {
+        application = null;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registeredNames) {
+            try {
+                server.unregisterMBean(name);
+            } catch (Exception ignored) {
+                // 已经注销
+            }
+        }
+        registeredNames.clear();
+    }
+
+    /**
+     * 请求路径是 metricsPath 时输出 Prometheus 文本格式的指标
+     *
+     * @param from 请求路径在 URI 中的起始位置
+     * @return 是否已经处理
+     */
+    boolean handle(HttpServletRequest req, HttpServletResponse resp, int from) throws Exception {
+        if (!enabled || path.isEmpty()) {
+            return false;
+        }
+        String uri = req.getRequestURI();
+        if (uri.length() - from != path.length() || !uri.startsWith(path, from)) {
+            return false;
+        }
+        resp.setContentType(CONTENT_TYPE);
+        ResponseBuffer out = ResponseBuffer.get();
+        try {
+            StringBuilder text = new StringBuilder(256 + metrics.size() * 512);
+            writePrometheus(text);
+            out.writeUtf8(text);
+            ReturnValueHandler.write(out, resp);
+        } finally {
+            out.release();
+        }
+        return true;
+    }
+
+    void writePrometheus(StringBuilder out) {
+        header(out, "zspring_handler_requests_total", "counter", "Completed requests of each mapped method.");
+        for (HandlerMetrics m : metrics) {
+            sample(out, "zspring_handler_requests_total", m, null).append(m.getRequestCount()).append('\n');
+        }
+        header(out, "zspring_handler_errors_total", "counter", "Requests of each mapped method that threw an exception.");
+        for (HandlerMetrics m : metrics) {
+            sample(out, "zspring_handler_errors_total", m, null).append(m.getErrorCount()).append('\n');
+        }
+        header(out, "zspring_handler_rejected_total", "counter", "Requests of each mapped method rejected by its concurrency limit.");
+        for (HandlerMetrics m : metrics) {
+            sample(out, "zspring_handler_rejected_total", m, null).append(m.getRejectedCount()).append('\n');
+        }
+        header(out, "zspring_handler_in_flight", "gauge", "Requests of each mapped method currently executing.");
+        for (HandlerMetrics m : metrics) {
+            sample(out, "zspring_handler_in_flight", m, null).append(m.getInFlight()).append('\n');
+        }
+        header(out, "zspring_handler_latency_seconds", "summary", "Execution time of each mapped method.");
+        for (HandlerMetrics m : metrics) {
+            LatencyHistogram latency = m.getLatency();
+            for (double quantile : QUANTILES) {
+                sample(out, "zspring_handler_latency_seconds", m, String.valueOf(quantile))
+                        .append(seconds(latency.getValueAtQuantile(quantile))).append('\n');
+            }
+            sample(out, "zspring_handler_latency_seconds_sum", m, null).append(seconds(latency.getSum())).append('\n');
+            sample(out, "zspring_handler_latency_seconds_count", m, null).append(latency.getCount()).append('\n');
+        }
+        if (caches.isEmpty()) {
+            return;
+        }
+        header(out, "zspring_cache_requests_total", "counter", "Lookups of each @ZCacheable cache by result.");
+        for (SegmentedLruCache<?, ?> cache : caches) {
+            cacheSample(out, "zspring_cache_requests_total", cache, "hit").append(cache.getHitCount()).append('\n');
+            cacheSample(out, "zspring_cache_requests_total", cache, "miss").append(cache.getMissCount()).append('\n');
+        }
+        header(out, "zspring_cache_evictions_total", "counter", "Entries evicted from each cache because it was full.");
+        for (SegmentedLruCache<?, ?> cache : caches) {
+            cacheSample(out, "zspring_cache_evictions_total", cache, null).append(cache.getEvictionCount()).append('\n');
+        }
+        header(out, "zspring_cache_expirations_total", "counter", "Entries removed from each cache because they expired.");
+        for (SegmentedLruCache<?, ?> cache : caches) {
+            cacheSample(out, "zspring_cache_expirations_total", cache, null).append(cache.getExpirationCount()).append('\n');
+        }
+        header(out, "zspring_cache_size", "gauge", "Entries currently held by each cache.");
+        for (SegmentedLruCache<?, ?> cache : caches) {
+            cacheSample(out, "zspring_cache_size", cache, null).append(cache.size()).append('\n');
+        }
+        header(out, "zspring_cache_max_size", "gauge", "Maximum entries of each cache.");
+        for (SegmentedLruCache<?, ?> cache : caches) {
+            cacheSample(out, "zspring_cache_max_size", cache, null).append(cache.getMaxSize()).append('\n');
+        }
+    }
+
+    private static StringBuilder cacheSample(StringBuilder out, String name, SegmentedLruCache<?, ?> cache, String result) {
+        out.append(name).append("{cache=\"");
+        escape(out, cache.getName());
+        out.append('"');
+        if (result != null) {
+            out.append(",result=\"").append(result).append('"');
+        }
+        return out.append("} ");
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static StringBuilder sample(StringBuilder out, String name, HandlerMetrics m, String quantile) {
+        out.append(name).append("{route=\"");
+        escape(out, m.getRoute());
+        out.append("\",method=\"");
+        escape(out, m.getMethod());
+        out.append('"');
+        if (quantile != null) {
+            out.append(",quantile=\"").append(quantile).append('"');
+        }
+        return out.append("} ");
+    }
+
+    /**
+     * 标签值中的 \ " 和换行需要转义
+     */
+    private static void escape(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return String.valueOf(nanos / 1e9);
+    }
+}
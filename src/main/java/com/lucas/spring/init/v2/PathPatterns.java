@@ -0,0 +1,282 @@
+package com.lucas.spring.init.v2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author zhangfan
+ * @description Ant 风格的路径模式匹配，用于计算拦截器和路由的对应关系
+ * ? 匹配一个字符，* 匹配一段中的任意字符，** 匹配任意多段。
+ * 按路由模板匹配时 {name} 变量段可以是任意值：只有模式在这一段是 * 或 ** 时才一定匹配，否则要看请求时的实际路径；
+ * 这种情况在启动时编译成 RouteCheck，请求时只检查路由已经捕获的变量段，不截取、不拆分请求路径
+ * @date 2026/10/18 12:20
+ **/
+final class PathPatterns {
+
+    // 路由模板的匹配结果
+    static final int NEVER = 0;
+
+    static final int ALWAYS = 1;
+
+    static final int DEPENDS = 2;
+
+    // 把模板中的变量段当作一定匹配的段，只有 * 可以匹配
+    private static final int TEMPLATE_ALWAYS = 1;
+
+    // 把模板中的变量段当作可能匹配任意段
+    private static final int TEMPLATE_POSSIBLE = 2;
+
+    private PathPatterns() {
+    }
+
+    /**
+     * 按路由模板判断模式是否匹配这个路由收到的所有请求
+     *
+     * @return ALWAYS、NEVER，或者 DEPENDS 表示要看实际的请求路径
+     */
+    static int matchRoute(String pattern, String route) {
+        List<String> patternSegments = split(pattern);
+        List<String> routeSegments = split(route);
+        for (String segment : routeSegments) {
+            if (!Router.isVariable(segment) && Router.isRegex(segment)) {
+                // 正则路由的一段可能包含 /，只有全是 ** 的模式能在启动时确定
+                for (String p : patternSegments) {
+                    if (!"**".equals(p)) {
+                        return DEPENDS;
+                    }
+                }
+                return ALWAYS;
+            }
+        }
+        if (matchSegments(patternSegments, 0, routeSegments, 0, TEMPLATE_ALWAYS)) {
+            return ALWAYS;
+        }
+        return matchSegments(patternSegments, 0, routeSegments, 0, TEMPLATE_POSSIBLE) ? DEPENDS : NEVER;
+    }
+
+    /**
+     * 编译 matchRoute 返回 DEPENDS 的模式
+     */
+    static RouteCheck compile(String pattern, String route) {
+        List<String> patternSegments = split(pattern);
+        List<String> routeSegments = split(route);
+        int[] variables = new int[routeSegments.size()];
+        int index = 0;
+        for (int i = 0; i < routeSegments.size(); i++) {
+            String segment = routeSegments.get(i);
+            if (!Router.isVariable(segment) && Router.isRegex(segment)) {
+                // 正则路由没有捕获的变量，请求时按实际路径逐段匹配
+                return new RouteCheck(patternSegments.toArray(new String[0]), null, null);
+            }
+            variables[i] = Router.isVariable(segment) ? index++ : -1;
+        }
+        List<int[]> alignedVariables = new ArrayList<int[]>();
+        List<String[]> alignedSegments = new ArrayList<String[]>();
+        align(patternSegments, 0, routeSegments, 0, variables, new ArrayList<Integer>(), new ArrayList<String>(),
+                alignedVariables, alignedSegments);
+        return new RouteCheck(null, alignedVariables.toArray(new int[0][]), alignedSegments.toArray(new String[0][]));
+    }
+
+    /**
+     * 列出模式和路由模板所有可能的对齐方式，字面量段在这里就比较好，
+     * 每种对齐方式只留下变量段需要满足的模式段（* 不需要检查）
+     */
+    private static void align(List<String> pattern, int p, List<String> route, int i, int[] variables,
+                              List<Integer> checkedVariables, List<String> checkedSegments,
+                              List<int[]> alignedVariables, List<String[]> alignedSegments) {
+        if (p == pattern.size()) {
+            if (i == route.size()) {
+                int[] indexes = new int[checkedVariables.size()];
+                for (int k = 0; k < indexes.length; k++) {
+                    indexes[k] = checkedVariables.get(k);
+                }
+                alignedVariables.add(indexes);
+                alignedSegments.add(checkedSegments.toArray(new String[0]));
+            }
+            return;
+        }
+        String segment = pattern.get(p);
+        if ("**".equals(segment)) {
+            // ** 可以匹配 0 段或多段，被它匹配的变量段不需要检查
+            for (int j = i; j <= route.size(); j++) {
+                align(pattern, p + 1, route, j, variables, checkedVariables, checkedSegments, alignedVariables, alignedSegments);
+            }
+            return;
+        }
+        if (i == route.size()) {
+            return;
+        }
+        String routeSegment = route.get(i);
+        if (variables[i] < 0) {
+            if (matchSegment(segment, 0, routeSegment, 0, routeSegment.length())) {
+                align(pattern, p + 1, route, i + 1, variables, checkedVariables, checkedSegments, alignedVariables, alignedSegments);
+            }
+        } else if (isWildcard(segment)) {
+            align(pattern, p + 1, route, i + 1, variables, checkedVariables, checkedSegments, alignedVariables, alignedSegments);
+        } else {
+            checkedVariables.add(variables[i]);
+            checkedSegments.add(segment);
+            align(pattern, p + 1, route, i + 1, variables, checkedVariables, checkedSegments, alignedVariables, alignedSegments);
+            checkedVariables.remove(checkedVariables.size() - 1);
+            checkedSegments.remove(checkedSegments.size() - 1);
+        }
+    }
+
+    private static boolean matchSegments(List<String> pattern, int p, List<String> path, int i, int mode) {
+        while (p < pattern.size()) {
+            String segment = pattern.get(p);
+            if ("**".equals(segment)) {
+                // ** 可以匹配 0 段或多段
+                for (int j = i; j <= path.size(); j++) {
+                    if (matchSegments(pattern, p + 1, path, j, mode)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (i == path.size() || !matchSegment(segment, path.get(i), mode)) {
+                return false;
+            }
+            p++;
+            i++;
+        }
+        return i == path.size();
+    }
+
+    private static boolean matchSegment(String pattern, String segment, int mode) {
+        if (Router.isVariable(segment)) {
+            return mode == TEMPLATE_POSSIBLE || isWildcard(pattern);
+        }
+        return matchSegment(pattern, 0, segment, 0, segment.length());
+    }
+
+    private static boolean isWildcard(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) != '*') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 匹配 text 中 [t, end) 的部分
+     */
+    private static boolean matchSegment(String pattern, int p, String text, int t, int end) {
+        while (p < pattern.length()) {
+            char c = pattern.charAt(p);
+            if (c == '*') {
+                for (int j = t; j <= end; j++) {
+                    if (matchSegment(pattern, p + 1, text, j, end)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (t == end || (c != '?' && c != text.charAt(t))) {
+                return false;
+            }
+            p++;
+            t++;
+        }
+        return t == end;
+    }
+
+    /**
+     * 在 uri 上原地逐段匹配，连续的 / 当作一个
+     */
+    private static boolean matchPath(String[] pattern, int p, String uri, int i) {
+        int length = uri.length();
+        while (p < pattern.length) {
+            String segment = pattern[p];
+            if ("**".equals(segment)) {
+                for (int j = i; ; j = skipSlashes(uri, segmentEnd(uri, j))) {
+                    if (matchPath(pattern, p + 1, uri, j)) {
+                        return true;
+                    }
+                    if (j == length) {
+                        return false;
+                    }
+                }
+            }
+            if (i == length) {
+                return false;
+            }
+            int end = segmentEnd(uri, i);
+            if (!matchSegment(segment, 0, uri, i, end)) {
+                return false;
+            }
+            p++;
+            i = skipSlashes(uri, end);
+        }
+        return i == length;
+    }
+
+    private static int skipSlashes(String uri, int i) {
+        while (i < uri.length() && uri.charAt(i) == '/') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int segmentEnd(String uri, int i) {
+        while (i < uri.length() && uri.charAt(i) != '/') {
+            i++;
+        }
+        return i;
+    }
+
+    private static List<String> split(String path) {
+        List<String> segments = new ArrayList<String>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * 模式对一个路由的请求时检查
+     */
+    static final class RouteCheck {
+
+        // 正则路由按实际路径匹配的模式段，模板路由为 null
+        private final String[] pattern;
+
+        // 模板路由每种对齐方式要检查的变量序号和对应的模式段，任意一种全部通过就匹配
+        private final int[][] variables;
+
+        private final String[][] segments;
+
+        private RouteCheck(String[] pattern, int[][] variables, String[][] segments) {
+            this.pattern = pattern;
+            this.variables = variables;
+            this.segments = segments;
+        }
+
+        /**
+         * @param uri      请求 URI
+         * @param from     请求路径在 URI 中的起始位置
+         * @param captures 路由匹配时记录的路径变量起止位置
+         */
+        boolean matches(String uri, int from, int[] captures) {
+            if (pattern != null) {
+                return matchPath(pattern, 0, uri, skipSlashes(uri, from));
+            }
+            for (int a = 0; a < variables.length; a++) {
+                int[] indexes = variables[a];
+                String[] expected = segments[a];
+                int k = 0;
+                while (k < indexes.length && matchSegment(expected[k], 0, uri,
+                        captures[indexes[k] * 2], captures[indexes[k] * 2 + 1])) {
+                    k++;
+                }
+                if (k == indexes.length) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
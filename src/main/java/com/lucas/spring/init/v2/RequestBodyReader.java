@@ -0,0 +1,462 @@
+package com.lucas.spring.init.v2;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * @author zhangfan
+ * @description 读取请求体，为 @ZRequestBody 参数编译绑定器
+ * 请求体都是从 getInputStream() 按块流式读取的：JSON 边读边反序列化，参数类型为 Iterator 时每次 next() 才读取一个数组元素；
+ * 表单逐个解析 name=value；只有参数类型本身是 String 或 byte[] 时才会读取完整内容。所有方式都受 maxRequestBodySize 限制
+ * @date 2026/10/17 23:40
+ **/
+class RequestBodyReader {
+
+    private static final String FORM_URLENCODED = "application/x-www-form-urlencoded";
+
+    private final ConverterRegistry converters;
+
+    private final JsonDeserializer json;
+
+    // 请求体最大字节数
+    private final long maxSize;
+
+    RequestBodyReader(ConverterRegistry converters, long maxSize) {
+        this.converters = converters;
+        this.json = new JsonDeserializer(converters);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 为 @ZRequestBody 参数编译绑定器
+     *
+     * @param type        参数的泛型类型
+     * @param required    请求体为空时是否报错
+     * @param description 参数描述，用于错误信息
+     */
+    ArgumentBinder compile(Type type, boolean required, String description) {
+        Class<?> raw = ConverterRegistry.rawType(type);
+        if (raw == String.class) {
+            return new TextBinder(required);
+        }
+        if (raw == byte[].class) {
+            return new BytesBinder(required);
+        }
+        JsonDeserializer.ValueReader reader;
+        try {
+            reader = json.readerFor(raw == Iterator.class ? JsonDeserializer.typeArgument(type, 0) : type);
+        } catch (IllegalStateException e) {
+            throw new IllegalStateException("Unsupported request body type " + type.getTypeName() + " of " + description, e);
+        }
+        if (raw == Iterator.class) {
+            return new IteratorBinder(reader, required);
+        }
+        return new ObjectBinder(reader, formBinderFor(type), required);
+    }
+
+    /**
+     * Map 和普通对象可以从表单绑定，其他类型只支持 JSON
+     */
+    private FormBinder formBinderFor(Type type) {
+        Class<?> raw = ConverterRegistry.rawType(type);
+        if (Map.class.isAssignableFrom(raw)) {
+            return new MapFormBinder(converters.resolve(JsonDeserializer.typeArgument(type, 1) == Object.class
+                    ? String.class : JsonDeserializer.typeArgument(type, 1), "form field"));
+        }
+        if (raw.isArray() || Iterable.class.isAssignableFrom(raw) || converters.scalar(raw) != null || raw == Object.class) {
+            return null;
+        }
+        return new BeanFormBinder(raw);
+    }
+
+    private void checkContentLength(HttpServletRequest req) {
+        long length = req.getContentLengthLong();
+        if (length > maxSize) {
+            throw new IllegalArgumentException("Request body of " + length + " bytes exceeds the limit of " + maxSize + " bytes");
+        }
+    }
+
+    private static boolean isForm(HttpServletRequest req) {
+        String contentType = req.getContentType();
+        return contentType != null && contentType.regionMatches(true, 0, FORM_URLENCODED, 0, FORM_URLENCODED.length());
+    }
+
+    private static Charset charsetOf(HttpServletRequest req) {
+        String encoding = req.getCharacterEncoding();
+        return encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+    }
+
+    private static Object missing(boolean required) {
+        if (required) {
+            throw new IllegalArgumentException("Required request body is missing");
+        }
+        return null;
+    }
+
+    /**
+     * 读取完整的请求体，只用于 String 和 byte[] 参数
+     */
+    private byte[] readFully(HttpServletRequest req) throws IOException {
+        checkContentLength(req);
+        InputStream in = req.getInputStream();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        byte[] buffer = new byte[4096];
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            total += n;
+            if (total > maxSize) {
+                throw new IllegalArgumentException("Request body exceeds the limit of " + maxSize + " bytes");
+            }
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private class TextBinder extends ArgumentBinder {
+
+        private final boolean required;
+
+        TextBinder(boolean required) {
+            this.required = required;
+        }
+
+        @Override
+        Object bind(HttpServletRequest req, HttpServletResponse resp, int[] captures) throws Exception {
+            byte[] body = readFully(req);
+            return body.length == 0 ? missing(required) : new String(body, charsetOf(req));
+        }
+    }
+
+    private class BytesBinder extends ArgumentBinder {
+
+        private final boolean required;
+
+        BytesBinder(boolean required) {
+            this.required = required;
+        }
+
+        @Override
+        Object bind(HttpServletRequest req, HttpServletResponse resp, int[] captures) throws Exception {
+            byte[] body = readFully(req);
+            return body.length == 0 ? missing(required) : body;
+        }
+    }
+
+    /**
+     * JSON 反序列化为对象或集合，表单请求体按字段绑定
+     */
+    private class ObjectBinder extends ArgumentBinder {
+
+        private final JsonDeserializer.ValueReader reader;
+
+        // 不支持表单时为 null
+        private final FormBinder form;
+
+        private final boolean required;
+
+        ObjectBinder(JsonDeserializer.ValueReader reader, FormBinder form, boolean required) {
+            this.reader = reader;
+            this.form = form;
+            this.required = required;
+        }
+
+        @Override
+        Object bind(HttpServletRequest req, HttpServletResponse resp, int[] captures) throws Exception {
+            checkContentLength(req);
+            if (isForm(req)) {
+                if (form == null) {
+                    throw new IllegalArgumentException("Form body cannot be bound to this parameter, send JSON instead");
+                }
+                Map<String, List<String>> fields = readForm(req.getInputStream(), charsetOf(req));
+                return fields.isEmpty() ? missing(required) : form.bind(fields);
+            }
+            JsonReader in = new JsonReader(req.getInputStream(), maxSize);
+            if (in.peek() == -1) {
+                return missing(required);
+            }
+            Object value = reader.read(in);
+            in.end();
+            return value;
+        }
+    }
+
+    /**
+     * 参数类型为 Iterator 时，请求体应该是 JSON 数组，每次 next() 读取一个元素
+     */
+    private class IteratorBinder extends ArgumentBinder {
+
+        private final JsonDeserializer.ValueReader element;
+
+        private final boolean required;
+
+        IteratorBinder(JsonDeserializer.ValueReader element, boolean required) {
+            this.element = element;
+            this.required = required;
+        }
+
+        @Override
+        Object bind(HttpServletRequest req, HttpServletResponse resp, int[] captures) throws Exception {
+            checkContentLength(req);
+            JsonReader in = new JsonReader(req.getInputStream(), maxSize);
+            if (in.peek() == -1) {
+                return missing(required);
+            }
+            in.expect('[');
+            return new JsonArrayIterator(in, element);
+        }
+    }
+
+    private static class JsonArrayIterator implements Iterator<Object> {
+
+        private final JsonReader in;
+
+        private final JsonDeserializer.ValueReader element;
+
+        private boolean first = true;
+
+        // null 表示还没有检查是否有下一个元素
+        private Boolean hasNext;
+
+        JsonArrayIterator(JsonReader in, JsonDeserializer.ValueReader element) {
+            this.in = in;
+            this.element = element;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (hasNext == null) {
+                try {
+                    hasNext = in.hasNext(']', first);
+                    first = false;
+                } catch (IOException e) {
+                    throw new IllegalStateException("Read request body failed", e);
+                }
+            }
+            return hasNext;
+        }
+
+        @Override
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            hasNext = null;
+            try {
+                return element.read(in);
+            } catch (IOException e) {
+                throw new IllegalStateException("Read request body failed", e);
+            }
+        }
+    }
+
+    /**
+     * 流式解析 application/x-www-form-urlencoded 请求体，name 和 value 分别在读取的同时完成 URL 解码
+     */
+    private Map<String, List<String>> readForm(InputStream in, Charset charset) throws IOException {
+        Map<String, List<String>> fields = new LinkedHashMap<String, List<String>>();
+        ByteArrayOutputStream token = new ByteArrayOutputStream(64);
+        byte[] buffer = new byte[4096];
+        String name = null;
+        long total = 0;
+        // 正在解析的 %XX，-1 表示不在转义中
+        int escape = -1;
+        int escapeValue = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            total += n;
+            if (total > maxSize) {
+                throw new IllegalArgumentException("Request body exceeds the limit of " + maxSize + " bytes");
+            }
+            for (int i = 0; i < n; i++) {
+                int b = buffer[i] & 0xFF;
+                if (escape >= 0) {
+                    int digit = Character.digit(b, 16);
+                    if (digit < 0) {
+                        throw new IllegalArgumentException("Malformed form body: invalid escape");
+                    }
+                    escapeValue = (escapeValue << 4) | digit;
+                    if (++escape == 2) {
+                        token.write(escapeValue);
+                        escape = -1;
+                    }
+                } else if (b == '%') {
+                    escape = 0;
+                    escapeValue = 0;
+                } else if (b == '+') {
+                    token.write(' ');
+                } else if (b == '=' && name == null) {
+                    name = token.toString(charset.name());
+                    token.reset();
+                } else if (b == '&') {
+                    addField(fields, name, token, charset);
+                    name = null;
+                    token.reset();
+                } else {
+                    token.write(b);
+                }
+            }
+        }
+        if (escape >= 0) {
+            throw new IllegalArgumentException("Malformed form body: incomplete escape");
+        }
+        addField(fields, name, token, charset);
+        return fields;
+    }
+
+    private static void addField(Map<String, List<String>> fields, String name, ByteArrayOutputStream token,
+                                 Charset charset) throws IOException {
+        // 没有 = 时整段都是名称，值为空字符串
+        String value = token.toString(charset.name());
+        if (name == null) {
+            name = value;
+            value = "";
+        }
+        if (name.isEmpty()) {
+            return;
+        }
+        List<String> values = fields.get(name);
+        if (values == null) {
+            values = new ArrayList<String>(1);
+            fields.put(name, values);
+        }
+        values.add(value);
+    }
+
+    private static String[] toArray(List<String> values) {
+        return values.toArray(new String[values.size()]);
+    }
+
+    private abstract static class FormBinder {
+        abstract Object bind(Map<String, List<String>> fields);
+    }
+
+    private static class MapFormBinder extends FormBinder {
+
+        private final ConverterRegistry.ValuesConverter converter;
+
+        MapFormBinder(ConverterRegistry.ValuesConverter converter) {
+            this.converter = converter;
+        }
+
+        @Override
+        Object bind(Map<String, List<String>> fields) {
+            Map<String, Object> map = new LinkedHashMap<String, Object>();
+            for (Map.Entry<String, List<String>> field : fields.entrySet()) {
+                map.put(field.getKey(), converter.convert(toArray(field.getValue())));
+            }
+            return map;
+        }
+    }
+
+    /**
+     * 表单绑定到普通对象，属性和 JSON 一样来自 setter 或字段，值用 ConverterRegistry 转换
+     * 无法转换的属性（例如嵌套对象）在表单中忽略
+     */
+    private class BeanFormBinder extends FormBinder {
+
+        private final Class<?> type;
+
+        private volatile Map<String, FormProperty> properties;
+
+        BeanFormBinder(Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        Object bind(Map<String, List<String>> fields) {
+            Object bean = JsonDeserializer.newInstance(type);
+            Map<String, FormProperty> properties = properties();
+            for (Map.Entry<String, List<String>> field : fields.entrySet()) {
+                FormProperty property = properties.get(field.getKey());
+                if (property != null) {
+                    property.set(bean, property.converter.convert(toArray(field.getValue())));
+                }
+            }
+            return bean;
+        }
+
+        private Map<String, FormProperty> properties() {
+            Map<String, FormProperty> result = properties;
+            if (result != null) {
+                return result;
+            }
+            result = new HashMap<String, FormProperty>();
+            for (Class<?> clazz = type; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+                for (final Field field : clazz.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || Modifier.isTransient(modifiers)
+                            || result.containsKey(field.getName())) {
+                        continue;
+                    }
+                    ConverterRegistry.ValuesConverter converter = converterFor(field.getGenericType());
+                    if (converter == null) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    result.put(field.getName(), new FormProperty(converter) {
+                        @Override
+                        void doSet(Object bean, Object value) throws Exception {
+                            field.set(bean, value);
+                        }
+                    });
+                }
+            }
+            for (final Method method : type.getMethods()) {
+                String name = method.getName();
+                if (Modifier.isStatic(method.getModifiers()) || method.getParameterTypes().length != 1
+                        || !name.startsWith("set") || name.length() == 3) {
+                    continue;
+                }
+                ConverterRegistry.ValuesConverter converter = converterFor(method.getGenericParameterTypes()[0]);
+                if (converter != null) {
+                    result.put(Character.toLowerCase(name.charAt(3)) + name.substring(4), new FormProperty(converter) {
+                        @Override
+                        void doSet(Object bean, Object value) throws Exception {
+                            method.invoke(bean, value);
+                        }
+                    });
+                }
+            }
+            properties = result;
+            return result;
+        }
+
+        private ConverterRegistry.ValuesConverter converterFor(Type type) {
+            try {
+                return converters.resolve(type, "form field");
+            } catch (IllegalStateException e) {
+                return null;
+            }
+        }
+    }
+
+    private abstract static class FormProperty {
+
+        private final ConverterRegistry.ValuesConverter converter;
+
+        FormProperty(ConverterRegistry.ValuesConverter converter) {
+            this.converter = converter;
+        }
+
+        void set(Object bean, Object value) {
+            try {
+                doSet(bean, value);
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Bind form field failed", e);
+            }
+        }
+
+        abstract void doSet(Object bean, Object value) throws Exception;
+    }
+}
@@ -0,0 +1,161 @@
+package com.lucas.spring.init.v2;
+
+import com.lucas.spring.annotation.ZCoalesce;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author zhangfan
+ * @description 合并 @ZCoalesce 方法同时到达的相同请求（single flight）
+ * 以 Handler 和绑定后的参数值作为 key，第一个请求放入正在执行的表后调用方法，执行完成后从表中移除；
+ * 之后到达的相同请求等待它的结果，超过 maxWait 时返回 503 和 Retry-After（coalesceRetryAfter 秒），invokeOnTimeout 时自己执行。
+ * 正在执行的表有大小上限 coalesceMaxInFlight，满了之后新的 key 不再合并，直接执行
+ * @date 2026/10/18 19:00
+ **/
+class RequestCoalescer {
+
+    private final ConcurrentHashMap<Key, CompletableFuture<Object>> inFlight =
+            new ConcurrentHashMap<Key, CompletableFuture<Object>>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final int maxInFlight;
+
+    private final String retryAfter;
+
+    RequestCoalescer(Properties config) {
+        this.maxInFlight = Integer.parseInt(config.getProperty("coalesceMaxInFlight", "10000").trim());
+        this.retryAfter = config.getProperty("coalesceRetryAfter", "1").trim();
+    }
+
+    /**
+     * 检查方法是否可以合并，不能合并时启动失败
+     */
+    static void check(Method method) {
+        if (method.getReturnType() == void.class || method.getReturnType() == Void.class) {
+            throw new IllegalStateException("@" + ZCoalesce.class.getSimpleName()
+                    + " method must return the shared result: " + method);
+        }
+        for (Class<?> type : method.getParameterTypes()) {
+            if (ServletRequest.class.isAssignableFrom(type) || ServletResponse.class.isAssignableFrom(type)) {
+                throw new IllegalStateException("@" + ZCoalesce.class.getSimpleName()
+                        + " method must not take the request or response: " + method);
+            }
+        }
+    }
+
+    /**
+     * 调用方法，GET、HEAD 请求和正在执行的相同请求合并
+     *
+     * @return 等待超时、已经设置 503 时返回 null
+     */
+    Object invoke(HttpServletRequest req, HttpServletResponse resp, Handler handler, Object[] args) throws Exception {
+        String method = req.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return handler.invoker.invoke(handler.getController(), args);
+        }
+        Key key = new Key(handler, args);
+        CompletableFuture<Object> flight = inFlight.get(key);
+        if (flight == null) {
+            // 先占用名额再放入表中，表满时直接执行
+            if (size.incrementAndGet() > maxInFlight) {
+                size.decrementAndGet();
+                return handler.invoker.invoke(handler.getController(), args);
+            }
+            CompletableFuture<Object> created = new CompletableFuture<Object>();
+            flight = inFlight.putIfAbsent(key, created);
+            if (flight == null) {
+                return lead(key, created, handler, args);
+            }
+            size.decrementAndGet();
+        }
+        return follow(flight, resp, handler, args);
+    }
+
+    private Object lead(Key key, CompletableFuture<Object> flight, Handler handler, Object[] args) throws Exception {
+        try {
+            Object result = handler.invoker.invoke(handler.getController(), args);
+            flight.complete(result);
+            return result;
+        } catch (Exception e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } catch (Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+            size.decrementAndGet();
+        }
+    }
+
+    private Object follow(CompletableFuture<Object> flight, HttpServletResponse resp, Handler handler, Object[] args)
+            throws Exception {
+        try {
+            long maxWait = handler.coalesceMaxWait;
+            return maxWait > 0 ? flight.get(maxWait, TimeUnit.MILLISECONDS) : flight.get();
+        } catch (TimeoutException e) {
+            // 等待超时，不再等正在执行的请求
+            if (handler.coalesceInvokeOnTimeout) {
+                return handler.invoker.invoke(handler.getController(), args);
+            }
+            resp.setHeader("Retry-After", retryAfter);
+            resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return null;
+        } catch (ExecutionException e) {
+            // 和第一个请求抛出同样的异常，由各自的异常处理方法处理
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (Exception) cause;
+        }
+    }
+
+    /**
+     * 路由和参数值，参数按 equals 比较，数组按内容比较
+     */
+    private static final class Key {
+
+        private final Handler handler;
+
+        private final Object[] args;
+
+        private final int hash;
+
+        Key(Handler handler, Object[] args) {
+            this.handler = handler;
+            this.args = args;
+            this.hash = 31 * System.identityHashCode(handler) + Arrays.deepHashCode(args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return handler == other.handler && hash == other.hash && Arrays.deepEquals(args, other.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
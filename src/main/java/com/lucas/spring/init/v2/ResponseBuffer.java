@@ -0,0 +1,130 @@
+package com.lucas.spring.init.v2;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @author zhangfan
+ * @description 线程复用的响应缓冲区，返回值先编码到这里，长度确定后一次写入输出流
+ * 每个线程保留一个缓冲区，超过 MAX_RETAINED 的大缓冲区用完就丢弃，避免个别大响应长期占用内存
+ * @date 2026/10/17 21:45
+ **/
+final class ResponseBuffer {
+
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+
+    private static final int MAX_RETAINED = 256 * 1024;
+
+    private static final ThreadLocal<ResponseBuffer> BUFFERS = new ThreadLocal<ResponseBuffer>() {
+        @Override
+        protected ResponseBuffer initialValue() {
+            return new ResponseBuffer();
+        }
+    };
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+
+    private int size;
+
+    private ResponseBuffer() {
+    }
+
+    /**
+     * 获取当前线程的缓冲区，已清空
+     */
+    static ResponseBuffer get() {
+        ResponseBuffer buffer = BUFFERS.get();
+        buffer.size = 0;
+        return buffer;
+    }
+
+    byte[] array() {
+        return bytes;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 写出之后调用，丢弃过大的缓冲区
+     */
+    void release() {
+        size = 0;
+        if (bytes.length > MAX_RETAINED) {
+            bytes = new byte[INITIAL_CAPACITY];
+        }
+    }
+
+    void write(int b) {
+        ensureCapacity(size + 1);
+        bytes[size++] = (byte) b;
+    }
+
+    /**
+     * 保证还能写入 length 个字节，返回底层数组，调用方直接写入后通过 {@link #size(int)} 更新长度
+     */
+    byte[] reserve(int length) {
+        ensureCapacity(size + length);
+        return bytes;
+    }
+
+    void size(int size) {
+        this.size = size;
+    }
+
+    void write(byte[] b, int off, int len) {
+        ensureCapacity(size + len);
+        System.arraycopy(b, off, bytes, size, len);
+        size += len;
+    }
+
+    void write(ByteBuffer b) {
+        int len = b.remaining();
+        ensureCapacity(size + len);
+        // 使用 duplicate，不改变调用方 ByteBuffer 的 position
+        b.duplicate().get(bytes, size, len);
+        size += len;
+    }
+
+    /**
+     * 按 UTF-8 编码字符序列，不经过 CharsetEncoder，也不创建中间的 byte[]
+     */
+    void writeUtf8(CharSequence s) {
+        int length = s.length();
+        // 每个 char 最多编码为 3 个字节，代理对两个 char 编码为 4 个字节
+        ensureCapacity(size + length * 3);
+        byte[] b = bytes;
+        int p = size;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                b[p++] = (byte) c;
+            } else if (c < 0x800) {
+                b[p++] = (byte) (0xC0 | (c >> 6));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                b[p++] = (byte) (0xF0 | (codePoint >> 18));
+                b[p++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                b[p++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符，和 String.getBytes 一样替换为 ?
+                b[p++] = '?';
+            } else {
+                b[p++] = (byte) (0xE0 | (c >> 12));
+                b[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        size = p;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > bytes.length) {
+            byte[] newBytes = new byte[Math.max(capacity, bytes.length * 2)];
+            System.arraycopy(bytes, 0, newBytes, 0, size);
+            bytes = newBytes;
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package com.lucas.spring.init.v2;
+
+import com.lucas.spring.annotation.ZResponseCache;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * @author zhangfan
+ * @description @ZResponseCache 方法的完整响应缓存
+ * 响应体以 byte[] 保存，所有方法共用，按 key 的 hash 分段加锁，每段是按访问顺序排列的 LinkedHashMap，
+ * 总大小超过 responseCacheSize 时淘汰最久未使用的，超过 responseCacheMaxEntrySize 的响应不缓存；过期的条目在读取时删除。
+ * 未命中时方法写入的响应先保存在 CapturingResponse 中，响应头同时写入真正的响应，执行完成后计算 ETag 再一起输出
+ * @date 2026/10/18 20:00
+ **/
+class ResponseCache {
+
+    private static final int SEGMENTS = 16;
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final int maxEntrySize;
+
+    ResponseCache(Properties config) {
+        long maxSize = Long.parseLong(config.getProperty("responseCacheSize", "16777216").trim());
+        this.maxEntrySize = Integer.parseInt(config.getProperty("responseCacheMaxEntrySize", "1048576").trim());
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(maxSize / SEGMENTS);
+        }
+    }
+
+    /**
+     * 单个方法的缓存配置
+     */
+    Policy policy(ZResponseCache annotation) {
+        return new Policy(this, annotation.params(), TimeUnit.SECONDS.toNanos(annotation.ttl()));
+    }
+
+    private Segment segmentFor(String key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * 请求的缓存 key，GET、HEAD 请求共用，HEAD 请求只读取 GET 请求缓存的响应，见 {@link Policy#complete}
+     * 参数值前加上长度，不同的参数组合不会拼出相同的 key
+     */
+    static String keyFor(HttpServletRequest req, String[] params) {
+        String method = req.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(64).append(req.getRequestURI()).append('?');
+        if (params.length == 0) {
+            String query = req.getQueryString();
+            if (query != null) {
+                key.append(query);
+            }
+        } else {
+            for (String name : params) {
+                String[] values = req.getParameterValues(name);
+                key.append(name).append('=');
+                if (values != null) {
+                    for (String value : values) {
+                        key.append(value.length()).append(':').append(value);
+                    }
+                }
+                key.append('&');
+            }
+        }
+        return key.append('|').append(encodingOf(req.getHeader("Accept-Encoding"))).toString();
+    }
+
+    /**
+     * 只区分客户端接受哪种压缩方式，不同浏览器的 Accept-Encoding 写法不同但结果相同时共用同一份缓存，
+     * 和 ResponseCompressor 选择压缩方式的规则一致
+     */
+    private static String encodingOf(String acceptEncoding) {
+        String encoding = ResponseCompressor.negotiate(acceptEncoding);
+        return encoding == null ? "" : encoding;
+    }
+
+    /**
+     * 响应体内容的强 ETag
+     */
+    private static String etagOf(byte[] body, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, length);
+        return "\"" + Integer.toHexString(length) + "-" + Long.toHexString(crc.getValue()) + "\"";
+    }
+
+    private static boolean notModified(HttpServletRequest req, String etag) {
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        return ifNoneMatch != null && ("*".equals(ifNoneMatch.trim()) || ifNoneMatch.contains(etag));
+    }
+
+    /**
+     * 输出响应体，If-None-Match 匹配时返回 304
+     */
+    private static void writeBody(HttpServletRequest req, HttpServletResponse resp, byte[] body, int length,
+                                  String etag) throws IOException {
+        resp.setHeader("ETag", etag);
+        resp.setHeader("Vary", "Accept-Encoding");
+        if (notModified(req, etag)) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        resp.setContentLength(length);
+        if (length > 0) {
+            resp.getOutputStream().write(body, 0, length);
+        }
+    }
+
+    /**
+     * 单个方法的缓存配置，请求时由 ZDispatcherServlet 调用
+     */
+    static class Policy {
+
+        private final ResponseCache cache;
+
+        private final String[] params;
+
+        private final long ttlNanos;
+
+        Policy(ResponseCache cache, String[] params, long ttlNanos) {
+            this.cache = cache;
+            this.params = params;
+            this.ttlNanos = ttlNanos;
+        }
+
+        /**
+         * @return 不缓存的请求返回 null
+         */
+        String keyFor(HttpServletRequest req) {
+            return ResponseCache.keyFor(req, params);
+        }
+
+        /**
+         * 命中时直接输出缓存的响应
+         *
+         * @return 是否命中
+         */
+        boolean serve(String key, HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            Entry entry = cache.segmentFor(key).get(key, System.nanoTime());
+            if (entry == null) {
+                return false;
+            }
+            for (int i = 0; i < entry.headers.length; i += 2) {
+                resp.addHeader(entry.headers[i], entry.headers[i + 1]);
+            }
+            if (entry.contentType != null) {
+                resp.setContentType(entry.contentType);
+            }
+            writeBody(req, resp, entry.body, entry.body.length, entry.etag);
+            return true;
+        }
+
+        CapturingResponse capture(HttpServletResponse resp) {
+            return new CapturingResponse(resp, cache.maxEntrySize);
+        }
+
+        /**
+         * 方法执行完成，可以缓存时放入缓存，再把保存的响应体输出
+         */
+        void complete(String key, HttpServletRequest req, HttpServletResponse resp, CapturingResponse capture)
+                throws IOException {
+            capture.flushWriter();
+            if (capture.passthrough) {
+                // 响应体过大或已经 sendError，内容已经直接输出
+                return;
+            }
+            String etag = etagOf(capture.buffer, capture.size);
+            // HEAD 请求不经过压缩，响应体和 key 中协商的压缩方式不一致，不写入缓存
+            if (capture.cacheable && capture.status == HttpServletResponse.SC_OK && !"HEAD".equals(req.getMethod())) {
+                long expiresAt = ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0;
+                cache.segmentFor(key).put(key, new Entry(resp.getContentType(), capture.headers.toArray(new String[0]),
+                        Arrays.copyOf(capture.buffer, capture.size), etag, expiresAt));
+            }
+            if (capture.status == HttpServletResponse.SC_OK) {
+                writeBody(req, resp, capture.buffer, capture.size, etag);
+            } else {
+                resp.setContentLength(capture.size);
+                resp.getOutputStream().write(capture.buffer, 0, capture.size);
+            }
+        }
+    }
+
+    /**
+     * 缓存的响应，只缓存状态码为 200 的响应
+     */
+    private static class Entry {
+
+        private final String contentType;
+
+        // 名称和值交替保存
+        private final String[] headers;
+
+        private final byte[] body;
+
+        private final String etag;
+
+        // System.nanoTime() 的过期时间，0 表示不过期
+        private final long expiresAt;
+
+        Entry(String contentType, String[] headers, byte[] body, String etag, long expiresAt) {
+            this.contentType = contentType;
+            this.headers = headers;
+            this.body = body;
+            this.etag = etag;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean expired(long now) {
+            return expiresAt != 0 && now - expiresAt >= 0;
+        }
+
+        int weight() {
+            int weight = body.length + 128;
+            for (String header : headers) {
+                weight += header.length() * 2;
+            }
+            return weight;
+        }
+    }
+
+    /**
+     * 按大小限制总量的 LRU 分段
+     */
+    private static class Segment {
+
+        private final long maxWeight;
+
+        private long weight;
+
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(64, 0.75f, true);
+
+        Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
+        synchronized Entry get(String key, long now) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expired(now)) {
+                entries.remove(key);
+                weight -= entry.weight();
+                return null;
+            }
+            return entry;
+        }
+
+        synchronized void put(String key, Entry entry) {
+            if (entry.weight() > maxWeight) {
+                return;
+            }
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                weight -= previous.weight();
+            }
+            weight += entry.weight();
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (weight > maxWeight && iterator.hasNext()) {
+                Entry eldest = iterator.next();
+                if (eldest == entry) {
+                    break;
+                }
+                weight -= eldest.weight();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 保存方法写入的响应体，响应头同时写入真正的响应并记录下来
+     * 响应体超过 maxSize 时不再缓存，已经保存的内容写出后改为直接输出
+     */
+    static class CapturingResponse extends HttpServletResponseWrapper {
+
+        private final int maxSize;
+
+        // 名称和值交替保存
+        private final List<String> headers = new ArrayList<String>();
+
+        private final ServletOutputStream outputStream = new CaptureOutputStream();
+
+        private byte[] buffer = new byte[1024];
+
+        private int size;
+
+        private int status = HttpServletResponse.SC_OK;
+
+        private long contentLength = -1;
+
+        private boolean cacheable = true;
+
+        // 是否已经改为直接输出
+        private boolean passthrough;
+
+        private PrintWriter writer;
+
+        CapturingResponse(HttpServletResponse response, int maxSize) {
+            super(response);
+            this.maxSize = maxSize;
+        }
+
+        private void record(String name, String value, boolean add) {
+            // 内容类型单独保存，长度以实际内容为准
+            if ("Content-Type".equalsIgnoreCase(name) || "Content-Length".equalsIgnoreCase(name)) {
+                return;
+            }
+            if ("Set-Cookie".equalsIgnoreCase(name)) {
+                cacheable = false;
+            } else if ("Cache-Control".equalsIgnoreCase(name)) {
+                String lower = value.toLowerCase(Locale.ROOT);
+                if (lower.contains("no-store") || lower.contains("private") || lower.contains("no-cache")) {
+                    cacheable = false;
+                }
+            }
+            if (!add) {
+                for (int i = headers.size() - 2; i >= 0; i -= 2) {
+                    if (headers.get(i).equalsIgnoreCase(name)) {
+                        headers.remove(i + 1);
+                        headers.remove(i);
+                    }
+                }
+            }
+            headers.add(name);
+            headers.add(value);
+        }
+
+        /**
+         * 缓存的内容不完整，改为直接输出
+         */
+        private void passthrough() throws IOException {
+            passthrough = true;
+            cacheable = false;
+            if (contentLength >= 0) {
+                super.setContentLengthLong(contentLength);
+            }
+            if (size > 0) {
+                super.getOutputStream().write(buffer, 0, size);
+                size = 0;
+            }
+        }
+
+        void flushWriter() {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (value != null) {
+                record(name, value, false);
+            }
+            super.setHeader(name, value);
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (value != null) {
+                record(name, value, true);
+            }
+            super.addHeader(name, value);
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            setHeader(name, String.valueOf(value));
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            addHeader(name, String.valueOf(value));
+        }
+
+        @Override
+        public void setDateHeader(String name, long date) {
+            setHeader(name, DATE_FORMAT.format(Instant.ofEpochMilli(date)));
+        }
+
+        @Override
+        public void addDateHeader(String name, long date) {
+            addHeader(name, DATE_FORMAT.format(Instant.ofEpochMilli(date)));
+        }
+
+        @Override
+        public void addCookie(Cookie cookie) {
+            cacheable = false;
+            super.addCookie(cookie);
+        }
+
+        @Override
+        public void setStatus(int sc) {
+            this.status = sc;
+            super.setStatus(sc);
+        }
+
+        @Override
+        @Deprecated
+        public void setStatus(int sc, String sm) {
+            setStatus(sc);
+        }
+
+        @Override
+        public int getStatus() {
+            return status;
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            status = sc;
+            passthrough();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            status = sc;
+            passthrough();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            status = HttpServletResponse.SC_FOUND;
+            passthrough();
+            super.sendRedirect(location);
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            setContentLengthLong(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            // 缓存时以实际内容的长度为准
+            contentLength = len;
+            if (passthrough) {
+                super.setContentLengthLong(len);
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()), false);
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            flushWriter();
+            if (passthrough) {
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            if (passthrough) {
+                super.resetBuffer();
+            }
+            size = 0;
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            headers.clear();
+            status = HttpServletResponse.SC_OK;
+            contentLength = -1;
+            cacheable = true;
+            size = 0;
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return passthrough && super.isCommitted();
+        }
+
+        private class CaptureOutputStream extends ServletOutputStream {
+
+            private final byte[] single = new byte[1];
+
+            @Override
+            public void write(int b) throws IOException {
+                single[0] = (byte) b;
+                write(single, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (!passthrough && size + len > maxSize) {
+                    passthrough();
+                }
+                if (passthrough) {
+                    CapturingResponse.super.getOutputStream().write(b, off, len);
+                    return;
+                }
+                if (size + len > buffer.length) {
+                    buffer = Arrays.copyOf(buffer, Math.min(Math.max(buffer.length * 2, size + len), maxSize));
+                }
+                System.arraycopy(b, off, buffer, size, len);
+                size += len;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                throw new IllegalStateException("Non-blocking IO is not supported when the response is cached");
+            }
+        }
+    }
+}
@@ -0,0 +1,536 @@
+package com.lucas.spring.init.v2;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * @author zhangfan
+ * @description 响应压缩，按请求的 Accept-Encoding 选择 gzip 或 deflate，静态资源和方法的响应都经过这里
+ * 已知长度（设置了 Content-Length）时在第一次写入前就决定是否压缩，未知长度时最多缓冲 compressionMinSize 个字节，
+ * 不足这个大小的响应原样输出；压缩时边写入边输出，不缓冲整个响应体。
+ * Deflater 占用本地内存，和输出缓冲区一起放在池中复用，gzip 的文件头和 CRC 校验由这里写出，Deflater 使用 nowrap 模式
+ * @date 2026/10/18 21:00
+ **/
+class ResponseCompressor {
+
+    private static final String GZIP = "gzip";
+
+    private static final String DEFLATE = "deflate";
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private final int minSize;
+
+    private final String[] mimeTypes;
+
+    private final CompressorPool gzipPool;
+
+    private final CompressorPool deflatePool;
+
+    private ResponseCompressor(Properties config) {
+        this.minSize = Integer.parseInt(config.getProperty("compressionMinSize", "1024").trim());
+        this.mimeTypes = config.getProperty("compressionMimeTypes",
+                "text/html,text/plain,text/css,text/xml,text/javascript,application/json,application/javascript,"
+                        + "application/xml,image/svg+xml").trim().split("\\s*,\\s*");
+        int level = Integer.parseInt(config.getProperty("compressionLevel", "6").trim());
+        int poolSize = Integer.parseInt(config.getProperty("compressionPoolSize", "0").trim());
+        if (poolSize <= 0) {
+            poolSize = Runtime.getRuntime().availableProcessors() * 2;
+        }
+        this.gzipPool = new CompressorPool(level, true, poolSize);
+        this.deflatePool = new CompressorPool(level, false, poolSize);
+    }
+
+    /**
+     * @return 没有开启压缩时返回 null
+     */
+    static ResponseCompressor create(Properties config) {
+        boolean enabled = "true".equalsIgnoreCase(config.getProperty("compressionEnabled", "false").trim());
+        return enabled ? new ResponseCompressor(config) : null;
+    }
+
+    /**
+     * 客户端接受压缩时包装响应
+     *
+     * @return 不接受压缩时返回原来的响应
+     */
+    HttpServletResponse wrap(HttpServletRequest req, HttpServletResponse resp) {
+        String encoding = negotiate(req.getHeader("Accept-Encoding"));
+        if (encoding == null || "HEAD".equals(req.getMethod())) {
+            return resp;
+        }
+        return new CompressingResponse(resp, this, encoding);
+    }
+
+    /**
+     * 结束压缩输出，写出剩余的内容和 gzip 的校验信息
+     */
+    static void finish(HttpServletResponse resp) throws IOException {
+        if (resp instanceof CompressingResponse) {
+            ((CompressingResponse) resp).finish();
+        }
+    }
+
+    /**
+     * gzip 优先
+     *
+     * @return 都不接受时返回 null
+     */
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        if (accepts(acceptEncoding, GZIP)) {
+            return GZIP;
+        }
+        return accepts(acceptEncoding, DEFLATE) ? DEFLATE : null;
+    }
+
+    /**
+     * 客户端是否接受这种压缩方式，q=0 表示不接受，没有列出时看 *
+     */
+    static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        double any = 0;
+        for (String part : acceptEncoding.split(",")) {
+            int semicolon = part.indexOf(';');
+            String name = (semicolon < 0 ? part : part.substring(0, semicolon)).trim();
+            double quality = semicolon < 0 ? 1 : qualityOf(part.substring(semicolon + 1));
+            if (name.equalsIgnoreCase(coding) || (GZIP.equals(coding) && name.equalsIgnoreCase("x-gzip"))) {
+                return quality > 0;
+            }
+            if ("*".equals(name)) {
+                any = quality;
+            }
+        }
+        return any > 0;
+    }
+
+    private static double qualityOf(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private boolean compressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String lower = contentType.toLowerCase(Locale.ROOT);
+        for (String mimeType : mimeTypes) {
+            if (lower.startsWith(mimeType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 池中的压缩器，Deflater 和输出缓冲区一起复用
+     */
+    private static class Compressor {
+
+        private final Deflater deflater;
+
+        private final byte[] buffer = new byte[8192];
+
+        private final CRC32 crc = new CRC32();
+
+        Compressor(int level, boolean nowrap) {
+            this.deflater = new Deflater(level, nowrap);
+        }
+
+        void reset() {
+            deflater.reset();
+            crc.reset();
+        }
+    }
+
+    private static class CompressorPool {
+
+        private final int level;
+
+        private final boolean nowrap;
+
+        private final ArrayBlockingQueue<Compressor> idle;
+
+        CompressorPool(int level, boolean nowrap, int size) {
+            this.level = level;
+            this.nowrap = nowrap;
+            this.idle = new ArrayBlockingQueue<Compressor>(size);
+        }
+
+        Compressor acquire() {
+            Compressor compressor = idle.poll();
+            return compressor != null ? compressor : new Compressor(level, nowrap);
+        }
+
+        void release(Compressor compressor) {
+            compressor.reset();
+            // 池满时立即释放本地内存，不等 GC
+            if (!idle.offer(compressor)) {
+                compressor.deflater.end();
+            }
+        }
+    }
+
+    /**
+     * 压缩的响应，写入的内容在确定是否压缩之前先缓冲，之后直接压缩或原样写出
+     */
+    static class CompressingResponse extends HttpServletResponseWrapper {
+
+        private static final int UNDECIDED = 0;
+
+        private static final int IDENTITY = 1;
+
+        private static final int COMPRESS = 2;
+
+        private final ResponseCompressor owner;
+
+        private final String encoding;
+
+        private final ServletOutputStream outputStream = new CompressingOutputStream();
+
+        private int state = UNDECIDED;
+
+        // 应用设置的 Content-Length，压缩时不输出
+        private long contentLength = -1;
+
+        // 应用自己设置了 Content-Encoding，例如预压缩的静态资源
+        private boolean encoded;
+
+        // 决定是否压缩之前缓冲的内容
+        private byte[] pending;
+
+        private int pendingSize;
+
+        private Compressor compressor;
+
+        // gzip 文件头是否已经写出
+        private boolean started;
+
+        private long inputSize;
+
+        private PrintWriter writer;
+
+        private boolean finished;
+
+        CompressingResponse(HttpServletResponse response, ResponseCompressor owner, String encoding) {
+            super(response);
+            this.owner = owner;
+            this.encoding = encoding;
+        }
+
+        /**
+         * 根据状态码、内容类型和长度决定是否压缩
+         */
+        private void decide(long length) {
+            int status = getStatus();
+            boolean compress = !encoded && length >= owner.minSize && status >= 200
+                    && status != SC_NO_CONTENT && status != SC_PARTIAL_CONTENT && status != SC_NOT_MODIFIED
+                    && owner.compressible(getContentType()) && !noTransform();
+            if (!compress) {
+                state = IDENTITY;
+                if (contentLength >= 0) {
+                    super.setContentLengthLong(contentLength);
+                }
+                return;
+            }
+            state = COMPRESS;
+            super.setHeader("Content-Encoding", encoding);
+            String vary = getHeader("Vary");
+            if (vary == null) {
+                super.setHeader("Vary", "Accept-Encoding");
+            } else if (!vary.toLowerCase(Locale.ROOT).contains("accept-encoding")) {
+                super.setHeader("Vary", vary + ", Accept-Encoding");
+            }
+            // 压缩后内容不同，强 ETag 改为弱 ETag
+            String etag = getHeader("ETag");
+            if (etag != null && etag.startsWith("\"")) {
+                super.setHeader("ETag", "W/" + etag);
+            }
+            compressor = (GZIP.equals(encoding) ? owner.gzipPool : owner.deflatePool).acquire();
+        }
+
+        private boolean noTransform() {
+            String cacheControl = getHeader("Cache-Control");
+            return cacheControl != null && cacheControl.toLowerCase(Locale.ROOT).contains("no-transform");
+        }
+
+        private void write(byte[] b, int off, int len) throws IOException {
+            if (finished) {
+                return;
+            }
+            if (state == UNDECIDED) {
+                if (contentLength >= 0) {
+                    decide(contentLength);
+                } else if (pendingSize + len < owner.minSize) {
+                    if (pending == null) {
+                        pending = new byte[owner.minSize];
+                    }
+                    System.arraycopy(b, off, pending, pendingSize, len);
+                    pendingSize += len;
+                    return;
+                } else {
+                    decide(Long.MAX_VALUE);
+                    writePending();
+                }
+            }
+            if (state == IDENTITY) {
+                super.getOutputStream().write(b, off, len);
+            } else {
+                deflate(b, off, len);
+            }
+        }
+
+        private void writePending() throws IOException {
+            if (pendingSize == 0) {
+                return;
+            }
+            int size = pendingSize;
+            pendingSize = 0;
+            if (state == IDENTITY) {
+                super.getOutputStream().write(pending, 0, size);
+            } else {
+                deflate(pending, 0, size);
+            }
+        }
+
+        private void deflate(byte[] b, int off, int len) throws IOException {
+            ServletOutputStream out = super.getOutputStream();
+            if (!started) {
+                started = true;
+                if (GZIP.equals(encoding)) {
+                    out.write(GZIP_HEADER);
+                }
+            }
+            Deflater deflater = compressor.deflater;
+            compressor.crc.update(b, off, len);
+            inputSize += len;
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                int n = deflater.deflate(compressor.buffer, 0, compressor.buffer.length, Deflater.NO_FLUSH);
+                if (n > 0) {
+                    out.write(compressor.buffer, 0, n);
+                }
+            }
+        }
+
+        /**
+         * 把 Deflater 中已经压缩的内容全部输出，客户端可以立即解压已经写入的部分
+         */
+        private void syncFlush() throws IOException {
+            if (state != COMPRESS || !started) {
+                return;
+            }
+            Deflater deflater = compressor.deflater;
+            ServletOutputStream out = super.getOutputStream();
+            int n;
+            do {
+                n = deflater.deflate(compressor.buffer, 0, compressor.buffer.length, Deflater.SYNC_FLUSH);
+                out.write(compressor.buffer, 0, n);
+            } while (n == compressor.buffer.length);
+        }
+
+        /**
+         * 响应结束，未决定时按缓冲的大小决定，压缩时写出剩余内容和 gzip 尾部
+         */
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (state == UNDECIDED) {
+                decide(pendingSize);
+                if (state == IDENTITY && contentLength < 0) {
+                    super.setContentLength(pendingSize);
+                }
+                writePending();
+            }
+            if (state != COMPRESS) {
+                return;
+            }
+            try {
+                if (!started) {
+                    deflate(pending == null ? new byte[0] : pending, 0, 0);
+                }
+                Deflater deflater = compressor.deflater;
+                ServletOutputStream out = super.getOutputStream();
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(compressor.buffer, 0, compressor.buffer.length);
+                    out.write(compressor.buffer, 0, n);
+                }
+                if (GZIP.equals(encoding)) {
+                    byte[] trailer = compressor.buffer;
+                    writeIntLE(trailer, 0, (int) compressor.crc.getValue());
+                    writeIntLE(trailer, 4, (int) inputSize);
+                    out.write(trailer, 0, 8);
+                }
+            } finally {
+                releaseCompressor();
+            }
+        }
+
+        private void releaseCompressor() {
+            if (compressor != null) {
+                (GZIP.equals(encoding) ? owner.gzipPool : owner.deflatePool).release(compressor);
+                compressor = null;
+            }
+        }
+
+        private static void writeIntLE(byte[] b, int off, int value) {
+            b[off] = (byte) value;
+            b[off + 1] = (byte) (value >>> 8);
+            b[off + 2] = (byte) (value >>> 16);
+            b[off + 3] = (byte) (value >>> 24);
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            setContentLengthLong(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            // 决定是否压缩之前不设置，压缩后长度未知
+            contentLength = len;
+            if (state == IDENTITY) {
+                super.setContentLengthLong(len);
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if ("Content-Length".equalsIgnoreCase(name)) {
+                setContentLengthLong(value == null ? -1 : Long.parseLong(value.trim()));
+                return;
+            }
+            if ("Content-Encoding".equalsIgnoreCase(name)) {
+                encoded = value != null;
+            }
+            super.setHeader(name, value);
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if ("Content-Length".equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value.trim()));
+                return;
+            }
+            if ("Content-Encoding".equalsIgnoreCase(name)) {
+                encoded = true;
+            }
+            super.addHeader(name, value);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()), false);
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (state == UNDECIDED) {
+                // 要求立即输出时不再等待更多内容
+                decide(contentLength >= 0 ? contentLength : Long.MAX_VALUE);
+                writePending();
+            }
+            syncFlush();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            pendingSize = 0;
+            if (state == COMPRESS) {
+                // 已经设置了 Content-Encoding，重新开始压缩
+                compressor.reset();
+                started = false;
+                inputSize = 0;
+            }
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            pendingSize = 0;
+            contentLength = -1;
+            encoded = false;
+            releaseCompressor();
+            started = false;
+            inputSize = 0;
+            state = UNDECIDED;
+        }
+
+        private class CompressingOutputStream extends ServletOutputStream {
+
+            private final byte[] single = new byte[1];
+
+            @Override
+            public void write(int b) throws IOException {
+                single[0] = (byte) b;
+                CompressingResponse.this.write(single, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                CompressingResponse.this.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (state != UNDECIDED) {
+                    syncFlush();
+                    CompressingResponse.super.getOutputStream().flush();
+                }
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                throw new IllegalStateException("Non-blocking IO is not supported when the response is compressed");
+            }
+        }
+    }
+}
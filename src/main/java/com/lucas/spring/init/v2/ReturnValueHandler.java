@@ -0,0 +1,234 @@
+package com.lucas.spring.init.v2;
+
+import com.lucas.spring.annotation.ZResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author zhangfan
+ * @description 返回值处理器，启动时按方法的返回类型选好处理器，请求时直接调用
+ * 字符串、byte[]、ByteBuffer 先写入线程复用的缓冲区，设置 Content-Length 后通过 getOutputStream() 一次写出，
+ * 容器不需要再使用 chunked 编码；ZStreamingBody 直接写入输出流；返回类型不确定（例如 Object）时按实际类型选择；
+ * 加了 @ZResponseBody 的方法，其他类型的返回值序列化为 JSON
+ * @date 2026/10/17 21:50
+ **/
+abstract class ReturnValueHandler {
+
+    static final String TEXT_PLAIN = "text/plain;charset=UTF-8";
+
+    static final String OCTET_STREAM = "application/octet-stream";
+
+    static final String APPLICATION_JSON = "application/json;charset=UTF-8";
+
+    /**
+     * 输出返回值
+     *
+     * @param returnValue 方法返回值，不为 null
+     * @param req         请求
+     * @param resp        响应
+     * @throws Exception
+     */
+    abstract void handle(Object returnValue, HttpServletRequest req, HttpServletResponse resp) throws Exception;
+
+    /**
+     * 根据方法的返回类型选择处理器
+     */
+    static ReturnValueHandler compile(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == void.class || type == Void.class) {
+            return VOID;
+        }
+        ReturnValueHandler handler = forType(type);
+        if (method.isAnnotationPresent(ZResponseBody.class) || method.getDeclaringClass().isAnnotationPresent(ZResponseBody.class)) {
+            // 字符串和字节类型仍然原样输出，其他类型序列化为 JSON
+            if (handler == TO_STRING) {
+                return JSON;
+            }
+            if (handler == null) {
+                return JSON_DYNAMIC;
+            }
+        }
+        return handler != null ? handler : DYNAMIC;
+    }
+
+    private static ReturnValueHandler forType(Class<?> type) {
+        if (type == byte[].class) {
+            return BYTES;
+        }
+        if (ByteBuffer.class.isAssignableFrom(type)) {
+            return BYTE_BUFFER;
+        }
+        if (ZStreamingBody.class.isAssignableFrom(type)) {
+            return STREAMING;
+        }
+        if (CharSequence.class.isAssignableFrom(type)) {
+            return CHARS;
+        }
+        // 返回类型是 Object 或接口时，实际类型只有运行时才知道
+        if (type == Object.class || type.isInterface()) {
+            return null;
+        }
+        return TO_STRING;
+    }
+
+    private static final ReturnValueHandler VOID = new ReturnValueHandler() {
+        @Override
+        void handle(Object returnValue, HttpServletRequest req, HttpServletResponse resp) {
+        }
+    };
+
+    private static final ReturnValueHandler CHARS = new ReturnValueHandler() {
+        @Override
+        void handle(Object returnValue, HttpServletRequest req, HttpServletResponse resp) throws Exception {
+            writeChars((CharSequence) returnValue, resp);
+        }
+    };
+
+    private static final ReturnValueHandler TO_STRING = new ReturnValueHandler() {
+        @Override
+        void handle(Object returnValue, HttpServletRequest req, HttpServletResponse resp) throws Exception {
+            writeChars(returnValue.toString(), resp);
+        }
+    };
+
+    private static final ReturnValueHandler BYTES = new ReturnValueHandler() {
+        @Override
+        void handle(Object returnValue, HttpServletRequest req, HttpServletResponse resp) throws Exception {
+            byte[] bytes = (byte[]) returnValue;
+            // 已经是完整的 byte[]，不需要再复制到缓冲区
+            defaultContentType(resp, OCTET_STREAM);
+            resp.setContentLength(bytes.length);
+            resp.getOutputStream().write(bytes, 0, bytes.length);
+        }
+    };
+
+    private static final ReturnValueHandler BYTE_BUFFER = new ReturnValueHandler() {
+        @Override
+        void handle(Object returnValue, HttpServletRequest req, HttpServletResponse resp) throws Exception {
+            ByteBuffer buffer = (ByteBuffer) returnValue;
+            defaultContentType(resp, OCTET_STREAM);
+            resp.setContentLength(buffer.remaining());
+            if (buffer.hasArray()) {
+                resp.getOutputStream().write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                return;
+            }
+            // 直接内存先复制到线程复用的缓冲区
+            ResponseBuffer out = ResponseBuffer.get();
+            try {
+                out.write(buffer);
+                resp.getOutputStream().write(out.array(), 0, out.size());
+            } finally {
+                out.release();
+            }
+        }
+    };
+
+    private static final ReturnValueHandler STREAMING = new ReturnValueHandler() {
+        @Override
+        void handle(Object returnValue, HttpServletRequest req, HttpServletResponse resp) throws Exception {
+            defaultContentType(resp, OCTET_STREAM);
+            ((ZStreamingBody) returnValue).writeTo(resp.getOutputStream());
+        }
+    };
+
+    /**
+     * 按返回值的实际类型选择处理器，每个类型只判断一次
+     */
+    private static final ReturnValueHandler DYNAMIC = new ReturnValueHandler() {
+
+        private final ClassValue<ReturnValueHandler> handlers = new ClassValue<ReturnValueHandler>() {
+            @Override
+            protected ReturnValueHandler computeValue(Class<?> type) {
+                ReturnValueHandler handler = forType(type);
+                return handler != null ? handler : TO_STRING;
+            }
+        };
+
+        @Override
+        void handle(Object returnValue, HttpServletRequest req, HttpServletResponse resp) throws Exception {
+            handlers.get(returnValue.getClass()).handle(returnValue, req, resp);
+        }
+    };
+
+    private static final ReturnValueHandler JSON = new ReturnValueHandler() {
+        @Override
+        void handle(Object returnValue, HttpServletRequest req, HttpServletResponse resp) throws Exception {
+            defaultContentType(resp, APPLICATION_JSON);
+            ResponseBuffer buffer = ResponseBuffer.get();
+            try {
+                JsonOutput out = new JsonOutput(buffer, resp);
+                JsonSerializer.write(returnValue, out);
+                out.finish();
+            } finally {
+                buffer.release();
+            }
+        }
+    };
+
+    /**
+     * 返回类型不确定时，字符串和字节类型原样输出，其他类型序列化为 JSON
+     */
+    private static final ReturnValueHandler JSON_DYNAMIC = new ReturnValueHandler() {
+
+        private final ClassValue<ReturnValueHandler> handlers = new ClassValue<ReturnValueHandler>() {
+            @Override
+            protected ReturnValueHandler computeValue(Class<?> type) {
+                ReturnValueHandler handler = forType(type);
+                return handler != null && handler != TO_STRING ? handler : JSON;
+            }
+        };
+
+        @Override
+        void handle(Object returnValue, HttpServletRequest req, HttpServletResponse resp) throws Exception {
+            handlers.get(returnValue.getClass()).handle(returnValue, req, resp);
+        }
+    };
+
+    /**
+     * 编码字符序列并写出，没有指定 Content-Type 时按 text/plain;charset=UTF-8 输出
+     */
+    static void writeChars(CharSequence chars, HttpServletResponse resp) throws Exception {
+        defaultContentType(resp, TEXT_PLAIN);
+        Charset charset = charsetOf(resp);
+        if (charset != StandardCharsets.UTF_8) {
+            byte[] bytes = chars.toString().getBytes(charset);
+            resp.setContentLength(bytes.length);
+            resp.getOutputStream().write(bytes, 0, bytes.length);
+            return;
+        }
+        ResponseBuffer out = ResponseBuffer.get();
+        try {
+            out.writeUtf8(chars);
+            write(out, resp);
+        } finally {
+            out.release();
+        }
+    }
+
+    /**
+     * 设置 Content-Length 后把缓冲区一次写出
+     */
+    static void write(ResponseBuffer out, HttpServletResponse resp) throws Exception {
+        resp.setContentLength(out.size());
+        resp.getOutputStream().write(out.array(), 0, out.size());
+    }
+
+    static void defaultContentType(HttpServletResponse resp, String contentType) {
+        if (resp.getContentType() == null) {
+            resp.setContentType(contentType);
+        }
+    }
+
+    private static Charset charsetOf(HttpServletResponse resp) {
+        String encoding = resp.getCharacterEncoding();
+        if (encoding == null || "UTF-8".equalsIgnoreCase(encoding)) {
+            return StandardCharsets.UTF_8;
+        }
+        return Charset.forName(encoding);
+    }
+}
@@ -0,0 +1,327 @@
+package com.lucas.spring.init.v2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author zhangfan
+ * @description 基于路径分段的前缀树路由
+ * 启动时一次性构建，请求时按 / 分段逐级匹配：
+ * 字面量路径不走正则，也不创建新的 String，只有真正包含正则语法的路由才放到兜底列表中逐个匹配；
+ * 支持 {name} 和 {name:regex} 形式的路径变量，匹配到的变量只记录在 URI 中的起止位置；
+ * \d+、[0-9]+ 这类只有数字的约束逐个字符判断，其他约束使用每个线程复用的 Matcher，匹配时不创建对象
+ * @date 2026/10/17 10:12
+ **/
+class Router<T> {
+
+    // 正则元字符，路径中出现这些字符时才认为需要正则匹配（. 在路径中太常见，按字面量处理）
+    private static final String REGEX_CHARS = "\\[](){}*+?|^$";
+
+    // 等价于“一个或多个 ASCII 数字”的约束，分段不会为空，* 和 + 没有区别
+    private static final String[] DIGIT_CONSTRAINTS = {"\\d+", "\\d*", "[0-9]+", "[0-9]*"};
+
+    // 字面量路由的根节点
+    private final Node<T> root = new Node<T>("", null);
+
+    // 需要正则匹配的路由，只在前缀树匹配失败时才会使用
+    private final List<RegexRoute<T>> regexRoutes = new ArrayList<RegexRoute<T>>();
+
+    // 所有路由中路径变量的最大个数，用来确定保存变量位置的数组大小
+    private int maxVariables;
+
+    /**
+     * 注册路由
+     *
+     * @param path   完整的请求路径，可以是字面量、路径模板或者正则
+     * @param target 路径对应的目标
+     */
+    void add(String path, T target) {
+        List<String> segments = split(path);
+        int variables = 0;
+        boolean regex = false;
+        for (String segment : segments) {
+            if (isVariable(segment)) {
+                variables++;
+            } else if (isRegex(segment)) {
+                regex = true;
+            }
+        }
+        if (regex) {
+            if (variables > 0) {
+                throw new IllegalStateException("The “" + path + "” mixes path variables with regex!!");
+            }
+            regexRoutes.add(new RegexRoute<T>(Pattern.compile(path.replaceAll("/+", "/")), target));
+            return;
+        }
+
+        Node<T> node = root;
+        int index = 0;
+        for (String segment : segments) {
+            if (isVariable(segment)) {
+                node = node.getOrAddVariable(variableRegex(segment), index++);
+            } else {
+                node = node.getOrAddChild(segment);
+            }
+        }
+        if (node.target != null) {
+            throw new IllegalStateException("The “" + path + "” is mapped more than once!!");
+        }
+        node.target = target;
+        maxVariables = Math.max(maxVariables, variables);
+    }
+
+    /**
+     * 保存路径变量位置需要的数组长度，每个变量占两位：起始位置和结束位置
+     */
+    int captureLength() {
+        return maxVariables * 2;
+    }
+
+    /**
+     * 匹配请求路径
+     *
+     * @param uri      请求的完整 URI
+     * @param from     从哪个位置开始匹配，一般是 contextPath 的长度
+     * @param captures 保存路径变量在 uri 中的起止位置，长度至少为 {@link #captureLength()}
+     * @return 匹配到的目标，没有匹配到返回 null
+     */
+    T match(String uri, int from, int[] captures) {
+        T target = match(root, uri, from, captures);
+        if (target != null) {
+            return target;
+        }
+        return matchRegex(uri, from);
+    }
+
+    private T match(Node<T> node, String uri, int i, int[] captures) {
+        int length = uri.length();
+        // 跳过连续的 /，相当于 replaceAll("/+", "/")
+        while (i < length && uri.charAt(i) == '/') {
+            i++;
+        }
+        if (i == length) {
+            return node.target;
+        }
+        // 一边找分段结尾一边计算 hash，和 String.hashCode() 的算法保持一致
+        int hash = 0;
+        int end = i;
+        char c;
+        while (end < length && (c = uri.charAt(end)) != '/') {
+            hash = 31 * hash + c;
+            end++;
+        }
+        // 字面量优先，匹配不上再尝试路径变量
+        Node<T> child = node.findChild(uri, i, end - i, hash);
+        if (child != null) {
+            T target = match(child, uri, end, captures);
+            if (target != null) {
+                return target;
+            }
+        }
+        for (Node<T> variable : node.variables) {
+            if (!variable.accepts(uri, i, end)) {
+                continue;
+            }
+            T target = match(variable, uri, end, captures);
+            if (target != null) {
+                captures[variable.index * 2] = i;
+                captures[variable.index * 2 + 1] = end;
+                return target;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 正则兜底匹配，只有存在正则路由时才会构造规范化后的路径
+     */
+    private T matchRegex(String uri, int from) {
+        if (regexRoutes.isEmpty()) {
+            return null;
+        }
+        String url = uri.substring(from).replaceAll("/+", "/");
+        for (RegexRoute<T> route : regexRoutes) {
+            if (route.pattern.matcher(url).matches()) {
+                return route.target;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按顺序取出路径模板中的变量名
+     *
+     * @param path 路径模板，例如 /user/{id}/{tab:\w+}
+     * @return 变量名列表，例如 [id, tab]
+     */
+    static List<String> variableNames(String path) {
+        List<String> names = new ArrayList<String>();
+        for (String segment : split(path)) {
+            if (!isVariable(segment)) {
+                continue;
+            }
+            String body = segment.substring(1, segment.length() - 1);
+            int colon = body.indexOf(':');
+            names.add((colon < 0 ? body : body.substring(0, colon)).trim());
+        }
+        return names;
+    }
+
+    private static List<String> split(String path) {
+        List<String> segments = new ArrayList<String>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    static boolean isVariable(String segment) {
+        return segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}';
+    }
+
+    private static String variableRegex(String segment) {
+        int colon = segment.indexOf(':');
+        return colon < 0 ? null : segment.substring(colon + 1, segment.length() - 1);
+    }
+
+    static boolean isRegex(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            if (REGEX_CHARS.indexOf(segment.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Node<T> {
+        // 当前节点对应的路径分段，变量节点为 {regex} 形式，只用来区分不同的约束
+        private final String segment;
+        // 分段的 hash，匹配时先比较 hash 再比较字符
+        private final int hash;
+        // 变量节点的正则约束，没有约束时为 null
+        private final Pattern constraint;
+        // 约束只允许数字时不使用正则
+        private final boolean digits;
+        // 其他约束每个线程复用一个 Matcher，没有约束或者只允许数字时为 null
+        private final ThreadLocal<Matcher> matchers;
+        // 变量节点在路径变量中的序号
+        private int index;
+        // 字面量子节点，路由数量有限，数组比 Map 更紧凑，也不需要为查找创建 key
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Node<T>[] children = new Node[0];
+        // 变量子节点，有正则约束的排在前面
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Node<T>[] variables = new Node[0];
+        // 路径结束于当前节点时对应的目标
+        private T target;
+
+        Node(String segment, String regex) {
+            this.segment = segment;
+            this.hash = segment.hashCode();
+            this.constraint = regex == null ? null : Pattern.compile(regex);
+            this.digits = isDigits(regex);
+            this.matchers = constraint == null || digits ? null : new ThreadLocal<Matcher>() {
+                @Override
+                protected Matcher initialValue() {
+                    return constraint.matcher("");
+                }
+            };
+        }
+
+        private static boolean isDigits(String regex) {
+            for (String digits : DIGIT_CONSTRAINTS) {
+                if (digits.equals(regex)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 路径变量的约束是否接受 uri 中 [start, end) 的分段，分段不为空
+         */
+        boolean accepts(String uri, int start, int end) {
+            if (constraint == null) {
+                return true;
+            }
+            if (digits) {
+                for (int i = start; i < end; i++) {
+                    char c = uri.charAt(i);
+                    if (c < '0' || c > '9') {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            Matcher matcher = matchers.get();
+            boolean matches = matcher.reset(uri).region(start, end).matches();
+            // 不再引用请求的 URI
+            matcher.reset("");
+            return matches;
+        }
+
+        Node<T> findChild(String uri, int offset, int length, int hash) {
+            for (Node<T> child : children) {
+                if (child.hash == hash && child.segment.length() == length
+                        && uri.regionMatches(offset, child.segment, 0, length)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        Node<T> getOrAddChild(String segment) {
+            Node<T> child = findChild(segment, 0, segment.length(), segment.hashCode());
+            if (child != null) {
+                return child;
+            }
+            child = new Node<T>(segment, null);
+            children = append(children, child, children.length);
+            return child;
+        }
+
+        Node<T> getOrAddVariable(String regex, int index) {
+            String key = "{" + (regex == null ? "" : regex) + "}";
+            for (Node<T> variable : variables) {
+                if (variable.segment.equals(key)) {
+                    return variable;
+                }
+            }
+            Node<T> variable = new Node<T>(key, regex);
+            variable.index = index;
+            // 有约束的变量插到无约束变量之前，保证 {id:\d+} 比 {name} 先尝试
+            int position = variables.length;
+            if (regex != null) {
+                position = 0;
+                while (position < variables.length && variables[position].constraint != null) {
+                    position++;
+                }
+            }
+            variables = append(variables, variable, position);
+            return variable;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <T> Node<T>[] append(Node<T>[] nodes, Node<T> node, int position) {
+            Node<T>[] result = new Node[nodes.length + 1];
+            System.arraycopy(nodes, 0, result, 0, position);
+            result[position] = node;
+            System.arraycopy(nodes, position, result, position + 1, nodes.length - position);
+            return result;
+        }
+    }
+
+    private static class RegexRoute<T> {
+        private final Pattern pattern;
+        private final T target;
+
+        RegexRoute(Pattern pattern, T target) {
+            this.pattern = pattern;
+            this.target = target;
+        }
+    }
+}
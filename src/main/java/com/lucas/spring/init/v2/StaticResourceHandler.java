@@ -0,0 +1,615 @@
+package com.lucas.spring.init.v2;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * @author zhangfan
+ * @description 静态资源处理，在路由之前按配置的路径前缀直接返回文件，不经过路由、参数绑定和方法调用
+ * 配置格式：staticLocations=/static/=classpath:static/,/files/=file:/data/files/
+ * 小文件按 LRU 缓存字节内容；大文件在 Tomcat 上交给 sendfile 零拷贝发送，其他容器通过 FileChannel 按位置分块读出后写出；
+ * 支持 ETag、Last-Modified、单个 Range，以及预先压缩好的 .br、.gz 文件
+ * @date 2026/10/18 09:10
+ **/
+class StaticResourceHandler {
+
+    // Tomcat 的 sendfile 支持，NIO/NIO2/APR 连接器上会设置这个请求属性
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // 缓存的元数据超过这个时间才重新检查文件是否修改
+    private static final long REVALIDATE_MILLIS = 1000;
+
+    // 不走 sendfile 时每次读出、写出的大小
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final Map<String, String> MIME_TYPES = new HashMap<String, String>();
+
+    static {
+        MIME_TYPES.put("html", "text/html;charset=UTF-8");
+        MIME_TYPES.put("htm", "text/html;charset=UTF-8");
+        MIME_TYPES.put("css", "text/css;charset=UTF-8");
+        MIME_TYPES.put("js", "application/javascript;charset=UTF-8");
+        MIME_TYPES.put("mjs", "application/javascript;charset=UTF-8");
+        MIME_TYPES.put("json", "application/json;charset=UTF-8");
+        MIME_TYPES.put("map", "application/json;charset=UTF-8");
+        MIME_TYPES.put("txt", "text/plain;charset=UTF-8");
+        MIME_TYPES.put("xml", "application/xml;charset=UTF-8");
+        MIME_TYPES.put("svg", "image/svg+xml");
+        MIME_TYPES.put("png", "image/png");
+        MIME_TYPES.put("jpg", "image/jpeg");
+        MIME_TYPES.put("jpeg", "image/jpeg");
+        MIME_TYPES.put("gif", "image/gif");
+        MIME_TYPES.put("webp", "image/webp");
+        MIME_TYPES.put("ico", "image/x-icon");
+        MIME_TYPES.put("woff", "font/woff");
+        MIME_TYPES.put("woff2", "font/woff2");
+        MIME_TYPES.put("wasm", "application/wasm");
+        MIME_TYPES.put("pdf", "application/pdf");
+    }
+
+    private final List<Location> locations = new ArrayList<Location>();
+
+    private final ServletContext servletContext;
+
+    // 解析后的资源，key 为 location 序号 + 相对路径 + 编码
+    private final ResourceCache cache;
+
+    // 小于这个大小的文件缓存内容
+    private final int maxCachedFileSize;
+
+    /**
+     * @param config         application.properties
+     * @param classLoader    查找 classpath: 位置的类加载器
+     * @param servletContext 用来查询 MIME 类型，可以为 null
+     */
+    StaticResourceHandler(Properties config, ClassLoader classLoader, ServletContext servletContext) {
+        this.servletContext = servletContext;
+        this.cache = new ResourceCache(Long.parseLong(config.getProperty("staticCacheSize", "16777216").trim()));
+        this.maxCachedFileSize = Integer.parseInt(config.getProperty("staticCacheMaxFileSize", "65536").trim());
+        String value = config.getProperty("staticLocations", "").trim();
+        for (String mapping : value.split(",")) {
+            mapping = mapping.trim();
+            int eq = mapping.indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            String prefix = mapping.substring(0, eq).trim();
+            String location = mapping.substring(eq + 1).trim();
+            if (!prefix.startsWith("/")) {
+                prefix = "/" + prefix;
+            }
+            if (!prefix.endsWith("/")) {
+                prefix = prefix + "/";
+            }
+            Location resolved = Location.resolve(locations.size(), prefix, location, classLoader);
+            if (resolved != null) {
+                locations.add(resolved);
+                System.out.println("Static : " + prefix + " -> " + location);
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return locations.isEmpty();
+    }
+
+    /**
+     * 处理静态资源请求
+     *
+     * @param from URI 中 contextPath 之后的位置
+     * @return 找到资源并已经输出时返回 true，否则继续走路由
+     */
+    boolean handle(HttpServletRequest req, HttpServletResponse resp, int from) throws IOException {
+        String method = req.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return false;
+        }
+        String uri = req.getRequestURI();
+        for (Location location : locations) {
+            if (!uri.startsWith(location.prefix, from)) {
+                continue;
+            }
+            String path = normalize(uri.substring(from + location.prefix.length()));
+            if (path == null) {
+                return false;
+            }
+            Resource resource = resolve(location, path, req.getHeader("Accept-Encoding"));
+            if (resource == null) {
+                continue;
+            }
+            serve(resource, req, resp);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 解码并检查相对路径，包含 .. 、反斜杠或空字符时返回 null
+     */
+    private static String normalize(String path) throws IOException {
+        if (path.indexOf('%') >= 0) {
+            path = URLDecoder.decode(path.replace("+", "%2B"), "UTF-8");
+        }
+        if (path.isEmpty() || path.indexOf('\\') >= 0 || path.indexOf('\0') >= 0) {
+            return null;
+        }
+        for (String segment : path.split("/")) {
+            if ("..".equals(segment)) {
+                return null;
+            }
+        }
+        return path;
+    }
+
+    /**
+     * 优先选择客户端接受的预压缩文件
+     */
+    private Resource resolve(Location location, String path, String acceptEncoding) throws IOException {
+        if (acceptEncoding != null) {
+            if (ResponseCompressor.accepts(acceptEncoding, "br")) {
+                Resource resource = lookup(location, path, "br");
+                if (resource != null) {
+                    return resource;
+                }
+            }
+            if (ResponseCompressor.accepts(acceptEncoding, "gzip")) {
+                Resource resource = lookup(location, path, "gzip");
+                if (resource != null) {
+                    return resource;
+                }
+            }
+        }
+        return lookup(location, path, null);
+    }
+
+    private Resource lookup(Location location, String path, String encoding) throws IOException {
+        String key = location.index + ":" + path + (encoding == null ? "" : ":" + encoding);
+        long now = System.currentTimeMillis();
+        Resource resource = cache.get(key);
+        if (resource != null && now - resource.checkedAt < REVALIDATE_MILLIS) {
+            return resource.missing ? null : resource;
+        }
+        String file = encoding == null ? path : path + ("br".equals(encoding) ? ".br" : ".gz");
+        Resource fresh = location.load(file, encoding, contentType(path), maxCachedFileSize, resource);
+        if (fresh == null) {
+            // 不存在的文件也缓存一段时间，避免重复检查
+            fresh = Resource.missing();
+        }
+        fresh.checkedAt = now;
+        cache.put(key, fresh);
+        return fresh.missing ? null : fresh;
+    }
+
+    private String contentType(String path) {
+        int dot = path.lastIndexOf('.');
+        String extension = dot < 0 ? "" : path.substring(dot + 1).toLowerCase(Locale.ROOT);
+        String type = MIME_TYPES.get(extension);
+        if (type == null && servletContext != null) {
+            type = servletContext.getMimeType(path);
+        }
+        if (type == null) {
+            type = URLConnection.getFileNameMap().getContentTypeFor(path);
+        }
+        return type == null ? "application/octet-stream" : type;
+    }
+
+    private void serve(Resource resource, HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setHeader("ETag", resource.etag);
+        resp.setDateHeader("Last-Modified", resource.lastModified);
+        resp.setHeader("Accept-Ranges", "bytes");
+        resp.setHeader("Vary", "Accept-Encoding");
+        if (notModified(resource, req)) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        resp.setContentType(resource.contentType);
+        if (resource.encoding != null) {
+            resp.setHeader("Content-Encoding", resource.encoding);
+        }
+
+        long start = 0;
+        long end = resource.length - 1;
+        String range = req.getHeader("Range");
+        if (range != null && ifRangeMatches(resource, req)) {
+            long[] parsed = parseRange(range, resource.length);
+            if (parsed == UNSATISFIABLE) {
+                resp.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                resp.setHeader("Content-Range", "bytes */" + resource.length);
+                return;
+            }
+            if (parsed != null) {
+                start = parsed[0];
+                end = parsed[1];
+                resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                resp.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + resource.length);
+            }
+        }
+        long length = end - start + 1;
+        resp.setContentLengthLong(length);
+        if ("HEAD".equals(req.getMethod()) || length == 0) {
+            return;
+        }
+        if (resource.bytes != null) {
+            resp.getOutputStream().write(resource.bytes, (int) start, (int) length);
+        } else if (resource.file != null) {
+            sendFile(resource.file, start, length, req, resp);
+        } else {
+            sendUrl(resource.url, start, length, resp);
+        }
+    }
+
+    private static boolean notModified(Resource resource, HttpServletRequest req) {
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return "*".equals(ifNoneMatch.trim()) || ifNoneMatch.contains(resource.etag);
+        }
+        long ifModifiedSince = req.getDateHeader("If-Modified-Since");
+        // HTTP 日期精确到秒
+        return ifModifiedSince >= 0 && resource.lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private static boolean ifRangeMatches(Resource resource, HttpServletRequest req) {
+        String ifRange = req.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(resource.etag);
+        }
+        long date = req.getDateHeader("If-Range");
+        return date >= 0 && resource.lastModified / 1000 <= date / 1000;
+    }
+
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    /**
+     * 只支持单个范围，多个范围时返回 null，按完整内容响应
+     */
+    static long[] parseRange(String range, long length) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = range.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                // bytes=-500 表示最后 500 个字节
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) {
+                    return UNSATISFIABLE;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? length - 1 : Math.min(length - 1, Long.parseLong(spec.substring(dash + 1)));
+            }
+            if (start >= length || start > end) {
+                return UNSATISFIABLE;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 发送文件内容：容器支持 sendfile 时交给容器，否则按位置分块读出后写出
+     */
+    private static void sendFile(Path file, long start, long length, HttpServletRequest req,
+                                 HttpServletResponse resp) throws IOException {
+        if (Boolean.TRUE.equals(req.getAttribute(SENDFILE_SUPPORT))) {
+            req.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            req.setAttribute(SENDFILE_START, start);
+            req.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+        OutputStream out = resp.getOutputStream();
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ResponseBuffer buffer = ResponseBuffer.get();
+            try {
+                // 按位置读入线程复用的缓冲区后分块写出，不为每个请求映射文件，也不分配新的缓冲区
+                byte[] chunk = buffer.reserve(CHUNK_SIZE);
+                long position = start;
+                long end = start + length;
+                while (position < end) {
+                    int n = channel.read(ByteBuffer.wrap(chunk, 0, (int) Math.min(CHUNK_SIZE, end - position)), position);
+                    if (n < 0) {
+                        throw new IOException(file + " was truncated while sending");
+                    }
+                    out.write(chunk, 0, n);
+                    position += n;
+                }
+            } finally {
+                buffer.release();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static void sendUrl(URL url, long start, long length, HttpServletResponse resp) throws IOException {
+        OutputStream out = resp.getOutputStream();
+        InputStream in = url.openStream();
+        try {
+            long skipped = 0;
+            while (skipped < start) {
+                long n = in.skip(start - skipped);
+                if (n <= 0) {
+                    throw new IOException("Skip " + url + " failed");
+                }
+                skipped += n;
+            }
+            byte[] chunk = new byte[8192];
+            long remaining = length;
+            while (remaining > 0) {
+                int n = in.read(chunk, 0, (int) Math.min(chunk.length, remaining));
+                if (n < 0) {
+                    break;
+                }
+                out.write(chunk, 0, n);
+                remaining -= n;
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * 配置的一个静态资源位置，file: 和解压后的 classpath: 位置按文件处理，jar 中的 classpath: 位置按 URL 读取
+     */
+    private static class Location {
+
+        private final int index;
+
+        private final String prefix;
+
+        // 文件系统中的根目录，jar 中的位置为 null
+        private final Path root;
+
+        // jar 中的 classpath 位置
+        private final ClassLoader classLoader;
+
+        private final String classpathRoot;
+
+        private Location(int index, String prefix, Path root, ClassLoader classLoader, String classpathRoot) {
+            this.index = index;
+            this.prefix = prefix;
+            this.root = root;
+            this.classLoader = classLoader;
+            this.classpathRoot = classpathRoot;
+        }
+
+        static Location resolve(int index, String prefix, String location, ClassLoader classLoader) {
+            if (location.startsWith("file:")) {
+                Path root = Paths.get(location.substring(5)).toAbsolutePath().normalize();
+                return new Location(index, prefix, root, null, null);
+            }
+            String path = location.startsWith("classpath:") ? location.substring(10) : location;
+            path = path.startsWith("/") ? path.substring(1) : path;
+            if (!path.isEmpty() && !path.endsWith("/")) {
+                path = path + "/";
+            }
+            URL url = classLoader.getResource(path.isEmpty() ? "" : path.substring(0, path.length() - 1));
+            if (url == null) {
+                System.out.println("Skip missing static location: " + location);
+                return null;
+            }
+            if ("file".equals(url.getProtocol())) {
+                try {
+                    return new Location(index, prefix, new File(url.toURI()).toPath().normalize(), null, null);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Invalid static location " + location, e);
+                }
+            }
+            return new Location(index, prefix, null, classLoader, path);
+        }
+
+        /**
+         * 加载资源，和上次的结果相比没有变化时直接复用
+         */
+        Resource load(String path, String encoding, String contentType, int maxCachedFileSize,
+                      Resource previous) throws IOException {
+            if (root != null) {
+                Path file = root.resolve(path).normalize();
+                // 规范化后再检查一次，保证不会跳出根目录
+                if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+                    return null;
+                }
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                long length = attributes.size();
+                long lastModified = attributes.lastModifiedTime().toMillis();
+                if (previous != null && !previous.missing && previous.length == length && previous.lastModified == lastModified) {
+                    return previous;
+                }
+                byte[] bytes = length <= maxCachedFileSize ? Files.readAllBytes(file) : null;
+                if (bytes != null && bytes.length != length) {
+                    // 读取过程中文件被修改，下次再缓存
+                    bytes = null;
+                }
+                return new Resource(file, null, bytes, length, lastModified, encoding, contentType);
+            }
+            URL url = classLoader.getResource(classpathRoot + path);
+            if (url == null || url.getPath().endsWith("/")) {
+                return null;
+            }
+            URLConnection connection = url.openConnection();
+            long length = connection.getContentLengthLong();
+            long lastModified = connection.getLastModified();
+            if (previous != null && !previous.missing && previous.length == length && previous.lastModified == lastModified) {
+                connection.getInputStream().close();
+                return previous;
+            }
+            byte[] bytes = null;
+            if (length >= 0 && length <= maxCachedFileSize) {
+                InputStream in = connection.getInputStream();
+                try {
+                    bytes = readFully(in, (int) length);
+                } finally {
+                    in.close();
+                }
+            } else {
+                connection.getInputStream().close();
+            }
+            return new Resource(null, url, bytes, length, lastModified, encoding, contentType);
+        }
+
+        private static byte[] readFully(InputStream in, int length) throws IOException {
+            byte[] bytes = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int n = in.read(bytes, read, length - read);
+                if (n < 0) {
+                    throw new IOException("Unexpected end of resource");
+                }
+                read += n;
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * 解析后的资源，小文件带有内容
+     */
+    private static class Resource {
+
+        private final Path file;
+
+        private final URL url;
+
+        // 缓存的内容，大文件为 null
+        private final byte[] bytes;
+
+        private final long length;
+
+        private final long lastModified;
+
+        // br、gzip，原始文件为 null
+        private final String encoding;
+
+        private final String contentType;
+
+        private final String etag;
+
+        private boolean missing;
+
+        private volatile long checkedAt;
+
+        Resource(Path file, URL url, byte[] bytes, long length, long lastModified, String encoding, String contentType) {
+            this.file = file;
+            this.url = url;
+            this.bytes = bytes;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.encoding = encoding;
+            this.contentType = contentType;
+            // 不同编码的内容不同，ETag 也要区分
+            this.etag = "W/\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified)
+                    + (encoding == null ? "" : "-" + encoding) + "\"";
+        }
+
+        static Resource missing() {
+            Resource resource = new Resource(null, null, null, 0, 0, null, null);
+            resource.missing = true;
+            return resource;
+        }
+
+        int weight() {
+            return bytes == null ? 256 : bytes.length + 256;
+        }
+    }
+
+    /**
+     * 按内容大小限制总量的 LRU 缓存，和 ResponseCache 一样按 key 的 hash 分段加锁，命中时只锁一个分段
+     */
+    private static class ResourceCache {
+
+        private static final int SEGMENTS = 16;
+
+        private final Segment[] segments = new Segment[SEGMENTS];
+
+        ResourceCache(long maxWeight) {
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = new Segment(maxWeight / SEGMENTS);
+            }
+        }
+
+        Resource get(String key) {
+            return segmentFor(key).get(key);
+        }
+
+        void put(String key, Resource resource) {
+            segmentFor(key).put(key, resource);
+        }
+
+        private Segment segmentFor(String key) {
+            int h = key.hashCode();
+            return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+        }
+    }
+
+    /**
+     * 按大小限制总量的 LRU 分段
+     */
+    private static class Segment {
+
+        private final long maxWeight;
+
+        private long weight;
+
+        private final LinkedHashMap<String, Resource> entries = new LinkedHashMap<String, Resource>(64, 0.75f, true);
+
+        Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
+        synchronized Resource get(String key) {
+            return entries.get(key);
+        }
+
+        synchronized void put(String key, Resource resource) {
+            if (resource.weight() > maxWeight) {
+                return;
+            }
+            Resource previous = entries.put(key, resource);
+            if (previous != null) {
+                weight -= previous.weight();
+            }
+            weight += resource.weight();
+            Iterator<Resource> iterator = entries.values().iterator();
+            while (weight > maxWeight && iterator.hasNext()) {
+                Resource eldest = iterator.next();
+                if (eldest == resource) {
+                    break;
+                }
+                weight -= eldest.weight();
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.lucas.spring.init.v2;
+
+/**
+ * @author zhangfan
+ * @description 请求参数类型转换器，把请求中的 String 转换为方法参数需要的类型
+ * 实现类加上 @ZService 注册到 IOC 容器后，会在初始化 HandlerMapping 时自动注册，并优先于内置转换器
+ * @date 2026/10/17 16:05
+ **/
+public interface ZConverter<T> {
+
+    /**
+     * @return 转换的目标类型
+     */
+    Class<T> getTargetType();
+
+    /**
+     * 转换参数值
+     *
+     * @param value 请求中的参数值，不会为 null
+     * @return 转换后的值
+     */
+    T convert(String value);
+}
@@ -1,22 +1,28 @@
 package com.lucas.spring.init.v2;
 
 import com.lucas.spring.annotation.*;
+import com.lucas.spring.init.support.ClassPathScanner;
+import com.lucas.spring.init.support.HandlerInvoker;
+import com.lucas.spring.processor.ComponentIndexProcessor;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.File;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
+import java.io.InputStreamReader;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author zhangfan
@@ -31,12 +37,39 @@ public class ZDispatcherServlet extends HttpServlet {
     //保存扫描的所有的类名
     private List<String> classNames = new ArrayList<String>();
 
-    // IOC容器，为了简化代码，暂时不考虑ConcurrentHashMap
-    private Map<String, Object> ioc = new HashMap<String, Object>();
+    // IOC容器，按名称和类型建立索引，请求线程可以无锁读取
+    private BeanFactory beanFactory = new BeanFactory();
 
     //保存 url 和 Method 的对应关系
 //    private Map<String, Method> handlerMapping = new HashMap<String, Method>();
-    private List<Handler> handlerMapping = new ArrayList<Handler>();
+//    private List<Handler> handlerMapping = new ArrayList<Handler>();
+    // 启动时构建好的前缀树路由，请求时不再逐个正则匹配
+    private Router<Handler> handlerMapping = new Router<Handler>();
+
+    private static final int[] NO_CAPTURES = new int[0];
+
+    // 异步请求使用的线程池，只有存在异步执行的方法时才创建
+    private ExecutorService asyncExecutor;
+
+    private boolean hasAsyncHandler;
+
+    // 异步请求的超时时间，毫秒
+    private long asyncTimeout;
+
+    // 静态资源处理，没有配置时为 null
+    private StaticResourceHandler staticResources;
+
+    // 方法级监控指标
+    private MetricsRegistry metrics;
+
+    // 异常处理
+    private ExceptionResolver exceptionResolver;
+
+    // 响应压缩，没有开启时为 null
+    private ResponseCompressor compressor;
+
+    // 批量请求，没有配置 batchPath 时为 null
+    private BatchDispatcher batch;
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
@@ -46,114 +79,300 @@ public class ZDispatcherServlet extends HttpServlet {
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         // 6、初始化完成后，接口收到请求后，调用，运行阶段
+        // 静态资源和方法的响应都经过压缩
+        HttpServletResponse out = compressor == null ? resp : compressor.wrap(req, resp);
         try {
-            doDispatch(req, resp);
+            doDispatch(req, out);
         } catch (Exception e) {
-            e.printStackTrace();
-            resp.getWriter().write("500 Exception, Detail : " + Arrays.toString(e.getStackTrace()));
+            processException(req, out, null, e);
+        } finally {
+            // 异步请求在执行完成后结束压缩
+            if (out != resp && !req.isAsyncStarted()) {
+                ResponseCompressor.finish(out);
+            }
         }
     }
 
+    /**
+     * 处理执行过程中抛出的异常，优先交给 @ZExceptionHandler 方法，不再把堆栈写给客户端
+     *
+     * @param handler 请求对应的 Handler，路由之前抛出异常时为 null
+     */
+    private void processException(HttpServletRequest req, HttpServletResponse resp, Handler handler, Exception e) {
+        exceptionResolver.resolve(req, resp, handler, e);
+    }
+
     private void doDispatch(HttpServletRequest req, HttpServletResponse resp) throws Exception {
+        // 静态资源直接返回，不经过路由和方法调用
+        if (staticResources != null && staticResources.handle(req, resp, pathStart(req))) {
+            return;
+        }
+        // 监控指标地址
+        if (metrics.handle(req, resp, pathStart(req))) {
+            return;
+        }
+        // 批量请求，拆成子请求后再逐个路由
+        if (batch != null && batch.handle(req, resp, pathStart(req))) {
+            return;
+        }
+        // 保存路径变量在 URI 中的起止位置，没有路径变量的路由不需要分配
+        int captureLength = handlerMapping.captureLength();
+        int[] captures = captureLength == 0 ? NO_CAPTURES : new int[captureLength];
         // 根据 HttpServletRequest 请求获取缓存的 Handler
-        Handler handler = getHandler(req);
+        Handler handler = getHandler(req, captures);
         // 路径不匹配，返回404
         if(handler == null){
             resp.getWriter().write("404 Not Found!");
             return;
         }
-        // 获取方法中的参数类型列表
-        Class<?> [] paramTypes = handler.method.getParameterTypes();
-        // 保存参数值，数组中的参数后面都会根据其类型进行转换，并传入反射执行方法对象的invoke()方法中
-        Object [] paramValues = new Object[paramTypes.length];
-
-        // 获取 HttpServletRequest 中携带的参数，key是String型，value是String型数组
-        // 例如，request中的参数 t1=1&t1=2&t2=3，即 key=t1, value[0]=1,value[1]=2 ; key=t2, value[0]=3
-        Map<String,String[]> params = req.getParameterMap();
-
-        // 遍历请求参数
-        for (Map.Entry<String, String[]> param : params.entrySet()) {
-            // 将参数值准成 String
-            String value = Arrays.toString(param.getValue())
-                    // url传过的是String型数组, 将数组外的[]给去掉
-                    .replaceAll("\\[|\\]","")
-                    // 将空白处替换为逗号 ,
-                    .replaceAll("\\s",",");
-            // 如果不包含这个参数名，说明不需要进行转换，例如 HttpServletRequest
-            if(!handler.paramIndexMapping.containsKey(param.getKey())){
-                continue;
+        // 异步执行的方法交给线程池，请求线程直接返回容器
+        if (handler.async && req.isAsyncSupported()) {
+            doDispatchAsync(req, resp, handler, captures);
+            return;
+        }
+        try {
+            invokeHandler(req, resp, handler, captures);
+        } catch (Exception e) {
+            processException(req, resp, handler, e);
+        }
+    }
+
+    /**
+     * 执行批量请求中的一个子请求，和普通请求使用同样的路由、参数绑定、拦截器和异常处理，@ZAsync 的方法也在当前线程执行
+     */
+    void dispatchSubRequest(HttpServletRequest req, HttpServletResponse resp) throws Exception {
+        int captureLength = handlerMapping.captureLength();
+        int[] captures = captureLength == 0 ? NO_CAPTURES : new int[captureLength];
+        Handler handler = getHandler(req, captures);
+        if (handler == null) {
+            resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            resp.getWriter().write("404 Not Found!");
+            return;
+        }
+        try {
+            invokeHandler(req, resp, handler, captures);
+        } catch (Exception e) {
+            processException(req, resp, handler, e);
+        }
+    }
+
+    /**
+     * 开启异步上下文，在虚拟线程或线程池中执行方法，执行完成后结束异步上下文。
+     * 方法写入的是 AsyncResponse，超时后关闭它，方法线程之后的写入和异常处理不会到达已经回收的响应
+     */
+    private void doDispatchAsync(final HttpServletRequest req, final HttpServletResponse resp,
+                                 final Handler handler, final int[] captures) throws IOException {
+        final AsyncContext asyncContext = req.startAsync(req, resp);
+        asyncContext.setTimeout(asyncTimeout);
+        final AsyncResponse asyncResp = new AsyncResponse(resp);
+        // 超时和执行完成都会结束异步上下文，保证只 complete 一次
+        final AtomicBoolean completed = new AtomicBoolean();
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                if (completed.compareAndSet(false, true)) {
+                    asyncResp.close();
+                    if (!resp.isCommitted()) {
+                        // 丢弃方法已经写入缓冲区的内容
+                        resp.reset();
+                        resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                    }
+                    finishAsync(asyncContext, resp);
+                }
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        try {
+            asyncExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        invokeHandler(req, asyncResp, handler, captures);
+                    } catch (Exception e) {
+                        processException(req, asyncResp, handler, e);
+                    } finally {
+                        if (completed.compareAndSet(false, true)) {
+                            finishAsync(asyncContext, resp);
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 线程池已满，快速失败
+            if (completed.compareAndSet(false, true)) {
+                resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                finishAsync(asyncContext, resp);
             }
-            // 根据请求参数名获取方法中的参数位置索引
-            int index = handler.paramIndexMapping.get(param.getKey());
-            // 转换请求参数类型，并赋值给数组对应元素
-            paramValues[index] = convert(paramTypes[index], value);
         }
+    }
 
-        // 单独判断 HttpServletRequest 和 HttpServletResponse，赋值给参数数组对应元素
-        if(handler.paramIndexMapping.containsKey(HttpServletRequest.class.getName())) {
-            int reqIndex = handler.paramIndexMapping.get(HttpServletRequest.class.getName());
-            paramValues[reqIndex] = req;
+    private static void finishAsync(AsyncContext asyncContext, HttpServletResponse resp) {
+        try {
+            ResponseCompressor.finish(resp);
+        } catch (IOException e) {
+            // 客户端已经断开，直接结束
+        } finally {
+            asyncContext.complete();
         }
-        if(handler.paramIndexMapping.containsKey(HttpServletResponse.class.getName())) {
-            int respIndex = handler.paramIndexMapping.get(HttpServletResponse.class.getName());
-            paramValues[respIndex] = resp;
+    }
+
+    /**
+     * 绑定参数并执行方法，同步和异步请求共用，配置了并发上限时先占用名额
+     */
+    private void invokeHandler(HttpServletRequest req, HttpServletResponse resp, Handler handler, int[] captures) throws Exception {
+        ConcurrencyLimiter limiter = handler.limiter;
+        if (limiter == null) {
+            invokeMeasured(req, resp, handler, captures);
+            return;
+        }
+        // 超出上限且等待队列已满或等待超时，快速失败
+        if (!limiter.acquire()) {
+            if (handler.metrics != null) {
+                handler.metrics.reject();
+            }
+            limiter.reject(resp);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            invokeMeasured(req, resp, handler, captures);
+        } finally {
+            limiter.release(start);
         }
+    }
 
-        // 传入参数数组，执行对应方法
-        Object returnValue = handler.method.invoke(handler.controller, paramValues);
-        // 返回方法返回值，有值则转成 String, 返回页面
-        if(returnValue == null){
+    private void invokeMeasured(HttpServletRequest req, HttpServletResponse resp, Handler handler, int[] captures) throws Exception {
+        HandlerMetrics handlerMetrics = handler.metrics;
+        // 关闭监控时直接执行
+        if (handlerMetrics == null) {
+            invokeChain(req, resp, handler, captures);
             return;
         }
-        resp.getWriter().write(returnValue.toString());
+        long start = handlerMetrics.begin();
+        boolean failed = true;
+        try {
+            invokeChain(req, resp, handler, captures);
+            failed = false;
+        } finally {
+            handlerMetrics.end(start, failed);
+        }
     }
 
     /**
-     * 根据请求路径获取对应 Handler
-     * @param req
-     * @return
-     * @throws Exception
+     * 依次调用拦截器和方法
      */
-    private Handler getHandler(HttpServletRequest req) throws Exception {
-        if(handlerMapping.isEmpty()){
-            return null;
+    private void invokeChain(HttpServletRequest req, HttpServletResponse resp, Handler handler, int[] captures) throws Exception {
+        ZHandlerInterceptor[] interceptors = handler.interceptorMatcher == null
+                ? handler.interceptors : handler.interceptorMatcher.match(req.getRequestURI(), pathStart(req), captures);
+        // 没有拦截器的方法直接执行
+        if (interceptors.length == 0) {
+            invokeMethod(req, resp, handler, captures, interceptors);
+            return;
         }
-        // 这里获取的紧跟端口后的完整请求路径
-        String url = req.getRequestURI();
-        // 这里获取的是全局配置的请求前缀，和Controller中路径组成完整请求路径
-        String contextPath = req.getContextPath();
-        // 获取Controller中请求路径
-        url = url.replace(contextPath, "").replaceAll("/+", "/");
-        for (Handler handler : handlerMapping) {
-            try{
-                // 根据请求路径正则匹配
-                Matcher matcher = handler.pattern.matcher(url);
-                // 如果没有匹配上继续下一个匹配
-                if(!matcher.matches()){
-                    continue;
+        // 已经通过 preHandle 的拦截器个数，只有这些拦截器才调用 afterCompletion
+        int passed = 0;
+        Exception failure = null;
+        try {
+            for (; passed < interceptors.length; passed++) {
+                if (!interceptors[passed].preHandle(req, resp, handler.method)) {
+                    return;
                 }
-                return handler;
-            }catch(Exception e){
-                throw e;
+            }
+            invokeMethod(req, resp, handler, captures, interceptors);
+        } catch (Exception e) {
+            failure = e;
+            throw e;
+        } finally {
+            triggerAfterCompletion(req, resp, handler, interceptors, passed, failure);
+        }
+    }
+
+    private void invokeMethod(HttpServletRequest req, HttpServletResponse resp, Handler handler, int[] captures,
+                              ZHandlerInterceptor[] interceptors) throws Exception {
+        ResponseCache.Policy responseCache = handler.responseCache;
+        String key = responseCache == null ? null : responseCache.keyFor(req);
+        if (key == null) {
+            doInvokeMethod(req, resp, handler, captures, interceptors);
+            return;
+        }
+        // 命中缓存时不再绑定参数和调用方法，拦截器的 preHandle 已经执行过
+        if (responseCache.serve(key, req, resp)) {
+            return;
+        }
+        ResponseCache.CapturingResponse capture = responseCache.capture(resp);
+        // 在缓存内部压缩，缓存压缩后的响应体，命中时不再重复压缩
+        HttpServletResponse target = compressor == null ? capture : compressor.wrap(req, capture);
+        doInvokeMethod(req, target, handler, captures, interceptors);
+        ResponseCompressor.finish(target);
+        responseCache.complete(key, req, resp, capture);
+    }
+
+    private void doInvokeMethod(HttpServletRequest req, HttpServletResponse resp, Handler handler, int[] captures,
+                                ZHandlerInterceptor[] interceptors) throws Exception {
+        // 按启动时编译好的绑定器依次取出参数值，只读取方法声明的参数
+        Object [] paramValues = handler.bindArguments(req, resp, captures);
+
+        // 传入参数数组，通过启动时绑定好的调用器执行对应方法，@ZCoalesce 的方法和同时到达的相同请求合并执行
+        Object returnValue = handler.coalescer == null
+                ? handler.invoker.invoke(handler.getController(), paramValues)
+                : handler.coalescer.invoke(req, resp, handler, paramValues);
+        // 拦截器的 postHandle 按相反顺序调用
+        for (int i = interceptors.length - 1; i >= 0; i--) {
+            interceptors[i].postHandle(req, resp, handler.method, returnValue);
+        }
+        // 返回方法返回值，有值则交给启动时按返回类型选好的处理器输出
+        if(returnValue == null){
+            return;
+        }
+        handler.returnValueHandler.handle(returnValue, req, resp);
+    }
+
+    /**
+     * 按相反顺序调用已经通过 preHandle 的拦截器，afterCompletion 中的异常只打印，不覆盖原来的异常
+     */
+    private void triggerAfterCompletion(HttpServletRequest req, HttpServletResponse resp, Handler handler,
+                                        ZHandlerInterceptor[] interceptors, int passed, Exception ex) {
+        for (int i = passed - 1; i >= 0; i--) {
+            try {
+                interceptors[i].afterCompletion(req, resp, handler.method, ex);
+            } catch (Exception e) {
+                e.printStackTrace();
             }
         }
-        return null;
     }
 
     /**
-     * 根据参数类型和参数值进行转换
-     * url 传过来的参数都是 String 类型，HTTP 是基于字符串协议，只需要把 String 转换为任意类型就好
-     * @param type
-     * @param value
+     * 根据请求路径获取对应 Handler
+     * @param req
+     * @param captures 保存匹配到的路径变量位置
      * @return
+     * @throws Exception
      */
-    private Object convert(Class<?> type, String value) {
-        // 如果是 int
-        if (Integer.class == type) {
-            return Integer.valueOf(value);
-        }
-        // 如果是其他类型，那就继续加判断并准换，这里就不再重复实现，可以考虑采用策略模式
-        return value;
+    private Handler getHandler(HttpServletRequest req, int[] captures) throws Exception {
+        // 不再截取字符串，直接从 contextPath 之后开始匹配，多个 / 在路由中按一个处理
+        return handlerMapping.match(req.getRequestURI(), pathStart(req), captures);
+    }
+
+    /**
+     * 请求路径在 URI 中的起始位置，即 contextPath 的长度
+     */
+    private static int pathStart(HttpServletRequest req) {
+        // 这里获取的紧跟端口后的完整请求路径
+        String url = req.getRequestURI();
+        // 这里获取的是全局配置的请求前缀，和Controller中路径组成完整请求路径
+        String contextPath = req.getContextPath();
+        return url.startsWith(contextPath) ? contextPath.length() : 0;
     }
 
     /**
@@ -167,33 +386,98 @@ public class ZDispatcherServlet extends HttpServlet {
 
         // 1、加载配置文件 Servlet读取web.xml文件, 参数 contextConfigLocation 对应值为 application.properties
         doLoadConfig(config.getInitParameter("contextConfigLocation"));
-        // 2、扫描相关的类
-        doScanner(contextConfig.getProperty("scanPackage"));
-        // 3、初始化扫描到的类，并且将它们放入到 ICO 容器之中
+        // 2、扫描相关的类，优先读取编译期生成的组件索引，没有索引时再扫描目录
+        if (!doLoadIndex(contextConfig.getProperty("scanPackage"))) {
+            doScanner(contextConfig.getProperty("scanPackage"));
+        }
+        // 3、初始化扫描到的类，并且将它们放入到 ICO 容器之中，创建 bean 时生成的缓存也要注册监控指标
+        metrics = new MetricsRegistry(contextConfig);
         doInstance();
         // 4、完成依赖注入
         doAutowired();
         // 5、初始化 HandlerMapping
         initHandlerMapping();
+        // 6、有异步执行的方法时才创建线程池
+        initAsyncExecutor();
+        // 7、静态资源
+        initStaticResources(config);
+        // 8、响应压缩
+        compressor = ResponseCompressor.create(contextConfig);
+        // 9、批量请求
+        batch = BatchDispatcher.create(this, contextConfig);
+        // 10、监控指标注册到 JMX
+        metrics.registerMBeans(config.getServletContext().getContextPath() + "/" + config.getServletName());
 
         System.out.println("Z Spring framework is init.");
     }
 
+    @Override
+    public void destroy() {
+        if (asyncExecutor != null) {
+            asyncExecutor.shutdown();
+        }
+        if (batch != null) {
+            batch.shutdown();
+        }
+        if (metrics != null) {
+            metrics.unregisterMBeans();
+        }
+        if (exceptionResolver != null) {
+            exceptionResolver.shutdown();
+        }
+    }
+
+    /**
+     * 初始化静态资源处理，没有配置 staticLocations 时不启用
+     */
+    private void initStaticResources(ServletConfig config) {
+        StaticResourceHandler handler = new StaticResourceHandler(contextConfig, getClass().getClassLoader(),
+                config.getServletContext());
+        staticResources = handler.isEmpty() ? null : handler;
+    }
+
+    /**
+     * 初始化异步请求使用的线程池
+     */
+    private void initAsyncExecutor() {
+        asyncTimeout = Long.parseLong(contextConfig.getProperty("asyncTimeout", "30000").trim());
+        if (hasAsyncHandler) {
+            asyncExecutor = AsyncExecutors.create(contextConfig);
+        }
+    }
+
     /**
      * 初始化 HandlerMapping
      */
     private void initHandlerMapping() {
-        if (ioc.isEmpty()) {
+        exceptionResolver = new ExceptionResolver(beanFactory, contextConfig);
+        if (beanFactory.isEmpty()) {
             return;
         }
-        for (Map.Entry<String, Object> entry : ioc.entrySet()) {
-
-            // 主要处理Controller类
-            Class<?> clazz = entry.getValue().getClass();
+        boolean asyncDispatch = "true".equalsIgnoreCase(contextConfig.getProperty("asyncDispatch", "false").trim());
+        // 参数类型转换器，容器中实现了 ZConverter 的 bean 也会注册进来
+        ConverterRegistry converters = new ConverterRegistry(beanFactory.getBeansOfType(ZConverter.class));
+        // @ZRequestBody 参数的请求体读取器，请求体大小上限默认 10M
+        RequestBodyReader bodyReader = new RequestBodyReader(converters,
+                Long.parseLong(contextConfig.getProperty("maxRequestBodySize", "10485760").trim()));
+        // 容器中的拦截器按顺序排好，order 相同时保持注册顺序
+        List<ZHandlerInterceptor> interceptors = beanFactory.getBeansOfType(ZHandlerInterceptor.class);
+        interceptors.sort(Comparator.comparingInt(ZHandlerInterceptor::getOrder));
+        // 所有 @ZCoalesce 方法共用一张正在执行的请求表，第一次用到时创建
+        RequestCoalescer coalescer = null;
+        // 所有 @ZResponseCache 方法共用一个响应缓存，第一次用到时创建
+        ResponseCache responseCache = null;
+        for (BeanDefinition definition : beanFactory.getBeanDefinitions()) {
+
+            // 主要处理Controller类，延迟初始化的 Controller 只取类型，不创建实例
+            Class<?> clazz = definition.getBeanClass();
             if (!clazz.isAnnotationPresent(ZController.class)) {
                 continue;
             }
 
+            // Controller 自己声明的异常处理方法，同一个类的所有方法共用
+            ExceptionResolver.ExceptionHandlerMethods exceptionHandlers = exceptionResolver.forController(definition);
+
             String url = "";
             // 先判断类上是否有请求路径
             if (clazz.isAnnotationPresent(ZRequestMapping.class)) {
@@ -209,11 +493,44 @@ public class ZDispatcherServlet extends HttpServlet {
                 }
 
                 ZRequestMapping requestMapping = method.getAnnotation(ZRequestMapping.class);
-                String regex = ("/" + url + requestMapping.value()).replaceAll("/+", "/");
-
-                Pattern pattern = Pattern.compile(regex);
-                // 保存正则，Controller实例，对应的方法实例
-                handlerMapping.add(new Handler(pattern, entry.getValue(), method));
+                String path = ("/" + url + requestMapping.value()).replaceAll("/+", "/");
+
+                // 保存路径，Controller实例，对应的方法实例，字面量路径进前缀树，正则路径作为兜底
+                Handler handler = new Handler(definition, method, Router.variableNames(path), converters, bodyReader);
+                // 启动时创建调用器，请求时不再走 Method.invoke
+                handler.invoker = HandlerInvoker.create(method, contextConfig.getProperty("handlerInvoker"));
+                // 方法上的 @ZAsync 优先于类上的，类上的优先于全局配置
+                handler.async = asyncDispatch;
+                if (method.isAnnotationPresent(ZAsync.class)) {
+                    handler.async = method.getAnnotation(ZAsync.class).value();
+                } else if (clazz.isAnnotationPresent(ZAsync.class)) {
+                    handler.async = clazz.getAnnotation(ZAsync.class).value();
+                }
+                hasAsyncHandler |= handler.async;
+                // 启动时算好每个方法要经过的拦截器，路由模板决定不了时请求时按实际路径匹配
+                handler.interceptors = InterceptorMatcher.resolve(path, interceptors);
+                if (handler.interceptors == null) {
+                    handler.interceptorMatcher = InterceptorMatcher.create(path, interceptors);
+                }
+                handler.metrics = metrics.register(path, method);
+                handler.exceptionHandlers = exceptionHandlers;
+                if (method.isAnnotationPresent(ZCoalesce.class)) {
+                    RequestCoalescer.check(method);
+                    if (coalescer == null) {
+                        coalescer = new RequestCoalescer(contextConfig);
+                    }
+                    handler.coalescer = coalescer;
+                    handler.coalesceMaxWait = method.getAnnotation(ZCoalesce.class).maxWait();
+                    handler.coalesceInvokeOnTimeout = method.getAnnotation(ZCoalesce.class).invokeOnTimeout();
+                }
+                if (method.isAnnotationPresent(ZResponseCache.class)) {
+                    if (responseCache == null) {
+                        responseCache = new ResponseCache(contextConfig);
+                    }
+                    handler.responseCache = responseCache.policy(method.getAnnotation(ZResponseCache.class));
+                }
+                handler.limiter = ConcurrencyLimiter.create(clazz, method, contextConfig);
+                handlerMapping.add(path, handler);
 
                 System.out.println("Mapped :" + url + "," + method);
             }
@@ -221,46 +538,20 @@ public class ZDispatcherServlet extends HttpServlet {
     }
 
     /**
-     * 完成依赖注入
+     * 完成依赖注入，创建所有非延迟初始化的 bean 并给 @ZAutowired 字段赋值
      */
     private void doAutowired() {
-        if (ioc.isEmpty()) {
-            return;
-        }
-        // 遍历容器中所有bean
-        for (Map.Entry<String, Object> entry : ioc.entrySet()) {
-            // 获取所有的字段 public/private/protected/default 的属性字段
-            Field[] fields = entry.getValue().getClass().getDeclaredFields();
-            for (Field field : fields) {
-                // 只对有注解的属性进行注入
-                if (!field.isAnnotationPresent(ZAutowired.class)) {
-                    continue;
-                }
-                ZAutowired autowired = field.getAnnotation(ZAutowired.class);
-
-                // 如果没有指定自定义beanName，默认就根据类型注入, (这里忽略了对类名首字母小写的情况的判断)
-                String beanName = autowired.value().trim();
-                if ("".equals(beanName)) {
-                    // 获得接口的类型，根据这个key到ioc容器中取值
-                    beanName = field.getType().getName();
-                }
-
-                // 如果是 public 以外的修饰符，只要加了注解，都要强制赋值
-                field.setAccessible(true);
-                try {
-                    // 给字段赋值
-                    field.set(entry.getValue(), ioc.get(beanName));
-                } catch (IllegalAccessException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
+        beanFactory.preInstantiateSingletons();
     }
 
     /**
      * 初始化扫描到的类，并且将它们放入到 ICO 容器之中
      */
     private void doInstance() {
+        // bean 创建后，有 @ZCacheable、@ZCacheEvict 的包装为代理
+        boolean proxyTargetClass = "true".equalsIgnoreCase(contextConfig.getProperty("proxyTargetClass", "false").trim());
+        CachingBeanPostProcessor caching = new CachingBeanPostProcessor(proxyTargetClass, metrics);
+        beanFactory.addBeanPostProcessor(caching);
         // 初始化，为依赖注入DI做准备
         if (classNames.isEmpty()) {
             return;
@@ -273,11 +564,18 @@ public class ZDispatcherServlet extends HttpServlet {
                 // 只要加了注解的类，才需要初始化，这里只列举 @Controller 和 @Service 两个注解
                 // spring中还有 @Component、@Configuration 等
                 if (clazz.isAnnotationPresent(ZController.class)) {
-                    Object instance = clazz.newInstance();
                     // 1、Spring 默认类名首字母小写
                     String beanName = toLowerFirstCase(clazz.getSimpleName());
-                    // 2、将bean加入到ioc容器
-                    ioc.put(beanName, instance);
+                    // 2、将bean注册到ioc容器，实例在 doAutowired 或第一次使用时创建
+                    registerBean(beanName, clazz);
+
+                } else if (clazz.isAnnotationPresent(ZControllerAdvice.class)) {
+                    // 全局异常处理类，和 @ZService 一样可以自定义 beanName
+                    String beanName = clazz.getAnnotation(ZControllerAdvice.class).value();
+                    if ("".equals(beanName.trim())) {
+                        beanName = toLowerFirstCase(clazz.getSimpleName());
+                    }
+                    registerBean(beanName, clazz);
 
                 } else if (clazz.isAnnotationPresent(ZService.class)) {
                     // 1、判断是否有自定义的 beanName
@@ -288,20 +586,10 @@ public class ZDispatcherServlet extends HttpServlet {
                     if ("".equals(beanName.trim())) {
                         beanName = toLowerFirstCase(clazz.getSimpleName());
                     }
-                    Object instance = clazz.newInstance();
-
-                    // 3、以自定义名称，将bean加入到ioc容器
-                    ioc.put(beanName, instance);
 
-                    // 4、根据类型自动赋值，将类的接口的全类名也作为key，方便使用类型获取对象（这里是通过类型获取的简化写法）
-                    for (Class<?> i : clazz.getInterfaces()) {
-                        if (ioc.containsKey(i.getName())) {
-                            // 接口类型重复，不重复保存
-                            throw new Exception("The “" + i.getName() + "” is exists!!");
-                        }
-                        //把接口的类型直接当成 key 了
-                        ioc.put(i.getName(), instance);
-                    }
+                    // 3、以自定义名称，将bean注册到ioc容器，容器会同时按类、父类和接口建立类型索引，
+                    // 同一接口有多个实现时使用 @ZPrimary 或 @ZQualifier 区分，不再直接报错
+                    registerBean(beanName, clazz);
                 } else {
                     // 这里是表示，例如@Component等注解的逻辑，略过
                     continue;
@@ -310,6 +598,22 @@ public class ZDispatcherServlet extends HttpServlet {
         } catch (Exception e) {
             e.printStackTrace();
         }
+        // 所有 bean 注册之后、创建之前按 @ZCacheable 创建缓存，声明冲突时启动失败
+        caching.declareCaches(beanFactory.getBeanDefinitions());
+    }
+
+    /**
+     * 将 bean 注册到容器，类上的 @ZLazy 优先于 application.properties 中的 lazyInit
+     *
+     * @param beanName
+     * @param clazz
+     */
+    private void registerBean(String beanName, Class<?> clazz) {
+        boolean lazy = "true".equalsIgnoreCase(contextConfig.getProperty("lazyInit", "false").trim());
+        if (clazz.isAnnotationPresent(ZLazy.class)) {
+            lazy = clazz.getAnnotation(ZLazy.class).value();
+        }
+        beanFactory.registerBean(beanName, clazz, lazy, clazz.isAnnotationPresent(ZPrimary.class));
     }
 
     /**
@@ -326,35 +630,58 @@ public class ZDispatcherServlet extends HttpServlet {
     }
 
     /**
-     * 扫描相关的类
+     * 读取编译期生成的组件索引 META-INF/zspring.components，只保留 scanPackage 下的类
+     * 可以配置 componentIndex=false 强制扫描目录
      *
      * @param scanPackage
+     * @return 是否找到了索引
      */
-    private void doScanner(String scanPackage) {
-        // scanPackage=com.lucas.spring 存储的是包路径 , 转换为文件路径，把 . 替换为 /
-        // 路径为 /com/lucas/spring
-        URL url = this.getClass().getClassLoader().getResource("/" + scanPackage.replaceAll("\\.", "/"));
-
-        if (url != null) {
-            File classPath = new File(url.getFile());
-            for (File file : classPath.listFiles()) {
-                if (file.isDirectory()) {
-                    // 是文件夹就继续向下扫描
-                    doScanner(scanPackage + "." + file.getName());
-                } else {
-                    // 不处理不是.class结尾的文件
-                    if (!file.getName().endsWith(".class")) {
-                        continue;
+    private boolean doLoadIndex(String scanPackage) {
+        if ("false".equalsIgnoreCase(contextConfig.getProperty("componentIndex", "true").trim())) {
+            return false;
+        }
+        boolean found = false;
+        try {
+            // 多个 jar 中都可能有索引，全部读取
+            Enumeration<URL> urls = this.getClass().getClassLoader().getResources(ComponentIndexProcessor.COMPONENTS_RESOURCE);
+            while (urls.hasMoreElements()) {
+                found = true;
+                BufferedReader reader = new BufferedReader(new InputStreamReader(urls.nextElement().openStream(), "UTF-8"));
+                try {
+                    String className;
+                    while ((className = reader.readLine()) != null) {
+                        className = className.trim();
+                        if (className.isEmpty() || className.startsWith("#")) {
+                            continue;
+                        }
+                        if (className.startsWith(scanPackage + ".")) {
+                            classNames.add(className);
+                        }
                     }
-                    // 去掉文件名后的.class, 保存全路径到缓存中
-                    String className = (scanPackage + "." + file.getName().replace(".class", ""));
-                    classNames.add(className);
+                } finally {
+                    reader.close();
                 }
             }
-
-        } else {
-            throw new RuntimeException("包路径不对");
+        } catch (IOException e) {
+            // 索引读取失败时退回目录扫描
+            e.printStackTrace();
+            classNames.clear();
+            return false;
         }
+        return found;
+    }
+
+    /**
+     * 扫描相关的类
+     * 支持目录和 jar 包，并行读取字节码，只保留带有 @ZController、@ZService、@ZControllerAdvice 注解的类，
+     * 扫描时不会加载类，后面 doInstance 中只对确认是组件的类调用 Class.forName
+     *
+     * @param scanPackage
+     */
+    private void doScanner(String scanPackage) {
+        ClassPathScanner scanner = new ClassPathScanner(this.getClass().getClassLoader(),
+                Arrays.<Class<?>>asList(ZController.class, ZService.class, ZControllerAdvice.class));
+        classNames.addAll(scanner.scan(scanPackage));
     }
 
     /**
@@ -382,54 +709,4 @@ public class ZDispatcherServlet extends HttpServlet {
             }
         }
     }
-
-    private class Handler{
-        // 保存方法对应的Controller实例
-        protected Object controller;
-        // 保存映射的方法
-        protected Method method;
-        protected Pattern pattern;
-        // 参数顺序
-        protected Map<String, Integer> paramIndexMapping;
-
-        public Handler(Pattern pattern, Object controller, Method method) {
-            this.controller = controller;
-            this.method = method;
-            this.pattern = pattern;
-            paramIndexMapping = new HashMap<String, Integer>();
-            putParamIndexMapping(method);
-        }
-
-        private void putParamIndexMapping(Method method) {
-            // 提取方法参数上的注解，方法中参数和每个参数上的多个注解组成的二维数组
-            Annotation[] [] pa = method.getParameterAnnotations();
-            // 遍历参数
-            for (int i = 0; i < pa.length ; i ++) {
-                // 遍历注解
-                for(Annotation a : pa[i]){
-                    // 判断是否有 @ZRequestParam
-                    if(a instanceof ZRequestParam){
-                        // 拿到 @ZRequestParam 中的参数名，并记录参数顺序
-                        String paramName = ((ZRequestParam) a).value();
-                        if(!"".equals(paramName.trim())){
-                            paramIndexMapping.put(paramName, i);
-                        }
-                    }
-                }
-            }
-            // 获取方法中参数类型
-            Class<?> [] paramsTypes = method.getParameterTypes();
-            // 遍历参数类型
-            for (int i = 0; i < paramsTypes.length ; i ++) {
-                Class<?> type = paramsTypes[i];
-
-                // 排除 HttpServletRequest和 HttpServletResponse，直接记录参数和位置
-                if(type == HttpServletRequest.class || type == HttpServletResponse.class){
-                    paramIndexMapping.put(type.getName(),i);
-                }
-            }
-        }
-    }
 }
-
-
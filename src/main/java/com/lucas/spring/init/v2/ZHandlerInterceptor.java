@@ -0,0 +1,62 @@
+package com.lucas.spring.init.v2;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+
+/**
+ * @author zhangfan
+ * @description 处理器拦截器，在 Controller 方法执行前后调用，用于鉴权、计时、租户解析等通用逻辑
+ * 实现类加上 @ZService 注册到 IOC 容器后自动生效。启动时按路径模式为每个 Handler 计算好拦截器数组，
+ * 请求时直接按数组顺序调用；路由有路径变量或正则、启动时确定不了时，请求时按实际路径匹配并缓存
+ * @date 2026/10/18 12:10
+ **/
+public interface ZHandlerInterceptor {
+
+    /**
+     * 拦截的路径模式，支持 ? 、* 和 **，例如 /web/**，默认拦截所有路径
+     */
+    default String[] getPathPatterns() {
+        return new String[]{"/**"};
+    }
+
+    /**
+     * 排除的路径模式
+     */
+    default String[] getExcludePathPatterns() {
+        return new String[0];
+    }
+
+    /**
+     * 顺序，值越小越先执行 preHandle，postHandle 和 afterCompletion 按相反顺序执行
+     */
+    default int getOrder() {
+        return 0;
+    }
+
+    /**
+     * 方法执行前调用
+     *
+     * @param handler 将要执行的 Controller 方法
+     * @return 返回 false 时不再执行后面的拦截器和方法，响应需要拦截器自己写
+     */
+    default boolean preHandle(HttpServletRequest req, HttpServletResponse resp, Method handler) throws Exception {
+        return true;
+    }
+
+    /**
+     * 方法执行成功后、输出返回值之前调用
+     *
+     * @param returnValue 方法返回值
+     */
+    default void postHandle(HttpServletRequest req, HttpServletResponse resp, Method handler, Object returnValue) throws Exception {
+    }
+
+    /**
+     * 请求处理完成后调用，只有 preHandle 返回 true 的拦截器才会调用
+     *
+     * @param ex 处理过程中抛出的异常，没有异常时为 null
+     */
+    default void afterCompletion(HttpServletRequest req, HttpServletResponse resp, Method handler, Exception ex) throws Exception {
+    }
+}
@@ -0,0 +1,21 @@
+package com.lucas.spring.init.v2;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * @author zhangfan
+ * @description 流式响应体，Controller 方法返回它时由框架传入响应的输出流，适合边生成边输出的大响应
+ * 流式响应事先不知道长度，不会设置 Content-Length
+ * @date 2026/10/17 21:40
+ **/
+public interface ZStreamingBody {
+
+    /**
+     * 把响应内容写入输出流
+     *
+     * @param out 响应的输出流，不需要关闭
+     * @throws IOException
+     */
+    void writeTo(OutputStream out) throws IOException;
+}
@@ -0,0 +1,148 @@
+package com.lucas.spring.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * @author zhangfan
+ * @description 编译期生成组件索引，把所有 @ZController、@ZService、@ZControllerAdvice 类的全类名写入 META-INF/zspring.components
+ * 容器启动时直接读取索引加载这些类，不再需要遍历目录，也不会加载和初始化非组件的类；
+ * 这里只依赖注解的全类名，因此可以先于其他代码单独编译（见 pom.xml 中的 compile-processor）。
+ * 增量编译时只有本次编译的类会经过处理器，写出前合并输出目录中已有的索引，保留仍然存在且仍是组件的类；
+ * 处理器声明处理所有注解，最后一个组件被删除时也会执行，把旧索引改写为空
+ * @date 2026/10/17 17:02
+ **/
+@SupportedAnnotationTypes("*")
+public class ComponentIndexProcessor extends AbstractProcessor {
+
+    public static final String COMPONENTS_RESOURCE = "META-INF/zspring.components";
+
+    private static final String[] COMPONENT_ANNOTATIONS = {
+            "com.lucas.spring.annotation.ZController",
+            "com.lucas.spring.annotation.ZService",
+            "com.lucas.spring.annotation.ZControllerAdvice"
+    };
+
+    // 所有轮次中找到的组件，排序后输出，保证每次编译的结果一致
+    private final Set<String> components = new TreeSet<String>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Elements elements = processingEnv.getElementUtils();
+        for (String name : COMPONENT_ANNOTATIONS) {
+            TypeElement annotation = elements.getTypeElement(name);
+            if (annotation == null) {
+                // 编译的代码没有用到这个框架
+                continue;
+            }
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    continue;
+                }
+                // 内部类需要使用 $ 分隔的名称，Class.forName 才能加载
+                components.add(elements.getBinaryName((TypeElement) element).toString());
+            }
+        }
+        // 最后一轮统一写出索引
+        if (roundEnv.processingOver()) {
+            Set<String> existing = readIndex();
+            for (String component : existing) {
+                if (isComponent(elements, component)) {
+                    components.add(component);
+                }
+            }
+            // 没有旧索引也没有组件时不生成空文件
+            if (!components.isEmpty() || !existing.isEmpty()) {
+                writeIndex();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 读取输出目录中上次编译生成的索引
+     *
+     * @return 没有索引时返回空集合
+     */
+    private Set<String> readIndex() {
+        Set<String> existing = new TreeSet<String>();
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", COMPONENTS_RESOURCE);
+            BufferedReader reader = new BufferedReader(file.openReader(true));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        existing.add(line);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            // 第一次编译，还没有索引
+        } catch (IllegalArgumentException e) {
+            // 部分编译器的输出位置不支持读取，只写出本次的组件
+        }
+        return existing;
+    }
+
+    /**
+     * 旧索引中的类在本次编译后是否仍然存在并且带有组件注解，本次重新编译过的类按新的源码判断
+     */
+    private static boolean isComponent(Elements elements, String binaryName) {
+        TypeElement type = elements.getTypeElement(binaryName.replace('$', '.'));
+        if (type == null || type.getKind() != ElementKind.CLASS) {
+            return false;
+        }
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            String name = ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+            for (String annotation : COMPONENT_ANNOTATIONS) {
+                if (annotation.equals(name)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void writeIndex() {
+        try {
+            FileObject file = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", COMPONENTS_RESOURCE);
+            Writer writer = file.openWriter();
+            try {
+                for (String component : components) {
+                    writer.write(component);
+                    writer.write('\n');
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Unable to write " + COMPONENTS_RESOURCE + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package com.lucas.spring.server;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletResponse;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Enumeration;
+
+/**
+ * @author zhangfan
+ * @description 一个 HTTP/1.1 连接，在虚拟线程（或线程池线程）中用阻塞 IO 依次处理连接上的请求
+ * 输入缓冲区在连接内复用：请求头直接在缓冲区中定位空行后解析，一次读到的多个流水线请求留在缓冲区中依次处理，
+ * 只有缓冲区中的数据不够、需要再从 socket 读取时才把已经生成的响应一起写出，流水线请求的响应因此合并写出。
+ * 空闲超过 serverKeepAliveTimeout 或处理了 serverMaxKeepAliveRequests 个请求后关闭连接
+ * @date 2026/10/18 18:00
+ **/
+class HttpConnection implements Runnable {
+
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes();
+
+    // 应用没有读完的请求体最多丢弃这么多字节，超出时直接关闭连接
+    private static final int MAX_DRAIN_SIZE = 64 * 1024;
+
+    private static final int MAX_CHUNK_LINE = 1024;
+
+    private final ZHttpServer server;
+
+    private final Socket socket;
+
+    private final HttpServlet servlet;
+
+    private InputStream input;
+
+    private OutputStream output;
+
+    private InetSocketAddress remoteAddress;
+
+    private InetSocketAddress localAddress;
+
+    // 输入缓冲区，[start, end) 是已经读取但还没有处理的数据
+    private byte[] in;
+
+    private int start;
+
+    private int end;
+
+    // 输出缓冲区
+    private final byte[] out = new byte[8192];
+
+    private int outCount;
+
+    private final RequestBody body = new RequestBody();
+
+    private ServerHttpRequest request;
+
+    private ServerHttpResponse response;
+
+    HttpConnection(ZHttpServer server, Socket socket, HttpServlet servlet) {
+        this.server = server;
+        this.socket = socket;
+        this.servlet = servlet;
+    }
+
+    @Override
+    public void run() {
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(server.getKeepAliveTimeout());
+            input = socket.getInputStream();
+            output = socket.getOutputStream();
+            remoteAddress = (InetSocketAddress) socket.getRemoteSocketAddress();
+            localAddress = (InetSocketAddress) socket.getLocalSocketAddress();
+            in = new byte[Math.min(8192, server.getMaxHeaderSize())];
+            request = new ServerHttpRequest(this, server.getServletContext());
+            response = new ServerHttpResponse(this, server.getResponseBufferSize());
+            int served = 0;
+            while (server.isRunning() && process(++served >= server.getMaxKeepAliveRequests())) {
+                // 继续处理连接上的下一个请求
+            }
+            flush();
+        } catch (SocketTimeoutException e) {
+            // 空闲超时
+        } catch (IOException e) {
+            // 客户端断开
+        } finally {
+            server.closed(this);
+            close();
+        }
+    }
+
+    /**
+     * 读取并处理一个请求
+     *
+     * @param last 是否是这个连接上的最后一个请求
+     * @return 是否继续处理下一个请求
+     */
+    private boolean process(boolean last) throws IOException {
+        request.recycle();
+        response.reset(request, false);
+        try {
+            int headEnd = readHead();
+            if (headEnd < 0) {
+                return false;
+            }
+            request.parseHead(in, start, headEnd);
+            start = headEnd;
+            prepareBody();
+        } catch (HttpException e) {
+            sendError(e.getStatus(), e.getMessage());
+            return false;
+        } catch (RuntimeException e) {
+            sendError(HttpServletResponse.SC_BAD_REQUEST, null);
+            return false;
+        }
+        request.setBody(body);
+        response.reset(request, request.isKeepAlive() && !last && server.isRunning());
+        try {
+            servlet.service(request, response);
+            response.finish();
+        } catch (IOException e) {
+            throw e;
+        } catch (Throwable e) {
+            if (response.isCommitted()) {
+                // 已经输出了一部分响应，只能关闭连接
+                return false;
+            }
+            response.reset(request, false);
+            int status = e instanceof HttpException
+                    ? ((HttpException) e).getStatus() : HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+            response.sendError(status);
+            server.getServletContext().log("Request failed: " + request.getMethod() + " " + request.getRequestURI(), e);
+            return false;
+        }
+        // 应用没有读完的请求体需要丢弃，下一个请求才能从正确的位置开始
+        return response.isKeepAlive() && body.drain();
+    }
+
+    /**
+     * 根据 Transfer-Encoding 和 Content-Length 确定请求体的长度
+     */
+    private void prepareBody() {
+        String transferEncoding = request.getHeader("Transfer-Encoding");
+        String contentLength = contentLength();
+        if (transferEncoding != null) {
+            if (!"chunked".equalsIgnoreCase(transferEncoding.trim())) {
+                throw new HttpException(HttpServletResponse.SC_NOT_IMPLEMENTED,
+                        "Unsupported Transfer-Encoding " + transferEncoding);
+            }
+            if (contentLength != null) {
+                // 同时出现时可能是请求走私
+                throw new HttpException(HttpServletResponse.SC_BAD_REQUEST, "Both Transfer-Encoding and Content-Length");
+            }
+            body.reset(-1);
+        } else if (contentLength != null) {
+            long length;
+            try {
+                length = Long.parseLong(contentLength.trim());
+            } catch (NumberFormatException e) {
+                throw new HttpException(HttpServletResponse.SC_BAD_REQUEST, "Invalid Content-Length " + contentLength);
+            }
+            if (length < 0) {
+                throw new HttpException(HttpServletResponse.SC_BAD_REQUEST, "Invalid Content-Length " + contentLength);
+            }
+            body.reset(length);
+        } else {
+            body.reset(0);
+        }
+        if (request.isHttp11() && request.getHeader("Host") == null) {
+            throw new HttpException(HttpServletResponse.SC_BAD_REQUEST, "Missing Host header");
+        }
+        String expect = request.getHeader("Expect");
+        if (expect != null) {
+            if (!"100-continue".equalsIgnoreCase(expect.trim())) {
+                throw new HttpException(HttpServletResponse.SC_EXPECTATION_FAILED, "Unsupported Expect " + expect);
+            }
+            // 应用第一次读取请求体时才回复 100 Continue
+            body.expectContinue = request.isHttp11() && !body.finished;
+        }
+    }
+
+    /**
+     * 多个 Content-Length 或一个值中用逗号分隔的多个长度必须一致，否则前后两个服务器可能按不同的长度切分请求
+     */
+    private String contentLength() {
+        String value = null;
+        for (Enumeration<String> values = request.getHeaders("Content-Length"); values.hasMoreElements(); ) {
+            for (String length : values.nextElement().split(",", -1)) {
+                length = length.trim();
+                if (value != null && !value.equals(length)) {
+                    throw new HttpException(HttpServletResponse.SC_BAD_REQUEST, "Conflicting Content-Length headers");
+                }
+                value = length;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 在输入缓冲区中找到请求头结束的位置
+     *
+     * @return 空行之后的位置，连接在两个请求之间正常关闭时返回 -1
+     */
+    private int readHead() throws IOException {
+        int scanned = 0;
+        while (true) {
+            // 请求之间多余的空行直接跳过
+            while (start < end && (in[start] == '\r' || in[start] == '\n')) {
+                start++;
+            }
+            for (int i = Math.max(start, start + scanned - 2); i < end; i++) {
+                if (in[i] != '\n') {
+                    continue;
+                }
+                if (i + 1 < end && in[i + 1] == '\n') {
+                    return i + 2;
+                }
+                if (i + 2 < end && in[i + 1] == '\r' && in[i + 2] == '\n') {
+                    return i + 3;
+                }
+            }
+            scanned = end - start;
+            if (scanned >= server.getMaxHeaderSize()) {
+                throw new HttpException(431, "Request header is too large");
+            }
+            if (!fill()) {
+                if (start == end) {
+                    return -1;
+                }
+                throw new EOFException("Unexpected end of request head");
+            }
+        }
+    }
+
+    /**
+     * 从 socket 读取更多数据到输入缓冲区
+     * 读取之前先把已经生成的响应写出，避免客户端等待响应时双方都阻塞
+     *
+     * @return 连接已经关闭时返回 false
+     */
+    private boolean fill() throws IOException {
+        flush();
+        if (start == end) {
+            start = 0;
+            end = 0;
+        } else if (end == in.length) {
+            if (start > 0) {
+                System.arraycopy(in, start, in, 0, end - start);
+                end -= start;
+                start = 0;
+            } else {
+                byte[] grown = new byte[in.length * 2];
+                System.arraycopy(in, 0, grown, 0, end);
+                in = grown;
+            }
+        }
+        int n = input.read(in, end, in.length - end);
+        if (n <= 0) {
+            return false;
+        }
+        end += n;
+        return true;
+    }
+
+    private int readByte() throws IOException {
+        if (start == end && !fill()) {
+            return -1;
+        }
+        return in[start++] & 0xFF;
+    }
+
+    void write(byte[] b, int off, int len) throws IOException {
+        if (len > out.length - outCount) {
+            flush();
+            if (len >= out.length) {
+                // 大块内容直接写出，不经过缓冲区
+                output.write(b, off, len);
+                return;
+            }
+        }
+        System.arraycopy(b, off, out, outCount, len);
+        outCount += len;
+    }
+
+    void writeAscii(CharSequence s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            if (outCount == out.length) {
+                flush();
+            }
+            out[outCount++] = (byte) s.charAt(i);
+        }
+    }
+
+    void flush() throws IOException {
+        if (outCount > 0) {
+            output.write(out, 0, outCount);
+            outCount = 0;
+        }
+    }
+
+    private void sendError(int status, String message) throws IOException {
+        response.reset(request, false);
+        response.sendError(status, message);
+        flush();
+    }
+
+    void close() {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // 已经关闭
+        }
+    }
+
+    InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    InetSocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    int getMaxFormSize() {
+        return server.getMaxFormSize();
+    }
+
+    /**
+     * 请求体，按 Content-Length 或 chunked 从连接中读取，每个连接一个，请求之间复用
+     */
+    private class RequestBody extends ServletInputStream {
+
+        // Content-Length 时为剩余的字节数，chunked 时为当前块剩余的字节数
+        private long remaining;
+
+        private boolean chunked;
+
+        // chunked 时当前块的数据之后还有 CRLF 没有读取
+        private boolean chunkEnd;
+
+        private boolean finished;
+
+        private boolean expectContinue;
+
+        void reset(long length) {
+            chunked = length < 0;
+            remaining = chunked ? 0 : length;
+            chunkEnd = false;
+            finished = length == 0;
+            expectContinue = false;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int n = read(single, 0, 1);
+            return n < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (finished) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            if (expectContinue) {
+                expectContinue = false;
+                write(CONTINUE, 0, CONTINUE.length);
+                flush();
+            }
+            if (remaining == 0) {
+                // 只有 chunked 才会走到这里，读取下一个块的长度
+                if (!nextChunk()) {
+                    finished = true;
+                    return -1;
+                }
+            }
+            if (start == end && !fill()) {
+                throw new EOFException("Unexpected end of request body");
+            }
+            int n = (int) Math.min(Math.min(len, remaining), end - start);
+            System.arraycopy(in, start, b, off, n);
+            start += n;
+            remaining -= n;
+            if (remaining == 0 && !chunked) {
+                finished = true;
+            }
+            return n;
+        }
+
+        /**
+         * @return 最后一个块（长度为 0）时返回 false
+         */
+        private boolean nextChunk() throws IOException {
+            if (chunkEnd) {
+                readLine();
+                chunkEnd = false;
+            }
+            String line = readLine();
+            int semicolon = line.indexOf(';');
+            String size = (semicolon < 0 ? line : line.substring(0, semicolon)).trim();
+            try {
+                remaining = Long.parseLong(size, 16);
+            } catch (NumberFormatException e) {
+                throw new HttpException(HttpServletResponse.SC_BAD_REQUEST, "Invalid chunk size " + size);
+            }
+            if (remaining < 0) {
+                throw new HttpException(HttpServletResponse.SC_BAD_REQUEST, "Invalid chunk size " + size);
+            }
+            if (remaining == 0) {
+                // 跳过 trailer
+                while (!readLine().isEmpty()) {
+                    // 忽略
+                }
+                return false;
+            }
+            chunkEnd = true;
+            return true;
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = readByte()) != '\n') {
+                if (c < 0) {
+                    throw new EOFException("Unexpected end of chunked body");
+                }
+                if (c != '\r') {
+                    if (line.length() >= MAX_CHUNK_LINE) {
+                        throw new HttpException(HttpServletResponse.SC_BAD_REQUEST, "Chunk line is too long");
+                    }
+                    line.append((char) c);
+                }
+            }
+            return line.toString();
+        }
+
+        /**
+         * 丢弃应用没有读取的请求体
+         *
+         * @return 是否可以继续处理下一个请求
+         */
+        boolean drain() {
+            if (finished) {
+                return true;
+            }
+            if (expectContinue) {
+                // 没有回复 100 Continue，客户端可能不会发送请求体，无法确定下一个请求的位置
+                return false;
+            }
+            try {
+                byte[] scratch = new byte[4096];
+                long drained = 0;
+                int n;
+                while ((n = read(scratch, 0, scratch.length)) != -1) {
+                    drained += n;
+                    if (drained > MAX_DRAIN_SIZE) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                return false;
+            } catch (HttpException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new IllegalStateException("Non-blocking IO is not supported by the embedded server");
+        }
+    }
+}
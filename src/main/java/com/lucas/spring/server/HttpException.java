@@ -0,0 +1,22 @@
+package com.lucas.spring.server;
+
+/**
+ * @author zhangfan
+ * @description 请求不符合 HTTP 协议时抛出，由 HttpConnection 返回对应的状态码并关闭连接
+ * @date 2026/10/18 18:00
+ **/
+class HttpException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    HttpException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,762 @@
+package com.lucas.spring.server;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpUpgradeHandler;
+import javax.servlet.http.Part;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author zhangfan
+ * @description 内置 HTTP 服务的请求对象，每个连接一个，处理完一个请求后 recycle() 清空再给下一个请求使用
+ * 请求行和请求头在连接的输入缓冲区中解析，请求体从连接中按 Content-Length 或 chunked 读取；
+ * 查询参数和表单参数在第一次调用 getParameter 系列方法时才解析
+ * @date 2026/10/18 18:00
+ **/
+class ServerHttpRequest implements HttpServletRequest {
+
+    private final HttpConnection connection;
+
+    private final ServletContext servletContext;
+
+    private String method;
+
+    private String requestURI;
+
+    private String queryString;
+
+    private String protocol;
+
+    // 请求头按顺序保存，个数不多，按名称查找时直接遍历
+    private final List<String> headerNames = new ArrayList<String>();
+
+    private final List<String> headerValues = new ArrayList<String>();
+
+    private final Map<String, Object> attributes = new HashMap<String, Object>();
+
+    private Map<String, String[]> parameters;
+
+    private String characterEncoding;
+
+    private ServletInputStream body;
+
+    // 请求体是否已经被 getInputStream()/getReader() 读取，读取过之后不再解析表单参数
+    private boolean bodyUsed;
+
+    ServerHttpRequest(HttpConnection connection, ServletContext servletContext) {
+        this.connection = connection;
+        this.servletContext = servletContext;
+    }
+
+    /**
+     * 解析请求行和请求头
+     *
+     * @param b    输入缓冲区
+     * @param from 请求行开始的位置
+     * @param to   空行之后的位置
+     */
+    void parseHead(byte[] b, int from, int to) {
+        int lineEnd = lineEnd(b, from, to);
+        parseRequestLine(b, from, trimCr(b, from, lineEnd));
+        int p = lineEnd + 1;
+        while (p < to) {
+            lineEnd = lineEnd(b, p, to);
+            int end = trimCr(b, p, lineEnd);
+            if (end == p) {
+                break;
+            }
+            if (b[p] == ' ' || b[p] == '\t') {
+                throw new HttpException(HttpServletResponse.SC_BAD_REQUEST, "Obsolete line folding is not supported");
+            }
+            int colon = indexOf(b, p, end, (byte) ':');
+            if (colon <= p) {
+                throw new HttpException(HttpServletResponse.SC_BAD_REQUEST, "Malformed header");
+            }
+            headerNames.add(latin1(b, p, colon));
+            int valueStart = colon + 1;
+            while (valueStart < end && (b[valueStart] == ' ' || b[valueStart] == '\t')) {
+                valueStart++;
+            }
+            int valueEnd = end;
+            while (valueEnd > valueStart && (b[valueEnd - 1] == ' ' || b[valueEnd - 1] == '\t')) {
+                valueEnd--;
+            }
+            headerValues.add(latin1(b, valueStart, valueEnd));
+            p = lineEnd + 1;
+        }
+        String contentType = getHeader("Content-Type");
+        characterEncoding = contentType == null ? null : charsetOf(contentType);
+    }
+
+    private void parseRequestLine(byte[] b, int from, int to) {
+        int firstSpace = indexOf(b, from, to, (byte) ' ');
+        int secondSpace = firstSpace < 0 ? -1 : indexOf(b, firstSpace + 1, to, (byte) ' ');
+        if (firstSpace <= from || secondSpace <= firstSpace + 1) {
+            throw new HttpException(HttpServletResponse.SC_BAD_REQUEST, "Malformed request line");
+        }
+        method = latin1(b, from, firstSpace);
+        protocol = latin1(b, secondSpace + 1, to);
+        if (!"HTTP/1.1".equals(protocol) && !"HTTP/1.0".equals(protocol)) {
+            throw new HttpException(HttpServletResponse.SC_HTTP_VERSION_NOT_SUPPORTED, "Unsupported protocol " + protocol);
+        }
+        int targetStart = firstSpace + 1;
+        // absolute-form，例如 GET http://host/path HTTP/1.1，只保留路径部分
+        if (b[targetStart] != '/' && b[targetStart] != '*') {
+            int scheme = indexOf(b, targetStart, secondSpace, (byte) ':');
+            int path = scheme < 0 ? -1 : indexOf(b, scheme + 3, secondSpace, (byte) '/');
+            targetStart = path < 0 ? secondSpace : path;
+        }
+        int question = indexOf(b, targetStart, secondSpace, (byte) '?');
+        if (question < 0) {
+            requestURI = targetStart == secondSpace ? "/" : latin1(b, targetStart, secondSpace);
+            queryString = null;
+        } else {
+            requestURI = targetStart == question ? "/" : latin1(b, targetStart, question);
+            queryString = latin1(b, question + 1, secondSpace);
+        }
+    }
+
+    void setBody(ServletInputStream body) {
+        this.body = body;
+    }
+
+    /**
+     * 请求行还没有解析成功时按 HTTP/1.1 返回错误响应
+     */
+    boolean isHttp11() {
+        return !"HTTP/1.0".equals(protocol);
+    }
+
+    /**
+     * HTTP/1.1 默认保持连接，除非 Connection: close；HTTP/1.0 只有 Connection: keep-alive 时才保持
+     */
+    boolean isKeepAlive() {
+        String connection = getHeader("Connection");
+        if (isHttp11()) {
+            return connection == null || !containsToken(connection, "close");
+        }
+        return connection != null && containsToken(connection, "keep-alive");
+    }
+
+    /**
+     * 清空上一个请求的状态
+     */
+    void recycle() {
+        method = null;
+        requestURI = null;
+        queryString = null;
+        protocol = null;
+        headerNames.clear();
+        headerValues.clear();
+        attributes.clear();
+        parameters = null;
+        characterEncoding = null;
+        body = null;
+        bodyUsed = false;
+    }
+
+    @Override
+    public String getAuthType() {
+        return null;
+    }
+
+    @Override
+    public Cookie[] getCookies() {
+        List<Cookie> cookies = new ArrayList<Cookie>();
+        for (int i = 0; i < headerNames.size(); i++) {
+            if (!"Cookie".equalsIgnoreCase(headerNames.get(i))) {
+                continue;
+            }
+            for (String pair : headerValues.get(i).split(";")) {
+                int equals = pair.indexOf('=');
+                if (equals <= 0) {
+                    continue;
+                }
+                String name = pair.substring(0, equals).trim();
+                String value = pair.substring(equals + 1).trim();
+                if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+                    value = value.substring(1, value.length() - 1);
+                }
+                try {
+                    cookies.add(new Cookie(name, value));
+                } catch (IllegalArgumentException ignored) {
+                    // 名称不合法的 cookie 直接忽略
+                }
+            }
+        }
+        return cookies.isEmpty() ? null : cookies.toArray(new Cookie[0]);
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        String value = getHeader(name);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cannot parse date header " + name + ": " + value);
+        }
+    }
+
+    @Override
+    public String getHeader(String name) {
+        for (int i = 0; i < headerNames.size(); i++) {
+            if (headerNames.get(i).equalsIgnoreCase(name)) {
+                return headerValues.get(i);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        List<String> values = new ArrayList<String>(1);
+        for (int i = 0; i < headerNames.size(); i++) {
+            if (headerNames.get(i).equalsIgnoreCase(name)) {
+                values.add(headerValues.get(i));
+            }
+        }
+        return Collections.enumeration(values);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        Set<String> names = new LinkedHashSet<String>(headerNames);
+        return Collections.enumeration(names);
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        String value = getHeader(name);
+        return value == null ? -1 : Integer.parseInt(value.trim());
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public String getPathInfo() {
+        return requestURI;
+    }
+
+    @Override
+    public String getPathTranslated() {
+        return null;
+    }
+
+    @Override
+    public String getContextPath() {
+        return "";
+    }
+
+    @Override
+    public String getQueryString() {
+        return queryString;
+    }
+
+    @Override
+    public String getRemoteUser() {
+        return null;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        return false;
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+        return null;
+    }
+
+    @Override
+    public String getRequestedSessionId() {
+        return null;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return requestURI;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        StringBuffer url = new StringBuffer(64).append(getScheme()).append("://").append(getServerName());
+        if (getServerPort() != 80) {
+            url.append(':').append(getServerPort());
+        }
+        return url.append(requestURI);
+    }
+
+    @Override
+    public String getServletPath() {
+        // 只有一个映射到 /* 的 Servlet，路径全部放在 pathInfo 中
+        return "";
+    }
+
+    /**
+     * 内置服务不支持会话
+     */
+    @Override
+    public HttpSession getSession(boolean create) {
+        return null;
+    }
+
+    @Override
+    public HttpSession getSession() {
+        return null;
+    }
+
+    @Override
+    public String changeSessionId() {
+        throw new IllegalStateException("Sessions are not supported by the embedded server");
+    }
+
+    @Override
+    public boolean isRequestedSessionIdValid() {
+        return false;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromCookie() {
+        return false;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromURL() {
+        return false;
+    }
+
+    @Override
+    @Deprecated
+    public boolean isRequestedSessionIdFromUrl() {
+        return false;
+    }
+
+    @Override
+    public boolean authenticate(HttpServletResponse response) {
+        return false;
+    }
+
+    @Override
+    public void login(String username, String password) {
+        throw new UnsupportedOperationException("Authentication is not supported by the embedded server");
+    }
+
+    @Override
+    public void logout() {
+    }
+
+    @Override
+    public Collection<Part> getParts() {
+        throw new UnsupportedOperationException("Multipart is not supported by the embedded server");
+    }
+
+    @Override
+    public Part getPart(String name) {
+        throw new UnsupportedOperationException("Multipart is not supported by the embedded server");
+    }
+
+    @Override
+    public <T extends HttpUpgradeHandler> T upgrade(Class<T> handlerClass) {
+        throw new UnsupportedOperationException("Upgrade is not supported by the embedded server");
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+
+    @Override
+    public void setCharacterEncoding(String env) throws UnsupportedEncodingException {
+        if (env != null && !java.nio.charset.Charset.isSupported(env)) {
+            throw new UnsupportedEncodingException(env);
+        }
+        this.characterEncoding = env;
+    }
+
+    @Override
+    public int getContentLength() {
+        long length = getContentLengthLong();
+        return length > Integer.MAX_VALUE ? -1 : (int) length;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        String value = getHeader("Content-Length");
+        return value == null ? -1 : Long.parseLong(value.trim());
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader("Content-Type");
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        bodyUsed = true;
+        return body;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameters().get(name);
+        return values == null || values.length == 0 ? null : values[0];
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters().keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return parameters().get(name);
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return Collections.unmodifiableMap(parameters());
+    }
+
+    /**
+     * 第一次使用时解析查询参数，POST 的表单请求体没有被读取过时一起解析
+     */
+    private Map<String, String[]> parameters() {
+        if (parameters != null) {
+            return parameters;
+        }
+        Map<String, List<String>> values = new LinkedHashMap<String, List<String>>();
+        String charset = characterEncoding == null ? "UTF-8" : characterEncoding;
+        if (queryString != null) {
+            parseParameters(queryString, charset, values);
+        }
+        String contentType = getContentType();
+        if (!bodyUsed && "POST".equals(method) && contentType != null
+                && contentType.toLowerCase(Locale.ROOT).startsWith("application/x-www-form-urlencoded")) {
+            bodyUsed = true;
+            parseParameters(readForm(), charset, values);
+        }
+        parameters = new LinkedHashMap<String, String[]>();
+        for (Map.Entry<String, List<String>> entry : values.entrySet()) {
+            parameters.put(entry.getKey(), entry.getValue().toArray(new String[0]));
+        }
+        return parameters;
+    }
+
+    private String readForm() {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = body.read(buffer)) != -1) {
+                if (out.size() + n > connection.getMaxFormSize()) {
+                    throw new HttpException(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Form body is too large");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toString("ISO-8859-1");
+        } catch (IOException e) {
+            throw new IllegalStateException("Read form body failed", e);
+        }
+    }
+
+    private static void parseParameters(String query, String charset, Map<String, List<String>> values) {
+        int start = 0;
+        while (start <= query.length()) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = query.length();
+            }
+            if (end > start) {
+                String pair = query.substring(start, end);
+                int equals = pair.indexOf('=');
+                String name = decode(equals < 0 ? pair : pair.substring(0, equals), charset);
+                String value = equals < 0 ? "" : decode(pair.substring(equals + 1), charset);
+                List<String> list = values.get(name);
+                if (list == null) {
+                    list = new ArrayList<String>(1);
+                    values.put(name, list);
+                }
+                list.add(value);
+            }
+            start = end + 1;
+        }
+    }
+
+    private static String decode(String value, String charset) {
+        if (value.indexOf('%') < 0 && value.indexOf('+') < 0) {
+            return value;
+        }
+        try {
+            return URLDecoder.decode(value, charset);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalArgumentException("Unsupported charset " + charset);
+        } catch (IllegalArgumentException e) {
+            // 不完整的 % 转义，按原样保留
+            return value;
+        }
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public String getScheme() {
+        return "http";
+    }
+
+    @Override
+    public String getServerName() {
+        String host = getHeader("Host");
+        if (host == null || host.isEmpty()) {
+            return getLocalName();
+        }
+        // IPv6 地址形如 [::1]:8080
+        int colon = host.startsWith("[") ? host.indexOf(':', host.indexOf(']')) : host.indexOf(':');
+        return colon < 0 ? host : host.substring(0, colon);
+    }
+
+    @Override
+    public int getServerPort() {
+        String host = getHeader("Host");
+        if (host != null) {
+            int colon = host.startsWith("[") ? host.indexOf(':', host.indexOf(']')) : host.indexOf(':');
+            if (colon >= 0) {
+                try {
+                    return Integer.parseInt(host.substring(colon + 1));
+                } catch (NumberFormatException ignored) {
+                    // 使用本地端口
+                }
+            } else {
+                return 80;
+            }
+        }
+        return getLocalPort();
+    }
+
+    @Override
+    public BufferedReader getReader() throws UnsupportedEncodingException {
+        bodyUsed = true;
+        String charset = characterEncoding == null ? StandardCharsets.UTF_8.name() : characterEncoding;
+        return new BufferedReader(new InputStreamReader(body, charset));
+    }
+
+    @Override
+    public String getRemoteAddr() {
+        return connection.getRemoteAddress().getAddress().getHostAddress();
+    }
+
+    @Override
+    public String getRemoteHost() {
+        return getRemoteAddr();
+    }
+
+    @Override
+    public void setAttribute(String name, Object o) {
+        if (o == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, o);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public Locale getLocale() {
+        Enumeration<Locale> locales = getLocales();
+        return locales.nextElement();
+    }
+
+    @Override
+    public Enumeration<Locale> getLocales() {
+        String value = getHeader("Accept-Language");
+        List<Locale> locales = new ArrayList<Locale>();
+        if (value != null) {
+            for (String range : value.split(",")) {
+                int semicolon = range.indexOf(';');
+                String tag = (semicolon < 0 ? range : range.substring(0, semicolon)).trim();
+                if (!tag.isEmpty() && !"*".equals(tag)) {
+                    locales.add(Locale.forLanguageTag(tag));
+                }
+            }
+        }
+        if (locales.isEmpty()) {
+            locales.add(Locale.getDefault());
+        }
+        return Collections.enumeration(locales);
+    }
+
+    @Override
+    public boolean isSecure() {
+        return false;
+    }
+
+    @Override
+    public RequestDispatcher getRequestDispatcher(String path) {
+        return null;
+    }
+
+    @Override
+    @Deprecated
+    public String getRealPath(String path) {
+        return null;
+    }
+
+    @Override
+    public int getRemotePort() {
+        return connection.getRemoteAddress().getPort();
+    }
+
+    @Override
+    public String getLocalName() {
+        return connection.getLocalAddress().getHostName();
+    }
+
+    @Override
+    public String getLocalAddr() {
+        return connection.getLocalAddress().getAddress().getHostAddress();
+    }
+
+    @Override
+    public int getLocalPort() {
+        return connection.getLocalAddress().getPort();
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return servletContext;
+    }
+
+    /**
+     * 连接由虚拟线程或线程池中的线程阻塞处理，不需要异步上下文，@ZAsync 的方法在当前线程中直接执行
+     */
+    @Override
+    public AsyncContext startAsync() {
+        throw new IllegalStateException("Async is not supported by the embedded server");
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+        throw new IllegalStateException("Async is not supported by the embedded server");
+    }
+
+    @Override
+    public boolean isAsyncStarted() {
+        return false;
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return false;
+    }
+
+    @Override
+    public AsyncContext getAsyncContext() {
+        throw new IllegalStateException("Async is not supported by the embedded server");
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    static String charsetOf(String contentType) {
+        int index = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (index < 0) {
+            return null;
+        }
+        String charset = contentType.substring(index + 8);
+        int semicolon = charset.indexOf(';');
+        if (semicolon >= 0) {
+            charset = charset.substring(0, semicolon);
+        }
+        charset = charset.trim();
+        if (charset.length() >= 2 && charset.charAt(0) == '"') {
+            charset = charset.substring(1, charset.length() - 1);
+        }
+        return charset.isEmpty() ? null : charset;
+    }
+
+    private static boolean containsToken(String value, String token) {
+        for (String part : value.split(",")) {
+            if (part.trim().equalsIgnoreCase(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int lineEnd(byte[] b, int from, int to) {
+        int index = indexOf(b, from, to, (byte) '\n');
+        return index < 0 ? to : index;
+    }
+
+    private static int trimCr(byte[] b, int from, int lineEnd) {
+        return lineEnd > from && b[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+    }
+
+    private static int indexOf(byte[] b, int from, int to, byte target) {
+        for (int i = from; i < to; i++) {
+            if (b[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static String latin1(byte[] b, int from, int to) {
+        // 请求头按 ISO-8859-1 解码，每个字节直接对应一个字符
+        return new String(b, 0, from, to - from);
+    }
+}
@@ -0,0 +1,723 @@
+package com.lucas.spring.server;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * @author zhangfan
+ * @description 内置 HTTP 服务的响应对象，和 ServerHttpRequest 一样每个连接一个，请求之间复用
+ * 响应体先写入复用的缓冲区，处理完时整个响应体都在缓冲区中就加上 Content-Length 一次写出；
+ * 超出缓冲区时开始输出：已经设置了 Content-Length 就按长度输出，否则 HTTP/1.1 使用 chunked，HTTP/1.0 输出完关闭连接。
+ * 响应头和响应体都写入连接的输出缓冲区，流水线中的多个响应会合并成一次 socket 写出
+ * @date 2026/10/18 18:00
+ **/
+class ServerHttpResponse implements HttpServletResponse {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+
+    // 响应头名称中不允许的分隔符
+    private static final String SEPARATORS = "()<>@,;:\\\"/[]?={}";
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    // Date 响应头每秒只格式化一次
+    private static volatile CachedDate cachedDate = new CachedDate(0, null);
+
+    private final HttpConnection connection;
+
+    private final byte[] buffer;
+
+    private final BodyOutputStream outputStream = new BodyOutputStream();
+
+    private final List<String> headerNames = new ArrayList<String>();
+
+    private final List<String> headerValues = new ArrayList<String>();
+
+    private ServerHttpRequest request;
+
+    private int status;
+
+    private String contentType;
+
+    private String characterEncoding;
+
+    private long contentLength;
+
+    private Locale locale;
+
+    // 缓冲区中还没有写出的字节数
+    private int count;
+
+    // 已经写出的响应体字节数，用于检查和 Content-Length 是否一致
+    private long written;
+
+    private boolean committed;
+
+    private boolean chunked;
+
+    // sendError、sendRedirect 或请求处理完成后，应用再写入的内容被忽略
+    private boolean finished;
+
+    private boolean keepAlive;
+
+    private PrintWriter writer;
+
+    ServerHttpResponse(HttpConnection connection, int bufferSize) {
+        this.connection = connection;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * 开始处理新的请求
+     *
+     * @param keepAlive 处理完后是否保持连接，应用设置 Connection: close 时会改为 false
+     */
+    void reset(ServerHttpRequest request, boolean keepAlive) {
+        this.request = request;
+        this.keepAlive = keepAlive;
+        this.status = SC_OK;
+        this.contentType = null;
+        this.characterEncoding = null;
+        this.contentLength = -1;
+        this.locale = null;
+        this.count = 0;
+        this.written = 0;
+        this.committed = false;
+        this.chunked = false;
+        this.finished = false;
+        this.writer = null;
+        headerNames.clear();
+        headerValues.clear();
+    }
+
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * 请求处理完成，写出还在缓冲区中的内容并结束响应体
+     */
+    void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (writer != null) {
+            writer.flush();
+        }
+        finished = true;
+        if (!committed) {
+            if (hasBody()) {
+                // 整个响应体都在缓冲区中，以实际长度为准
+                contentLength = count;
+            } else {
+                count = 0;
+            }
+            commit();
+            writeBuffer();
+        } else if (chunked) {
+            connection.write(LAST_CHUNK, 0, LAST_CHUNK.length);
+        } else if (contentLength >= 0 && hasBody() && written != contentLength) {
+            // 已经输出的内容和 Content-Length 不一致，客户端无法确定响应结束的位置
+            keepAlive = false;
+        }
+    }
+
+    /**
+     * HEAD 请求以及 1xx、204、304 响应没有响应体
+     */
+    private boolean hasBody() {
+        return !"HEAD".equals(request.getMethod()) && status >= 200
+                && status != SC_NO_CONTENT && status != SC_NOT_MODIFIED;
+    }
+
+    private void commit() throws IOException {
+        committed = true;
+        boolean hasBody = hasBody();
+        if (hasBody && contentLength < 0) {
+            if (request.isHttp11()) {
+                chunked = true;
+            } else {
+                // HTTP/1.0 不支持 chunked，以关闭连接表示响应结束
+                keepAlive = false;
+            }
+        }
+        StringBuilder head = new StringBuilder(256);
+        head.append(request.isHttp11() ? "HTTP/1.1 " : "HTTP/1.0 ").append(status).append(' ')
+                .append(reasonPhrase(status)).append("\r\n");
+        for (int i = 0; i < headerNames.size(); i++) {
+            head.append(headerNames.get(i)).append(": ").append(headerValues.get(i)).append("\r\n");
+        }
+        if (contentType != null) {
+            head.append("Content-Type: ").append(getContentType()).append("\r\n");
+        }
+        if (chunked) {
+            head.append("Transfer-Encoding: chunked\r\n");
+        } else if (contentLength >= 0 && status != SC_NO_CONTENT && status != SC_NOT_MODIFIED && status >= 200) {
+            // HEAD 请求保留应用设置的长度，和 GET 时一致
+            head.append("Content-Length: ").append(contentLength).append("\r\n");
+        }
+        if (!keepAlive) {
+            head.append("Connection: close\r\n");
+        } else if (!request.isHttp11()) {
+            head.append("Connection: keep-alive\r\n");
+        }
+        head.append("Date: ").append(currentDate()).append("\r\n\r\n");
+        connection.writeAscii(head);
+    }
+
+    private void writeBuffer() throws IOException {
+        if (count > 0) {
+            writeBody(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    private void writeBody(byte[] b, int off, int len) throws IOException {
+        if (len == 0 || !hasBody()) {
+            return;
+        }
+        if (chunked) {
+            connection.writeAscii(Integer.toHexString(len));
+            connection.write(CRLF, 0, CRLF.length);
+            connection.write(b, off, len);
+            connection.write(CRLF, 0, CRLF.length);
+        } else {
+            connection.write(b, off, len);
+        }
+        written += len;
+    }
+
+    private void write(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+            return;
+        }
+        if (!committed) {
+            if (count + len <= buffer.length) {
+                System.arraycopy(b, off, buffer, count, len);
+                count += len;
+                return;
+            }
+            commit();
+            writeBuffer();
+        }
+        writeBody(b, off, len);
+    }
+
+    private static String currentDate() {
+        long second = System.currentTimeMillis() / 1000;
+        CachedDate date = cachedDate;
+        if (date.second != second) {
+            date = new CachedDate(second, DATE_FORMAT.format(Instant.ofEpochSecond(second)));
+            cachedDate = date;
+        }
+        return date.value;
+    }
+
+    private void checkNotCommitted() {
+        if (committed) {
+            throw new IllegalStateException("Response is already committed");
+        }
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        StringBuilder value = new StringBuilder(cookie.getName()).append('=');
+        if (cookie.getValue() != null) {
+            value.append(cookie.getValue());
+        }
+        if (cookie.getMaxAge() >= 0) {
+            value.append("; Max-Age=").append(cookie.getMaxAge());
+        }
+        if (cookie.getPath() != null) {
+            value.append("; Path=").append(cookie.getPath());
+        }
+        if (cookie.getDomain() != null) {
+            value.append("; Domain=").append(cookie.getDomain());
+        }
+        if (cookie.getSecure()) {
+            value.append("; Secure");
+        }
+        if (cookie.isHttpOnly()) {
+            value.append("; HttpOnly");
+        }
+        addHeader("Set-Cookie", value.toString());
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return getHeader(name) != null;
+    }
+
+    @Override
+    public String encodeURL(String url) {
+        return url;
+    }
+
+    @Override
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeUrl(String url) {
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeRedirectUrl(String url) {
+        return url;
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        checkNotCommitted();
+        resetBuffer();
+        setStatus(sc);
+        String body = msg == null ? sc + " " + reasonPhrase(sc) : msg;
+        setContentType("text/plain;charset=UTF-8");
+        byte[] bytes = body.getBytes(Charset.forName("UTF-8"));
+        setContentLength(bytes.length);
+        write(bytes, 0, bytes.length);
+        // sendError 之后响应已经完成，应用后续的写入被忽略
+        finish();
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        sendError(sc, null);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        checkNotCommitted();
+        resetBuffer();
+        setStatus(SC_FOUND);
+        setHeader("Location", location);
+        setContentLength(0);
+        finish();
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        setHeader(name, DATE_FORMAT.format(Instant.ofEpochMilli(date)));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        addHeader(name, DATE_FORMAT.format(Instant.ofEpochMilli(date)));
+    }
+
+    /**
+     * Content-Type、Content-Length 和 Connection 单独保存，输出时统一生成
+     */
+    @Override
+    public void setHeader(String name, String value) {
+        checkHeader(name, value);
+        if (committed || specialHeader(name, value)) {
+            return;
+        }
+        removeHeader(name);
+        if (value != null) {
+            headerNames.add(name);
+            headerValues.add(value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        checkHeader(name, value);
+        if (committed || value == null || specialHeader(name, value)) {
+            return;
+        }
+        headerNames.add(name);
+        headerValues.add(value);
+    }
+
+    /**
+     * 响应头按字节原样输出，名称只允许 token 字符，值中不允许 CR、LF 和 ISO-8859-1 以外的字符，
+     * 否则 sendRedirect 的地址等来自请求的内容可以拆分响应
+     */
+    private static void checkHeader(String name, String value) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Response header name is empty");
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c <= ' ' || c >= 0x7F || SEPARATORS.indexOf(c) >= 0) {
+                throw new IllegalArgumentException("Invalid character in response header name " + name);
+            }
+        }
+        checkHeaderValue(name, value);
+    }
+
+    private static void checkHeaderValue(String name, String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\r' || c == '\n' || c == 0 || c > 0xFF) {
+                throw new IllegalArgumentException("Invalid character in response header " + name);
+            }
+        }
+    }
+
+    private boolean specialHeader(String name, String value) {
+        if ("Content-Type".equalsIgnoreCase(name)) {
+            setContentType(value);
+            return true;
+        }
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLengthLong(value == null ? -1 : Long.parseLong(value.trim()));
+            return true;
+        }
+        if ("Connection".equalsIgnoreCase(name)) {
+            if (value != null && "close".equalsIgnoreCase(value.trim())) {
+                keepAlive = false;
+            }
+            return true;
+        }
+        return "Transfer-Encoding".equalsIgnoreCase(name) || "Date".equalsIgnoreCase(name);
+    }
+
+    private void removeHeader(String name) {
+        for (int i = headerNames.size() - 1; i >= 0; i--) {
+            if (headerNames.get(i).equalsIgnoreCase(name)) {
+                headerNames.remove(i);
+                headerValues.remove(i);
+            }
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        setHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        addHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        if (!committed) {
+            this.status = sc;
+        }
+    }
+
+    @Override
+    @Deprecated
+    public void setStatus(int sc, String sm) {
+        setStatus(sc);
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        if ("Content-Type".equalsIgnoreCase(name)) {
+            return getContentType();
+        }
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            return contentLength < 0 ? null : String.valueOf(contentLength);
+        }
+        for (int i = 0; i < headerNames.size(); i++) {
+            if (headerNames.get(i).equalsIgnoreCase(name)) {
+                return headerValues.get(i);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        List<String> values = new ArrayList<String>(1);
+        for (int i = 0; i < headerNames.size(); i++) {
+            if (headerNames.get(i).equalsIgnoreCase(name)) {
+                values.add(headerValues.get(i));
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        return new LinkedHashSet<String>(headerNames);
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding == null ? "ISO-8859-1" : characterEncoding;
+    }
+
+    @Override
+    public String getContentType() {
+        if (contentType == null) {
+            return null;
+        }
+        if (characterEncoding == null || contentType.toLowerCase(Locale.ROOT).contains("charset=")) {
+            return contentType;
+        }
+        return contentType + ";charset=" + characterEncoding;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws UnsupportedEncodingException {
+        if (writer == null) {
+            // 没有指定编码时按 Servlet 规范使用 ISO-8859-1，并在 Content-Type 中声明
+            if (characterEncoding == null) {
+                characterEncoding = "ISO-8859-1";
+            }
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, characterEncoding), false);
+        }
+        return writer;
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        checkHeaderValue("Content-Type", charset);
+        if (committed || writer != null) {
+            return;
+        }
+        this.characterEncoding = charset;
+        if (contentType != null) {
+            int index = contentType.toLowerCase(Locale.ROOT).indexOf(";charset=");
+            if (index >= 0) {
+                contentType = contentType.substring(0, index);
+            }
+        }
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (!committed) {
+            this.contentLength = len;
+        }
+    }
+
+    @Override
+    public void setContentType(String type) {
+        checkHeaderValue("Content-Type", type);
+        if (committed) {
+            return;
+        }
+        if (type == null) {
+            contentType = null;
+            return;
+        }
+        String charset = ServerHttpRequest.charsetOf(type);
+        if (charset != null && writer == null) {
+            characterEncoding = charset;
+            // 编码单独保存，Content-Type 中只保留类型部分
+            int semicolon = type.indexOf(';');
+            contentType = type.substring(0, semicolon).trim();
+        } else {
+            contentType = type;
+        }
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+        // 缓冲区在连接建立时分配，大小由 serverResponseBufferSize 配置
+    }
+
+    @Override
+    public int getBufferSize() {
+        return buffer.length;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (!committed) {
+            commit();
+        }
+        writeBuffer();
+        connection.flush();
+    }
+
+    @Override
+    public void resetBuffer() {
+        checkNotCommitted();
+        count = 0;
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    @Override
+    public void reset() {
+        checkNotCommitted();
+        reset(request, keepAlive);
+    }
+
+    @Override
+    public void setLocale(Locale loc) {
+        if (!committed) {
+            this.locale = loc;
+            setHeader("Content-Language", loc.toLanguageTag());
+        }
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale == null ? Locale.getDefault() : locale;
+    }
+
+    static String reasonPhrase(int status) {
+        switch (status) {
+            case 100:
+                return "Continue";
+            case 200:
+                return "OK";
+            case 201:
+                return "Created";
+            case 202:
+                return "Accepted";
+            case 204:
+                return "No Content";
+            case 206:
+                return "Partial Content";
+            case 301:
+                return "Moved Permanently";
+            case 302:
+                return "Found";
+            case 303:
+                return "See Other";
+            case 304:
+                return "Not Modified";
+            case 307:
+                return "Temporary Redirect";
+            case 308:
+                return "Permanent Redirect";
+            case 400:
+                return "Bad Request";
+            case 401:
+                return "Unauthorized";
+            case 403:
+                return "Forbidden";
+            case 404:
+                return "Not Found";
+            case 405:
+                return "Method Not Allowed";
+            case 406:
+                return "Not Acceptable";
+            case 408:
+                return "Request Timeout";
+            case 409:
+                return "Conflict";
+            case 411:
+                return "Length Required";
+            case 412:
+                return "Precondition Failed";
+            case 413:
+                return "Payload Too Large";
+            case 415:
+                return "Unsupported Media Type";
+            case 416:
+                return "Range Not Satisfiable";
+            case 417:
+                return "Expectation Failed";
+            case 429:
+                return "Too Many Requests";
+            case 431:
+                return "Request Header Fields Too Large";
+            case 500:
+                return "Internal Server Error";
+            case 501:
+                return "Not Implemented";
+            case 502:
+                return "Bad Gateway";
+            case 503:
+                return "Service Unavailable";
+            case 504:
+                return "Gateway Timeout";
+            case 505:
+                return "HTTP Version Not Supported";
+            default:
+                return status < 400 ? "OK" : status < 500 ? "Client Error" : "Server Error";
+        }
+    }
+
+    private class BodyOutputStream extends ServletOutputStream {
+
+        private final byte[] single = new byte[1];
+
+        @Override
+        public void write(int b) throws IOException {
+            single[0] = (byte) b;
+            ServerHttpResponse.this.write(single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ServerHttpResponse.this.write(b, off, len);
+        }
+
+        /**
+         * 只写出已经超出缓冲区的部分，缓冲区中的内容留到请求处理完时加上 Content-Length 一起写出
+         */
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new IllegalStateException("Non-blocking IO is not supported by the embedded server");
+        }
+    }
+
+    private static class CachedDate {
+
+        private final long second;
+
+        private final String value;
+
+        CachedDate(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.lucas.spring.server;
+
+import com.lucas.spring.init.v2.AsyncExecutors;
+import com.lucas.spring.init.v2.ZDispatcherServlet;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author zhangfan
+ * @description 内置 HTTP/1.1 服务，不需要 Servlet 容器就可以启动
+ * 启动时和部署到容器中一样调用 ZDispatcherServlet.init()，完成读取配置、扫描、实例化、注入和路由注册；
+ * 之后由一个线程接收连接，每个连接交给 AsyncExecutors 创建的执行器，JDK 21+ 上每个连接一个虚拟线程，用阻塞 IO 处理。
+ * 端口、线程和连接相关的配置和框架配置放在同一个文件中（server 开头），同名的系统属性优先，
+ * 运行时 classpath 中需要有 servlet-api
+ * @date 2026/10/18 18:00
+ **/
+public class ZHttpServer {
+
+    private static final String DEFAULT_CONFIG_LOCATION = "application.properties";
+
+    private final String contextConfigLocation;
+
+    private final ServerServletContext servletContext;
+
+    private final Set<HttpConnection> connections =
+            Collections.newSetFromMap(new ConcurrentHashMap<HttpConnection, Boolean>());
+
+    private final int port;
+
+    private final String executorType;
+
+    private final int threads;
+
+    private final int acceptQueue;
+
+    private final int keepAliveTimeout;
+
+    private final int maxKeepAliveRequests;
+
+    private final int maxHeaderSize;
+
+    private final int responseBufferSize;
+
+    private final int maxFormSize;
+
+    private ZDispatcherServlet servlet;
+
+    private ServerSocket serverSocket;
+
+    private ExecutorService executor;
+
+    private Thread acceptor;
+
+    private volatile boolean running;
+
+    public ZHttpServer(String contextConfigLocation) {
+        this.contextConfigLocation = contextConfigLocation;
+        this.servletContext = new ServerServletContext(ZHttpServer.class.getClassLoader());
+        Properties config = loadConfig(contextConfigLocation);
+        this.port = intProperty(config, "serverPort", 8080);
+        this.executorType = property(config, "serverExecutor", "virtual");
+        this.threads = intProperty(config, "serverThreads", 200);
+        this.acceptQueue = intProperty(config, "serverAcceptQueue", 1000);
+        this.keepAliveTimeout = intProperty(config, "serverKeepAliveTimeout", 20000);
+        this.maxKeepAliveRequests = intProperty(config, "serverMaxKeepAliveRequests", 10000);
+        this.maxHeaderSize = intProperty(config, "serverMaxHeaderSize", 16384);
+        this.responseBufferSize = intProperty(config, "serverResponseBufferSize", 65536);
+        this.maxFormSize = intProperty(config, "maxRequestBodySize", 10485760);
+    }
+
+    /**
+     * 初始化容器并开始监听端口
+     */
+    public synchronized void start() throws IOException, ServletException {
+        if (running) {
+            return;
+        }
+        servlet = new ZDispatcherServlet();
+        servlet.init(new ServletConfig() {
+            @Override
+            public String getServletName() {
+                return "zmvc";
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+
+            @Override
+            public String getInitParameter(String name) {
+                return "contextConfigLocation".equals(name) ? contextConfigLocation : null;
+            }
+
+            @Override
+            public Enumeration<String> getInitParameterNames() {
+                return Collections.enumeration(Collections.singletonList("contextConfigLocation"));
+            }
+        });
+        executor = AsyncExecutors.create(executorType, threads, acceptQueue, "z-http-");
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port), acceptQueue);
+        running = true;
+        acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        }, "z-http-acceptor");
+        acceptor.start();
+        System.out.println("Z HTTP server started on port " + getPort());
+    }
+
+    private void accept() {
+        while (running) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Accept failed: " + e);
+                    continue;
+                }
+                return;
+            }
+            HttpConnection connection = new HttpConnection(this, socket, servlet);
+            connections.add(connection);
+            try {
+                executor.execute(connection);
+            } catch (RejectedExecutionException e) {
+                // 线程池已满，直接回复 503
+                connections.remove(connection);
+                reject(socket);
+            }
+        }
+    }
+
+    private static void reject(Socket socket) {
+        try {
+            OutputStream out = socket.getOutputStream();
+            out.write(("HTTP/1.1 503 Service Unavailable\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+                    .getBytes("ISO-8859-1"));
+            out.flush();
+        } catch (IOException ignored) {
+            // 客户端已经断开
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // 已经关闭
+            }
+        }
+    }
+
+    /**
+     * 停止接收连接，关闭已有连接并销毁容器
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+            // 已经关闭
+        }
+        for (HttpConnection connection : connections) {
+            connection.close();
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        servlet.destroy();
+        System.out.println("Z HTTP server stopped.");
+    }
+
+    /**
+     * @return 实际监听的端口，serverPort=0 时由系统分配
+     */
+    public int getPort() {
+        return serverSocket == null ? port : serverSocket.getLocalPort();
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    void closed(HttpConnection connection) {
+        connections.remove(connection);
+    }
+
+    ServletContext getServletContext() {
+        return servletContext;
+    }
+
+    int getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    int getMaxKeepAliveRequests() {
+        return maxKeepAliveRequests;
+    }
+
+    int getMaxHeaderSize() {
+        return maxHeaderSize;
+    }
+
+    int getResponseBufferSize() {
+        return responseBufferSize;
+    }
+
+    int getMaxFormSize() {
+        return maxFormSize;
+    }
+
+    private static Properties loadConfig(String contextConfigLocation) {
+        Properties config = new Properties();
+        InputStream in = ZHttpServer.class.getClassLoader().getResourceAsStream(contextConfigLocation);
+        if (in == null) {
+            throw new IllegalArgumentException("Config " + contextConfigLocation + " not found in classpath");
+        }
+        try {
+            config.load(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Load " + contextConfigLocation + " failed", e);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // 忽略
+            }
+        }
+        return config;
+    }
+
+    private static String property(Properties config, String name, String defaultValue) {
+        return System.getProperty(name, config.getProperty(name, defaultValue)).trim();
+    }
+
+    private static int intProperty(Properties config, String name, int defaultValue) {
+        return Integer.parseInt(property(config, name, String.valueOf(defaultValue)));
+    }
+
+    /**
+     * 启动内置服务
+     *
+     * @param args 第一个参数为配置文件在 classpath 中的位置，默认 application.properties
+     */
+    public static void main(String[] args) throws Exception {
+        final ZHttpServer server = new ZHttpServer(args.length > 0 ? args[0] : DEFAULT_CONFIG_LOCATION);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                server.stop();
+            }
+        }, "z-http-shutdown"));
+    }
+}
@@ -1,5 +1,6 @@
 package com.lucas.spring.service;
 
+import com.lucas.spring.annotation.ZCacheable;
 import com.lucas.spring.annotation.ZService;
 
 /**
@@ -9,6 +10,7 @@ import com.lucas.spring.annotation.ZService;
  **/
 @ZService
 public class Service {
+    @ZCacheable(name = "names", ttl = 60, maxSize = 1000)
     public String get(String name) {
         return "My name is " + name;
     }